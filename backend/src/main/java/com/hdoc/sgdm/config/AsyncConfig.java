@@ -0,0 +1,26 @@
+package com.hdoc.sgdm.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class AsyncConfig {
+
+    /**
+     * Executor used to load the parts of a patient timeline in parallel.
+     * Kept below the Hikari pool size, since it bounds the connections the timelines hold at once.
+     */
+    @Bean(name = "timelineExecutor")
+    public ThreadPoolTaskExecutor timelineExecutor(
+            @Value("${patient.timeline.pool-size:4}") int poolSize) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(500);
+        executor.setThreadNamePrefix("timeline-");
+        executor.initialize();
+        return executor;
+    }
+}
@@ -0,0 +1,54 @@
+package com.hdoc.sgdm.config;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.orm.jpa.support.OpenEntityManagerInViewInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Open-in-view, as Spring Boot configures it for spring.jpa.open-in-view, except on the endpoints
+ * that wait for a render job or receive a large request body. Open-in-view keeps the connection
+ * of the request's first transaction until the response is written, which on these endpoints
+ * would cover the wait or the transfer itself; there the services load everything they return
+ * within their own transactions.
+ * Defining the interceptor makes Spring Boot back off from registering its own.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "spring.jpa", name = "open-in-view", havingValue = "true", matchIfMissing = true)
+public class OpenEntityManagerInViewConfig implements WebMvcConfigurer {
+
+    private static final String[] EXCLUDED_PATHS = {
+            // Waiting for a render job
+            "/api/ordonnances/*/generate-pdf",
+            "/api/certificats",
+            "/api/factures",
+            // The update, and the facture reads next to it, which have no lazy association
+            "/api/factures/*",
+            "/api/factures/*/generate-pdf",
+            "/api/formulaires/generate-pdf",
+            // Receiving a chunk of a resumable upload
+            "/api/documents/uploads/*/chunks/*"
+    };
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    public OpenEntityManagerInViewConfig(EntityManagerFactory entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    @Bean
+    public OpenEntityManagerInViewInterceptor openEntityManagerInViewInterceptor() {
+        OpenEntityManagerInViewInterceptor interceptor = new OpenEntityManagerInViewInterceptor();
+        interceptor.setEntityManagerFactory(entityManagerFactory);
+        return interceptor;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addWebRequestInterceptor(openEntityManagerInViewInterceptor())
+                .excludePathPatterns(EXCLUDED_PATHS);
+    }
+}
@@ -0,0 +1,59 @@
+package com.hdoc.sgdm.config;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Stops the startup when the prescription ID sequence would hand out IDs already issued.
+ *
+ * Prescription IDs come from prescription_id_seq by blocks of 50 (see V11). If the application
+ * started once before V11 was applied, ddl-auto created the sequence starting at 1, and new
+ * prescription lines would collide with the existing ones. The sequence is not moved here:
+ * another node may already be allocating from it. Apply V11 (its setval), then restart.
+ */
+@Component
+// After ddl-auto, which creates the table and the sequence of a new database
+@DependsOn("entityManagerFactory")
+@Slf4j
+public class PrescriptionSequenceCheck {
+
+    // allocationSize of the sequence generator of Prescription
+    private static final int ALLOCATION_SIZE = 50;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public PrescriptionSequenceCheck(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void check() {
+        long nextValue;
+        long highestId;
+        try {
+            // The value the next call to nextval returns, without calling it
+            nextValue = jdbcTemplate.queryForObject(
+                    "SELECT CASE WHEN s.is_called THEN s.last_value + p.increment_by ELSE s.last_value END " +
+                    "FROM prescription_id_seq s, pg_sequences p " +
+                    "WHERE p.schemaname = current_schema() AND p.sequencename = 'prescription_id_seq'",
+                    Long.class);
+            highestId = jdbcTemplate.queryForObject(
+                    "SELECT COALESCE(MAX(id_prescription), 0) FROM prescription", Long.class);
+        } catch (DataAccessException e) {
+            throw new IllegalStateException("Cannot read prescription_id_seq, apply V11__Add_Prescription_Sequence.sql", e);
+        }
+
+        // The pooled optimizer hands out the block ending at the value, or starting at it for the first values
+        long firstId = nextValue <= ALLOCATION_SIZE ? nextValue : nextValue - ALLOCATION_SIZE + 1;
+        if (firstId <= highestId) {
+            throw new IllegalStateException("prescription_id_seq (next value " + nextValue
+                    + ") is not past the highest prescription ID " + highestId
+                    + ": apply the setval of V11__Add_Prescription_Sequence.sql before starting the application");
+        }
+        log.debug("prescription_id_seq next value {}, highest prescription ID {}", nextValue, highestId);
+    }
+}
@@ -0,0 +1,30 @@
+package com.hdoc.sgdm.config;
+
+import okhttp3.ConnectionPool;
+import okhttp3.OkHttpClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class StorageConfig {
+
+    /**
+     * HTTP client of the storage calls. A single instance, so that every upload reuses the
+     * connections of one pool instead of opening its own TLS connections to Supabase.
+     */
+    @Bean
+    public OkHttpClient storageHttpClient(
+            @Value("${storage.http.max-idle-connections:10}") int maxIdleConnections,
+            @Value("${storage.http.keep-alive-ms:300000}") long keepAliveMs,
+            @Value("${storage.http.timeout-ms:30000}") long timeoutMs) {
+        return new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(maxIdleConnections, keepAliveMs, TimeUnit.MILLISECONDS))
+                .connectTimeout(timeoutMs, TimeUnit.MILLISECONDS)
+                .writeTimeout(timeoutMs, TimeUnit.MILLISECONDS)
+                .readTimeout(timeoutMs, TimeUnit.MILLISECONDS)
+                .build();
+    }
+}
@@ -16,7 +16,8 @@ public class WebConfig implements WebMvcConfigurer {
         registry.addMapping("/api/**")
                 .allowedOrigins(allowedOrigins.split(","))
                 .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS")
-                .allowedHeaders("Origin", "Content-Type", "Accept", "Authorization")
+                .allowedHeaders("Origin", "Content-Type", "Accept", "Authorization", "If-None-Match")
+                .exposedHeaders("ETag", "X-Sync-Token") // Calendar delta sync
                 .allowCredentials(true)
                 .maxAge(3600); // 1 hour max age
     }
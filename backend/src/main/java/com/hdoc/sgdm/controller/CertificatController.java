@@ -2,7 +2,9 @@ package com.hdoc.sgdm.controller;
 
 import com.hdoc.sgdm.dto.request.CertificatRequest;
 import com.hdoc.sgdm.dto.response.CertificatDTO;
+import com.hdoc.sgdm.entity.RenderJob;
 import com.hdoc.sgdm.service.CertificatService;
+import com.hdoc.sgdm.service.RenderJobQueue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -10,8 +12,10 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.net.URI;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/certificats")
@@ -19,27 +23,52 @@ public class CertificatController {
     private static final Logger logger = LoggerFactory.getLogger(CertificatController.class);
     
     private final CertificatService certificatService;
+    private final RenderJobQueue renderJobQueue;
     
     @Autowired
-    public CertificatController(CertificatService certificatService) {
+    public CertificatController(CertificatService certificatService, RenderJobQueue renderJobQueue) {
         this.certificatService = certificatService;
+        this.renderJobQueue = renderJobQueue;
     }
     
     /**
-     * Create a new medical certificate
+     * Create a new medical certificate. Its PDF is rendered by a background job; the response
+     * waits for it, unless the client sends "Prefer: respond-async", in which case it is
+     * 202 Accepted with the job to follow at /api/render-jobs/{idRenderJob}. A job still
+     * running after the wait gets the same 202 response.
      * 
      * @param request Certificate creation data
+     * @param prefer Prefer header
      * @return The created certificate
      */
     @PostMapping
-    public ResponseEntity<CertificatDTO> createCertificat(@RequestBody CertificatRequest request) {
+    public CompletableFuture<ResponseEntity<CertificatDTO>> createCertificat(@RequestBody CertificatRequest request,
+                                                                            @RequestHeader(value = "Prefer", required = false) String prefer) {
         logger.info("Creating new certificat for patient: {}", request.getIdPatient());
         
         CertificatDTO certificat = certificatService.createCertificat(request);
         
         logger.info("Certificat created successfully with ID: {}", certificat.getIdCertificat());
         
-        return ResponseEntity.status(HttpStatus.CREATED).body(certificat);
+        if (certificat.getIdRenderJob() == null) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.CREATED).body(certificat));
+        }
+        ResponseEntity<CertificatDTO> accepted = ResponseEntity.accepted()
+                .location(URI.create("/api/render-jobs/" + certificat.getIdRenderJob()))
+                .body(certificat);
+        if (RenderJobQueue.isRespondAsync(prefer)) {
+            return CompletableFuture.completedFuture(accepted);
+        }
+        return renderJobQueue.awaitAsync(certificat.getIdRenderJob()).thenApply(job -> {
+            if (job.getStatut() == RenderJob.StatutJob.TERMINE) {
+                return ResponseEntity.status(HttpStatus.CREATED)
+                        .body(certificatService.getCertificatById(certificat.getIdCertificat()));
+            }
+            if (job.getStatut() == RenderJob.StatutJob.ECHEC) {
+                throw new RuntimeException("Failed to generate PDF for certificate: " + job.getErreur());
+            }
+            return accepted;
+        });
     }
     
     /**
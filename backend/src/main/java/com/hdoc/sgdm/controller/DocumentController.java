@@ -1,11 +1,17 @@
 package com.hdoc.sgdm.controller;
 
 import com.hdoc.sgdm.dto.common.DocumentImporteDTO;
+import com.hdoc.sgdm.dto.request.InitiateUploadRequest;
 import com.hdoc.sgdm.dto.request.UpdateDocumentRequest;
 import com.hdoc.sgdm.dto.request.UploadDocumentRequest;
 import com.hdoc.sgdm.dto.response.DocumentListResponse;
 import com.hdoc.sgdm.dto.response.DocumentResponse;
+import com.hdoc.sgdm.dto.response.UploadSessionDTO;
+import com.hdoc.sgdm.dto.response.UploadSessionResponse;
+import com.hdoc.sgdm.exception.ConflictException;
 import com.hdoc.sgdm.service.DocumentService;
+import com.hdoc.sgdm.service.ResumableUploadService;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -14,6 +20,7 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 import java.util.Map;
 
@@ -23,6 +30,7 @@ import java.util.Map;
 public class DocumentController {
     
     private final DocumentService documentService;
+    private final ResumableUploadService resumableUploadService;
     
     // Development testing endpoint
     @GetMapping("/documents/test")
@@ -69,6 +77,69 @@ public class DocumentController {
         }
     }
     
+    /**
+     * Start a resumable upload, for large files or unreliable networks. The response gives the
+     * size and number of the chunks to send.
+     */
+    @PostMapping("/patients/{ipp}/documents/uploads")
+    public ResponseEntity<UploadSessionResponse> initiateUpload(
+            @PathVariable String ipp,
+            @Valid @RequestBody InitiateUploadRequest request) {
+        
+        try {
+            UploadSessionDTO upload = resumableUploadService.initiate(ipp, request);
+            return ResponseEntity.status(HttpStatus.CREATED)
+                    .body(new UploadSessionResponse(true, "Upload started", upload));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new UploadSessionResponse(false, e.getMessage(), null));
+        }
+    }
+    
+    /**
+     * Send a chunk of a resumable upload as the raw request body (application/octet-stream).
+     * Chunks may be sent in any order, and again after an interruption.
+     */
+    @PutMapping("/documents/uploads/{idSession}/chunks/{index}")
+    public ResponseEntity<UploadSessionResponse> uploadChunk(
+            @PathVariable Long idSession,
+            @PathVariable int index,
+            InputStream content) throws IOException {
+        
+        try {
+            UploadSessionDTO upload = resumableUploadService.putChunk(idSession, index, content);
+            return ResponseEntity.ok(new UploadSessionResponse(true, "Chunk received", upload));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new UploadSessionResponse(false, e.getMessage(), null));
+        } catch (ConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(new UploadSessionResponse(false, e.getMessage(), null));
+        }
+    }
+    
+    /**
+     * Get the state of a resumable upload and the byte ranges received so far, to resume it
+     */
+    @GetMapping("/documents/uploads/{idSession}")
+    public ResponseEntity<UploadSessionResponse> getUpload(@PathVariable Long idSession) throws IOException {
+        UploadSessionDTO upload = resumableUploadService.getSession(idSession);
+        return ResponseEntity.ok(new UploadSessionResponse(true, "Upload retrieved successfully", upload));
+    }
+    
+    /**
+     * Complete a resumable upload once all its chunks are sent. The file is pushed to storage in
+     * the background, then the document is created: follow the render job given by id_job, or
+     * this upload until its statut is TERMINE and id_document is set.
+     */
+    @PostMapping("/documents/uploads/{idSession}/complete")
+    public ResponseEntity<UploadSessionResponse> completeUpload(@PathVariable Long idSession) throws IOException {
+        try {
+            UploadSessionDTO upload = resumableUploadService.complete(idSession);
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .body(new UploadSessionResponse(true, "Upload complete, document being stored", upload));
+        } catch (ConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(new UploadSessionResponse(false, e.getMessage(), null));
+        }
+    }
+    
     /**
      * Update document metadata (title, description, type)
      */
@@ -4,8 +4,10 @@ import com.hdoc.sgdm.dto.request.FactureRequest;
 import com.hdoc.sgdm.dto.request.FactureUpdateRequest;
 import com.hdoc.sgdm.dto.request.PrepareFactureRequest;
 import com.hdoc.sgdm.dto.response.FactureResponse;
+import com.hdoc.sgdm.entity.RenderJob;
 import com.hdoc.sgdm.dto.common.CurrentUser;
 import com.hdoc.sgdm.service.FactureService;
+import com.hdoc.sgdm.service.RenderJobQueue;
 import com.hdoc.sgdm.util.UserRequestUtil;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -14,10 +16,13 @@ import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.net.URI;
 import java.util.List;
 import java.util.UUID;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/factures")
@@ -27,44 +32,52 @@ public class FactureController {
     
     private final FactureService factureService;
     private final UserRequestUtil userRequestUtil;
+    private final RenderJobQueue renderJobQueue;
     
     /**
      * Create a new facture
+     * Its PDF is generated by a background job, see {@link #respondWithPDF}
      * 
      * @param request the facture request
+     * @param prefer the Prefer header
      * @return the created facture
      */
     @PostMapping
-    public ResponseEntity<FactureResponse> createFacture(@Valid @RequestBody FactureRequest request) {
+    public CompletableFuture<ResponseEntity<FactureResponse>> createFacture(@Valid @RequestBody FactureRequest request,
+                                                                            @RequestHeader(value = "Prefer", required = false) String prefer) {
         logger.info("Creating new facture for visite ID: {}", request.getIdVisite());
         FactureResponse response = factureService.createFacture(request);
-        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        return respondWithPDF(response, HttpStatus.CREATED, prefer, false);
     }
     
     /**
      * Generate a facture PDF and save it in a single operation
      * 
      * @param request the facture data
+     * @param prefer the Prefer header
      * @return the created facture with PDF URL
      */
     @PostMapping("/generate-pdf")
-    public ResponseEntity<FactureResponse> generateAndSaveFacture(@Valid @RequestBody FactureRequest request) {
+    public CompletableFuture<ResponseEntity<FactureResponse>> generateAndSaveFacture(@Valid @RequestBody FactureRequest request,
+                                                                                     @RequestHeader(value = "Prefer", required = false) String prefer) {
         logger.info("Generating PDF and saving facture for visite ID: {}", request.getIdVisite());
         FactureResponse response = factureService.generateAndSaveFacture(request);
-        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        return respondWithPDF(response, HttpStatus.CREATED, prefer, true);
     }
     
     /**
      * Generate and store PDF for a facture
      * 
      * @param idFacture the facture ID
+     * @param prefer the Prefer header
      * @return the updated facture with the PDF URL
      */
     @PostMapping("/{idFacture}/generate-pdf")
-    public ResponseEntity<FactureResponse> generatePDF(@PathVariable Integer idFacture) {
+    public CompletableFuture<ResponseEntity<FactureResponse>> generatePDF(@PathVariable Integer idFacture,
+                                                                          @RequestHeader(value = "Prefer", required = false) String prefer) {
         logger.info("Generating PDF for facture ID: {}", idFacture);
         FactureResponse response = factureService.generatePDF(idFacture);
-        return ResponseEntity.ok(response);
+        return respondWithPDF(response, HttpStatus.OK, prefer, true);
     }
     
     /**
@@ -154,12 +167,48 @@ public class FactureController {
      * @return the updated facture
      */
     @PutMapping("/{idFacture}")
-    public ResponseEntity<FactureResponse> updateFacture(
+    public CompletableFuture<ResponseEntity<FactureResponse>> updateFacture(
             @PathVariable Integer idFacture,
-            @Valid @RequestBody FactureUpdateRequest request) {
+            @Valid @RequestBody FactureUpdateRequest request,
+            @RequestHeader(value = "Prefer", required = false) String prefer) {
         
         logger.info("Updating facture with ID: {}", idFacture);
         FactureResponse response = factureService.updateFacture(idFacture, request);
-        return ResponseEntity.ok(response);
+        return respondWithPDF(response, HttpStatus.OK, prefer, false);
+    }
+    
+    /**
+     * Respond once the PDF of the facture is generated by its render job, if one was queued.
+     * With "Prefer: respond-async", or if the job is still running after the wait, respond
+     * 202 Accepted with the job to follow at /api/render-jobs/{idRenderJob} instead.
+     * 
+     * @param facture the facture, with its render job
+     * @param status the status of the response once the PDF is generated
+     * @param prefer the Prefer header
+     * @param failOnError whether a failed generation is an error, or just leaves the URL empty
+     * @return the response
+     */
+    private CompletableFuture<ResponseEntity<FactureResponse>> respondWithPDF(FactureResponse facture, HttpStatus status,
+                                                                              String prefer, boolean failOnError) {
+        if (facture.getIdRenderJob() == null) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(status).body(facture));
+        }
+        ResponseEntity<FactureResponse> accepted = ResponseEntity.accepted()
+                .location(URI.create("/api/render-jobs/" + facture.getIdRenderJob()))
+                .body(facture);
+        if (RenderJobQueue.isRespondAsync(prefer)) {
+            return CompletableFuture.completedFuture(accepted);
+        }
+        return renderJobQueue.awaitAsync(facture.getIdRenderJob()).thenApply(job -> {
+            if (job.getStatut() == RenderJob.StatutJob.TERMINE
+                    || (job.getStatut() == RenderJob.StatutJob.ECHEC && !failOnError)) {
+                return ResponseEntity.status(status).body(factureService.getFacture(facture.getIdFacture()));
+            }
+            if (job.getStatut() == RenderJob.StatutJob.ECHEC) {
+                throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR,
+                        "Erreur lors de la génération du PDF: " + job.getErreur());
+            }
+            return accepted;
+        });
     }
-} 
\ No newline at end of file
+}
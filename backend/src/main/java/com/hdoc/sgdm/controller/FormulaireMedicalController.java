@@ -1,25 +1,34 @@
 package com.hdoc.sgdm.controller;
 
 import com.hdoc.sgdm.dto.*;
+import com.hdoc.sgdm.dto.response.RenderJobDTO;
+import com.hdoc.sgdm.entity.RenderJob;
 import com.hdoc.sgdm.service.FormulaireMedicalService;
 import com.hdoc.sgdm.service.FormPDFService;
+import com.hdoc.sgdm.service.RenderJobQueue;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.net.URI;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @RestController
 @RequestMapping("/api/formulaires")
 @RequiredArgsConstructor
+@Slf4j
 public class FormulaireMedicalController {
 
     private final FormulaireMedicalService formulaireMedicalService;
     private final FormPDFService formPDFService;
+    private final RenderJobQueue renderJobQueue;
     
     /**
      * Get all form templates for a specialty
@@ -88,9 +97,13 @@ public class FormulaireMedicalController {
     
     /**
      * Submit a filled form and generate PDF
+     * The PDF is rendered by a background job that the response waits for, unless the client
+     * sends "Prefer: respond-async"; then, or if the job is still running after the wait, the
+     * response is 202 Accepted with the job to follow at /api/render-jobs/{idRenderJob}
      */
     @PostMapping("/generate-pdf")
-    public ResponseEntity<?> submitFormAndGeneratePDF(@RequestBody FormulaireRequest request) {
+    public CompletableFuture<ResponseEntity<?>> submitFormAndGeneratePDF(@RequestBody FormulaireRequest request,
+                                                                         @RequestHeader(value = "Prefer", required = false) String prefer) {
         try {
             // Log incoming request
             System.out.println("PDF Generation Request received: " + request);
@@ -116,17 +129,23 @@ public class FormulaireMedicalController {
                 }
             }
             
-            // Then generate and upload PDF
-            Map<String, Object> result = formPDFService.generateAndUploadPDF(formulaire);
-            
-            // Add form data to the response
-            result.put("formulaire", formulaire);
-            
-            if ((boolean) result.get("success")) {
-                return ResponseEntity.ok(result);
-            } else {
-                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(result);
+            // Then queue the PDF generation, and wait for it unless the client prefers not to
+            RenderJobDTO job = renderJobQueue.enqueue(RenderJob.TypeDocument.FORMULAIRE, formulaire.getIdFormulaire().longValue());
+            FormulairePatientDTO submitted = formulaire;
+            if (RenderJobQueue.isRespondAsync(prefer)) {
+                return CompletableFuture.completedFuture(respondWithPDF(submitted, job));
             }
+            return renderJobQueue.awaitAsync(job.getIdJob())
+                    .<ResponseEntity<?>>thenApply(done -> respondWithPDF(submitted, done))
+                    .exceptionally(e -> {
+                        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                        log.error("PDF generation failed for form {}", submitted.getIdFormulaire(), cause);
+                        
+                        Map<String, Object> errorResponse = new HashMap<>();
+                        errorResponse.put("success", false);
+                        errorResponse.put("message", "Erreur lors de la génération du PDF: " + cause.getMessage());
+                        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
+                    });
         } catch (IllegalArgumentException e) {
             // Log the exception
             e.printStackTrace();
@@ -134,7 +153,7 @@ public class FormulaireMedicalController {
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("success", false);
             errorResponse.put("message", "Données invalides: " + e.getMessage());
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse);
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse));
         } catch (Exception e) {
             // Log the exception
             e.printStackTrace();
@@ -142,7 +161,33 @@ public class FormulaireMedicalController {
             Map<String, Object> errorResponse = new HashMap<>();
             errorResponse.put("success", false);
             errorResponse.put("message", "Erreur lors de la génération du PDF: " + e.getMessage());
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse));
+        }
+    }
+    
+    /**
+     * Response to a submitted form, according to the state of its PDF render job
+     */
+    private static ResponseEntity<?> respondWithPDF(FormulairePatientDTO formulaire, RenderJobDTO job) {
+        // Add form data to the response
+        Map<String, Object> result = new HashMap<>();
+        result.put("formulaire", formulaire);
+        result.put("idRenderJob", job.getIdJob());
+        
+        if (job.getStatut() == RenderJob.StatutJob.TERMINE) {
+            result.put("success", true);
+            result.put("pdfUrl", job.getUrl());
+            return ResponseEntity.ok(result);
+        } else if (job.getStatut() == RenderJob.StatutJob.ECHEC) {
+            result.put("success", false);
+            result.put("error", job.getErreur());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(result);
+        } else {
+            // Still rendering: follow the job at /api/render-jobs/{idRenderJob}
+            result.put("success", true);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/render-jobs/" + job.getIdJob()))
+                    .body(result);
         }
     }
     
@@ -1,8 +1,7 @@
 package com.hdoc.sgdm.controller;
 
 import com.hdoc.sgdm.dto.response.MedicamentDTO;
-import com.hdoc.sgdm.entity.Medicament;
-import com.hdoc.sgdm.repository.MedicamentRepository;
+import com.hdoc.sgdm.service.MedicamentCatalog;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -10,61 +9,60 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/medicaments")
 public class MedicamentController {
     private static final Logger logger = LoggerFactory.getLogger(MedicamentController.class);
     
-    private final MedicamentRepository medicamentRepository;
+    private static final int MAX_SEARCH_LIMIT = 100;
+    
+    private final MedicamentCatalog medicamentCatalog;
     
     @Autowired
-    public MedicamentController(MedicamentRepository medicamentRepository) {
-        this.medicamentRepository = medicamentRepository;
+    public MedicamentController(MedicamentCatalog medicamentCatalog) {
+        this.medicamentCatalog = medicamentCatalog;
     }
     
     /**
      * Get all medicaments
      * 
-     * @return List of all medicaments
+     * @return List of all medicaments, in name order
      */
     @GetMapping
     public ResponseEntity<List<MedicamentDTO>> getAllMedicaments() {
         logger.info("Fetching all medicaments");
         
-        List<MedicamentDTO> medicaments = medicamentRepository.findAll().stream()
-                .map(this::mapToDTO)
-                .collect(Collectors.toList());
-        
-        return ResponseEntity.ok(medicaments);
+        return ResponseEntity.ok(medicamentCatalog.findAll());
     }
     
     /**
-     * Search for medicaments by name
+     * Search for medicaments by name, for the prescription autocomplete
      * 
      * @param query Search query
-     * @return List of matching medicaments
+     * @param limit Maximum number of suggestions
+     * @return List of matching medicaments, best match first
      */
     @GetMapping("/search")
-    public ResponseEntity<List<MedicamentDTO>> searchMedicaments(@RequestParam String query) {
-        logger.info("Searching for medicaments with query: {}", query);
-        
-        List<MedicamentDTO> medicaments = medicamentRepository.findByNomContainingIgnoreCase(query).stream()
-                .map(this::mapToDTO)
-                .collect(Collectors.toList());
+    public ResponseEntity<List<MedicamentDTO>> searchMedicaments(@RequestParam String query,
+                                                                 @RequestParam(defaultValue = "20") int limit) {
+        logger.debug("Searching for medicaments with query: {}", query);
         
-        return ResponseEntity.ok(medicaments);
+        return ResponseEntity.ok(medicamentCatalog.search(query, Math.min(limit, MAX_SEARCH_LIMIT)));
     }
     
     /**
-     * Convert Medicament entity to DTO
+     * Reload the medicament catalog, after the medicament table was imported or edited
+     * 
+     * @return The number of medicaments in the catalog
      */
-    private MedicamentDTO mapToDTO(Medicament medicament) {
-        return MedicamentDTO.builder()
-                .idMedicament(medicament.getIdMedicament())
-                .nom(medicament.getNom())
-                .description(medicament.getDescription())
-                .build();
+    @PostMapping("/catalog/refresh")
+    public ResponseEntity<Map<String, Object>> refreshCatalog() {
+        logger.info("Refreshing the medicament catalog");
+        
+        int count = medicamentCatalog.rebuild();
+        
+        return ResponseEntity.ok(Map.of("count", count));
     }
-} 
\ No newline at end of file
+}
@@ -2,8 +2,11 @@ package com.hdoc.sgdm.controller;
 
 import com.hdoc.sgdm.dto.request.EmptyOrdonnanceRequest;
 import com.hdoc.sgdm.dto.request.OrdonnanceRequest;
+import com.hdoc.sgdm.dto.request.PrescriptionRequest;
 import com.hdoc.sgdm.dto.response.OrdonnanceDTO;
+import com.hdoc.sgdm.entity.RenderJob;
 import com.hdoc.sgdm.service.OrdonnanceService;
+import com.hdoc.sgdm.service.RenderJobQueue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -11,8 +14,10 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.net.URI;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/ordonnances")
@@ -20,10 +25,12 @@ public class OrdonnanceController {
     private static final Logger logger = LoggerFactory.getLogger(OrdonnanceController.class);
     
     private final OrdonnanceService ordonnanceService;
+    private final RenderJobQueue renderJobQueue;
     
     @Autowired
-    public OrdonnanceController(OrdonnanceService ordonnanceService) {
+    public OrdonnanceController(OrdonnanceService ordonnanceService, RenderJobQueue renderJobQueue) {
         this.ordonnanceService = ordonnanceService;
+        this.renderJobQueue = renderJobQueue;
     }
     
     /**
@@ -61,18 +68,55 @@ public class OrdonnanceController {
     }
     
     /**
-     * Generate PDF for an existing ordonnance
+     * Generate PDF for an existing ordonnance. The PDF is rendered by a background job; the
+     * response waits for it, unless the client sends "Prefer: respond-async", in which case
+     * it is 202 Accepted with the job to follow at /api/render-jobs/{id_render_job}. A job
+     * still running after the wait gets the same 202 response.
      * 
      * @param idOrdonnance Ordonnance ID
-     * @return The updated ordonnance with PDF URL
+     * @param prefer Prefer header
+     * @return The updated ordonnance with PDF URL, or the ordonnance with its render job
      */
     @PostMapping("/{idOrdonnance}/generate-pdf")
-    public ResponseEntity<OrdonnanceDTO> generateOrdonnancePDF(@PathVariable Long idOrdonnance) {
+    public CompletableFuture<ResponseEntity<OrdonnanceDTO>> generateOrdonnancePDF(@PathVariable Long idOrdonnance,
+                                                                                @RequestHeader(value = "Prefer", required = false) String prefer) {
         logger.info("Generating PDF for ordonnance ID: {}", idOrdonnance);
         
         OrdonnanceDTO ordonnance = ordonnanceService.generateOrdonnancePDF(idOrdonnance);
+        ResponseEntity<OrdonnanceDTO> accepted = ResponseEntity.accepted()
+                .location(URI.create("/api/render-jobs/" + ordonnance.getIdRenderJob()))
+                .body(ordonnance);
+        
+        if (RenderJobQueue.isRespondAsync(prefer)) {
+            return CompletableFuture.completedFuture(accepted);
+        }
+        return renderJobQueue.awaitAsync(ordonnance.getIdRenderJob()).thenApply(job -> {
+            if (job.getStatut() == RenderJob.StatutJob.TERMINE) {
+                logger.info("PDF generated successfully for ordonnance ID: {}", idOrdonnance);
+                return ResponseEntity.ok(ordonnanceService.getOrdonnanceById(idOrdonnance));
+            }
+            if (job.getStatut() == RenderJob.StatutJob.ECHEC) {
+                throw new RuntimeException("Failed to generate PDF for ordonnance: " + job.getErreur());
+            }
+            return accepted;
+        });
+    }
+    
+    /**
+     * Replace all prescription lines of an ordonnance
+     * 
+     * @param idOrdonnance Ordonnance ID
+     * @param prescriptions The complete list of lines; lines with an id_prescription update that line
+     * @return The updated ordonnance
+     */
+    @PutMapping("/{idOrdonnance}/prescriptions")
+    public ResponseEntity<OrdonnanceDTO> replacePrescriptions(@PathVariable Long idOrdonnance,
+                                                              @RequestBody List<PrescriptionRequest> prescriptions) {
+        logger.info("Replacing prescriptions of ordonnance ID: {} with {} line(s)", idOrdonnance, prescriptions.size());
+        
+        OrdonnanceDTO ordonnance = ordonnanceService.replacePrescriptions(idOrdonnance, prescriptions);
         
-        logger.info("PDF generated successfully for ordonnance ID: {}", idOrdonnance);
+        logger.info("Prescriptions replaced successfully for ordonnance ID: {}", idOrdonnance);
         
         return ResponseEntity.ok(ordonnance);
     }
@@ -18,7 +18,9 @@ import com.hdoc.sgdm.dto.request.SearchPatientRequest;
 import com.hdoc.sgdm.dto.request.UpdatePatientRequest;
 import com.hdoc.sgdm.dto.response.PatientResponse;
 import com.hdoc.sgdm.dto.response.PatientSearchResponse;
+import com.hdoc.sgdm.dto.response.PatientTimelineResponse;
 import com.hdoc.sgdm.service.PatientService;
+import com.hdoc.sgdm.service.PatientTimelineService;
 import com.hdoc.sgdm.util.UserRequestUtil;
 
 import jakarta.validation.Valid;
@@ -30,11 +32,14 @@ import java.util.UUID;
 public class PatientController {
 
     private final PatientService patientService;
+    private final PatientTimelineService patientTimelineService;
     private final UserRequestUtil userRequestUtil;
 
     @Autowired
-    public PatientController(PatientService patientService, UserRequestUtil userRequestUtil) {
+    public PatientController(PatientService patientService, PatientTimelineService patientTimelineService,
+                             UserRequestUtil userRequestUtil) {
         this.patientService = patientService;
+        this.patientTimelineService = patientTimelineService;
         this.userRequestUtil = userRequestUtil;
     }
 
@@ -52,6 +57,8 @@ public class PatientController {
     @GetMapping("/patients")
     public ResponseEntity<PatientSearchResponse> getPatients(
             @RequestParam(required = false) String query,
+            @RequestParam(required = false, defaultValue = "0") int page,
+            @RequestParam(required = false) Integer size,
             @RequestHeader(value = "X-User-ID", required = false) String userId,
             @RequestHeader(value = "X-User-Role", required = false) String userRole) {
         
@@ -59,7 +66,7 @@ public class PatientController {
         CurrentUser currentUser = userRequestUtil.extractCurrentUser(userId, userRole);
         
         // Perform search with appropriate access control
-        PatientSearchResponse response = patientService.searchPatients(query, currentUser);
+        PatientSearchResponse response = patientService.searchPatients(query, currentUser, page, size);
         return ResponseEntity.ok(response);
     }
     
@@ -74,6 +81,18 @@ public class PatientController {
         }
     }
     
+    /**
+     * Get the whole patient file as one time-ordered stream of events (visits, prescriptions,
+     * invoices, certificates, documents, allergies and medical forms), most recent first.
+     */
+    @GetMapping("/patients/{ipp}/timeline")
+    public ResponseEntity<PatientTimelineResponse> getPatientTimeline(
+            @PathVariable("ipp") String ipp,
+            @RequestParam(required = false, defaultValue = "0") int page,
+            @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok(patientTimelineService.getTimeline(ipp, page, size));
+    }
+    
     @PutMapping("/patients/{ipp}/modify")
     public ResponseEntity<PatientResponse> updatePatient(
             @PathVariable("ipp") String ipp,
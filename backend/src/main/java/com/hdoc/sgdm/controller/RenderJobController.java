@@ -0,0 +1,41 @@
+package com.hdoc.sgdm.controller;
+
+import com.hdoc.sgdm.dto.response.RenderJobDTO;
+import com.hdoc.sgdm.service.RenderJobQueue;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/api/render-jobs")
+@RequiredArgsConstructor
+public class RenderJobController {
+
+    private final RenderJobQueue renderJobQueue;
+
+    /**
+     * Get the state of a PDF render job. Once its statut is TERMINE, url is the PDF URL,
+     * also stored on the document.
+     *
+     * @param idJob Job ID
+     * @return The job
+     */
+    @GetMapping("/{idJob}")
+    public ResponseEntity<RenderJobDTO> getJob(@PathVariable Long idJob) {
+        return ResponseEntity.ok(renderJobQueue.getJob(idJob));
+    }
+
+    /**
+     * Follow a PDF render job. A "job" event carries its current state, then another one
+     * its final state (TERMINE or ECHEC), after which the stream ends.
+     *
+     * @param idJob Job ID
+     * @return Server-sent events stream
+     */
+    @GetMapping(value = "/{idJob}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamJob(@PathVariable Long idJob) {
+        return renderJobQueue.subscribe(idJob);
+    }
+}
@@ -1,17 +1,26 @@
 package com.hdoc.sgdm.controller;
 
+import com.hdoc.sgdm.dto.request.BulkRendezVousRequest;
 import com.hdoc.sgdm.dto.request.RendezVousRequest;
+import com.hdoc.sgdm.dto.response.BulkRendezVousResponse;
+import com.hdoc.sgdm.dto.response.CompactRendezVousListResponse;
+import com.hdoc.sgdm.dto.response.CreneauListResponse;
 import com.hdoc.sgdm.dto.response.RendezVousListResponse;
 import com.hdoc.sgdm.dto.response.RendezVousResponse;
 import com.hdoc.sgdm.entity.RendezVous;
+import com.hdoc.sgdm.mapper.CompactRendezVousWriter;
 import com.hdoc.sgdm.repository.RendezVousRepository;
+import com.hdoc.sgdm.service.CreneauService;
 import com.hdoc.sgdm.service.RendezVousService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -22,28 +31,92 @@ import java.util.UUID;
 @RequiredArgsConstructor
 public class RendezVousController {
 
+    private static final String SYNC_TOKEN_HEADER = "X-Sync-Token";
+    private static final String SHAPE_FULL = "full";
+    private static final String SHAPE_COMPACT = "compact";
+
     private final RendezVousService rendezVousService;
     private final RendezVousRepository rendezVousRepository;
+    private final CreneauService creneauService;
+    private final CompactRendezVousWriter compactRendezVousWriter;
 
     /**
      * Get appointments for the calendar view within a specified date range.
      * By default, this only returns appointments with status 'PLANIFIE' (scheduled).
      * Use the includeAllStatuses parameter to retrieve all appointments regardless of status.
      * 
-     * @param startDate The start of the date range
-     * @param endDate The end of the date range
+     * The response carries an ETag, unless the view is empty or its appointments predate the change
+     * tracking of V10; a request repeating it in If-None-Match gets a 304 without body while no
+     * appointment of the view and no status of its doctors changed (patient and doctor names are
+     * not covered). It also carries an X-Sync-Token header: passing it back as
+     * {@code since} returns only the appointments created or updated (cancelled included) since then,
+     * whatever their date, doctor or status, with the next token. A 410 means too much changed and
+     * the view should be reloaded. Permanently deleted appointments only show in the ETag.
+     * 
+     * With shape=compact, the appointments only carry the IDs of their patient and doctor, which
+     * are listed once each in side dictionaries (see {@link CompactRendezVousWriter}).
+     * 
+     * @param startDate The start of the date range (not needed with since)
+     * @param endDate The end of the date range (not needed with since)
      * @param doctorId Optional doctor ID to filter appointments by a specific doctor
      * @param includeAllStatuses When true, returns all appointments regardless of status; when false (default), returns only PLANIFIE appointments
+     * @param since Optional sync token from a previous response
+     * @param shape full (default) or compact
      * @return List of appointment responses for the calendar
      */
     @GetMapping("/appointments")
-    public ResponseEntity<List<RendezVousResponse>> getAppointments(
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+    public ResponseEntity<?> getAppointments(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
             @RequestParam(required = false) UUID doctorId,
-            @RequestParam(required = false, defaultValue = "false") boolean includeAllStatuses) {
+            @RequestParam(required = false, defaultValue = "false") boolean includeAllStatuses,
+            @RequestParam(required = false) String since,
+            @RequestParam(required = false, defaultValue = SHAPE_FULL) String shape,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        
+        if (!isKnownShape(shape)) {
+            return ResponseEntity.badRequest().build();
+        }
+        boolean compact = SHAPE_COMPACT.equals(shape);
+        
+        if (since != null) {
+            try {
+                // Read the token first: changes committed in between are returned now and next time
+                String syncToken = rendezVousService.getSyncToken();
+                ResponseEntity.BodyBuilder response = ResponseEntity.ok().header(SYNC_TOKEN_HEADER, syncToken);
+                if (compact) {
+                    return compactBody(response, rendezVousService.getCompactAppointmentChangesSince(since));
+                }
+                return response.body(rendezVousService.getAppointmentChangesSince(since));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().build();
+            } catch (IllegalStateException e) {
+                return ResponseEntity.status(HttpStatus.GONE).build();
+            }
+        }
+        
+        if (startDate == null || endDate == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        
+        String syncToken = rendezVousService.getSyncToken();
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().header(SYNC_TOKEN_HEADER, syncToken);
+        String eTag = rendezVousService.getCalendarETag(startDate, endDate, doctorId, includeAllStatuses);
+        if (eTag != null) {
+            if (compact) {
+                // Same version, other representation
+                eTag = eTag.substring(0, eTag.length() - 1) + "-" + SHAPE_COMPACT + "\"";
+            }
+            if (eTagMatches(ifNoneMatch, eTag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).header(SYNC_TOKEN_HEADER, syncToken).build();
+            }
+            response.eTag(eTag);
+        }
         
-        return ResponseEntity.ok(rendezVousService.getAppointmentsForCalendar(startDate, endDate, doctorId, includeAllStatuses));
+        if (compact) {
+            return compactBody(response, rendezVousService.getCompactAppointmentsForCalendar(startDate, endDate, doctorId, includeAllStatuses));
+        }
+        return response.body(rendezVousService.getAppointmentsForCalendar(startDate, endDate, doctorId, includeAllStatuses));
     }
     
     /**
@@ -56,20 +129,33 @@ public class RendezVousController {
      * This endpoint is needed for the "Upcoming Visits" table on the Agent Dashboard.
      * 
      * @param idMedecin Optional doctor ID to filter appointments for a specific doctor
+     * @param shape full (default) or compact, as for the calendar
      * @return RendezVousListResponse containing today's scheduled upcoming appointments with count information
      */
     @GetMapping("/visites/upcoming/today")
-    public ResponseEntity<RendezVousListResponse> getTodayUpcomingAppointments(
-            @RequestParam(required = false) UUID idMedecin) {
+    public ResponseEntity<?> getTodayUpcomingAppointments(
+            @RequestParam(required = false) UUID idMedecin,
+            @RequestParam(required = false, defaultValue = SHAPE_FULL) String shape) {
         
-        List<RendezVousResponse> upcomingAppointments = rendezVousService.getUpcomingAppointmentsForToday(idMedecin);
-        int count = upcomingAppointments.size();
+        if (!isKnownShape(shape)) {
+            return ResponseEntity.badRequest().build();
+        }
         
         String message = "Liste des rendez-vous programmés pour aujourd'hui récupérée avec succès";
         if (idMedecin != null) {
             message += " (filtré par médecin)";
         }
         
+        if (SHAPE_COMPACT.equals(shape)) {
+            CompactRendezVousListResponse response = rendezVousService.getCompactUpcomingAppointmentsForToday(idMedecin);
+            response.setStatus("success");
+            response.setMessage(message);
+            return compactBody(ResponseEntity.ok(), response);
+        }
+        
+        List<RendezVousResponse> upcomingAppointments = rendezVousService.getUpcomingAppointmentsForToday(idMedecin);
+        int count = upcomingAppointments.size();
+        
         RendezVousListResponse response = RendezVousListResponse.builder()
                 .status("success")
                 .message(message)
@@ -85,6 +171,29 @@ public class RendezVousController {
         return new ResponseEntity<>(rendezVousService.createAppointment(request), HttpStatus.CREATED);
     }
 
+    /**
+     * Book a series of appointments (weekly follow-up, monthly check-up...) from a list of dates
+     * or a recurrence rule. With atomic=true (default) either every appointment is booked or none;
+     * with atomic=false the free ones are booked and the others are reported.
+     * 
+     * @param request The series to book
+     * @return 201 with the result of each appointment when at least one was booked, 409 otherwise
+     */
+    @PostMapping("/appointments/bulk")
+    public ResponseEntity<BulkRendezVousResponse> bookAppointments(@Valid @RequestBody BulkRendezVousRequest request) {
+        try {
+            BulkRendezVousResponse response = rendezVousService.bookAppointments(request);
+            HttpStatus status = response.getBookedCount() > 0 ? HttpStatus.CREATED : HttpStatus.CONFLICT;
+            return new ResponseEntity<>(response, status);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(BulkRendezVousResponse.builder()
+                    .status("error")
+                    .message(e.getMessage())
+                    .atomic(request.isAtomic())
+                    .build());
+        }
+    }
+
     @PutMapping("/appointments/{id}")
     public ResponseEntity<RendezVousResponse> updateAppointment(
             @PathVariable Long id,
@@ -134,9 +243,63 @@ public class RendezVousController {
         return ResponseEntity.ok(rendezVousService.getAvailableDoctorsForTimeSlot(startDateTime, endDateTime));
     }
 
+    /**
+     * Find the first free slots of the doctors of a specialty, earliest first, within the doctors'
+     * working hours and between their booked appointments.
+     * 
+     * @param specialiteId Optional specialty ID; all doctors when absent
+     * @param from Start of the search
+     * @param to End of the search (at most 31 days after the start)
+     * @param duration Duration of the appointment in minutes, 30 by default
+     * @param limit Maximum number of slots, 20 by default and at most 100
+     * @return CreneauListResponse with the free slots
+     */
+    @GetMapping("/appointments/slots")
+    public ResponseEntity<CreneauListResponse> getFreeSlots(
+            @RequestParam(name = "specialite", required = false) Integer specialiteId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false, defaultValue = "30") int duration,
+            @RequestParam(required = false) Integer limit) {
+        
+        try {
+            return ResponseEntity.ok(creneauService.findFreeSlots(specialiteId, from, to, duration, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(CreneauListResponse.builder()
+                    .status("error")
+                    .message(e.getMessage())
+                    .build());
+        }
+    }
+
     // Temporary debug endpoint to get ALL appointments
     @GetMapping("/debug/appointments/all")
     public ResponseEntity<List<RendezVous>> getAllAppointmentsForDebug() {
         return ResponseEntity.ok(rendezVousRepository.findAll());
     }
-} 
\ No newline at end of file
+
+    private static boolean isKnownShape(String shape) {
+        return SHAPE_FULL.equals(shape) || SHAPE_COMPACT.equals(shape);
+    }
+    
+    // Streamed straight to the response instead of going through the message converters
+    private ResponseEntity<StreamingResponseBody> compactBody(ResponseEntity.BodyBuilder response, CompactRendezVousListResponse body) {
+        return response.contentType(MediaType.APPLICATION_JSON)
+                .body(out -> compactRendezVousWriter.write(body, out));
+    }
+
+    // If-None-Match may list several tags; weak comparison, as for any GET
+    private static boolean eTagMatches(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        String opaqueTag = eTag.startsWith("W/") ? eTag.substring(2) : eTag;
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.equals("*") || (candidate.startsWith("W/") ? candidate.substring(2) : candidate).equals(opaqueTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -13,8 +13,10 @@ import com.hdoc.sgdm.service.VisiteService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 
@@ -105,6 +107,18 @@ public class VisiteController {
         return ResponseEntity.ok(response);
     }
     
+    /**
+     * Stream the active visits board as server-sent events.
+     * The first "snapshot" event holds the visits in progress and the doctor statuses,
+     * then "visite", "visite-removed" and "medecin-status" events carry each change.
+     * 
+     * @return Server-sent events stream
+     */
+    @GetMapping(value = "/visites/active/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamActiveVisites() {
+        return visiteService.subscribeToActiveVisites();
+    }
+    
     /**
      * Get all completed visits for the current day with a count.
      * This endpoint must be defined before the /visites/{id} endpoint to avoid path conflicts.
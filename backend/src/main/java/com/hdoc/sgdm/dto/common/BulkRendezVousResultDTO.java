@@ -0,0 +1,20 @@
+package com.hdoc.sgdm.dto.common;
+
+import com.hdoc.sgdm.dto.response.RendezVousResponse;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkRendezVousResultDTO {
+    private LocalDateTime dateHeure;
+    private String status; // BOOKED, CONFLICT, INVALID, or NOT_BOOKED when an atomic series is rejected
+    private String message;
+    private RendezVousResponse appointment; // The booked appointment, if any
+}
@@ -0,0 +1,20 @@
+package com.hdoc.sgdm.dto.common;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CreneauDTO {
+    private UUID idMedecin;
+    private MedecinDTO medecin;
+    private LocalDateTime debut;
+    private LocalDateTime fin;
+}
@@ -0,0 +1,24 @@
+package com.hdoc.sgdm.dto.common;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TimelineEventDTO {
+    private String type; // VISITE, ORDONNANCE, FACTURE, CERTIFICAT, DOCUMENT, ALLERGIE, FORMULAIRE
+    private Long id; // ID of the record in its own table
+    private LocalDateTime date;
+    private String titre;
+    private String description;
+    private String statut;
+    private String url; // PDF or document URL when there is one
+    private Long idVisite; // Visit the record belongs to, if any
+    private MedecinDTO medecin; // Doctor who created the record, if any
+}
@@ -0,0 +1,43 @@
+package com.hdoc.sgdm.dto.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Series of appointments of one patient with one doctor, given either as a list of dates or
+ * as a recurrence rule.
+ */
+@Data
+public class BulkRendezVousRequest {
+    @NotNull(message = "ID patient is required")
+    private UUID idPatient;
+    
+    @NotNull(message = "ID doctor is required")
+    private UUID idMedecin;
+    
+    @NotNull(message = "Duration is required")
+    @Positive(message = "Duration must be positive")
+    private Integer durationMinutes;
+    
+    private String note;
+    
+    private String service;
+    
+    private String typeVisit;
+    
+    // Either the dates of the appointments...
+    private List<LocalDateTime> dates;
+    
+    // ...or the rule that generates them
+    @Valid
+    private RecurrenceRequest recurrence;
+    
+    // true: book all the appointments or none; false: book those that are free
+    private boolean atomic = true;
+}
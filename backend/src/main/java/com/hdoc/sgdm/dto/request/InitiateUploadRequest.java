@@ -0,0 +1,32 @@
+package com.hdoc.sgdm.dto.request;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Start of a resumable upload: the metadata of the document and the size of the file
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InitiateUploadRequest {
+    private String title; // Optional, the filename without its extension by default
+    
+    @NotBlank(message = "La description est obligatoire")
+    private String description;
+    
+    @NotBlank(message = "Le type de document est obligatoire")
+    private String typeDocument;
+    
+    private String filename;
+    
+    private String contentType;
+    
+    @NotNull(message = "La taille du fichier est obligatoire")
+    @Positive(message = "La taille du fichier doit être positive")
+    private Long size;
+}
@@ -10,6 +10,10 @@ import java.time.LocalDate;
 @NoArgsConstructor
 public class PrescriptionRequest {
     
+    // Existing line to update when replacing the lines of an ordonnance, null for a new line
+    @JsonProperty("id_prescription")
+    private Integer idPrescription;
+    
     @JsonProperty("id_medicament")
     private Integer idMedicament;
     
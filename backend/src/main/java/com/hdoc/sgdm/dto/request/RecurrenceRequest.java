@@ -0,0 +1,35 @@
+package com.hdoc.sgdm.dto.request;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Recurrence rule of an appointment series: every {@code interval} days, weeks or months from
+ * the first appointment, for a number of occurrences or until a date (inclusive).
+ */
+@Data
+public class RecurrenceRequest {
+    @NotNull(message = "The first appointment date is required")
+    private LocalDateTime firstDateHeure;
+    
+    @NotNull(message = "Frequency is required")
+    private Frequency frequency;
+    
+    @Positive(message = "Interval must be positive")
+    private Integer interval = 1;
+    
+    @Positive(message = "Occurrences must be positive")
+    private Integer occurrences;
+    
+    private LocalDate until;
+    
+    public enum Frequency {
+        DAILY,
+        WEEKLY,
+        MONTHLY
+    }
+}
@@ -0,0 +1,27 @@
+package com.hdoc.sgdm.dto.response;
+
+import java.util.List;
+
+import com.hdoc.sgdm.dto.common.BulkRendezVousResultDTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkRendezVousResponse {
+    private String status;
+    private String message;
+    private boolean atomic;
+    private List<BulkRendezVousResultDTO> results;
+    
+    @Builder.Default
+    private Integer bookedCount = 0;
+    
+    @Builder.Default
+    private Integer rejectedCount = 0;
+}
@@ -1,6 +1,7 @@
 package com.hdoc.sgdm.dto.response;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -45,4 +46,8 @@ public class CertificatDTO {
     private String prenomPatient;
     private String nomMedecin;
     private String prenomMedecin;
+    
+    // Render job of the PDF, when its generation was just queued
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long idRenderJob;
 } 
\ No newline at end of file
@@ -0,0 +1,31 @@
+package com.hdoc.sgdm.dto.response;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import com.hdoc.sgdm.entity.RendezVous.StatutRendezVous;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Appointment of the compact shape: the IDs of its patient and doctor instead of their details,
+ * which {@link CompactRendezVousListResponse} lists once each.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CompactRendezVousDTO {
+    private Long id;
+    private UUID idPatient;
+    private UUID idMedecin;
+    private LocalDateTime dateHeure;
+    private Integer durationMinutes;
+    private String note;
+    private StatutRendezVous status;
+    private String service;
+    private String typeVisit;
+}
@@ -0,0 +1,30 @@
+package com.hdoc.sgdm.dto.response;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import com.hdoc.sgdm.dto.common.MedecinDTO;
+import com.hdoc.sgdm.dto.common.PatientDTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Appointment list in the compact shape: the appointments only carry the IDs of their patient and
+ * doctor, each of which is listed once in the patients and medecins dictionaries.
+ * Written by {@link com.hdoc.sgdm.mapper.CompactRendezVousWriter}.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CompactRendezVousListResponse {
+    private String status;
+    private String message;
+    private List<CompactRendezVousDTO> appointments;
+    private Map<UUID, PatientDTO> patients;
+    private Map<UUID, MedecinDTO> medecins;
+}
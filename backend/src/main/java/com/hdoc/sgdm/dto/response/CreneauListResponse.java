@@ -0,0 +1,23 @@
+package com.hdoc.sgdm.dto.response;
+
+import java.util.List;
+
+import com.hdoc.sgdm.dto.common.CreneauDTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CreneauListResponse {
+    private String status;
+    private String message;
+    private List<CreneauDTO> creneaux;
+    
+    @Builder.Default
+    private Integer count = 0;  // Number of slots in the list
+}
@@ -1,5 +1,6 @@
 package com.hdoc.sgdm.dto.response;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -31,4 +32,8 @@ public class FactureResponse {
     // Patient summary information (added for convenience)
     private String nomPatient;
     private String prenomPatient;
+    
+    // Render job of the PDF, when its generation was just queued
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long idRenderJob;
 } 
\ No newline at end of file
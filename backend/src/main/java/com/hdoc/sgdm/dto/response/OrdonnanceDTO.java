@@ -1,5 +1,6 @@
 package com.hdoc.sgdm.dto.response;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -51,4 +52,9 @@ public class OrdonnanceDTO {
     
     @JsonProperty("prescriptions")
     private List<PrescriptionDTO> prescriptions;
+    
+    // Render job of the PDF, when its generation was just queued
+    @JsonProperty("id_render_job")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long idRenderJob;
 } 
\ No newline at end of file
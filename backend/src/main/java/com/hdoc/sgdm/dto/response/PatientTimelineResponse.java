@@ -0,0 +1,29 @@
+package com.hdoc.sgdm.dto.response;
+
+import com.hdoc.sgdm.dto.common.TimelineEventDTO;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PatientTimelineResponse {
+    private String status;
+    private String message;
+    private String ipp;
+    private List<TimelineEventDTO> events;
+    
+    @Builder.Default
+    private Integer count = 0;  // Number of events in this page
+    
+    @Builder.Default
+    private Integer total = 0;  // Number of events in the whole timeline
+    
+    private Integer page;
+    private Integer size;
+}
@@ -0,0 +1,44 @@
+package com.hdoc.sgdm.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.hdoc.sgdm.entity.RenderJob;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RenderJobDTO {
+
+    @JsonProperty("id_job")
+    private Long idJob;
+
+    @JsonProperty("type_document")
+    private RenderJob.TypeDocument typeDocument;
+
+    @JsonProperty("id_document")
+    private Long idDocument;
+
+    @JsonProperty("statut")
+    private RenderJob.StatutJob statut;
+
+    @JsonProperty("tentatives")
+    private int tentatives;
+
+    @JsonProperty("url")
+    private String url;
+
+    @JsonProperty("erreur")
+    private String erreur;
+
+    @JsonProperty("date_creation")
+    private LocalDateTime dateCreation;
+
+    @JsonProperty("date_fin")
+    private LocalDateTime dateFin;
+}
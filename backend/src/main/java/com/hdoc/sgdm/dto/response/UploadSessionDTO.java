@@ -0,0 +1,80 @@
+package com.hdoc.sgdm.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.hdoc.sgdm.entity.UploadSession;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadSessionDTO {
+
+    @JsonProperty("id_session")
+    private Long idSession;
+
+    @JsonProperty("id_patient")
+    private UUID idPatient;
+
+    @JsonProperty("nom")
+    private String nom;
+
+    @JsonProperty("type_document")
+    private String typeDocument;
+
+    @JsonProperty("nom_fichier")
+    private String nomFichier;
+
+    @JsonProperty("taille")
+    private long taille;
+
+    @JsonProperty("taille_chunk")
+    private int tailleChunk;
+
+    @JsonProperty("nombre_chunks")
+    private int nombreChunks;
+
+    @JsonProperty("statut")
+    private UploadSession.StatutUpload statut;
+
+    // Byte ranges received so far, to resume the upload from
+    @JsonProperty("plages_recues")
+    private List<Plage> plagesRecues;
+
+    @JsonProperty("chunks_manquants")
+    private List<Integer> chunksManquants;
+
+    @JsonProperty("id_job")
+    private Long idJob;
+
+    @JsonProperty("id_document")
+    private Long idDocument;
+
+    @JsonProperty("date_creation")
+    private LocalDateTime dateCreation;
+
+    @JsonProperty("date_maj")
+    private LocalDateTime dateMaj;
+
+    /**
+     * Range of bytes of the file, both ends included
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Plage {
+
+        @JsonProperty("debut")
+        private long debut;
+
+        @JsonProperty("fin")
+        private long fin;
+    }
+}
@@ -0,0 +1,14 @@
+package com.hdoc.sgdm.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadSessionResponse {
+    private boolean success;
+    private String message;
+    private UploadSessionDTO upload;
+}
@@ -0,0 +1,42 @@
+package com.hdoc.sgdm.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.UUID;
+
+/**
+ * Working hours of a doctor on one day of the week. A day can have several periods
+ * (morning and afternoon); doctors without any row follow the default template.
+ */
+@Entity
+@Table(name = "horaire_medecin")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class HoraireMedecin {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id_horaire")
+    private Long idHoraire;
+
+    @Column(name = "id_medecin", nullable = false)
+    private UUID idMedecin;
+
+    @Column(name = "jour_semaine", nullable = false, length = 10)
+    @Enumerated(EnumType.STRING)
+    private DayOfWeek jourSemaine;
+
+    @Column(name = "heure_debut", nullable = false)
+    private LocalTime heureDebut;
+
+    @Column(name = "heure_fin", nullable = false)
+    private LocalTime heureFin;
+}
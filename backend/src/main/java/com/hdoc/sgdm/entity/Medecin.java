@@ -26,6 +26,11 @@ public class Medecin {
     @Column(name = "status", nullable = false, length = 20)
     private String status;
     
+    // Optimistic lock, incremented by every status change including the conditional updates
+    @Version
+    @Column(name = "version", nullable = false, columnDefinition = "BIGINT DEFAULT 0")
+    private Long version;
+    
     @OneToOne(fetch = FetchType.EAGER)
     @JoinColumn(name = "id_medecin", referencedColumnName = "id_utilisateur", insertable = false, updatable = false)
     private Utilisateur utilisateur;
@@ -16,8 +16,10 @@ import java.time.LocalDate;
 @AllArgsConstructor
 public class Prescription {
     
+    // Pooled sequence rather than an identity column, so the lines of an ordonnance insert in one batch
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "prescription_id_seq")
+    @SequenceGenerator(name = "prescription_id_seq", sequenceName = "prescription_id_seq", allocationSize = 50)
     @Column(name = "id_prescription")
     private Integer idPrescription;
     
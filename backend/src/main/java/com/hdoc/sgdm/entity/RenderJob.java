@@ -0,0 +1,86 @@
+package com.hdoc.sgdm.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Rendering of a document PDF and its upload to storage, run in the background
+ * for the ordonnance, facture, certificat or formulaire it refers to; also the assembly
+ * of an {@link UploadSession} into its imported document.
+ */
+@Entity
+@Table(name = "render_job")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RenderJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id_job")
+    private Long idJob;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "type_document", nullable = false, length = 20)
+    private TypeDocument typeDocument;
+
+    @Column(name = "id_document", nullable = false)
+    private Long idDocument;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "statut", nullable = false, length = 20)
+    private StatutJob statut;
+
+    @Column(name = "tentatives", nullable = false)
+    private int tentatives;
+
+    @Column(name = "url")
+    private String url;
+
+    @Column(name = "erreur", length = 1000)
+    private String erreur;
+
+    @Column(name = "date_creation", nullable = false)
+    private LocalDateTime dateCreation;
+
+    @Column(name = "date_debut")
+    private LocalDateTime dateDebut;
+
+    @Column(name = "date_fin")
+    private LocalDateTime dateFin;
+
+    @PrePersist
+    protected void onCreate() {
+        if (dateCreation == null) {
+            dateCreation = LocalDateTime.now();
+        }
+        if (statut == null) {
+            statut = StatutJob.EN_ATTENTE;
+        }
+    }
+
+    public boolean isTermine() {
+        return statut == StatutJob.TERMINE || statut == StatutJob.ECHEC;
+    }
+
+    public enum TypeDocument {
+        ORDONNANCE,
+        FACTURE,
+        CERTIFICAT,
+        FORMULAIRE,
+        DOCUMENT_IMPORTE
+    }
+
+    public enum StatutJob {
+        EN_ATTENTE,
+        EN_COURS,
+        TERMINE,
+        ECHEC
+    }
+}
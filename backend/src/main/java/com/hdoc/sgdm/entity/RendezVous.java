@@ -45,6 +45,17 @@ public class RendezVous {
     @Enumerated(EnumType.STRING)
     private StatutRendezVous status = StatutRendezVous.PLANIFIE;
     
+    // Set by the database on every insert and update (see V10), for the calendar delta sync
+    @Column(name = "change_seq", insertable = false, updatable = false)
+    private Long changeSeq;
+    
+    @Column(name = "date_modification", insertable = false, updatable = false)
+    private LocalDateTime dateModification;
+    
+    // Transaction of the last insert or update (see V14), for the calendar sync tokens
+    @Column(name = "change_xid", insertable = false, updatable = false)
+    private Long changeXid;
+    
     // Enum for appointment status
     public enum StatutRendezVous {
         PLANIFIE,  // default/scheduled
@@ -0,0 +1,30 @@
+package com.hdoc.sgdm.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Named counter row shared by all backend nodes.
+ * Nodes reserve blocks of values by incrementing the counter (hi/lo allocation).
+ */
+@Entity
+@Table(name = "sequence_compteur")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SequenceCompteur {
+
+    @Id
+    @Column(name = "nom", length = 50)
+    private String nom;
+
+    @Column(name = "valeur", nullable = false)
+    private Long valeur;
+}
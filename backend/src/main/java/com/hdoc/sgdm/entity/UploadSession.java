@@ -0,0 +1,103 @@
+package com.hdoc.sgdm.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Resumable upload of a patient document. The client sends the file in numbered chunks,
+ * kept in a local spool until the upload is complete; a render job then pushes them to
+ * storage and creates the {@link DocumentImporte}.
+ */
+@Entity
+@Table(name = "upload_session")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadSession {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id_session")
+    private Long idSession;
+
+    @Column(name = "id_patient", nullable = false)
+    private UUID idPatient;
+
+    @Column(name = "nom", nullable = false, length = 255)
+    private String nom;
+
+    @Column(name = "description", columnDefinition = "TEXT")
+    private String description;
+
+    @Column(name = "type_document", nullable = false, length = 50)
+    private String typeDocument;
+
+    @Column(name = "nom_fichier", length = 255)
+    private String nomFichier;
+
+    @Column(name = "content_type", length = 255)
+    private String contentType;
+
+    @Column(name = "taille", nullable = false)
+    private long taille;
+
+    @Column(name = "taille_chunk", nullable = false)
+    private int tailleChunk;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "statut", nullable = false, length = 20)
+    private StatutUpload statut;
+
+    @Column(name = "id_job")
+    private Long idJob;
+
+    @Column(name = "id_document")
+    private Long idDocument;
+
+    @Column(name = "date_creation", nullable = false)
+    private LocalDateTime dateCreation;
+
+    @Column(name = "date_maj", nullable = false)
+    private LocalDateTime dateMaj;
+
+    @PrePersist
+    protected void onCreate() {
+        if (dateCreation == null) {
+            dateCreation = LocalDateTime.now();
+        }
+        if (dateMaj == null) {
+            dateMaj = dateCreation;
+        }
+        if (statut == null) {
+            statut = StatutUpload.EN_COURS;
+        }
+    }
+
+    /**
+     * Number of chunks of the file, the last one possibly shorter
+     */
+    public int getNombreChunks() {
+        return (int) ((taille + tailleChunk - 1) / tailleChunk);
+    }
+
+    /**
+     * Expected size of a chunk
+     */
+    public long getTailleChunk(int index) {
+        return Math.min(tailleChunk, taille - (long) index * tailleChunk);
+    }
+
+    public enum StatutUpload {
+        EN_COURS,
+        ASSEMBLAGE,
+        TERMINE,
+        EXPIRE
+    }
+}
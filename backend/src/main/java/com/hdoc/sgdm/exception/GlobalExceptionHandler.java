@@ -7,6 +7,7 @@ import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.orm.jpa.JpaSystemException;
@@ -55,7 +56,7 @@ public class GlobalExceptionHandler {
     public ResponseEntity<Object> handleMaxSizeException(MaxUploadSizeExceededException ex) {
         Map<String, Object> response = new HashMap<>();
         response.put("success", false);
-        response.put("message", "File size exceeds the maximum allowed size (10MB)");
+        response.put("message", "File size exceeds the maximum allowed size (2GB)");
         
         return new ResponseEntity<>(response, HttpStatus.PAYLOAD_TOO_LARGE);
     }
@@ -101,6 +102,18 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(response, HttpStatus.CONFLICT);
     }
     
+    // Handle concurrent modifications detected by @Version columns
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<Object> handleOptimisticLockingFailure(OptimisticLockingFailureException ex) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", false);
+        response.put("message", "The record was modified concurrently, please reload and try again");
+        
+        logger.warn("Optimistic locking failure: {}", ex.getMessage());
+        
+        return new ResponseEntity<>(response, HttpStatus.CONFLICT);
+    }
+    
     // Handle file I/O exceptions
     @ExceptionHandler(IOException.class)
     public ResponseEntity<Object> handleIOException(IOException ex) {
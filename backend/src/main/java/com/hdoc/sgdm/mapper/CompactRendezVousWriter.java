@@ -0,0 +1,97 @@
+package com.hdoc.sgdm.mapper;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hdoc.sgdm.dto.common.MedecinDTO;
+import com.hdoc.sgdm.dto.common.PatientDTO;
+import com.hdoc.sgdm.dto.response.CompactRendezVousDTO;
+import com.hdoc.sgdm.dto.response.CompactRendezVousListResponse;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Streams a {@link CompactRendezVousListResponse} as JSON:
+ * <pre>
+ * {"status": ..., "message": ..., "count": 2,
+ *  "appointments": [{"id": 1, "idPatient": "...", "idMedecin": "...", "dateHeure": "2025-03-03T09:00:00", ...}, ...],
+ *  "patients": {"&lt;idPatient&gt;": {PatientDTO}, ...},
+ *  "medecins": {"&lt;idMedecin&gt;": {MedecinDTO}, ...}}
+ * </pre>
+ * The appointments are written field by field, without going through the ObjectMapper for each
+ * of them; their null fields are left out. The patients and doctors are written
+ * with the application's ObjectMapper, in the same format as in the full shape.
+ */
+@Component
+public class CompactRendezVousWriter {
+
+    private final ObjectMapper objectMapper;
+
+    public CompactRendezVousWriter(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public void write(CompactRendezVousListResponse response, OutputStream out) throws IOException {
+        try (JsonGenerator generator = objectMapper.createGenerator(out)) {
+            generator.writeStartObject();
+            if (response.getStatus() != null) {
+                generator.writeStringField("status", response.getStatus());
+            }
+            if (response.getMessage() != null) {
+                generator.writeStringField("message", response.getMessage());
+            }
+            generator.writeNumberField("count", response.getAppointments().size());
+
+            generator.writeArrayFieldStart("appointments");
+            for (CompactRendezVousDTO rendezVous : response.getAppointments()) {
+                writeAppointment(generator, rendezVous);
+            }
+            generator.writeEndArray();
+
+            generator.writeObjectFieldStart("patients");
+            for (Map.Entry<UUID, PatientDTO> patient : response.getPatients().entrySet()) {
+                generator.writeFieldName(patient.getKey().toString());
+                generator.writeObject(patient.getValue());
+            }
+            generator.writeEndObject();
+
+            generator.writeObjectFieldStart("medecins");
+            for (Map.Entry<UUID, MedecinDTO> medecin : response.getMedecins().entrySet()) {
+                generator.writeFieldName(medecin.getKey().toString());
+                generator.writeObject(medecin.getValue());
+            }
+            generator.writeEndObject();
+
+            generator.writeEndObject();
+        }
+    }
+
+    private static void writeAppointment(JsonGenerator generator, CompactRendezVousDTO rendezVous) throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("id", rendezVous.getId());
+        writeString(generator, "idPatient", rendezVous.getIdPatient());
+        writeString(generator, "idMedecin", rendezVous.getIdMedecin());
+        if (rendezVous.getDateHeure() != null) {
+            // Same format as the ObjectMapper's for LocalDateTime
+            generator.writeStringField("dateHeure", DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(rendezVous.getDateHeure()));
+        }
+        if (rendezVous.getDurationMinutes() != null) {
+            generator.writeNumberField("durationMinutes", rendezVous.getDurationMinutes());
+        }
+        writeString(generator, "note", rendezVous.getNote());
+        writeString(generator, "status", rendezVous.getStatus());
+        writeString(generator, "service", rendezVous.getService());
+        writeString(generator, "typeVisit", rendezVous.getTypeVisit());
+        generator.writeEndObject();
+    }
+
+    private static void writeString(JsonGenerator generator, String field, Object value) throws IOException {
+        if (value != null) {
+            generator.writeStringField(field, value.toString());
+        }
+    }
+}
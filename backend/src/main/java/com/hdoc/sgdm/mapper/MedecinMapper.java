@@ -7,8 +7,15 @@ import com.hdoc.sgdm.repository.SpecialiteRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
 import java.util.stream.Collectors;
 
 @Component
@@ -34,23 +41,65 @@ public class MedecinMapper {
             }
         }
 
-        return MedecinDTO.builder()
-                .idMedecin(medecin.getIdMedecin())
-                .idSpecialite(medecin.getIdSpecialite())
-                .nomSpecialite(nomSpecialite)
-                .nom(medecin.getUtilisateur() != null ? medecin.getUtilisateur().getNom() : "")
-                .prenom(medecin.getUtilisateur() != null ? medecin.getUtilisateur().getPrenom() : "")
-                .status(medecin.getStatus())
-                .build();
+        return toDTO(medecin, nomSpecialite);
     }
 
+    /**
+     * Map a list of doctors, resolving all their specialties with a single query
+     */
     public List<MedecinDTO> toDTOList(List<Medecin> medecins) {
         if (medecins == null) {
             return List.of();
         }
 
+        Map<Integer, String> nomsSpecialites = findNomsSpecialites(medecins);
         return medecins.stream()
-                .map(this::toDTO)
+                .map(medecin -> toDTO(medecin, nomsSpecialites.getOrDefault(medecin.getIdSpecialite(), "")))
                 .collect(Collectors.toList());
     }
-}
\ No newline at end of file
+
+    /**
+     * Map doctors by ID, resolving all their specialties with a single query
+     */
+    public Map<UUID, MedecinDTO> toDTOMap(Collection<Medecin> medecins) {
+        Map<UUID, MedecinDTO> medecinDTOs = new LinkedHashMap<>();
+        if (medecins == null || medecins.isEmpty()) {
+            return medecinDTOs;
+        }
+
+        Map<Integer, String> nomsSpecialites = findNomsSpecialites(medecins);
+        for (Medecin medecin : medecins) {
+            medecinDTOs.put(medecin.getIdMedecin(),
+                    toDTO(medecin, nomsSpecialites.getOrDefault(medecin.getIdSpecialite(), "")));
+        }
+        return medecinDTOs;
+    }
+
+    private Map<Integer, String> findNomsSpecialites(Collection<Medecin> medecins) {
+        Set<Integer> specialiteIds = medecins.stream()
+                .map(Medecin::getIdSpecialite)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+
+        Map<Integer, String> nomsSpecialites = new HashMap<>();
+        if (specialiteIds.isEmpty()) {
+            return nomsSpecialites;
+        }
+
+        for (Specialite specialite : specialiteRepository.findAllById(specialiteIds)) {
+            nomsSpecialites.put(specialite.getIdSpecialite(), specialite.getNom());
+        }
+        return nomsSpecialites;
+    }
+
+    private MedecinDTO toDTO(Medecin medecin, String nomSpecialite) {
+        return MedecinDTO.builder()
+                .idMedecin(medecin.getIdMedecin())
+                .idSpecialite(medecin.getIdSpecialite())
+                .nomSpecialite(nomSpecialite)
+                .nom(medecin.getUtilisateur() != null ? medecin.getUtilisateur().getNom() : "")
+                .prenom(medecin.getUtilisateur() != null ? medecin.getUtilisateur().getPrenom() : "")
+                .status(medecin.getStatus())
+                .build();
+    }
+}
@@ -0,0 +1,207 @@
+package com.hdoc.sgdm.mapper;
+
+import com.hdoc.sgdm.dto.common.MedecinDTO;
+import com.hdoc.sgdm.dto.common.PatientDTO;
+import com.hdoc.sgdm.dto.response.CompactRendezVousDTO;
+import com.hdoc.sgdm.dto.response.CompactRendezVousListResponse;
+import com.hdoc.sgdm.dto.response.RendezVousResponse;
+import com.hdoc.sgdm.entity.Medecin;
+import com.hdoc.sgdm.entity.Patient;
+import com.hdoc.sgdm.entity.RendezVous;
+import com.hdoc.sgdm.repository.MedecinRepository;
+import com.hdoc.sgdm.repository.PatientRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Maps appointments to their responses, with their complete patient and doctor.
+ */
+@Component
+@RequiredArgsConstructor
+public class RendezVousMapper {
+
+    private final PatientRepository patientRepository;
+    private final MedecinRepository medecinRepository;
+    private final MedecinMapper medecinMapper;
+
+    /**
+     * Map a list of appointments, fetching all their patients, doctors (with their user)
+     * and specialties with one query each
+     */
+    public List<RendezVousResponse> toResponses(List<RendezVous> appointments) {
+        // Extract all patient and doctor IDs
+        Set<UUID> patientIds = appointments.stream()
+                .map(RendezVous::getIdPatient)
+                .collect(Collectors.toSet());
+        
+        Set<UUID> doctorIds = appointments.stream()
+                .map(RendezVous::getIdMedecin)
+                .collect(Collectors.toSet());
+        
+        // Batch fetch all patients and doctors
+        Map<UUID, Patient> patientMap = patientRepository.findAllById(patientIds).stream()
+                .collect(Collectors.toMap(Patient::getIdPatient, p -> p));
+        
+        Map<UUID, Medecin> doctorMap = medecinRepository.findAllByIdWithUtilisateur(doctorIds).stream()
+                .collect(Collectors.toMap(Medecin::getIdMedecin, m -> m));
+        
+        Map<UUID, MedecinDTO> medecinDTOMap = medecinMapper.toDTOMap(doctorMap.values());
+        
+        // Map appointments to responses with complete objects
+        return appointments.stream()
+                .map(appointment -> toResponse(appointment, patientMap, doctorMap, medecinDTOMap))
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * Map a list of appointments to the compact shape: each patient and doctor is mapped once,
+     * in order of first appearance, whatever the number of their appointments
+     */
+    public CompactRendezVousListResponse toCompactResponse(List<RendezVous> appointments) {
+        Set<UUID> patientIds = new LinkedHashSet<>();
+        Set<UUID> doctorIds = new LinkedHashSet<>();
+        for (RendezVous appointment : appointments) {
+            patientIds.add(appointment.getIdPatient());
+            doctorIds.add(appointment.getIdMedecin());
+        }
+        
+        Map<UUID, PatientDTO> patients = new LinkedHashMap<>();
+        Map<UUID, Medecin> doctorMap = new LinkedHashMap<>();
+        if (!appointments.isEmpty()) {
+            Map<UUID, Patient> patientMap = patientRepository.findAllById(patientIds).stream()
+                    .collect(Collectors.toMap(Patient::getIdPatient, p -> p));
+            for (UUID idPatient : patientIds) {
+                Patient patient = patientMap.get(idPatient);
+                if (patient != null) {
+                    patients.put(idPatient, PatientMapper.toPatientDTO(patient));
+                }
+            }
+            
+            Map<UUID, Medecin> medecins = medecinRepository.findAllByIdWithUtilisateur(doctorIds).stream()
+                    .collect(Collectors.toMap(Medecin::getIdMedecin, m -> m));
+            for (UUID idMedecin : doctorIds) {
+                Medecin medecin = medecins.get(idMedecin);
+                if (medecin != null) {
+                    doctorMap.put(idMedecin, medecin);
+                }
+            }
+        }
+        
+        return CompactRendezVousListResponse.builder()
+                .appointments(appointments.stream().map(RendezVousMapper::toCompactDTO).collect(Collectors.toList()))
+                .patients(patients)
+                .medecins(medecinMapper.toDTOMap(doctorMap.values()))
+                .build();
+    }
+    
+    /**
+     * Compact shape of appointments already mapped, from their own patients and doctors
+     */
+    public CompactRendezVousListResponse toCompactResponseFromResponses(List<RendezVousResponse> responses) {
+        List<CompactRendezVousDTO> appointments = new ArrayList<>(responses.size());
+        Map<UUID, PatientDTO> patients = new LinkedHashMap<>();
+        Map<UUID, MedecinDTO> medecins = new LinkedHashMap<>();
+        for (RendezVousResponse response : responses) {
+            appointments.add(CompactRendezVousDTO.builder()
+                    .id(response.getId())
+                    .idPatient(response.getIdPatient())
+                    .idMedecin(response.getIdMedecin())
+                    .dateHeure(response.getDateHeure())
+                    .durationMinutes(response.getDurationMinutes())
+                    .note(response.getNote())
+                    .status(response.getStatus())
+                    .service(response.getService())
+                    .typeVisit(response.getTypeVisit())
+                    .build());
+            if (response.getPatient() != null) {
+                patients.putIfAbsent(response.getIdPatient(), response.getPatient());
+            }
+            if (response.getMedecin() != null) {
+                medecins.putIfAbsent(response.getIdMedecin(), response.getMedecin());
+            }
+        }
+        
+        return CompactRendezVousListResponse.builder()
+                .appointments(appointments)
+                .patients(patients)
+                .medecins(medecins)
+                .build();
+    }
+    
+    private static CompactRendezVousDTO toCompactDTO(RendezVous rendezVous) {
+        return CompactRendezVousDTO.builder()
+                .id(rendezVous.getId())
+                .idPatient(rendezVous.getIdPatient())
+                .idMedecin(rendezVous.getIdMedecin())
+                .dateHeure(rendezVous.getDateHeure())
+                .durationMinutes(rendezVous.getDurationMinutes())
+                .note(rendezVous.getNote())
+                .status(rendezVous.getStatus())
+                .service(rendezVous.getService())
+                .typeVisit(rendezVous.getTypeVisit())
+                .build();
+    }
+    
+    public RendezVousResponse toResponse(
+            RendezVous rendezVous,
+            Map<UUID, Patient> patientMap,
+            Map<UUID, Medecin> doctorMap) {
+        return toResponse(rendezVous, patientMap, doctorMap, medecinMapper.toDTOMap(doctorMap.values()));
+    }
+    
+    public RendezVousResponse toResponse(
+            RendezVous rendezVous,
+            Map<UUID, Patient> patientMap,
+            Map<UUID, Medecin> doctorMap,
+            Map<UUID, MedecinDTO> medecinDTOMap) {
+        
+        RendezVousResponse response = new RendezVousResponse();
+        response.setId(rendezVous.getId());
+        response.setIdPatient(rendezVous.getIdPatient());
+        response.setIdMedecin(rendezVous.getIdMedecin());
+        response.setDateHeure(rendezVous.getDateHeure());
+        response.setDurationMinutes(rendezVous.getDurationMinutes());
+        response.setNote(rendezVous.getNote());
+        response.setStatus(rendezVous.getStatus());
+        response.setService(rendezVous.getService());
+        response.setTypeVisit(rendezVous.getTypeVisit());
+        
+        // Add basic patient fields for backward compatibility
+        Patient patient = patientMap.get(rendezVous.getIdPatient());
+        if (patient != null) {
+            response.setNomPatient(patient.getNom());
+            response.setPrenomPatient(patient.getPrenom());
+            
+            // Add complete patient object
+            PatientDTO patientDTO = PatientMapper.toPatientDTO(patient);
+            response.setPatient(patientDTO);
+        }
+        
+        // Add basic doctor fields for backward compatibility
+        Medecin medecin = doctorMap.get(rendezVous.getIdMedecin());
+        if (medecin != null) {
+            if (medecin.getUtilisateur() != null) {
+                response.setNomMedecin(medecin.getUtilisateur().getNom() + " " + medecin.getUtilisateur().getPrenom());
+            }
+            
+            // Add speciality if available
+            if (medecin.getIdSpecialite() != null) {
+                response.setSpecialiteMedecin("Specialité #" + medecin.getIdSpecialite());
+            }
+            
+            // Add complete doctor object
+            response.setMedecin(medecinDTOMap.get(medecin.getIdMedecin()));
+        }
+        
+        return response;
+    }
+}
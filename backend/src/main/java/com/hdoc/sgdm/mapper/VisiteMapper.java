@@ -1,5 +1,6 @@
 package com.hdoc.sgdm.mapper;
 
+import com.hdoc.sgdm.dto.common.MedecinDTO;
 import com.hdoc.sgdm.dto.common.VisiteDTO;
 import com.hdoc.sgdm.dto.response.PatientResponse;
 import com.hdoc.sgdm.dto.response.VisiteResponse;
@@ -10,7 +11,11 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
 import java.util.stream.Collectors;
 
 @Component
@@ -30,50 +35,82 @@ public class VisiteMapper {
             return null;
         }
         
+        // Add doctor information if available
+        MedecinDTO medecinDTO = null;
         try {
-            VisiteDTO.VisiteDTOBuilder builder = VisiteDTO.builder()
-                    .idVisite(visite.getIdVisite())
-                    .typeVisite(visite.getTypeVisite())
-                    .dateDebut(visite.getDateDebut())
-                    .dateFin(visite.getDateFin())
-                    .statut(visite.getStatut())
-                    .motif(visite.getMotif())
-                    .idMedecin(visite.getIdMedecin())
-                    .service(visite.getService())
-                    .idRdv(visite.getIdRdv())
-                    .note(visite.getNote())
-                    .fromAppointment(visite.getIdRdv() != null)
-                    .patient(visite.getPatient() != null ? PatientMapper.toPatientDTO(visite.getPatient()) : null);
-                    
-            // Add doctor information if available
             if (visite.getIdMedecin() != null) {
                 Optional<Medecin> medecin = medecinRepository.findByIdWithUtilisateur(visite.getIdMedecin());
                 if (medecin.isPresent()) {
-                    builder.medecin(medecinMapper.toDTO(medecin.get()));
+                    medecinDTO = medecinMapper.toDTO(medecin.get());
                 }
             }
+        } catch (Exception e) {
+            return toMinimalDTO(visite);
+        }
+        
+        return toDTO(visite, medecinDTO);
+    }
+    
+    /**
+     * Map a list of visits. All doctors are loaded with one query and all their
+     * specialties with another, instead of two queries per visit.
+     */
+    public List<VisiteDTO> toDTOList(List<Visite> visites) {
+        if (visites == null) {
+            return List.of();
+        }
+        
+        Map<UUID, MedecinDTO> medecinDTOs;
+        try {
+            Set<UUID> doctorIds = visites.stream()
+                    .map(Visite::getIdMedecin)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toSet());
             
-            return builder.build();
+            medecinDTOs = doctorIds.isEmpty() ? Map.of()
+                    : medecinMapper.toDTOMap(medecinRepository.findAllByIdWithUtilisateur(doctorIds));
         } catch (Exception e) {
-            // Fallback with minimal data to prevent complete failure
+            return visites.stream()
+                    .map(this::toMinimalDTO)
+                    .collect(Collectors.toList());
+        }
+        
+        return visites.stream()
+                .map(visite -> toDTO(visite, visite.getIdMedecin() != null ? medecinDTOs.get(visite.getIdMedecin()) : null))
+                .collect(Collectors.toList());
+    }
+    
+    private VisiteDTO toDTO(Visite visite, MedecinDTO medecinDTO) {
+        try {
             return VisiteDTO.builder()
                     .idVisite(visite.getIdVisite())
                     .typeVisite(visite.getTypeVisite())
                     .dateDebut(visite.getDateDebut())
                     .dateFin(visite.getDateFin())
                     .statut(visite.getStatut())
+                    .motif(visite.getMotif())
+                    .idMedecin(visite.getIdMedecin())
+                    .service(visite.getService())
+                    .idRdv(visite.getIdRdv())
+                    .note(visite.getNote())
+                    .fromAppointment(visite.getIdRdv() != null)
+                    .patient(visite.getPatient() != null ? PatientMapper.toPatientDTO(visite.getPatient()) : null)
+                    .medecin(medecinDTO)
                     .build();
+        } catch (Exception e) {
+            return toMinimalDTO(visite);
         }
     }
     
-    public List<VisiteDTO> toDTOList(List<Visite> visites) {
-        if (visites == null) {
-            return List.of();
-        }
-        
-        return visites.stream()
-                .map(this::toDTO)
-                .collect(Collectors.toList());
+    // Fallback with minimal data to prevent complete failure
+    private VisiteDTO toMinimalDTO(Visite visite) {
+        return VisiteDTO.builder()
+                .idVisite(visite.getIdVisite())
+                .typeVisite(visite.getTypeVisite())
+                .dateDebut(visite.getDateDebut())
+                .dateFin(visite.getDateFin())
+                .statut(visite.getStatut())
+                .build();
     }
 
     public static VisiteResponse toErrorResponse(String message) {
@@ -82,4 +119,4 @@ public class VisiteMapper {
                 .message(message)
                 .build();
     }
-}
\ No newline at end of file
+}
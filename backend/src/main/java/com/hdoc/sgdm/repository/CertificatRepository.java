@@ -2,8 +2,11 @@ package com.hdoc.sgdm.repository;
 
 import com.hdoc.sgdm.entity.Certificat;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.UUID;
@@ -19,4 +22,16 @@ public interface CertificatRepository extends JpaRepository<Certificat, Long> {
      */
     @Query("SELECT c FROM Certificat c WHERE c.idPatient = :idPatient ORDER BY c.dateRedaction DESC")
     List<Certificat> findAllByIdPatient(UUID idPatient);
+    
+    /**
+     * Store the URL of the rendered PDF of a certificate
+     * 
+     * @param idCertificat The certificate ID
+     * @param pdfUrl The public URL of the PDF
+     * @return 1 if the certificate was updated, 0 if it no longer exists
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Certificat c SET c.pdfUrl = :pdfUrl WHERE c.idCertificat = :idCertificat")
+    int updatePdfUrl(@Param("idCertificat") Long idCertificat, @Param("pdfUrl") String pdfUrl);
 } 
\ No newline at end of file
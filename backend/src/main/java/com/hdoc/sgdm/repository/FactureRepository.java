@@ -2,7 +2,11 @@ package com.hdoc.sgdm.repository;
 
 import com.hdoc.sgdm.entity.Facture;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -61,4 +65,16 @@ public interface FactureRepository extends JpaRepository<Facture, Integer> {
      * @return list of factures matching the criteria
      */
     List<Facture> findByIdPatientAndIdVisiteAndStatus(UUID idPatient, Integer idVisite, String status);
+    
+    /**
+     * Store the URL of the rendered PDF of a facture
+     * 
+     * @param idFacture the facture ID
+     * @param url the public URL of the PDF
+     * @return 1 if the facture was updated, 0 if it no longer exists
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Facture f SET f.url = :url WHERE f.idFacture = :idFacture")
+    int updateUrl(@Param("idFacture") Integer idFacture, @Param("url") String url);
 } 
\ No newline at end of file
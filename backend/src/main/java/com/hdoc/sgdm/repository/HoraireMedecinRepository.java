@@ -0,0 +1,15 @@
+package com.hdoc.sgdm.repository;
+
+import com.hdoc.sgdm.entity.HoraireMedecin;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface HoraireMedecinRepository extends JpaRepository<HoraireMedecin, Long> {
+
+    List<HoraireMedecin> findByIdMedecinIn(Collection<UUID> idMedecins);
+}
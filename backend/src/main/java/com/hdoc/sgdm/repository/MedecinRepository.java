@@ -3,10 +3,12 @@ package com.hdoc.sgdm.repository;
 import com.hdoc.sgdm.entity.Medecin;
 import org.jetbrains.annotations.NotNull;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -24,6 +26,14 @@ public interface MedecinRepository extends JpaRepository<Medecin, UUID> {
     @Query("SELECT m FROM Medecin m JOIN FETCH m.utilisateur u WHERE m.idSpecialite = :specialiteId AND u.estDesactive = false AND m.status = 'AVAILABLE'")
     List<Medecin> findBySpecialite(@Param("specialiteId") Integer specialiteId);
     
+    // Active doctors whatever their current status, for planning ahead
+    @Query("SELECT m FROM Medecin m JOIN FETCH m.utilisateur u WHERE u.estDesactive = false")
+    List<Medecin> findAllActiveAnyStatus();
+    
+    // Active doctors of a specialty whatever their current status, for planning ahead
+    @Query("SELECT m FROM Medecin m JOIN FETCH m.utilisateur u WHERE m.idSpecialite = :specialiteId AND u.estDesactive = false")
+    List<Medecin> findAllBySpecialite(@Param("specialiteId") Integer specialiteId);
+    
     @Query("SELECT COUNT(m) FROM Medecin m WHERE m.idSpecialite = :specialiteId")
     long countBySpecialite(@Param("specialiteId") Integer specialiteId);
     
@@ -35,4 +45,38 @@ public interface MedecinRepository extends JpaRepository<Medecin, UUID> {
     
     @Query("SELECT m FROM Medecin m JOIN FETCH m.utilisateur WHERE m.idMedecin = :id")
     Optional<Medecin> findByIdWithUtilisateur(@Param("id") UUID id);
+    
+    @Query("SELECT m FROM Medecin m JOIN FETCH m.utilisateur WHERE m.idMedecin IN :ids")
+    List<Medecin> findAllByIdWithUtilisateur(@Param("ids") Collection<UUID> ids);
+    
+    /**
+     * Atomically change a doctor's status if it still has the expected value.
+     * Two concurrent callers cannot both move the doctor out of the expected status.
+     * 
+     * @param id The doctor ID
+     * @param expectedStatus The status the doctor must currently have
+     * @param newStatus The new status
+     * @return 1 if the status was changed, 0 if the doctor does not exist or has another status
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Medecin m SET m.status = :newStatus, m.version = m.version + 1 WHERE m.idMedecin = :id AND m.status = :expectedStatus")
+    int updateStatusIfCurrent(@Param("id") UUID id,
+                              @Param("expectedStatus") String expectedStatus,
+                              @Param("newStatus") String newStatus);
+    
+    /**
+     * Find the status of every doctor, without loading their user
+     * 
+     * @return The doctor statuses
+     */
+    @Query("SELECT m.idMedecin AS idMedecin, m.status AS status FROM Medecin m")
+    List<DoctorStatus> findAllStatuses();
+    
+    /**
+     * Projection of a doctor's status
+     */
+    interface DoctorStatus {
+        UUID getIdMedecin();
+        String getStatus();
+    }
 }
\ No newline at end of file
@@ -2,7 +2,11 @@ package com.hdoc.sgdm.repository;
 
 import com.hdoc.sgdm.entity.Ordonnance;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -36,4 +40,16 @@ public interface OrdonnanceRepository extends JpaRepository<Ordonnance, Long> {
      * @return Optional containing the active ordonnance if found
      */
     Optional<Ordonnance> findByIdPatientAndIdVisiteAndStatut(UUID idPatient, Long idVisite, String statut);
+    
+    /**
+     * Store the URL of the rendered PDF of an ordonnance and mark it finalise
+     * 
+     * @param idOrdonnance Ordonnance ID
+     * @param url Public URL of the PDF
+     * @return 1 if the ordonnance was updated, 0 if it no longer exists
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Ordonnance o SET o.url = :url, o.statut = 'finalise' WHERE o.idOrdonnance = :idOrdonnance")
+    int finalizeWithUrl(@Param("idOrdonnance") Long idOrdonnance, @Param("url") String url);
 } 
\ No newline at end of file
@@ -35,6 +35,25 @@ public interface PatientRepository extends JpaRepository<Patient, UUID> {
     @Query("SELECT MAX(p.ipp) FROM Patient p")
     String findHighestIPP();
     
+    /**
+     * Load only the identity fields used by the in-memory patient search index
+     * 
+     * @return One search key per patient
+     */
+    @Query("SELECT p.idPatient AS idPatient, p.ipp AS ipp, p.cin AS cin, p.nom AS nom, p.prenom AS prenom FROM Patient p")
+    List<SearchKey> findAllSearchKeys();
+    
+    /**
+     * Projection of the patient fields that can be searched
+     */
+    interface SearchKey {
+        UUID getIdPatient();
+        String getIpp();
+        String getCin();
+        String getNom();
+        String getPrenom();
+    }
+    
     /**
      * Find all patients who have had at least one visit with the specified doctor
      * 
@@ -3,8 +3,11 @@ package com.hdoc.sgdm.repository;
 import com.hdoc.sgdm.entity.Ordonnance;
 import com.hdoc.sgdm.entity.Prescription;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -25,4 +28,14 @@ public interface PrescriptionRepository extends JpaRepository<Prescription, Inte
      * @return List of prescriptions
      */
     List<Prescription> findAllByOrdonnance_IdOrdonnance(Long idOrdonnance);
-} 
\ No newline at end of file
+    
+    /**
+     * Find the prescriptions of several ordonnances with their medicament, in a single query
+     * 
+     * @param idOrdonnances Ordonnance IDs
+     * @return List of prescriptions, in creation order
+     */
+    @Query("SELECT p FROM Prescription p JOIN FETCH p.medicament " +
+           "WHERE p.ordonnance.idOrdonnance IN :idOrdonnances ORDER BY p.idPrescription")
+    List<Prescription> findAllWithMedicamentByOrdonnanceIds(@Param("idOrdonnances") Collection<Long> idOrdonnances);
+}
@@ -0,0 +1,77 @@
+package com.hdoc.sgdm.repository;
+
+import com.hdoc.sgdm.entity.RenderJob;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface RenderJobRepository extends JpaRepository<RenderJob, Long> {
+
+    /**
+     * Take a waiting job for this worker. The status condition makes the claim exclusive:
+     * when several workers or nodes race for the same job, only one of them gets 1.
+     *
+     * @param idJob Job ID
+     * @param now Start time of the attempt
+     * @return 1 if the job was claimed, 0 if it was not waiting anymore
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE RenderJob j SET j.statut = com.hdoc.sgdm.entity.RenderJob$StatutJob.EN_COURS, " +
+           "j.tentatives = j.tentatives + 1, j.dateDebut = :now " +
+           "WHERE j.idJob = :idJob AND j.statut = com.hdoc.sgdm.entity.RenderJob$StatutJob.EN_ATTENTE")
+    int claim(@Param("idJob") Long idJob, @Param("now") LocalDateTime now);
+
+    /**
+     * Record the outcome of the attempt of a running job: TERMINE with the URL, ECHEC with
+     * the error, or EN_ATTENTE to retry it later.
+     *
+     * @return 1 if the job was still running, 0 otherwise
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE RenderJob j SET j.statut = :statut, j.url = :url, j.erreur = :erreur, j.dateFin = :dateFin " +
+           "WHERE j.idJob = :idJob AND j.statut = com.hdoc.sgdm.entity.RenderJob$StatutJob.EN_COURS")
+    int finish(@Param("idJob") Long idJob,
+               @Param("statut") RenderJob.StatutJob statut,
+               @Param("url") String url,
+               @Param("erreur") String erreur,
+               @Param("dateFin") LocalDateTime dateFin);
+
+    /**
+     * Put back in the queue the jobs whose worker died during the attempt (node stopped or
+     * crashed), recognised by an attempt started before the given time.
+     *
+     * @param startedBefore Start time before which a running attempt is considered lost
+     * @return Number of jobs put back in the queue
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE RenderJob j SET j.statut = com.hdoc.sgdm.entity.RenderJob$StatutJob.EN_ATTENTE " +
+           "WHERE j.statut = com.hdoc.sgdm.entity.RenderJob$StatutJob.EN_COURS AND j.dateDebut < :startedBefore")
+    int requeueStale(@Param("startedBefore") LocalDateTime startedBefore);
+
+    // Find the waiting jobs that are due: new ones past the grace period left to the node that
+    // queued them, and retries whose last attempt is older than the retry delay
+    @Query("SELECT j.idJob FROM RenderJob j WHERE j.statut = com.hdoc.sgdm.entity.RenderJob$StatutJob.EN_ATTENTE AND " +
+           "((j.dateDebut IS NULL AND j.dateCreation < :createdBefore) OR j.dateDebut < :attemptedBefore) " +
+           "ORDER BY j.idJob")
+    List<Long> findDueIds(
+            @Param("createdBefore") LocalDateTime createdBefore,
+            @Param("attemptedBefore") LocalDateTime attemptedBefore,
+            Pageable pageable);
+
+    // Find which of the given jobs are done, successfully or not
+    @Query("SELECT j FROM RenderJob j WHERE j.idJob IN :ids AND j.statut IN " +
+           "(com.hdoc.sgdm.entity.RenderJob$StatutJob.TERMINE, com.hdoc.sgdm.entity.RenderJob$StatutJob.ECHEC)")
+    List<RenderJob> findFinishedByIds(@Param("ids") Collection<Long> ids);
+}
@@ -1,12 +1,16 @@
 package com.hdoc.sgdm.repository;
 
 import com.hdoc.sgdm.entity.RendezVous;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -32,16 +36,39 @@ public interface RendezVousRepository extends JpaRepository<RendezVous, Long> {
     // Find appointments for a specific patient
     List<RendezVous> findByIdPatientOrderByDateHeure(UUID idPatient);
     
-    // Check for overlapping appointments for a doctor
+    // Check for overlapping appointments for a doctor (PLANIFIE or LATE appointments hold their slot)
     @Query(value = "SELECT COUNT(*) > 0 FROM rendez_vous rv WHERE rv.id_medecin = :idMedecin " +
-           "AND rv.status = 'PLANIFIE' " +
+           "AND rv.status IN ('PLANIFIE', 'LATE') " +
            "AND rv.date_heure < :endDateTime " +
-           "AND (rv.date_heure + INTERVAL '1 minute' * rv.duration_minutes) > :startDateTime", 
+           "AND (rv.date_heure + INTERVAL '1' MINUTE * rv.duration_minutes) > :startDateTime", 
            nativeQuery = true)
     boolean hasOverlappingAppointment(
             @Param("idMedecin") UUID idMedecin, 
             @Param("startDateTime") LocalDateTime startDateTime, 
             @Param("endDateTime") LocalDateTime endDateTime);
+    
+    // Check for overlapping appointments for a doctor, other than the appointment being updated
+    @Query(value = "SELECT COUNT(*) > 0 FROM rendez_vous rv WHERE rv.id_medecin = :idMedecin " +
+           "AND rv.id_rdv <> :excludedId " +
+           "AND rv.status IN ('PLANIFIE', 'LATE') " +
+           "AND rv.date_heure < :endDateTime " +
+           "AND (rv.date_heure + INTERVAL '1' MINUTE * rv.duration_minutes) > :startDateTime", 
+           nativeQuery = true)
+    boolean hasOverlappingAppointmentExcluding(
+            @Param("idMedecin") UUID idMedecin, 
+            @Param("startDateTime") LocalDateTime startDateTime, 
+            @Param("endDateTime") LocalDateTime endDateTime,
+            @Param("excludedId") Long excludedId);
+    
+    // Find the PLANIFIE or LATE appointments starting within [from, to), with the slot they hold
+    @Query("SELECT rv.id AS id, rv.idMedecin AS idMedecin, rv.dateHeure AS dateHeure, " +
+           "rv.durationMinutes AS durationMinutes FROM RendezVous rv " +
+           "WHERE rv.status IN (com.hdoc.sgdm.entity.RendezVous$StatutRendezVous.PLANIFIE, " +
+           "com.hdoc.sgdm.entity.RendezVous$StatutRendezVous.LATE) AND " +
+           "rv.dateHeure >= :from AND rv.dateHeure < :to")
+    List<BookedSlot> findBookedSlotsBetween(
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to);
             
     // Find upcoming appointments for today (only PLANIFIE status)
     @Query("SELECT rv FROM RendezVous rv WHERE rv.status = com.hdoc.sgdm.entity.RendezVous$StatutRendezVous.PLANIFIE AND " +
@@ -73,6 +100,73 @@ public interface RendezVousRepository extends JpaRepository<RendezVous, Long> {
             @Param("currentTime") LocalDateTime currentTime,
             @Param("status") RendezVous.StatutRendezVous status);
             
+    /**
+     * Mark as LATE, in a single statement, the appointments still PLANIFIE whose time has passed
+     * within [startOfDay, currentTime). The UPDATE ... RETURNING is wrapped in a CTE so it runs
+     * as a query and gives back the IDs of the rows it changed.
+     * 
+     * @param startOfDay Start of the current day
+     * @param currentTime Current time
+     * @return IDs of the appointments that became LATE
+     */
+    @Transactional
+    @Query(value = "WITH updated AS (" +
+           "UPDATE rendez_vous SET status = 'LATE' " +
+           "WHERE status = 'PLANIFIE' AND date_heure >= :startOfDay AND date_heure < :currentTime " +
+           "RETURNING id_rdv) " +
+           "SELECT id_rdv FROM updated ORDER BY id_rdv",
+           nativeQuery = true)
+    List<Long> markLateAppointments(
+            @Param("startOfDay") LocalDateTime startOfDay,
+            @Param("currentTime") LocalDateTime currentTime);
+            
+    /**
+     * Mark as LATE the given appointments that are still PLANIFIE and whose time has passed.
+     * Used by the timer wheel to fire a whole second of due appointments at once; the status and
+     * time conditions make a stale entry (cancelled or moved later in the meantime) a no-op.
+     * 
+     * @param ids IDs of the appointments due
+     * @param currentTime Current time
+     * @return Number of appointments that became LATE
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE RendezVous rv SET rv.status = com.hdoc.sgdm.entity.RendezVous$StatutRendezVous.LATE " +
+           "WHERE rv.id IN :ids AND rv.status = com.hdoc.sgdm.entity.RendezVous$StatutRendezVous.PLANIFIE AND " +
+           "rv.dateHeure <= :currentTime")
+    int markLateByIds(
+            @Param("ids") Collection<Long> ids,
+            @Param("currentTime") LocalDateTime currentTime);
+            
+    // Find the time of the PLANIFIE appointments within [from, to), to schedule their LATE transition
+    @Query("SELECT rv.id AS id, rv.dateHeure AS dateHeure FROM RendezVous rv " +
+           "WHERE rv.status = com.hdoc.sgdm.entity.RendezVous$StatutRendezVous.PLANIFIE AND " +
+           "rv.dateHeure >= :from AND rv.dateHeure < :to")
+    List<ScheduledAppointment> findScheduledBetween(
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to);
+
+    // Find the PLANIFIE and LATE appointments within [from, to), for the agenda of the day
+    @Query("SELECT rv FROM RendezVous rv WHERE rv.status IN " +
+           "(com.hdoc.sgdm.entity.RendezVous$StatutRendezVous.PLANIFIE, com.hdoc.sgdm.entity.RendezVous$StatutRendezVous.LATE) AND " +
+           "rv.dateHeure >= :from AND rv.dateHeure < :to ORDER BY rv.dateHeure, rv.id")
+    List<RendezVous> findAgendaBetween(
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to);
+            
+    // Find the PLANIFIE or LATE appointments of the given doctors starting within [from, to), doctor by doctor in time order
+    @Query("SELECT rv.id AS id, rv.idMedecin AS idMedecin, rv.dateHeure AS dateHeure, " +
+           "rv.durationMinutes AS durationMinutes FROM RendezVous rv " +
+           "WHERE rv.idMedecin IN :idMedecins AND " +
+           "rv.status IN (com.hdoc.sgdm.entity.RendezVous$StatutRendezVous.PLANIFIE, " +
+           "com.hdoc.sgdm.entity.RendezVous$StatutRendezVous.LATE) AND " +
+           "rv.dateHeure >= :from AND rv.dateHeure < :to " +
+           "ORDER BY rv.idMedecin, rv.dateHeure")
+    List<BookedSlot> findBookedSlotsForDoctors(
+            @Param("idMedecins") Collection<UUID> idMedecins,
+            @Param("from") LocalDateTime from,
+            @Param("to") LocalDateTime to);
+            
     // Find late appointments for today by doctor (scheduled time has passed but status is still PLANIFIE)
     @Query("SELECT rv FROM RendezVous rv WHERE rv.status = :status AND " +
            "rv.dateHeure >= :startOfDay AND rv.dateHeure <= :endOfDay AND " +
@@ -85,6 +179,33 @@ public interface RendezVousRepository extends JpaRepository<RendezVous, Long> {
             @Param("status") RendezVous.StatutRendezVous status,
             @Param("idMedecin") UUID idMedecin);
             
+    /**
+     * Version of a calendar view: the highest change sequence and the number of its appointments.
+     * Any insert or update raises the former, any deletion lowers the latter.
+     * 
+     * @param idMedecin Optional doctor filter, null for all doctors
+     * @param includeAllStatuses false to count only PLANIFIE appointments, like the calendar itself
+     */
+    @Query("SELECT MAX(rv.changeSeq) AS maxChangeSeq, COUNT(rv) AS count, " +
+           "COALESCE(SUM(m.version), 0) AS doctorVersions FROM RendezVous rv " +
+           "LEFT JOIN Medecin m ON m.idMedecin = rv.idMedecin " +
+           "WHERE rv.dateHeure BETWEEN :startDate AND :endDate " +
+           "AND (:idMedecin IS NULL OR rv.idMedecin = :idMedecin) " +
+           "AND (:includeAllStatuses = true OR rv.status = com.hdoc.sgdm.entity.RendezVous$StatutRendezVous.PLANIFIE)")
+    CalendarVersion findCalendarVersion(
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate,
+            @Param("idMedecin") UUID idMedecin,
+            @Param("includeAllStatuses") boolean includeAllStatuses);
+            
+    // Find the appointments inserted or updated by the transactions from a sync horizon on, in change order
+    @Query("SELECT rv FROM RendezVous rv WHERE rv.changeXid >= :horizon ORDER BY rv.changeSeq")
+    List<RendezVous> findChangedSince(@Param("horizon") long horizon, Pageable pageable);
+    
+    // Oldest transaction still in flight, every older one has committed or rolled back (see V14)
+    @Query(value = "SELECT rendez_vous_sync_horizon()", nativeQuery = true)
+    long findSyncHorizon();
+            
     /**
      * Check if an appointment has any references from other tables (like Visite)
      * This query uses a native SQL query to check for references in the visite table
@@ -95,4 +216,23 @@ public interface RendezVousRepository extends JpaRepository<RendezVous, Long> {
      */
     @Query(value = "SELECT EXISTS(SELECT 1 FROM visite WHERE id_rdv = :idRendezVous LIMIT 1)", nativeQuery = true)
     boolean hasReferencesToAppointment(@Param("idRendezVous") Long idRendezVous);
-} 
\ No newline at end of file
+
+    interface ScheduledAppointment {
+        Long getId();
+        LocalDateTime getDateHeure();
+    }
+
+    interface CalendarVersion {
+        Long getMaxChangeSeq();
+        Long getCount();
+        // Sum of the optimistic lock versions of the doctors, once per appointment
+        Long getDoctorVersions();
+    }
+
+    interface BookedSlot {
+        Long getId();
+        UUID getIdMedecin();
+        LocalDateTime getDateHeure();
+        Integer getDurationMinutes();
+    }
+}
@@ -0,0 +1,39 @@
+package com.hdoc.sgdm.repository;
+
+import com.hdoc.sgdm.entity.SequenceCompteur;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface SequenceCompteurRepository extends JpaRepository<SequenceCompteur, String> {
+
+    /**
+     * Atomically add to a counter. The row stays locked until the transaction ends.
+     * 
+     * @param nom The counter name
+     * @param increment The value to add
+     * @return The number of updated rows, 0 if the counter does not exist yet
+     */
+    @Modifying
+    @Query("UPDATE SequenceCompteur s SET s.valeur = s.valeur + :increment WHERE s.nom = :nom")
+    int increment(@Param("nom") String nom, @Param("increment") long increment);
+
+    @Query("SELECT s.valeur FROM SequenceCompteur s WHERE s.nom = :nom")
+    Optional<Long> findValeurByNom(@Param("nom") String nom);
+
+    /**
+     * Create a counter unless another node created it first
+     * 
+     * @param nom The counter name
+     * @param valeur The initial value
+     * @return 1 if the counter was created, 0 if it already existed
+     */
+    @Modifying
+    @Query(value = "INSERT INTO sequence_compteur (nom, valeur) VALUES (:nom, :valeur) ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("nom") String nom, @Param("valeur") long valeur);
+}
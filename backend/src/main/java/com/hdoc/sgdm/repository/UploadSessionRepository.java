@@ -0,0 +1,69 @@
+package com.hdoc.sgdm.repository;
+
+import com.hdoc.sgdm.entity.UploadSession;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface UploadSessionRepository extends JpaRepository<UploadSession, Long> {
+
+    /**
+     * Record the receipt of a chunk, which keeps the session from expiring
+     *
+     * @return 1 if the session still accepts chunks, 0 otherwise
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE UploadSession s SET s.dateMaj = :now " +
+           "WHERE s.idSession = :idSession AND s.statut = com.hdoc.sgdm.entity.UploadSession$StatutUpload.EN_COURS")
+    int touch(@Param("idSession") Long idSession, @Param("now") LocalDateTime now);
+
+    /**
+     * Close a session to new chunks once all of them are received. The status condition
+     * makes it exclusive when the client sends the completion twice.
+     *
+     * @return 1 if the session was closed, 0 if it was not receiving chunks anymore
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE UploadSession s SET s.statut = com.hdoc.sgdm.entity.UploadSession$StatutUpload.ASSEMBLAGE, " +
+           "s.idJob = :idJob, s.dateMaj = :now " +
+           "WHERE s.idSession = :idSession AND s.statut = com.hdoc.sgdm.entity.UploadSession$StatutUpload.EN_COURS")
+    int startAssembly(@Param("idSession") Long idSession, @Param("idJob") Long idJob, @Param("now") LocalDateTime now);
+
+    /**
+     * Record the document created from an assembled session
+     *
+     * @return 1 if the session was being assembled, 0 otherwise
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE UploadSession s SET s.statut = com.hdoc.sgdm.entity.UploadSession$StatutUpload.TERMINE, " +
+           "s.idDocument = :idDocument, s.dateMaj = :now " +
+           "WHERE s.idSession = :idSession AND s.statut = com.hdoc.sgdm.entity.UploadSession$StatutUpload.ASSEMBLAGE")
+    int finish(@Param("idSession") Long idSession, @Param("idDocument") Long idDocument, @Param("now") LocalDateTime now);
+
+    /**
+     * Give up a session left unfinished
+     *
+     * @return 1 if the session was expired, 0 if it was finished meanwhile
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE UploadSession s SET s.statut = com.hdoc.sgdm.entity.UploadSession$StatutUpload.EXPIRE " +
+           "WHERE s.idSession = :idSession AND s.dateMaj < :updatedBefore AND s.statut IN " +
+           "(com.hdoc.sgdm.entity.UploadSession$StatutUpload.EN_COURS, com.hdoc.sgdm.entity.UploadSession$StatutUpload.ASSEMBLAGE)")
+    int expire(@Param("idSession") Long idSession, @Param("updatedBefore") LocalDateTime updatedBefore);
+
+    // Find the unfinished sessions without any activity since the given time
+    @Query("SELECT s.idSession FROM UploadSession s WHERE s.dateMaj < :updatedBefore AND s.statut IN " +
+           "(com.hdoc.sgdm.entity.UploadSession$StatutUpload.EN_COURS, com.hdoc.sgdm.entity.UploadSession$StatutUpload.ASSEMBLAGE)")
+    List<Long> findInactiveIds(@Param("updatedBefore") LocalDateTime updatedBefore);
+}
@@ -2,6 +2,7 @@ package com.hdoc.sgdm.repository;
 
 import com.hdoc.sgdm.entity.Patient;
 import com.hdoc.sgdm.entity.Visite;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -19,23 +20,61 @@ public interface VisiteRepository extends JpaRepository<Visite, Long> {
     
     List<Visite> findByPatientAndStatutOrderByDateDebutDesc(Patient patient, String statut);
     
+    @EntityGraph(attributePaths = "patient")
     List<Visite> findByStatutOrderByDateDebutDesc(String statut);
     
 
+    @EntityGraph(attributePaths = "patient")
     List<Visite> findByStatutAndDateFinBetweenOrderByDateFinDesc(String statut, LocalDateTime startDateTime, LocalDateTime endDateTime);
     
 
-    @Query("SELECT v FROM Visite v WHERE v.statut = :statut AND FUNCTION('DATE', v.dateFin) = FUNCTION('DATE', :date) ORDER BY v.dateFin DESC")
-    List<Visite> findCompletedVisitsByDate(@Param("statut") String statut, @Param("date") LocalDateTime date);
+    /**
+     * Find the visits with a status that ended in [start, end).
+     * The half-open range lets the database use the (statut, date_fin) index.
+     */
+    @EntityGraph(attributePaths = "patient")
+    @Query("SELECT v FROM Visite v WHERE v.statut = :statut AND v.dateFin >= :start AND v.dateFin < :end ORDER BY v.dateFin DESC")
+    List<Visite> findCompletedVisitsByDate(
+            @Param("statut") String statut,
+            @Param("start") LocalDateTime start,
+            @Param("end") LocalDateTime end);
 
-    @Query("SELECT v FROM Visite v WHERE v.statut = :statut AND FUNCTION('DATE', v.dateFin) = FUNCTION('DATE', :date) AND v.idMedecin = :idMedecin ORDER BY v.dateFin DESC")
+    /**
+     * Find the visits of a doctor with a status that ended in [start, end).
+     * The half-open range lets the database use the (id_medecin, statut, date_fin) index.
+     */
+    @EntityGraph(attributePaths = "patient")
+    @Query("SELECT v FROM Visite v WHERE v.idMedecin = :idMedecin AND v.statut = :statut AND v.dateFin >= :start AND v.dateFin < :end ORDER BY v.dateFin DESC")
     List<Visite> findCompletedVisitsByDateAndDoctor(
             @Param("statut") String statut, 
-            @Param("date") LocalDateTime date, 
+            @Param("start") LocalDateTime start,
+            @Param("end") LocalDateTime end,
             @Param("idMedecin") UUID idMedecin);
 
     Optional<Visite> findByIdMedecinAndStatut(UUID idMedecin, String statut);
 
-    @Query("SELECT v FROM Visite v WHERE v.statut = 'PLANIFIE' AND FUNCTION('DATE', v.dateDebut) = FUNCTION('DATE', :today) AND v.dateDebut > :currentTime ORDER BY v.dateDebut ASC")
-    List<Visite> findUpcomingVisitesForToday(@Param("today") LocalDateTime today, @Param("currentTime") LocalDateTime currentTime);
+    /**
+     * Find the planned visits starting after the current time and before the end of the day
+     */
+    @EntityGraph(attributePaths = "patient")
+    @Query("SELECT v FROM Visite v WHERE v.statut = 'PLANIFIE' AND v.dateDebut > :currentTime AND v.dateDebut < :endOfDay ORDER BY v.dateDebut ASC")
+    List<Visite> findUpcomingVisitesForToday(@Param("currentTime") LocalDateTime currentTime, @Param("endOfDay") LocalDateTime endOfDay);
+    
+    /**
+     * Find every distinct doctor-patient pair linked by at least one visit
+     * 
+     * @return The established doctor-patient relationships
+     */
+    @Query("SELECT DISTINCT v.idMedecin AS idMedecin, v.patient.idPatient AS idPatient FROM Visite v WHERE v.idMedecin IS NOT NULL")
+    List<DoctorPatientPair> findDoctorPatientPairs();
+    
+    boolean existsByIdMedecinAndPatient_IdPatient(UUID idMedecin, UUID idPatient);
+    
+    /**
+     * Projection of a doctor-patient relationship
+     */
+    interface DoctorPatientPair {
+        UUID getIdMedecin();
+        UUID getIdPatient();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,293 @@
+package com.hdoc.sgdm.service;
+
+import com.hdoc.sgdm.dto.common.MedecinDTO;
+import com.hdoc.sgdm.dto.common.VisiteDTO;
+import com.hdoc.sgdm.mapper.VisiteMapper;
+import com.hdoc.sgdm.repository.MedecinRepository;
+import com.hdoc.sgdm.repository.VisiteRepository;
+import com.hdoc.sgdm.util.TransactionCallbacks;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * In-memory board of the visits in progress and of the doctors' statuses.
+ *
+ * The board is loaded when the application is ready and then kept up to date by
+ * {@link VisiteService} and {@link MedecinService} once their transactions commit, so the
+ * active visit screens are served from memory. Every change is pushed to the clients
+ * subscribed through {@link #subscribe()}. A periodic reload picks up the changes made by
+ * other nodes and pushes the differences as well.
+ */
+@Component
+@Slf4j
+public class ActiveVisitBoard {
+
+    public static final String EVENT_SNAPSHOT = "snapshot";
+    public static final String EVENT_VISITE = "visite";
+    public static final String EVENT_VISITE_REMOVED = "visite-removed";
+    public static final String EVENT_MEDECIN_STATUS = "medecin-status";
+
+    private static final String STATUT_IN_PROGRESS = "IN_PROGRESS";
+
+    private static final Comparator<VisiteDTO> MOST_RECENT_FIRST = Comparator.comparing(
+            VisiteDTO::getDateDebut, Comparator.nullsLast(Comparator.reverseOrder()));
+
+    private final VisiteRepository visiteRepository;
+    private final MedecinRepository medecinRepository;
+    private final VisiteMapper visiteMapper;
+    private final long emitterTimeoutMs;
+
+    private final SnapshotRebuilder<Board> rebuilder = new SnapshotRebuilder<>();
+    private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+    private final ExecutorService publisher = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "active-visit-board");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile Board board = new Board();
+    private volatile boolean loaded;
+
+    public ActiveVisitBoard(VisiteRepository visiteRepository,
+                            MedecinRepository medecinRepository,
+                            VisiteMapper visiteMapper,
+                            @Value("${visite.board.sse-timeout-ms:1800000}") long emitterTimeoutMs) {
+        this.visiteRepository = visiteRepository;
+        this.medecinRepository = medecinRepository;
+        this.visiteMapper = visiteMapper;
+        this.emitterTimeoutMs = emitterTimeoutMs;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        publisher.shutdownNow();
+        emitters.forEach(SseEmitter::complete);
+    }
+
+    /**
+     * Reload the board from the database and push what changed since the last load.
+     */
+    @Scheduled(fixedDelayString = "${visite.board.refresh-ms:60000}",
+               initialDelayString = "${visite.board.refresh-ms:60000}")
+    public void rebuild() {
+        rebuilder.rebuild(() -> {
+            Board fresh = new Board();
+            for (VisiteDTO visite : visiteMapper.toDTOList(visiteRepository.findByStatutOrderByDateDebutDesc(STATUT_IN_PROGRESS))) {
+                fresh.visites.put(visite.getIdVisite(), visite);
+            }
+            for (MedecinRepository.DoctorStatus doctor : medecinRepository.findAllStatuses()) {
+                fresh.statuts.put(doctor.getIdMedecin(), Objects.toString(doctor.getStatus(), ""));
+            }
+            return fresh;
+        }, fresh -> {
+            Board previous = board;
+            board = fresh;
+            if (loaded) {
+                publishDifferences(previous, fresh);
+            }
+            loaded = true;
+            log.debug("Active visit board loaded with {} visits and {} doctors", fresh.visites.size(), fresh.statuts.size());
+        });
+    }
+
+    /**
+     * Visits in progress, most recent first.
+     */
+    public List<VisiteDTO> getActiveVisites() {
+        ensureLoaded();
+        List<VisiteDTO> visites = new ArrayList<>(board.visites.values());
+        visites.sort(MOST_RECENT_FIRST);
+        return visites;
+    }
+
+    /**
+     * The visit in progress for a doctor, if any.
+     */
+    public Optional<VisiteDTO> getActiveVisite(UUID idMedecin) {
+        return getActiveVisites().stream()
+                .filter(visite -> idMedecin.equals(visite.getIdMedecin()))
+                .findFirst();
+    }
+
+    /**
+     * Number of visits in progress for a doctor.
+     */
+    public long countActiveVisites(UUID idMedecin) {
+        ensureLoaded();
+        return board.visites.values().stream()
+                .filter(visite -> idMedecin.equals(visite.getIdMedecin()))
+                .count();
+    }
+
+    /**
+     * Check whether the doctor is known by the board. Doctors created after the last
+     * load are unknown until the next one, so a negative answer must be confirmed.
+     */
+    public boolean hasMedecin(UUID idMedecin) {
+        ensureLoaded();
+        return board.statuts.containsKey(idMedecin);
+    }
+
+    /**
+     * Subscribe to the board. The client first receives a snapshot, then every change.
+     *
+     * @return The emitter to return from the controller
+     */
+    public SseEmitter subscribe() {
+        ensureLoaded();
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMs);
+        emitter.onCompletion(() -> emitters.remove(emitter));
+        emitter.onTimeout(() -> emitters.remove(emitter));
+        emitter.onError(error -> emitters.remove(emitter));
+
+        // Queue the snapshot before any change applied after it
+        rebuilder.locked(() -> {
+            Map<String, Object> snapshot = new LinkedHashMap<>();
+            snapshot.put("visites", getActiveVisites());
+            snapshot.put("statuts", new HashMap<>(board.statuts));
+            publisher.execute(() -> {
+                send(emitter, EVENT_SNAPSHOT, snapshot);
+                emitters.add(emitter);
+            });
+        });
+        return emitter;
+    }
+
+    /**
+     * Record a visit after it was created or changed. Visits that are no longer
+     * in progress leave the board. Applied once the current transaction commits.
+     */
+    public void visiteChanged(VisiteDTO visite) {
+        if (visite == null || visite.getIdVisite() == null) {
+            return;
+        }
+        if (!STATUT_IN_PROGRESS.equals(visite.getStatut())) {
+            visiteRemoved(visite.getIdVisite());
+            return;
+        }
+        TransactionCallbacks.afterCommit(() -> apply(current -> current.visites.put(visite.getIdVisite(), visite),
+                EVENT_VISITE, visite));
+    }
+
+    /**
+     * Remove a visit from the board once the current transaction commits.
+     */
+    public void visiteRemoved(Long idVisite) {
+        if (idVisite == null) {
+            return;
+        }
+        TransactionCallbacks.afterCommit(() -> apply(current -> current.visites.remove(idVisite),
+                EVENT_VISITE_REMOVED, Map.of("idVisite", idVisite)));
+    }
+
+    /**
+     * Record a doctor's new status once the current transaction commits.
+     */
+    public void medecinStatusChanged(UUID idMedecin, String status) {
+        if (idMedecin == null) {
+            return;
+        }
+        TransactionCallbacks.afterCommit(() -> apply(current -> current.setStatut(idMedecin, status),
+                EVENT_MEDECIN_STATUS, statusPayload(idMedecin, status)));
+    }
+
+    private void ensureLoaded() {
+        rebuilder.ensureBuilt(() -> loaded, this::rebuild);
+    }
+
+    private void apply(Consumer<Board> change, String eventName, Object payload) {
+        rebuilder.apply(change, () -> {
+            change.accept(board);
+            publish(eventName, payload);
+        });
+    }
+
+    private void publishDifferences(Board previous, Board fresh) {
+        fresh.visites.forEach((idVisite, visite) -> {
+            if (!visite.equals(previous.visites.get(idVisite))) {
+                publish(EVENT_VISITE, visite);
+            }
+        });
+        previous.visites.keySet().stream()
+                .filter(idVisite -> !fresh.visites.containsKey(idVisite))
+                .forEach(idVisite -> publish(EVENT_VISITE_REMOVED, Map.of("idVisite", idVisite)));
+        fresh.statuts.forEach((idMedecin, status) -> {
+            if (!status.equals(previous.statuts.get(idMedecin))) {
+                publish(EVENT_MEDECIN_STATUS, statusPayload(idMedecin, status));
+            }
+        });
+    }
+
+    private void publish(String eventName, Object payload) {
+        if (emitters.isEmpty()) {
+            return;
+        }
+        publisher.execute(() -> emitters.forEach(emitter -> send(emitter, eventName, payload)));
+    }
+
+    private void send(SseEmitter emitter, String eventName, Object payload) {
+        try {
+            emitter.send(SseEmitter.event().name(eventName).data(payload));
+        } catch (IOException | IllegalStateException e) {
+            // The client went away, the servlet container completes the emitter
+            emitters.remove(emitter);
+        }
+    }
+
+    private static Map<String, Object> statusPayload(UUID idMedecin, String status) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("idMedecin", idMedecin);
+        payload.put("status", status);
+        return payload;
+    }
+
+    /**
+     * Visits in progress by ID and doctor statuses by doctor ID
+     */
+    private static class Board {
+        private final Map<Long, VisiteDTO> visites = new ConcurrentHashMap<>();
+        private final Map<UUID, String> statuts = new ConcurrentHashMap<>();
+
+        private void setStatut(UUID idMedecin, String status) {
+            statuts.put(idMedecin, Objects.toString(status, ""));
+
+            // Keep the doctor embedded in their visits in line with the new status
+            visites.replaceAll((idVisite, visite) -> {
+                MedecinDTO medecin = visite.getMedecin();
+                if (medecin == null || !idMedecin.equals(medecin.getIdMedecin())) {
+                    return visite;
+                }
+                return visite.toBuilder()
+                        .medecin(medecin.toBuilder().status(status).build())
+                        .build();
+            });
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package com.hdoc.sgdm.service;
+
+import com.hdoc.sgdm.entity.RendezVous;
+import com.hdoc.sgdm.repository.RendezVousRepository;
+import com.hdoc.sgdm.util.TransactionCallbacks;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hashed timer wheel of today's PLANIFIE appointments, moving each one to LATE at its due second.
+ *
+ * The wheel has one slot per second; an appointment due further than one revolution away
+ * waits in its slot for the remaining rounds. It is loaded when the application is ready and
+ * again at midnight, and kept in sync by {@link RendezVousService} once its transactions
+ * commit. A single thread advances the wheel every second and marks all the appointments due
+ * in that second with one UPDATE. {@link RendezVousStatusScheduler} remains as a reconciliation
+ * pass for what the wheel cannot see (changes made by other nodes, a failed update).
+ */
+@Component
+@Slf4j
+public class AppointmentTimerWheel {
+
+    private static final int DEFAULT_SLOTS = 3600;
+
+    private final RendezVousRepository rendezVousRepository;
+    private final TodayAgendaCache todayAgendaCache;
+    private final Clock clock;
+    private final Counter firedCounter;
+
+    private final Object monitor = new Object();
+    private final List<Set<Entry>> slots;
+    private final Map<Long, Entry> entries = new HashMap<>();
+    private final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "appointment-timer-wheel");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Last second processed by the wheel, guarded by monitor
+    private long currentSecond;
+    // Appointments scheduled or cancelled while a load reads its snapshot, guarded by monitor
+    private Set<Long> changedDuringLoad;
+
+    @Autowired
+    public AppointmentTimerWheel(RendezVousRepository rendezVousRepository, TodayAgendaCache todayAgendaCache,
+                                 MeterRegistry meterRegistry) {
+        this(rendezVousRepository, todayAgendaCache, meterRegistry, Clock.systemDefaultZone(), DEFAULT_SLOTS);
+    }
+
+    AppointmentTimerWheel(RendezVousRepository rendezVousRepository, TodayAgendaCache todayAgendaCache,
+                          MeterRegistry meterRegistry, Clock clock, int slotCount) {
+        this.rendezVousRepository = rendezVousRepository;
+        this.todayAgendaCache = todayAgendaCache;
+        this.clock = clock;
+        this.firedCounter = Counter.builder("rendezvous.late.fired")
+                .description("Appointments moved from PLANIFIE to LATE by the timer wheel")
+                .register(meterRegistry);
+        this.slots = new ArrayList<>(slotCount);
+        for (int i = 0; i < slotCount; i++) {
+            slots.add(new HashSet<>());
+        }
+        this.currentSecond = clock.instant().getEpochSecond();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        load();
+        long delayToNextSecond = 1000 - clock.millis() % 1000;
+        ticker.scheduleAtFixedRate(this::tick, delayToNextSecond, 1000, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ticker.shutdownNow();
+    }
+
+    /**
+     * Load the PLANIFIE appointments of the current day. Runs at midnight for the new day;
+     * entries already on the wheel are kept.
+     */
+    @Scheduled(cron = "0 0 0 * * *")
+    public void load() {
+        LocalDateTime startOfDay = LocalDate.now(clock).atStartOfDay();
+
+        synchronized (monitor) {
+            changedDuringLoad = new HashSet<>();
+        }
+
+        List<RendezVousRepository.ScheduledAppointment> appointments;
+        try {
+            appointments = rendezVousRepository.findScheduledBetween(startOfDay, startOfDay.plusDays(1));
+        } catch (RuntimeException e) {
+            synchronized (monitor) {
+                changedDuringLoad = null;
+            }
+            throw e;
+        }
+
+        synchronized (monitor) {
+            for (RendezVousRepository.ScheduledAppointment appointment : appointments) {
+                // A change committed during the load is more recent than the snapshot
+                if (!changedDuringLoad.contains(appointment.getId())) {
+                    add(appointment.getId(), appointment.getDateHeure());
+                }
+            }
+            changedDuringLoad = null;
+        }
+
+        log.info("Appointment timer wheel loaded with {} appointments", appointments.size());
+    }
+
+    /**
+     * Schedule, or reschedule, the LATE transition of an appointment once the current transaction
+     * commits. Appointments that are not PLANIFIE are taken off the wheel, and those of another
+     * day are left to the midnight load.
+     */
+    public void schedule(RendezVous rendezVous) {
+        Long id = rendezVous.getId();
+        if (id == null) {
+            return;
+        }
+        if (rendezVous.getStatus() != RendezVous.StatutRendezVous.PLANIFIE) {
+            cancel(id);
+            return;
+        }
+        LocalDateTime dateHeure = rendezVous.getDateHeure();
+        TransactionCallbacks.afterCommit(() -> {
+            synchronized (monitor) {
+                markChanged(id);
+                remove(id);
+                if (dateHeure.toLocalDate().equals(LocalDate.now(clock))) {
+                    add(id, dateHeure);
+                }
+            }
+        });
+    }
+
+    /**
+     * Take an appointment off the wheel once the current transaction commits.
+     */
+    public void cancel(Long id) {
+        TransactionCallbacks.afterCommit(() -> {
+            synchronized (monitor) {
+                markChanged(id);
+                remove(id);
+            }
+        });
+    }
+
+    /**
+     * Number of appointments on the wheel.
+     */
+    public int size() {
+        synchronized (monitor) {
+            return entries.size();
+        }
+    }
+
+    void tick() {
+        try {
+            advanceTo(clock.instant().getEpochSecond());
+        } catch (RuntimeException e) {
+            log.warn("Failed to advance the appointment timer wheel", e);
+        }
+    }
+
+    /**
+     * Process every second up to the given one and mark the appointments found due as LATE.
+     *
+     * @param second Epoch second to advance to
+     * @return IDs of the appointments found due, in firing order
+     */
+    List<Long> advanceTo(long second) {
+        List<Long> due = new ArrayList<>();
+        synchronized (monitor) {
+            while (currentSecond < second) {
+                currentSecond++;
+                Iterator<Entry> iterator = slots.get(slotOf(currentSecond)).iterator();
+                while (iterator.hasNext()) {
+                    Entry entry = iterator.next();
+                    if (entry.rounds > 0) {
+                        entry.rounds--;
+                    } else {
+                        iterator.remove();
+                        entries.remove(entry.id);
+                        due.add(entry.id);
+                    }
+                }
+            }
+        }
+
+        if (!due.isEmpty()) {
+            fire(due);
+        }
+        return due;
+    }
+
+    private void fire(List<Long> ids) {
+        try {
+            int updated = rendezVousRepository.markLateByIds(ids, LocalDateTime.now(clock));
+            firedCounter.increment(updated);
+            // Only the appointments still PLANIFIE in the agenda are moved
+            todayAgendaCache.appointmentsMarkedLate(ids);
+            if (updated > 0) {
+                log.info("Updated {} appointments from PLANIFIE to LATE at their due time: {}", updated, ids);
+            }
+        } catch (RuntimeException e) {
+            // The reconciliation pass of RendezVousStatusScheduler will catch them up
+            log.warn("Failed to mark appointments {} as LATE", ids, e);
+        }
+    }
+
+    private void add(Long id, LocalDateTime dateHeure) {
+        remove(id);
+        // Appointments already due fire on the next tick
+        long dueSecond = Math.max(dueSecondOf(dateHeure), currentSecond + 1);
+        Entry entry = new Entry(id, slotOf(dueSecond), (dueSecond - currentSecond - 1) / slots.size());
+        slots.get(entry.slot).add(entry);
+        entries.put(id, entry);
+    }
+
+    private void remove(Long id) {
+        Entry entry = entries.remove(id);
+        if (entry != null) {
+            slots.get(entry.slot).remove(entry);
+        }
+    }
+
+    private void markChanged(Long id) {
+        if (changedDuringLoad != null) {
+            changedDuringLoad.add(id);
+        }
+    }
+
+    // First whole second at or after the appointment time
+    private long dueSecondOf(LocalDateTime dateHeure) {
+        long second = dateHeure.atZone(clock.getZone()).toEpochSecond();
+        return dateHeure.getNano() > 0 ? second + 1 : second;
+    }
+
+    private int slotOf(long second) {
+        return (int) Math.floorMod(second, (long) slots.size());
+    }
+
+    private static final class Entry {
+        private final Long id;
+        private final int slot;
+        private long rounds;
+
+        private Entry(Long id, int slot, long rounds) {
+            this.id = id;
+            this.slot = slot;
+            this.rounds = rounds;
+        }
+    }
+}
@@ -2,9 +2,11 @@ package com.hdoc.sgdm.service;
 
 import com.hdoc.sgdm.dto.request.CertificatRequest;
 import com.hdoc.sgdm.dto.response.CertificatDTO;
+import com.hdoc.sgdm.dto.response.RenderJobDTO;
 import com.hdoc.sgdm.entity.Certificat;
 import com.hdoc.sgdm.entity.Medecin;
 import com.hdoc.sgdm.entity.Patient;
+import com.hdoc.sgdm.entity.RenderJob;
 import com.hdoc.sgdm.exception.ResourceNotFoundException;
 import com.hdoc.sgdm.repository.CertificatRepository;
 import com.hdoc.sgdm.repository.MedecinRepository;
@@ -12,52 +14,39 @@ import com.hdoc.sgdm.repository.PatientRepository;
 import com.hdoc.sgdm.repository.SpecialiteRepository;
 import com.lowagie.text.*;
 import com.lowagie.text.pdf.*;
-import com.lowagie.text.Image;
 import lombok.RequiredArgsConstructor;
-import okhttp3.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
-import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
-public class CertificatService {
+public class CertificatService implements DocumentRenderer {
     private static final Logger logger = LoggerFactory.getLogger(CertificatService.class);
     
     private final CertificatRepository certificatRepository;
     private final PatientRepository patientRepository;
     private final MedecinRepository medecinRepository;
     private final SpecialiteRepository specialiteRepository;
-    
-    @Value("${supabase.url}")
-    private String supabaseUrl;
-    
-    @Value("${supabase.service-role-key}")
-    private String serviceRoleKey;
-    
-    private final OkHttpClient httpClient = new OkHttpClient.Builder()
-            .connectTimeout(30, TimeUnit.SECONDS)
-            .writeTimeout(30, TimeUnit.SECONDS)
-            .readTimeout(30, TimeUnit.SECONDS)
-            .build();
+    private final RenderJobQueue renderJobQueue;
+    private final PdfRenderingEngine pdfRenderingEngine;
+    private final ObjectStorage objectStorage;
     
     /**
-     * Create a new medical certificate
+     * Create a new medical certificate. Without a PDF URL in the request, the PDF is rendered
+     * and uploaded by a render worker once the certificate is committed.
      * 
      * @param request Certificate creation request data
-     * @return The created certificate DTO
+     * @return The created certificate DTO, with the ID of the render job if one was queued
      */
     @Transactional
     public CertificatDTO createCertificat(CertificatRequest request) {
@@ -80,131 +69,85 @@ public class CertificatService {
                 .pdfUrl(request.getPdfUrl())
                 .build();
         
+        // Save
+        Certificat savedCertificat = certificatRepository.save(certificat);
+        CertificatDTO dto = mapToDTO(savedCertificat, patient, medecin);
+        
         // If there's no PDF URL, generate one
-        if (certificat.getPdfUrl() == null || certificat.getPdfUrl().isEmpty()) {
-            try {
-                byte[] pdfData = generateCertificatPDF(certificat, patient, medecin);
-                String filename = generateCertificatFilename(patient);
-                String pdfUrl = uploadPDFToSupabase(pdfData, filename);
-                certificat.setPdfUrl(pdfUrl);
-            } catch (IOException e) {
-                logger.error("Error generating PDF for certificate", e);
-                throw new RuntimeException("Failed to generate PDF for certificate", e);
-            }
+        if (savedCertificat.getPdfUrl() == null || savedCertificat.getPdfUrl().isEmpty()) {
+            RenderJobDTO job = renderJobQueue.enqueue(RenderJob.TypeDocument.CERTIFICAT, savedCertificat.getIdCertificat());
+            dto.setIdRenderJob(job.getIdJob());
+            logger.info("PDF generation queued for certificat ID: {} as render job {}",
+                    savedCertificat.getIdCertificat(), job.getIdJob());
         }
         
-        // Save and return
-        Certificat savedCertificat = certificatRepository.save(certificat);
-        return mapToDTO(savedCertificat, patient, medecin);
+        return dto;
     }
     
     /**
-     * Uploads a PDF file to Supabase Storage
+     * Get a medical certificate by ID
      * 
-     * @param pdfData The PDF content as byte array
-     * @param filename The filename to use
-     * @return The public URL to access the file
+     * @param idCertificat Certificate ID
+     * @return The certificate DTO
      */
-    private String uploadPDFToSupabase(byte[] pdfData, String filename) throws IOException {
-        // Create URLs for the certificats bucket
-        String bucketName = "certificats";
+    @Transactional(readOnly = true)
+    public CertificatDTO getCertificatById(Long idCertificat) {
+        Certificat certificat = certificatRepository.findById(idCertificat)
+                .orElseThrow(() -> new ResourceNotFoundException("Certificat not found with ID: " + idCertificat));
         
-        // Ensure the certificats bucket exists
-        ensureBucketExists(bucketName);
+        Patient patient = patientRepository.findByIdPatient(certificat.getIdPatient()).orElse(null);
+        Medecin medecin = medecinRepository.findByIdWithUtilisateur(certificat.getIdMedecin()).orElse(null);
         
-        String uploadUrl = supabaseUrl + "/storage/v1/object/" + bucketName + "/" + filename;
-        String publicUrl = supabaseUrl + "/storage/v1/object/public/" + bucketName + "/" + filename;
+        return mapToDTO(certificat, patient, medecin);
+    }
+    
+    @Override
+    public RenderJob.TypeDocument getTypeDocument() {
+        return RenderJob.TypeDocument.CERTIFICAT;
+    }
+    
+    /**
+     * Render the PDF of a medical certificate, upload it and store its URL on the certificate.
+     * Runs outside of any transaction: each read and the final update use their own.
+     * 
+     * @param idCertificat Certificate ID
+     * @return The public URL of the PDF
+     */
+    @Override
+    public String render(Long idCertificat) throws IOException {
+        Certificat certificat = certificatRepository.findById(idCertificat)
+                .orElseThrow(() -> new ResourceNotFoundException("Certificat not found with ID: " + idCertificat));
         
-        logger.debug("Uploading PDF to: {}", uploadUrl);
+        Patient patient = patientRepository.findByIdPatient(certificat.getIdPatient())
+                .orElseThrow(() -> new ResourceNotFoundException("Patient not found with ID: " + certificat.getIdPatient()));
         
-        // Build request body with PDF data
-        RequestBody requestBody = RequestBody.create(pdfData, MediaType.parse("application/pdf"));
+        Medecin medecin = medecinRepository.findByIdWithUtilisateur(certificat.getIdMedecin())
+                .orElseThrow(() -> new ResourceNotFoundException("Médecin not found with ID: " + certificat.getIdMedecin()));
         
-        // Build the request
-        Request request = new Request.Builder()
-                .url(uploadUrl)
-                .put(requestBody)
-                .addHeader("Authorization", "Bearer " + serviceRoleKey)
-                .addHeader("apikey", serviceRoleKey)
-                .addHeader("Content-Type", "application/pdf")
-                .addHeader("x-upsert", "true") // Overwrite if exists
-                .build();
+        String pdfUrl;
+        try (SpooledContent pdfData = generateCertificatPDF(certificat, patient, medecin)) {
+            pdfUrl = uploadPDF(pdfData, generateCertificatFilename(patient));
+        }
         
-        // Execute the request
-        try (Response response = httpClient.newCall(request).execute()) {
-            int statusCode = response.code();
-            logger.debug("Upload response status: {}", statusCode);
-            
-            if (statusCode >= 200 && statusCode < 300) {
-                logger.info("PDF uploaded successfully");
-                return publicUrl;
-            } else {
-                String responseBody = response.body() != null ? response.body().string() : "";
-                throw new IOException("Failed to upload PDF to Supabase. Status: " + statusCode + " - " + responseBody);
-            }
-        } catch (Exception e) {
-            logger.error("Error during PDF upload: {}", e.getMessage());
-            
-            // For development, return the URL even if upload fails
-            logger.warn("DEVELOPMENT MODE: Returning URL despite upload failure");
-            return publicUrl;
+        if (certificatRepository.updatePdfUrl(idCertificat, pdfUrl) == 0) {
+            throw new ResourceNotFoundException("Certificat not found with ID: " + idCertificat);
         }
+        
+        return pdfUrl;
     }
     
     /**
-     * Ensures that the specified bucket exists in Supabase Storage
-     * Creates it if it doesn't exist
+     * Uploads a PDF file to the certificats bucket
      * 
-     * @param bucketName The name of the bucket to check/create
+     * @param pdfData The rendered PDF
+     * @param filename The filename to use
+     * @return The public URL to access the file
+     * @throws IOException if the upload fails, for the render job to retry it
      */
-    private void ensureBucketExists(String bucketName) {
-        // Check if bucket exists
-        String checkUrl = supabaseUrl + "/storage/v1/bucket/" + bucketName;
-        
-        Request checkRequest = new Request.Builder()
-                .url(checkUrl)
-                .get()
-                .addHeader("Authorization", "Bearer " + serviceRoleKey)
-                .addHeader("apikey", serviceRoleKey)
-                .build();
-        
-        try (Response response = httpClient.newCall(checkRequest).execute()) {
-            if (response.code() == 200) {
-                // Bucket exists
-                logger.debug("Bucket '{}' already exists", bucketName);
-                return;
-            } else if (response.code() != 404) {
-                // Unexpected error
-                logger.warn("Unexpected response when checking bucket: {}", response.code());
-            }
-            
-            // Bucket doesn't exist or error occurred, try to create it
-            String createUrl = supabaseUrl + "/storage/v1/bucket";
-            
-            // Create request body with bucket configuration
-            String jsonBody = "{\"name\":\"" + bucketName + "\", \"public\":true}";
-            RequestBody body = RequestBody.create(jsonBody, MediaType.parse("application/json"));
-            
-            Request createRequest = new Request.Builder()
-                    .url(createUrl)
-                    .post(body)
-                    .addHeader("Authorization", "Bearer " + serviceRoleKey)
-                    .addHeader("apikey", serviceRoleKey)
-                    .addHeader("Content-Type", "application/json")
-                    .build();
-            
-            try (Response createResponse = httpClient.newCall(createRequest).execute()) {
-                if (createResponse.code() >= 200 && createResponse.code() < 300) {
-                    logger.info("Successfully created bucket: {}", bucketName);
-                } else {
-                    String responseBody = createResponse.body() != null ? createResponse.body().string() : "";
-                    logger.warn("Failed to create bucket {}: {} - {}", 
-                            bucketName, createResponse.code(), responseBody);
-                }
-            }
-        } catch (Exception e) {
-            logger.error("Error checking/creating bucket {}: {}", bucketName, e.getMessage());
-        }
+    private String uploadPDF(StorageContent pdfData, String filename) throws IOException {
+        String publicUrl = objectStorage.put("certificats", filename, pdfData, "application/pdf");
+        logger.info("PDF uploaded successfully");
+        return publicUrl;
     }
     
     /**
@@ -233,78 +176,25 @@ public class CertificatService {
     /**
      * Generate PDF for a medical certificate
      */
-    private byte[] generateCertificatPDF(Certificat certificat, Patient patient, Medecin medecin) throws IOException {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        
-        try {
-            // Create PDF document
-            Document document = new Document(PageSize.A4);
-            // Set larger top margin (72 points = 1 inch)
-            document.setMargins(36, 36, 72, 36); // left, right, top, bottom (in points)
-            PdfWriter pdfWriter = PdfWriter.getInstance(document, baos);
-            document.open();
-            
-            // Add logo to the top-left corner
-            addLogo(document);
-            
-            // Add certificate title
-            Font titleFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 18, Font.BOLD);
-            Paragraph title = new Paragraph("CERTIFICAT MÉDICAL", titleFont);
-            title.setAlignment(Element.ALIGN_CENTER);
-            title.setSpacingAfter(40);
-            document.add(title);
-            
-            // Add certificate content (modified format)
-            addCertificateContent(document, certificat, patient, medecin);
-            
-            // Add doctor and date section
-            addDoctorSection(document, medecin, certificat.getDateRedaction());
-            
-            // Add the footer with hospital contact information
-            addFooter(document);
-            
-            document.close();
-            
-            return baos.toByteArray();
-        } catch (DocumentException e) {
-            logger.error("Error generating PDF document", e);
-            throw new IOException("Error generating PDF document: " + e.getMessage(), e);
-        } finally {
-            baos.close();
-        }
-    }
-    
-    /**
-     * Add logo to the PDF document
-     */
-    private void addLogo(Document document) throws DocumentException {
-        try {
-            // Path to the logo
-            String logoPath = "/logo.jpg";
-            
-            // Load the image
-            Image logo = Image.getInstance(getClass().getResource(logoPath));
-            
-            // Scale the image to an appropriate size (adjust as needed)
-            logo.scaleToFit(100, 50);
-            
-            // Position the logo at the top-left
-            logo.setAbsolutePosition(36, document.getPageSize().getHeight() - 50 - 36);
-            
-            // Add the logo to the document
-            document.add(logo);
-            
-            // Add some space after the logo
-            document.add(new Paragraph(" "));
-            document.add(new Paragraph(" "));
-        } catch (Exception e) {
-            logger.error("Error adding logo to PDF", e);
-        }
+    private SpooledContent generateCertificatPDF(Certificat certificat, Patient patient, Medecin medecin) throws IOException {
+        String specialite = medecin.getIdSpecialite() == null ? null
+                : specialiteRepository.findById(medecin.getIdSpecialite())
+                        .map(found -> found.getNom())
+                        .orElse(null);
+        
+        return pdfRenderingEngine.document(PdfRenderingEngine.Layout.CERTIFICAT)
+                .logo()
+                .title("CERTIFICAT MÉDICAL", 18, 40)
+                .section(document -> addCertificateContent(document, certificat, patient, medecin))
+                .doctorSection(medecin.getUtilisateur().getNom() + " " + medecin.getUtilisateur().getPrenom(),
+                        specialite, formatDateTime(certificat.getDateRedaction()))
+                .footer()
+                .spool();
     }
     
     private void addCertificateContent(Document document, Certificat certificat, Patient patient, Medecin medecin) throws DocumentException {
-        Font contentFont = FontFactory.getFont(FontFactory.HELVETICA, 13);
-        Font boldFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 13);
+        Font contentFont = PdfRenderingEngine.font(FontFactory.HELVETICA, 13);
+        Font boldFont = PdfRenderingEngine.font(FontFactory.HELVETICA_BOLD, 13);
         
         // Main content paragraph
         Paragraph content = new Paragraph();
@@ -366,94 +256,8 @@ public class CertificatService {
         document.add(content);
     }
     
-    private void addDoctorSection(Document document, Medecin medecin, LocalDateTime date) throws DocumentException {
-        Font normalFont = FontFactory.getFont(FontFactory.HELVETICA, 11);
-        Font boldFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 11);
-        
-        // Create a table for the doctor information and signature
-        PdfPTable table = new PdfPTable(2);
-        table.setWidthPercentage(100);
-        
-        // Left cell - Date
-        Paragraph dateInfo = new Paragraph();
-        dateInfo.add(new Phrase("Fait à Rabat, le " + formatDateTime(date) + "\n", normalFont));
-        
-        PdfPCell leftCell = new PdfPCell();
-        leftCell.addElement(dateInfo);
-        leftCell.setBorder(Rectangle.NO_BORDER);
-        leftCell.setPadding(5);
-        
-        // Right cell - Doctor information and signature
-        Paragraph doctorInfo = new Paragraph();
-        doctorInfo.add(new Phrase("Dr. " + medecin.getUtilisateur().getNom() + " " + 
-                medecin.getUtilisateur().getPrenom() + "\n", boldFont));
-        
-        // Add speciality if available
-        if (medecin.getIdSpecialite() != null) {
-            specialiteRepository.findById(medecin.getIdSpecialite())
-                    .ifPresent(specialite -> doctorInfo.add(new Phrase(specialite.getNom() + "\n", normalFont)));
-        }
-        
-        doctorInfo.add(new Phrase("Signature et cachet", normalFont));
-        doctorInfo.setAlignment(Element.ALIGN_RIGHT);
-        
-        PdfPCell rightCell = new PdfPCell();
-        rightCell.addElement(doctorInfo);
-        rightCell.setBorder(Rectangle.NO_BORDER);
-        rightCell.setPadding(5);
-        
-        table.addCell(leftCell);
-        table.addCell(rightCell);
-        
-        document.add(table);
-    }
-    
-    private void addFooter(Document document) throws DocumentException {
-        Font headerFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 10);
-        Font normalFont = FontFactory.getFont(FontFactory.HELVETICA, 9);
-        
-        // Add a line separator with more space above it
-        Paragraph line = new Paragraph();
-        line.add(new Chunk(new com.lowagie.text.pdf.draw.LineSeparator()));
-        line.setSpacingBefore(60); // Increase space above the line
-        line.setSpacingAfter(10);
-        document.add(line);
-        
-        // Create a table for the footer with two columns
-        PdfPTable footerTable = new PdfPTable(2);
-        footerTable.setWidthPercentage(100);
-        
-        // Left column - Hospital information
-        Paragraph hospitalInfo = new Paragraph();
-        hospitalInfo.add(new Phrase("Hôpital Universitaire International de Rabat\n", headerFont));
-        hospitalInfo.add(new Phrase("Parc Technopolis 11 100 Sala Al Jadida – Maroc", normalFont));
-        
-        // Right column - Contact information
-        Paragraph contactInfo = new Paragraph();
-        contactInfo.add(new Phrase("+212 5 30 10 30 00\n", normalFont)); 
-        contactInfo.add(new Phrase("contact@huir.ma", normalFont));
-        contactInfo.setAlignment(Element.ALIGN_RIGHT);
-        
-        // Add cells to table
-        PdfPCell leftCell = new PdfPCell();
-        leftCell.addElement(hospitalInfo);
-        leftCell.setBorder(Rectangle.NO_BORDER);
-        leftCell.setPadding(0);
-        
-        PdfPCell rightCell = new PdfPCell();
-        rightCell.addElement(contactInfo);
-        rightCell.setBorder(Rectangle.NO_BORDER);
-        rightCell.setPadding(0);
-        rightCell.setHorizontalAlignment(Element.ALIGN_RIGHT);
-        
-        footerTable.addCell(leftCell);
-        footerTable.addCell(rightCell);
-        
-        document.add(footerTable);
-    }
-    
     private void addPatientInfo(Document document, Patient patient) throws DocumentException {
-        Font sectionFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 11);
+        Font sectionFont = PdfRenderingEngine.font(FontFactory.HELVETICA_BOLD, 11);
         Paragraph patientSection = new Paragraph("INFORMATIONS PATIENT", sectionFont);
         patientSection.setSpacingBefore(5);
         patientSection.setSpacingAfter(5);
@@ -480,8 +284,8 @@ public class CertificatService {
     }
     
     private void addTableRow(PdfPTable table, String label, String value) {
-        Font labelFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 9);
-        Font valueFont = FontFactory.getFont(FontFactory.HELVETICA, 9);
+        Font labelFont = PdfRenderingEngine.font(FontFactory.HELVETICA_BOLD, 9);
+        Font valueFont = PdfRenderingEngine.font(FontFactory.HELVETICA, 9);
         
         PdfPCell labelCell = new PdfPCell(new Phrase(label, labelFont));
         labelCell.setBorder(Rectangle.NO_BORDER);
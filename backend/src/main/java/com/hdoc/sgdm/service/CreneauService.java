@@ -0,0 +1,233 @@
+package com.hdoc.sgdm.service;
+
+import com.hdoc.sgdm.dto.common.CreneauDTO;
+import com.hdoc.sgdm.dto.common.MedecinDTO;
+import com.hdoc.sgdm.dto.response.CreneauListResponse;
+import com.hdoc.sgdm.entity.HoraireMedecin;
+import com.hdoc.sgdm.entity.Medecin;
+import com.hdoc.sgdm.mapper.MedecinMapper;
+import com.hdoc.sgdm.repository.HoraireMedecinRepository;
+import com.hdoc.sgdm.repository.MedecinRepository;
+import com.hdoc.sgdm.repository.RendezVousRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Finds the free appointment slots of the doctors of a specialty.
+ *
+ * The booked appointments of all the doctors are read with one query, sorted by doctor and
+ * time, and each doctor's working periods are swept once against them; every gap is cut into
+ * consecutive slots of the requested duration.
+ */
+@Service
+public class CreneauService {
+
+    static final int DEFAULT_LIMIT = 20;
+    static final int MAX_LIMIT = 100;
+    static final int MAX_RANGE_DAYS = 31;
+
+    private static final Comparator<CreneauDTO> EARLIEST_FIRST = Comparator
+            .comparing(CreneauDTO::getDebut)
+            .thenComparing(CreneauDTO::getIdMedecin);
+
+    private final MedecinRepository medecinRepository;
+    private final RendezVousRepository rendezVousRepository;
+    private final HoraireMedecinRepository horaireMedecinRepository;
+    private final MedecinMapper medecinMapper;
+    private final Map<DayOfWeek, List<Periode>> defaultTemplate;
+
+    public CreneauService(MedecinRepository medecinRepository,
+                          RendezVousRepository rendezVousRepository,
+                          HoraireMedecinRepository horaireMedecinRepository,
+                          MedecinMapper medecinMapper,
+                          @Value("${rendezvous.slots.default-days:MONDAY,TUESDAY,WEDNESDAY,THURSDAY,FRIDAY}") List<DayOfWeek> defaultDays,
+                          @Value("${rendezvous.slots.default-hours:08:00-12:00,14:00-18:00}") List<String> defaultHours) {
+        this.medecinRepository = medecinRepository;
+        this.rendezVousRepository = rendezVousRepository;
+        this.horaireMedecinRepository = horaireMedecinRepository;
+        this.medecinMapper = medecinMapper;
+        this.defaultTemplate = new EnumMap<>(DayOfWeek.class);
+        List<Periode> periodes = defaultHours.stream().map(Periode::parse).sorted().collect(Collectors.toList());
+        defaultDays.forEach(day -> defaultTemplate.put(day, periodes));
+    }
+
+    /**
+     * Find the first free slots within [from, to), earliest first.
+     *
+     * @param idSpecialite Specialty of the doctors, or null for all doctors
+     * @param from Start of the search (the current time if earlier)
+     * @param to End of the search
+     * @param durationMinutes Duration of the appointment to book
+     * @param limit Maximum number of slots returned, 20 by default
+     * @return The free slots
+     * @throws IllegalArgumentException if the search parameters are invalid
+     */
+    @Transactional(readOnly = true)
+    public CreneauListResponse findFreeSlots(Integer idSpecialite, LocalDateTime from, LocalDateTime to,
+                                             int durationMinutes, Integer limit) {
+        if (durationMinutes <= 0) {
+            throw new IllegalArgumentException("La durée du rendez-vous doit être positive");
+        }
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("La date de début doit précéder la date de fin");
+        }
+        if (from.plusDays(MAX_RANGE_DAYS).isBefore(to)) {
+            throw new IllegalArgumentException("La période de recherche ne peut pas dépasser " + MAX_RANGE_DAYS + " jours");
+        }
+        int maxSlots = limit == null ? DEFAULT_LIMIT : Math.max(1, Math.min(limit, MAX_LIMIT));
+
+        // No slot in the past; slots start on a whole minute
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime start = from.isBefore(now) ? now : from;
+        if (start.truncatedTo(ChronoUnit.MINUTES).isBefore(start)) {
+            start = start.truncatedTo(ChronoUnit.MINUTES).plusMinutes(1);
+        }
+
+        List<Medecin> medecins = idSpecialite != null
+                ? medecinRepository.findAllBySpecialite(idSpecialite)
+                : medecinRepository.findAllActiveAnyStatus();
+        List<CreneauDTO> creneaux = new ArrayList<>();
+        if (!medecins.isEmpty() && start.isBefore(to)) {
+            List<UUID> ids = medecins.stream().map(Medecin::getIdMedecin).collect(Collectors.toList());
+            Map<UUID, Map<DayOfWeek, List<Periode>>> templates = loadTemplates(ids);
+
+            // Appointments of the previous day can still run past the start of the search
+            Map<UUID, List<RendezVousRepository.BookedSlot>> bookedByDoctor = new HashMap<>();
+            for (RendezVousRepository.BookedSlot slot : rendezVousRepository.findBookedSlotsForDoctors(ids, start.minusDays(1), to)) {
+                bookedByDoctor.computeIfAbsent(slot.getIdMedecin(), id -> new ArrayList<>()).add(slot);
+            }
+
+            Map<UUID, MedecinDTO> medecinDTOs = medecinMapper.toDTOMap(medecins);
+            for (UUID idMedecin : ids) {
+                sweep(idMedecin, medecinDTOs.get(idMedecin), templates.getOrDefault(idMedecin, defaultTemplate),
+                        bookedByDoctor.getOrDefault(idMedecin, Collections.emptyList()),
+                        start, to, Duration.ofMinutes(durationMinutes), maxSlots, creneaux);
+            }
+            creneaux.sort(EARLIEST_FIRST);
+            if (creneaux.size() > maxSlots) {
+                creneaux = new ArrayList<>(creneaux.subList(0, maxSlots));
+            }
+        }
+
+        return CreneauListResponse.builder()
+                .status("success")
+                .message(creneaux.isEmpty()
+                        ? "Aucun créneau disponible sur cette période"
+                        : "Créneaux disponibles récupérés avec succès")
+                .creneaux(creneaux)
+                .count(creneaux.size())
+                .build();
+    }
+
+    /**
+     * Walk the doctor's working periods in order, skipping the booked appointments (sorted by
+     * start), and add up to maxSlots free slots.
+     */
+    static void sweep(UUID idMedecin, MedecinDTO medecin, Map<DayOfWeek, List<Periode>> template,
+                      List<RendezVousRepository.BookedSlot> booked, LocalDateTime from, LocalDateTime to,
+                      Duration duration, int maxSlots, List<CreneauDTO> creneaux) {
+        int added = 0;
+        int next = 0;
+        // End of the latest appointment seen so far
+        LocalDateTime busyUntil = LocalDateTime.MIN;
+
+        for (LocalDate day = from.toLocalDate(); day.atStartOfDay().isBefore(to); day = day.plusDays(1)) {
+            for (Periode periode : template.getOrDefault(day.getDayOfWeek(), Collections.emptyList())) {
+                LocalDateTime periodeStart = max(day.atTime(periode.debut), from);
+                LocalDateTime periodeEnd = min(day.atTime(periode.fin), to);
+                if (!periodeStart.isBefore(periodeEnd)) {
+                    continue;
+                }
+
+                LocalDateTime cursor = max(periodeStart, busyUntil);
+                while (next < booked.size() && booked.get(next).getDateHeure().isBefore(periodeEnd)) {
+                    RendezVousRepository.BookedSlot slot = booked.get(next++);
+                    added += addSlots(idMedecin, medecin, cursor, min(slot.getDateHeure(), periodeEnd),
+                            duration, maxSlots - added, creneaux);
+                    busyUntil = max(busyUntil, slot.getDateHeure().plusMinutes(slot.getDurationMinutes()));
+                    cursor = max(cursor, busyUntil);
+                }
+                added += addSlots(idMedecin, medecin, cursor, periodeEnd, duration, maxSlots - added, creneaux);
+
+                if (added >= maxSlots) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private static int addSlots(UUID idMedecin, MedecinDTO medecin, LocalDateTime from, LocalDateTime to,
+                                Duration duration, int remaining, List<CreneauDTO> creneaux) {
+        int added = 0;
+        for (LocalDateTime debut = from; added < remaining && !debut.plus(duration).isAfter(to); debut = debut.plus(duration)) {
+            creneaux.add(CreneauDTO.builder()
+                    .idMedecin(idMedecin)
+                    .medecin(medecin)
+                    .debut(debut)
+                    .fin(debut.plus(duration))
+                    .build());
+            added++;
+        }
+        return added;
+    }
+
+    private Map<UUID, Map<DayOfWeek, List<Periode>>> loadTemplates(List<UUID> ids) {
+        Map<UUID, Map<DayOfWeek, List<Periode>>> templates = new HashMap<>();
+        for (HoraireMedecin horaire : horaireMedecinRepository.findByIdMedecinIn(ids)) {
+            templates.computeIfAbsent(horaire.getIdMedecin(), id -> new EnumMap<>(DayOfWeek.class))
+                    .computeIfAbsent(horaire.getJourSemaine(), day -> new ArrayList<>())
+                    .add(new Periode(horaire.getHeureDebut(), horaire.getHeureFin()));
+        }
+        templates.values().forEach(template -> template.values().forEach(Collections::sort));
+        return templates;
+    }
+
+    private static LocalDateTime max(LocalDateTime a, LocalDateTime b) {
+        return a.isAfter(b) ? a : b;
+    }
+
+    private static LocalDateTime min(LocalDateTime a, LocalDateTime b) {
+        return a.isBefore(b) ? a : b;
+    }
+
+    /**
+     * Working period within a day, [debut, fin).
+     */
+    static final class Periode implements Comparable<Periode> {
+        final LocalTime debut;
+        final LocalTime fin;
+
+        Periode(LocalTime debut, LocalTime fin) {
+            this.debut = debut;
+            this.fin = fin;
+        }
+
+        // Format HH:mm-HH:mm
+        static Periode parse(String value) {
+            String[] bounds = value.trim().split("-");
+            return new Periode(LocalTime.parse(bounds[0].trim()), LocalTime.parse(bounds[1].trim()));
+        }
+
+        @Override
+        public int compareTo(Periode other) {
+            return debut.compareTo(other.debut);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.hdoc.sgdm.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.DatabaseMetaData;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Serializes the bookings of one doctor, so that checking a time slot for overlaps and inserting
+ * the appointment behave as one step, while bookings with different doctors run in parallel.
+ *
+ * On PostgreSQL the lock is a transaction-level advisory lock keyed by the doctor, shared by all
+ * the backend nodes and released by the database at commit or rollback; unlike a session lock it
+ * is safe behind the transaction-mode connection pooler. On other databases (H2 in the tests)
+ * the doctor's stripe among {@code rendezvous.booking-lock.stripes} local locks is held until the
+ * transaction completes, which only protects a single node.
+ */
+@Component
+@Slf4j
+public class DoctorBookingLock {
+
+    // First key of pg_advisory_xact_lock(int, int), to keep clear of other advisory locks
+    static final int ADVISORY_LOCK_SPACE = 0x52445600;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSource dataSource;
+    private final ReentrantLock[] stripes;
+
+    // Resolved from the database on first use, so that startup does not need a connection
+    private volatile Boolean advisory;
+
+    @Autowired
+    public DoctorBookingLock(JdbcTemplate jdbcTemplate, DataSource dataSource,
+                             @Value("${rendezvous.booking-lock.stripes:64}") int stripeCount) {
+        this(jdbcTemplate, dataSource, stripeCount, null);
+    }
+
+    DoctorBookingLock(JdbcTemplate jdbcTemplate, DataSource dataSource, int stripeCount, Boolean advisory) {
+        if (stripeCount < 1) {
+            throw new IllegalArgumentException("rendezvous.booking-lock.stripes doit être supérieur à 0");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSource = dataSource;
+        this.advisory = advisory;
+        this.stripes = new ReentrantLock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Lock the bookings of a doctor until the current transaction completes, waiting for the
+     * transaction holding them, if any.
+     *
+     * @param idMedecin The doctor
+     * @throws IllegalStateException if no transaction is active
+     */
+    public void lock(UUID idMedecin) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Le verrou des rendez-vous d'un médecin nécessite une transaction");
+        }
+
+        if (isAdvisory()) {
+            jdbcTemplate.query("SELECT pg_advisory_xact_lock(?, ?)", (RowCallbackHandler) rs -> { },
+                    ADVISORY_LOCK_SPACE, idMedecin.hashCode());
+            return;
+        }
+
+        ReentrantLock stripe = stripes[Math.floorMod(idMedecin.hashCode(), stripes.length)];
+        stripe.lock();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                stripe.unlock();
+            }
+        });
+    }
+
+    private boolean isAdvisory() {
+        Boolean result = advisory;
+        if (result == null) {
+            try {
+                String product = JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName);
+                result = "PostgreSQL".equals(product);
+            } catch (MetaDataAccessException e) {
+                log.warn("Could not identify the database, using local booking locks", e);
+                result = false;
+            }
+            advisory = result;
+        }
+        return result;
+    }
+}
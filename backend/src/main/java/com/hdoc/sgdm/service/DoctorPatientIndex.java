@@ -0,0 +1,141 @@
+package com.hdoc.sgdm.service;
+
+import com.hdoc.sgdm.repository.VisiteRepository;
+import com.hdoc.sgdm.util.TransactionCallbacks;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * In-memory map from each doctor to the patients they have an established relationship with.
+ *
+ * A relationship exists as soon as the doctor has been assigned to at least one visit of the
+ * patient, past or present (see docs/DoctorPatientAccessControl.md). The map is bootstrapped
+ * from the visit history when the application is ready, refreshed periodically to pick up
+ * visits handled by other nodes, and fed by {@link VisiteService} after each committed doctor
+ * assignment, so that the access filter is a set lookup instead of a join over all visits.
+ * Between two refreshes a search that finds nothing is confirmed against the visits (see
+ * {@link PatientService#searchPatients}), which catches up with the assignments of other nodes.
+ */
+@Component
+@Slf4j
+public class DoctorPatientIndex {
+
+    private final VisiteRepository visiteRepository;
+    private final SnapshotRebuilder<Map<UUID, Set<UUID>>> rebuilder = new SnapshotRebuilder<>();
+
+    private volatile Map<UUID, Set<UUID>> patientsByDoctor = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+
+    public DoctorPatientIndex(VisiteRepository visiteRepository) {
+        this.visiteRepository = visiteRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    /**
+     * Rebuild the relationships from the visit history.
+     */
+    @Scheduled(fixedDelayString = "${doctor-patient.index.refresh-ms:300000}",
+               initialDelayString = "${doctor-patient.index.refresh-ms:300000}")
+    public void rebuild() {
+        rebuilder.rebuild(() -> {
+            Map<UUID, Set<UUID>> fresh = new ConcurrentHashMap<>();
+            for (VisiteRepository.DoctorPatientPair pair : visiteRepository.findDoctorPatientPairs()) {
+                add(fresh, pair.getIdMedecin(), pair.getIdPatient());
+            }
+            return fresh;
+        }, fresh -> {
+            patientsByDoctor = fresh;
+            loaded = true;
+            log.info("Doctor-patient index built with {} doctors", fresh.size());
+        });
+    }
+
+    /**
+     * Patients the doctor has an established relationship with.
+     *
+     * @param idMedecin The doctor ID
+     * @return Unmodifiable view of the patient IDs, empty if the doctor has no patient
+     */
+    public Set<UUID> getPatientIds(UUID idMedecin) {
+        ensureLoaded();
+        Set<UUID> patientIds = patientsByDoctor.get(idMedecin);
+        return patientIds != null ? Collections.unmodifiableSet(patientIds) : Collections.emptySet();
+    }
+
+    /**
+     * Check whether the doctor has an established relationship with the patient.
+     */
+    public boolean hasRelationship(UUID idMedecin, UUID idPatient) {
+        return getPatientIds(idMedecin).contains(idPatient);
+    }
+
+    /**
+     * Record that the doctor has been assigned to a visit of the patient.
+     * The relationship becomes visible once the current transaction commits.
+     */
+    public void addRelationship(UUID idMedecin, UUID idPatient) {
+        if (idMedecin == null || idPatient == null) {
+            return;
+        }
+        TransactionCallbacks.afterCommit(() -> apply(map -> add(map, idMedecin, idPatient)));
+    }
+
+    /**
+     * Record relationships read from the committed visits, for a doctor assigned to patients
+     * on another node since the last refresh.
+     */
+    public void confirmRelationships(UUID idMedecin, Set<UUID> patientIds) {
+        if (idMedecin == null || patientIds.isEmpty()) {
+            return;
+        }
+        apply(map -> patientIds.forEach(idPatient -> add(map, idMedecin, idPatient)));
+    }
+
+    /**
+     * Re-check a relationship after a visit of the patient lost this doctor (reassignment or deletion).
+     * Once the current transaction commits, the relationship is dropped if no other visit links them.
+     */
+    public void recheckRelationship(UUID idMedecin, UUID idPatient) {
+        if (idMedecin == null || idPatient == null) {
+            return;
+        }
+        TransactionCallbacks.afterCommit(() -> {
+            if (!visiteRepository.existsByIdMedecinAndPatient_IdPatient(idMedecin, idPatient)) {
+                apply(map -> remove(map, idMedecin, idPatient));
+            }
+        });
+    }
+
+    private void ensureLoaded() {
+        rebuilder.ensureBuilt(() -> loaded, this::rebuild);
+    }
+
+    private void apply(Consumer<Map<UUID, Set<UUID>>> change) {
+        rebuilder.apply(change, () -> change.accept(patientsByDoctor));
+    }
+
+    private static void add(Map<UUID, Set<UUID>> map, UUID idMedecin, UUID idPatient) {
+        map.computeIfAbsent(idMedecin, id -> ConcurrentHashMap.newKeySet()).add(idPatient);
+    }
+
+    private static void remove(Map<UUID, Set<UUID>> map, UUID idMedecin, UUID idPatient) {
+        Set<UUID> patientIds = map.get(idMedecin);
+        if (patientIds != null) {
+            patientIds.remove(idPatient);
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package com.hdoc.sgdm.service;
+
+import com.hdoc.sgdm.entity.RendezVous;
+import com.hdoc.sgdm.repository.RendezVousRepository;
+import com.hdoc.sgdm.util.TransactionCallbacks;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * In-memory schedule of each doctor's PLANIFIE and LATE appointments over a rolling horizon.
+ *
+ * Each doctor's appointments are kept as an array sorted by start time, with the running
+ * maximum of the end times, so an overlap check is a binary search instead of a query. The
+ * schedules are loaded from today to {@code rendezvous.schedule-index.horizon-days} ahead when
+ * the application is ready, reloaded periodically to pick up other nodes' bookings and to move
+ * the horizon, and fed by {@link RendezVousService} after each committed change. Time slots
+ * outside the horizon are not {@link #covers covered} and are left to the database.
+ *
+ * Between reloads the schedules may miss or keep changes made on other nodes, so they only
+ * serve the searches for free doctors; bookings are always checked against the database.
+ */
+@Component
+@Slf4j
+public class DoctorScheduleIndex {
+
+    private static final DoctorSchedule EMPTY = new DoctorSchedule(new ArrayList<>());
+
+    private final RendezVousRepository rendezVousRepository;
+    private final int horizonDays;
+    private final SnapshotRebuilder<Schedules> rebuilder = new SnapshotRebuilder<>();
+
+    private volatile Schedules schedules = new Schedules(LocalDateTime.MIN, LocalDateTime.MIN);
+    private volatile boolean loaded;
+
+    public DoctorScheduleIndex(RendezVousRepository rendezVousRepository,
+                               @Value("${rendezvous.schedule-index.horizon-days:60}") int horizonDays) {
+        this.rendezVousRepository = rendezVousRepository;
+        this.horizonDays = horizonDays;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    /**
+     * Reload the schedules from the database, starting the horizon at the current day.
+     */
+    @Scheduled(fixedDelayString = "${rendezvous.schedule-index.refresh-ms:300000}",
+               initialDelayString = "${rendezvous.schedule-index.refresh-ms:300000}")
+    public void rebuild() {
+        rebuilder.rebuild(() -> {
+            LocalDateTime windowStart = LocalDate.now().atStartOfDay();
+            Schedules fresh = new Schedules(windowStart, windowStart.plusDays(horizonDays));
+            // Appointments of the previous day can still run past midnight
+            fresh.load(rendezVousRepository.findBookedSlotsBetween(windowStart.minusDays(1), fresh.windowEnd));
+            return fresh;
+        }, fresh -> {
+            schedules = fresh;
+            loaded = true;
+            log.info("Doctor schedule index built with {} appointments for {} doctors",
+                    fresh.doctorByAppointment.size(), fresh.byDoctor.size());
+        });
+    }
+
+    /**
+     * Check whether the time slot lies within the horizon, so that the index can answer for it.
+     */
+    public boolean covers(LocalDateTime start, LocalDateTime end) {
+        ensureLoaded();
+        Schedules current = schedules;
+        return !start.isBefore(current.windowStart) && !end.isAfter(current.windowEnd);
+    }
+
+    /**
+     * Check whether the doctor has a PLANIFIE or LATE appointment overlapping [start, end).
+     *
+     * @param idMedecin The doctor ID
+     * @param start Start of the time slot
+     * @param end End of the time slot
+     * @param excludedId Appointment to ignore (the one being updated), or null
+     * @return true if another appointment overlaps the time slot
+     */
+    public boolean hasOverlap(UUID idMedecin, LocalDateTime start, LocalDateTime end, Long excludedId) {
+        ensureLoaded();
+        return schedules.byDoctor.getOrDefault(idMedecin, EMPTY).overlaps(start, end, excludedId);
+    }
+
+    /**
+     * Doctors among the given ones with no appointment overlapping [start, end).
+     */
+    public List<UUID> findFreeDoctors(Collection<UUID> doctorIds, LocalDateTime start, LocalDateTime end) {
+        ensureLoaded();
+        Map<UUID, DoctorSchedule> byDoctor = schedules.byDoctor;
+        List<UUID> free = new ArrayList<>();
+        for (UUID idMedecin : doctorIds) {
+            if (!byDoctor.getOrDefault(idMedecin, EMPTY).overlaps(start, end, null)) {
+                free.add(idMedecin);
+            }
+        }
+        return free;
+    }
+
+    /**
+     * Record an appointment's current doctor, time and status once the current transaction commits.
+     * Appointments that are no longer PLANIFIE or LATE release their slot.
+     */
+    public void appointmentChanged(RendezVous rendezVous) {
+        if (rendezVous.getId() == null) {
+            return;
+        }
+        Booking booking = Booking.of(rendezVous);
+        boolean booked = rendezVous.getStatus() == RendezVous.StatutRendezVous.PLANIFIE
+                || rendezVous.getStatus() == RendezVous.StatutRendezVous.LATE;
+        TransactionCallbacks.afterCommit(() -> apply(current -> {
+            current.remove(booking.id);
+            if (booked) {
+                current.add(rendezVous.getIdMedecin(), booking);
+            }
+        }));
+    }
+
+    /**
+     * Release the slot of a deleted appointment once the current transaction commits.
+     */
+    public void appointmentRemoved(Long id) {
+        TransactionCallbacks.afterCommit(() -> apply(current -> current.remove(id)));
+    }
+
+    private void ensureLoaded() {
+        rebuilder.ensureBuilt(() -> loaded, this::rebuild);
+    }
+
+    private void apply(Consumer<Schedules> change) {
+        rebuilder.apply(change, () -> change.accept(schedules));
+    }
+
+    /**
+     * Schedules of all doctors over one horizon. Mutated only under the rebuilder's change lock;
+     * each doctor's schedule is replaced rather than modified, so readers never need a lock.
+     */
+    private static final class Schedules {
+        private final LocalDateTime windowStart;
+        private final LocalDateTime windowEnd;
+        private final Map<UUID, DoctorSchedule> byDoctor = new ConcurrentHashMap<>();
+        private final Map<Long, UUID> doctorByAppointment = new HashMap<>();
+
+        private Schedules(LocalDateTime windowStart, LocalDateTime windowEnd) {
+            this.windowStart = windowStart;
+            this.windowEnd = windowEnd;
+        }
+
+        private void load(List<RendezVousRepository.BookedSlot> slots) {
+            Map<UUID, List<Booking>> bookings = new HashMap<>();
+            for (RendezVousRepository.BookedSlot slot : slots) {
+                bookings.computeIfAbsent(slot.getIdMedecin(), id -> new ArrayList<>())
+                        .add(new Booking(slot.getId(), slot.getDateHeure(),
+                                slot.getDateHeure().plusMinutes(slot.getDurationMinutes())));
+                doctorByAppointment.put(slot.getId(), slot.getIdMedecin());
+            }
+            bookings.forEach((idMedecin, list) -> byDoctor.put(idMedecin, new DoctorSchedule(list)));
+        }
+
+        private void add(UUID idMedecin, Booking booking) {
+            if (!booking.start.isBefore(windowEnd) || booking.end.isBefore(windowStart)) {
+                return;
+            }
+            byDoctor.put(idMedecin, byDoctor.getOrDefault(idMedecin, EMPTY).with(booking));
+            doctorByAppointment.put(booking.id, idMedecin);
+        }
+
+        private void remove(Long id) {
+            UUID idMedecin = doctorByAppointment.remove(id);
+            if (idMedecin != null) {
+                byDoctor.computeIfPresent(idMedecin, (key, schedule) -> schedule.without(id));
+            }
+        }
+    }
+
+    static final class Booking {
+        final Long id;
+        final LocalDateTime start;
+        final LocalDateTime end;
+
+        Booking(Long id, LocalDateTime start, LocalDateTime end) {
+            this.id = id;
+            this.start = start;
+            this.end = end;
+        }
+
+        private static Booking of(RendezVous rendezVous) {
+            return new Booking(rendezVous.getId(), rendezVous.getDateHeure(),
+                    rendezVous.getDateHeure().plusMinutes(rendezVous.getDurationMinutes()));
+        }
+    }
+
+    /**
+     * Immutable appointments of one doctor, sorted by start time. {@code maxEnds[i]} is the latest
+     * end among the first i + 1 appointments, which lets an overlap check stop at one binary search.
+     */
+    static final class DoctorSchedule {
+        private final Booking[] bookings;
+        private final LocalDateTime[] maxEnds;
+
+        DoctorSchedule(List<Booking> bookings) {
+            this.bookings = bookings.toArray(new Booking[0]);
+            Arrays.sort(this.bookings, Comparator.comparing((Booking booking) -> booking.start));
+            this.maxEnds = new LocalDateTime[this.bookings.length];
+            for (int i = 0; i < this.bookings.length; i++) {
+                LocalDateTime end = this.bookings[i].end;
+                maxEnds[i] = i > 0 && maxEnds[i - 1].isAfter(end) ? maxEnds[i - 1] : end;
+            }
+        }
+
+        boolean overlaps(LocalDateTime start, LocalDateTime end, Long excludedId) {
+            // Appointments starting before the end of the slot
+            int count = firstStartingAtOrAfter(end);
+            if (count == 0 || !maxEnds[count - 1].isAfter(start)) {
+                return false;
+            }
+            if (excludedId == null) {
+                return true;
+            }
+            // Walk back only through the candidates that can still reach the slot
+            for (int i = count - 1; i >= 0 && maxEnds[i].isAfter(start); i--) {
+                if (bookings[i].end.isAfter(start) && !bookings[i].id.equals(excludedId)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        DoctorSchedule with(Booking booking) {
+            List<Booking> list = new ArrayList<>(Arrays.asList(bookings));
+            list.add(booking);
+            return new DoctorSchedule(list);
+        }
+
+        DoctorSchedule without(Long id) {
+            List<Booking> list = new ArrayList<>(bookings.length);
+            for (Booking booking : bookings) {
+                if (!booking.id.equals(id)) {
+                    list.add(booking);
+                }
+            }
+            return new DoctorSchedule(list);
+        }
+
+        int size() {
+            return bookings.length;
+        }
+
+        private int firstStartingAtOrAfter(LocalDateTime time) {
+            int low = 0;
+            int high = bookings.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (bookings[mid].start.isBefore(time)) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.hdoc.sgdm.service;
+
+import com.hdoc.sgdm.entity.RenderJob;
+
+import java.io.IOException;
+
+/**
+ * Renders the PDF of one type of document for {@link RenderJobQueue}; for the imported
+ * documents, stores the file assembled from a resumable upload instead.
+ */
+public interface DocumentRenderer {
+
+    /**
+     * Type of the documents rendered
+     */
+    RenderJob.TypeDocument getTypeDocument();
+
+    /**
+     * Render the PDF of a document, upload it and store its URL on the document. Called by a
+     * render worker outside of any transaction, so no connection is held during the upload.
+     *
+     * @param idDocument ID of the document
+     * @return The public URL of the PDF
+     * @throws IOException if the PDF could not be rendered or uploaded; the job is retried
+     */
+    String render(Long idDocument) throws IOException;
+}
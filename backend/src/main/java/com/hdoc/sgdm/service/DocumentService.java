@@ -5,14 +5,18 @@ import com.hdoc.sgdm.dto.request.UpdateDocumentRequest;
 import com.hdoc.sgdm.dto.request.UploadDocumentRequest;
 import com.hdoc.sgdm.entity.DocumentImporte;
 import com.hdoc.sgdm.entity.Patient;
+import com.hdoc.sgdm.entity.UploadSession;
+import com.hdoc.sgdm.exception.ConflictException;
 import com.hdoc.sgdm.exception.ResourceNotFoundException;
 import com.hdoc.sgdm.mapper.DocumentImporteMapper;
 import com.hdoc.sgdm.repository.DocumentImporteRepository;
 import com.hdoc.sgdm.repository.PatientRepository;
+import com.hdoc.sgdm.repository.UploadSessionRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
@@ -28,17 +32,20 @@ public class DocumentService {
     private final PatientRepository patientRepository;
     private final SupabaseStorageService storageService;
     private final DocumentImporteMapper documentMapper;
+    private final UploadSessionRepository uploadSessionRepository;
     
     @Autowired
     public DocumentService(
             DocumentImporteRepository documentRepository,
             PatientRepository patientRepository,
             SupabaseStorageService storageService,
-            DocumentImporteMapper documentMapper) {
+            DocumentImporteMapper documentMapper,
+            UploadSessionRepository uploadSessionRepository) {
         this.documentRepository = documentRepository;
         this.patientRepository = patientRepository;
         this.storageService = storageService;
         this.documentMapper = documentMapper;
+        this.uploadSessionRepository = uploadSessionRepository;
     }
     
     public DocumentImporteDTO uploadDocument(String ipp, MultipartFile file, UploadDocumentRequest request) throws IOException {
@@ -75,6 +82,38 @@ public class DocumentService {
         return documentMapper.toDTO(savedDocument);
     }
     
+    /**
+     * Creates the document of a resumable upload once its file is in storage, and marks the
+     * upload session as finished in the same transaction
+     *
+     * @param session The upload session, being assembled
+     * @param fileUrl The public URL of the assembled file
+     * @return The created document DTO
+     * @throws ConflictException if the session is not being assembled anymore
+     */
+    @Transactional
+    public DocumentImporteDTO createFromUpload(UploadSession session, String fileUrl) {
+        Patient patient = patientRepository.findByIdPatient(session.getIdPatient())
+                .orElseThrow(() -> new ResourceNotFoundException("Patient with ID " + session.getIdPatient() + " not found"));
+        
+        DocumentImporte document = new DocumentImporte();
+        document.setPatient(patient);
+        document.setNom(session.getNom());
+        document.setDescription(session.getDescription());
+        document.setTypeDocument(session.getTypeDocument());
+        document.setDateAjout(LocalDateTime.now());
+        document.setUrl(fileUrl);
+        
+        DocumentImporte savedDocument = documentRepository.save(document);
+        if (uploadSessionRepository.finish(session.getIdSession(), savedDocument.getIdDocument(), LocalDateTime.now()) == 0) {
+            throw new ConflictException("Upload session " + session.getIdSession() + " is not being assembled anymore");
+        }
+        logger.info("Document record saved with ID: {} for upload session {}",
+                savedDocument.getIdDocument(), session.getIdSession());
+        
+        return documentMapper.toDTO(savedDocument);
+    }
+    
     /**
      * Updates an existing document's metadata
      *
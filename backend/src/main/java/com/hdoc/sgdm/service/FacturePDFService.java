@@ -7,46 +7,27 @@ import com.hdoc.sgdm.entity.Patient;
 import com.hdoc.sgdm.entity.Visite;
 import com.lowagie.text.*;
 import com.lowagie.text.pdf.*;
-import com.lowagie.text.pdf.draw.LineSeparator;
 import lombok.RequiredArgsConstructor;
-import okhttp3.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.awt.Color;
-import java.io.ByteArrayOutputStream;
-import java.io.File;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.UUID;
-import java.util.concurrent.TimeUnit;
 
 @Service
 @RequiredArgsConstructor
 public class FacturePDFService {
     private static final Logger logger = LoggerFactory.getLogger(FacturePDFService.class);
     
-    @Value("${supabase.url}")
-    private String supabaseUrl;
-    
-    @Value("${supabase.key}")
-    private String supabaseKey;
-    
-    @Value("${supabase.service-role-key}")
-    private String serviceRoleKey;
-    
     private final FormulaireMedicalService formulaireMedicalService;
-    
-    private final OkHttpClient httpClient = new OkHttpClient.Builder()
-            .connectTimeout(30, TimeUnit.SECONDS)
-            .writeTimeout(30, TimeUnit.SECONDS)
-            .readTimeout(30, TimeUnit.SECONDS)
-            .build();
+    private final PdfRenderingEngine pdfRenderingEngine;
+    private final ObjectStorage objectStorage;
     
     /**
      * Generate a PDF for a facture and upload it to Supabase storage
@@ -58,15 +39,15 @@ public class FacturePDFService {
      * @throws IOException if PDF generation or upload fails
      */
     public String generateAndUploadPDF(Facture facture, Patient patient, Visite visite) throws IOException {
-        byte[] pdfBytes = generatePDF(facture, patient, visite);
-        
         // Generate a filename - handle case where facture might not have ID yet
         String idPart = (facture.getIdFacture() != null) ? 
                         facture.getIdFacture().toString() : 
                         "temp_" + System.currentTimeMillis();
         
         String filename = "facture_" + idPart + "_" + UUID.randomUUID().toString().substring(0, 8) + ".pdf";
-        return uploadPDFToSupabase(pdfBytes, filename);
+        try (SpooledContent pdfContent = generatePDF(facture, patient, visite)) {
+            return uploadPDF(pdfContent, filename);
+        }
     }
     
     /**
@@ -75,88 +56,30 @@ public class FacturePDFService {
      * @param facture the facture entity
      * @param patient the patient entity
      * @param visite the visite entity
-     * @return the PDF as a byte array
+     * @return the rendered PDF, to close once uploaded
      * @throws IOException if PDF generation fails
      */
-    private byte[] generatePDF(Facture facture, Patient patient, Visite visite) throws IOException {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        
-        try {
-            // Create PDF document
-            Document document = new Document(PageSize.A4);
-            PdfWriter writer = PdfWriter.getInstance(document, baos);
-            document.open();
-            
-            // Add logo
-            addLogo(document);
-            
-            // Add header with hospital info
-            addHeader(document);
-            
-            // Add facture title and metadata
-            addTitle(document, facture);
-            
-            // Add patient info
-            addPatientInfo(document, patient);
-            
-            // Add services table (replaces visit info and consultation table)
-            if (facture.getMontant() != null) {
-                addServicesTable(document, visite, facture);
-            }
-            
-            // Add mode de paiement line
-            if (facture.getModePaiement() != null && !facture.getModePaiement().isEmpty()) {
-                addModePaiement(document, facture);
-            }
-            
-            // Add flexible space to push the footer to the bottom
-            addFlexibleSpace(document);
-            
-            // Add footer
-            addFooter(document);
-            
-            document.close();
-            return baos.toByteArray();
-        } catch (DocumentException e) {
-            logger.error("Error generating PDF document", e);
-            throw new IOException("Error generating PDF document: " + e.getMessage(), e);
-        } finally {
-            baos.close();
+    private SpooledContent generatePDF(Facture facture, Patient patient, Visite visite) throws IOException {
+        PdfRenderingEngine.DocumentBuilder pdf = pdfRenderingEngine.document(PdfRenderingEngine.Layout.FACTURE)
+                .logo()
+                .section(this::addHeader)
+                .section(document -> addTitle(document, facture))
+                .section(document -> addPatientInfo(document, patient));
+        
+        // Add services table (replaces visit info and consultation table)
+        if (facture.getMontant() != null) {
+            pdf.section(document -> addServicesTable(document, visite, facture));
         }
-    }
-    
-    /**
-     * Add logo to the PDF document
-     */
-    private void addLogo(Document document) throws DocumentException {
-        try {
-            // Path to the logo - using absolute path from requirements
-            String logoPath = "/Users/saad/Downloads/H-DOC_Project/H-DOC_Frontend/src/shared/assets/images/logo.jpg";
-            File logoFile = new File(logoPath);
-            
-            if (!logoFile.exists()) {
-                logger.warn("Logo file not found at: {}", logoPath);
-                return;
-            }
-            
-            // Load the image
-            Image logo = Image.getInstance(logoPath);
-            
-            // Scale the image to an appropriate size
-            logo.scaleToFit(100, 50);
-            
-            // Position the logo at the top-left
-            logo.setAbsolutePosition(36, document.getPageSize().getHeight() - 50 - 36);
-            
-            // Add the logo to the document
-            document.add(logo);
-            
-            // Add more space after the logo
-            document.add(new Paragraph(" "));
-            document.add(new Paragraph(" "));
-        } catch (Exception e) {
-            logger.error("Error adding logo to PDF", e);
+        
+        // Add mode de paiement line
+        if (facture.getModePaiement() != null && !facture.getModePaiement().isEmpty()) {
+            pdf.section(document -> addModePaiement(document, facture));
         }
+        
+        // Push the footer to the bottom
+        return pdf.flexibleSpace()
+                .footer()
+                .spool();
     }
     
     /**
@@ -164,7 +87,7 @@ public class FacturePDFService {
      */
     private void addHeader(Document document) throws DocumentException {
         // We're removing the entire address section under the logo as requested
-        // The logo position remains unchanged (handled by addLogo method)
+        // The logo position remains unchanged (handled by PdfRenderingEngine)
         
         // Not adding the line separator anymore
         document.add(new Paragraph(" "));
@@ -174,13 +97,13 @@ public class FacturePDFService {
      * Add the title and facture metadata
      */
     private void addTitle(Document document, Facture facture) throws DocumentException {
-        Font titleFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 16);
+        Font titleFont = PdfRenderingEngine.font(FontFactory.HELVETICA_BOLD, 16);
         Paragraph title = new Paragraph("FACTURE", titleFont);
         title.setAlignment(Element.ALIGN_CENTER);
         document.add(title);
         
         // Add facture number and date
-        Font metadataFont = FontFactory.getFont(FontFactory.HELVETICA, 10);
+        Font metadataFont = PdfRenderingEngine.font(FontFactory.HELVETICA, 10);
         
         // Always display the ID from the database
         Paragraph factureNumber = new Paragraph("Facture N°: " + facture.getIdFacture(), metadataFont);
@@ -202,8 +125,8 @@ public class FacturePDFService {
      */
     private void addPatientInfo(Document document, Patient patient) throws DocumentException {
         // Update to match ordonnance format
-        Font headerFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 11);
-        Font contentFont = FontFactory.getFont(FontFactory.HELVETICA, 11);
+        Font headerFont = PdfRenderingEngine.font(FontFactory.HELVETICA_BOLD, 11);
+        Font contentFont = PdfRenderingEngine.font(FontFactory.HELVETICA, 11);
         
         // Add a section title
         Paragraph patientSection = new Paragraph("INFORMATIONS PATIENT", headerFont);
@@ -281,7 +204,7 @@ public class FacturePDFService {
         table.setWidths(columnWidths);
         
         // Add table headers
-        Font headerFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 11);
+        Font headerFont = PdfRenderingEngine.font(FontFactory.HELVETICA_BOLD, 11);
         
         PdfPCell serviceHeader = new PdfPCell(new Phrase("Service", headerFont));
         serviceHeader.setBackgroundColor(new Color(220, 220, 220));
@@ -294,7 +217,7 @@ public class FacturePDFService {
         table.addCell(serviceHeader);
         table.addCell(priceHeader);
         
-        Font contentFont = FontFactory.getFont(FontFactory.HELVETICA, 10);
+        Font contentFont = PdfRenderingEngine.font(FontFactory.HELVETICA, 10);
         
         // Get all formulaires for this visite
         List<FormulairePatientDTO> formulaires = formulaireMedicalService.getFormulairesVisite(visite.getIdVisite().intValue());
@@ -385,7 +308,7 @@ public class FacturePDFService {
      * This is a right-aligned line showing the payment method
      */
     private void addModePaiement(Document document, Facture facture) throws DocumentException {
-        Font contentFont = FontFactory.getFont(FontFactory.HELVETICA, 11);
+        Font contentFont = PdfRenderingEngine.font(FontFactory.HELVETICA, 11);
         
         Paragraph modePaiement = new Paragraph("Mode de Paiement: " + facture.getModePaiement(), contentFont);
         modePaiement.setAlignment(Element.ALIGN_RIGHT);
@@ -395,56 +318,6 @@ public class FacturePDFService {
         document.add(modePaiement);
     }
     
-    /**
-     * Add footer with hospital contact information to the PDF
-     */
-    private void addFooter(Document document) throws DocumentException {
-        Font headerFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 10);
-        Font normalFont = FontFactory.getFont(FontFactory.HELVETICA, 9);
-        
-        // Add a light grey line separator
-        Paragraph line = new Paragraph();
-        LineSeparator lineSeparator = new LineSeparator();
-        lineSeparator.setLineColor(new Color(200, 200, 200)); // Light grey color
-        lineSeparator.setLineWidth(0.5f);
-        line.add(new Chunk(lineSeparator));
-        line.setSpacingBefore(10);
-        line.setSpacingAfter(10);
-        document.add(line);
-        
-        // Create a table for the footer with two columns
-        PdfPTable footerTable = new PdfPTable(2);
-        footerTable.setWidthPercentage(100);
-        
-        // Left column - Hospital information
-        Paragraph hospitalInfo = new Paragraph();
-        hospitalInfo.add(new Phrase("Hôpital Universitaire International de Rabat\n", headerFont));
-        hospitalInfo.add(new Phrase("Parc Technopolis 11 100 Sala Al Jadida – Maroc", normalFont));
-        
-        // Right column - Contact information
-        Paragraph contactInfo = new Paragraph();
-        contactInfo.add(new Phrase("+212 5 30 10 30 00\n", normalFont)); 
-        contactInfo.add(new Phrase("contact@huir.ma", normalFont));
-        contactInfo.setAlignment(Element.ALIGN_RIGHT);
-        
-        // Add cells to table
-        PdfPCell leftCell = new PdfPCell();
-        leftCell.addElement(hospitalInfo);
-        leftCell.setBorder(Rectangle.NO_BORDER);
-        leftCell.setPadding(0);
-        
-        PdfPCell rightCell = new PdfPCell();
-        rightCell.addElement(contactInfo);
-        rightCell.setBorder(Rectangle.NO_BORDER);
-        rightCell.setPadding(0);
-        rightCell.setHorizontalAlignment(Element.ALIGN_RIGHT);
-        
-        footerTable.addCell(leftCell);
-        footerTable.addCell(rightCell);
-        
-        document.add(footerTable);
-    }
-    
     /**
      * Add a row to a table
      */
@@ -462,107 +335,14 @@ public class FacturePDFService {
     }
     
     /**
-     * Upload PDF file to Supabase Storage
-     */
-    private String uploadPDFToSupabase(byte[] pdfData, String filename) throws IOException {
-        // Bucket name for factures
-        String bucketName = "factures";
-        
-        // Ensure the factures bucket exists
-        ensureBucketExists(bucketName);
-        
-        // Create URLs
-        String uploadUrl = supabaseUrl + "/storage/v1/object/" + bucketName + "/" + filename;
-        String publicUrl = supabaseUrl + "/storage/v1/object/public/" + bucketName + "/" + filename;
-        
-        logger.debug("Uploading PDF to: {}", uploadUrl);
-        
-        // Build request body with PDF data
-        RequestBody requestBody = RequestBody.create(pdfData, MediaType.parse("application/pdf"));
-        
-        // Build the request
-        Request request = new Request.Builder()
-                .url(uploadUrl)
-                .header("Authorization", "Bearer " + serviceRoleKey)
-                .header("apikey", supabaseKey)
-                .put(requestBody)
-                .build();
-        
-        // Execute the request
-        try (Response response = httpClient.newCall(request).execute()) {
-            if (!response.isSuccessful()) {
-                String errorBody = response.body() != null ? response.body().string() : "Unknown error";
-                logger.error("Failed to upload PDF to Supabase: {} - {}", response.code(), errorBody);
-                throw new IOException("Failed to upload PDF to Supabase: " + response.code() + " - " + errorBody);
-            }
-            
-            logger.info("Successfully uploaded PDF to Supabase: {}", publicUrl);
-            return publicUrl;
-        }
-    }
-    
-    /**
-     * Ensure that the bucket exists (create it if it doesn't)
+     * Uploads a PDF file to the factures bucket
+     * 
+     * @param pdfData The rendered PDF
+     * @param filename The filename to use
+     * @return The public URL to access the file
      */
-    private void ensureBucketExists(String bucketName) {
-        // URL for bucket operations
-        String bucketUrl = supabaseUrl + "/storage/v1/bucket";
-        
-        // First, check if the bucket exists
-        Request getRequest = new Request.Builder()
-                .url(bucketUrl + "/" + bucketName)
-                .header("Authorization", "Bearer " + serviceRoleKey)
-                .header("apikey", supabaseKey)
-                .get()
-                .build();
-        
-        try (Response response = httpClient.newCall(getRequest).execute()) {
-            if (response.isSuccessful()) {
-                logger.debug("Bucket '{}' already exists", bucketName);
-                return;
-            }
-            
-            if (response.code() != 404) {
-                // Some error other than "not found" occurred
-                String errorBody = response.body() != null ? response.body().string() : "Unknown error";
-                logger.error("Error checking if bucket exists: {} - {}", response.code(), errorBody);
-                return;
-            }
-            
-            // Bucket doesn't exist, create it
-            MediaType JSON = MediaType.parse("application/json; charset=utf-8");
-            String jsonBody = "{\"id\":\"" + bucketName + "\",\"public\":true}";
-            RequestBody body = RequestBody.create(jsonBody, JSON);
-            
-            Request createRequest = new Request.Builder()
-                    .url(bucketUrl)
-                    .header("Authorization", "Bearer " + serviceRoleKey)
-                    .header("apikey", supabaseKey)
-                    .post(body)
-                    .build();
-            
-            try (Response createResponse = httpClient.newCall(createRequest).execute()) {
-                if (createResponse.isSuccessful()) {
-                    logger.info("Successfully created bucket: {}", bucketName);
-                } else {
-                    String errorBody = createResponse.body() != null ? createResponse.body().string() : "Unknown error";
-                    logger.error("Failed to create bucket: {} - {}", createResponse.code(), errorBody);
-                }
-            }
-        } catch (Exception e) {
-            logger.error("Exception while ensuring bucket exists", e);
-        }
+    private String uploadPDF(StorageContent pdfData, String filename) throws IOException {
+        return objectStorage.put("factures", filename, pdfData, "application/pdf");
     }
     
-    /**
-     * Add flexible space to push the footer to the bottom of the page
-     */
-    private void addFlexibleSpace(Document document) throws DocumentException {
-        // Add vertical space that will expand to fill available space
-        for (int i = 0; i < 3; i++) {
-            Paragraph spacer = new Paragraph(" ");
-            spacer.setSpacingAfter(30);
-            document.add(spacer);
-        }
-    }
 }
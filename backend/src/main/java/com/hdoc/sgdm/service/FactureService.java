@@ -4,8 +4,10 @@ import com.hdoc.sgdm.dto.request.FactureRequest;
 import com.hdoc.sgdm.dto.request.FactureUpdateRequest;
 import com.hdoc.sgdm.dto.request.PrepareFactureRequest;
 import com.hdoc.sgdm.dto.response.FactureResponse;
+import com.hdoc.sgdm.dto.response.RenderJobDTO;
 import com.hdoc.sgdm.entity.Facture;
 import com.hdoc.sgdm.entity.Patient;
+import com.hdoc.sgdm.entity.RenderJob;
 import com.hdoc.sgdm.entity.Visite;
 import com.hdoc.sgdm.mapper.FactureMapper;
 import com.hdoc.sgdm.repository.FactureRepository;
@@ -30,7 +32,7 @@ import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
-public class FactureService {
+public class FactureService implements DocumentRenderer {
     private static final Logger logger = LoggerFactory.getLogger(FactureService.class);
     
     private final FactureRepository factureRepository;
@@ -38,13 +40,14 @@ public class FactureService {
     private final VisiteRepository visiteRepository;
     private final FactureMapper factureMapper;
     private final FacturePDFService facturePDFService;
+    private final RenderJobQueue renderJobQueue;
     
     /**
-     * Generate a facture PDF and save it in a single operation
-     * This allows generating the PDF before persisting the facture in the database
+     * Save a facture and queue the generation of its PDF in a single operation
+     * The PDF is rendered and uploaded by a render worker once the facture is committed
      * 
      * @param request the facture request
-     * @return the created facture with PDF URL
+     * @return the created facture, with the ID of the render job
      */
     @Transactional
     public FactureResponse generateAndSaveFacture(FactureRequest request) {
@@ -69,30 +72,23 @@ public class FactureService {
             });
         }
         
-        // Get patient details
-        Patient patient = patientRepository.findByIdPatient(idPatient)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Patient non trouvé"));
+        // Check patient details
+        if (patientRepository.findByIdPatient(idPatient).isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Patient non trouvé");
+        }
         
         // Create facture entity and save it first to get the ID
         Facture facture = factureMapper.toEntity(request, idPatient);
         facture = factureRepository.save(facture);
         
-        try {
-            // Generate PDF after saving to database, so the ID is properly set
-            String pdfUrl = facturePDFService.generateAndUploadPDF(facture, patient, visite);
-            
-            // Update facture with URL and save again
-            facture.setUrl(pdfUrl);
-            facture = factureRepository.save(facture);
-            
-            logger.info("Facture created with ID: {} and PDF URL: {}", facture.getIdFacture(), pdfUrl);
-            
-            return factureMapper.toDto(facture);
-        } catch (IOException e) {
-            logger.error("Error generating PDF or saving facture: {}", e.getMessage(), e);
-            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, 
-                    "Erreur lors de la génération du PDF ou de l'enregistrement de la facture: " + e.getMessage());
-        }
+        // Generate PDF after saving to database, so the ID is properly set
+        FactureResponse response = factureMapper.toDto(facture);
+        response.setIdRenderJob(queuePDF(facture));
+        
+        logger.info("Facture created with ID: {}, PDF generation queued as render job {}",
+                facture.getIdFacture(), response.getIdRenderJob());
+        
+        return response;
     }
     
     /**
@@ -130,36 +126,61 @@ public class FactureService {
         
         logger.info("Facture created with ID: {}", facture.getIdFacture());
         
-        // Automatically generate PDF
-        try {
-            // Get patient details
-            Patient patient = patientRepository.findByIdPatient(facture.getIdPatient())
-                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Patient non trouvé"));
-            
-            // Generate PDF and get URL
-            String pdfUrl = facturePDFService.generateAndUploadPDF(facture, patient, visite);
-            
-            // Update facture with URL and save again
-            facture.setUrl(pdfUrl);
-            facture = factureRepository.save(facture);
-            
-            logger.info("PDF automatically generated for facture ID: {}", facture.getIdFacture());
-        } catch (IOException e) {
-            logger.error("Error auto-generating PDF for facture ID: {}", facture.getIdFacture(), e);
-            // We continue despite PDF generation error - it can be generated manually later
-        }
+        // Automatically generate PDF; if it fails, it can be generated manually later
+        FactureResponse response = factureMapper.toDto(facture);
+        response.setIdRenderJob(queuePDF(facture));
         
-        return factureMapper.toDto(facture);
+        return response;
     }
     
     /**
-     * Generate a PDF for a facture
+     * Queue the generation of the PDF of a facture
      * 
      * @param idFacture the facture ID
-     * @return the updated facture with URL
+     * @return the facture, with the ID of the render job
      */
     @Transactional
     public FactureResponse generatePDF(Integer idFacture) {
+        // Get the facture
+        Facture facture = factureRepository.findById(idFacture)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Facture non trouvée"));
+        
+        FactureResponse response = factureMapper.toDto(facture);
+        response.setIdRenderJob(queuePDF(facture));
+        
+        logger.info("PDF generation queued for facture ID: {} as render job {}", idFacture, response.getIdRenderJob());
+        
+        return response;
+    }
+    
+    /**
+     * Get a facture by its ID
+     * 
+     * @param idFacture the facture ID
+     * @return the facture
+     */
+    public FactureResponse getFacture(Integer idFacture) {
+        Facture facture = factureRepository.findById(idFacture)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Facture non trouvée"));
+        return factureMapper.toDto(facture);
+    }
+    
+    @Override
+    public RenderJob.TypeDocument getTypeDocument() {
+        return RenderJob.TypeDocument.FACTURE;
+    }
+    
+    /**
+     * Render the PDF of a facture, upload it and store its URL on the facture
+     * Runs outside of any transaction: each read and the final update use their own
+     * 
+     * @param idDocument the facture ID
+     * @return the public URL of the PDF
+     */
+    @Override
+    public String render(Long idDocument) throws IOException {
+        Integer idFacture = idDocument.intValue();
+        
         // Get the facture
         Facture facture = factureRepository.findById(idFacture)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Facture non trouvée"));
@@ -172,22 +193,22 @@ public class FactureService {
         Visite visite = visiteRepository.findById(facture.getIdVisite().longValue())
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Visite non trouvée"));
         
-        try {
-            // Generate PDF and get URL
-            String pdfUrl = facturePDFService.generateAndUploadPDF(facture, patient, visite);
-            
-            // Update facture with URL
-            facture.setUrl(pdfUrl);
-            facture = factureRepository.save(facture);
-            
-            logger.info("PDF generated for facture ID: {}", idFacture);
-            
-            return factureMapper.toDto(facture);
-        } catch (IOException e) {
-            logger.error("Error generating PDF for facture ID: {}", idFacture, e);
-            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, 
-                    "Erreur lors de la génération du PDF: " + e.getMessage());
+        // Generate PDF and get URL
+        String pdfUrl = facturePDFService.generateAndUploadPDF(facture, patient, visite);
+        
+        // Update facture with URL
+        if (factureRepository.updateUrl(idFacture, pdfUrl) == 0) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Facture non trouvée");
         }
+        
+        logger.info("PDF generated for facture ID: {}", idFacture);
+        
+        return pdfUrl;
+    }
+    
+    private Long queuePDF(Facture facture) {
+        RenderJobDTO job = renderJobQueue.enqueue(RenderJob.TypeDocument.FACTURE, facture.getIdFacture().longValue());
+        return job.getIdJob();
     }
     
     /**
@@ -363,32 +384,17 @@ public class FactureService {
         // Save the updated facture
         facture = factureRepository.save(facture);
         
+        FactureResponse response = factureMapper.toDto(facture);
+        
         // Generate PDF if requested or if the facture is marked as paid
         boolean shouldGeneratePdf = request.getUrl() == null && "payé".equals(request.getStatus());
         if (shouldGeneratePdf) {
-            try {
-                // Get patient details
-                Patient patient = patientRepository.findByIdPatient(facture.getIdPatient())
-                        .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Patient non trouvé"));
-                
-                // Get visit details
-                Visite visite = visiteRepository.findById(facture.getIdVisite().longValue())
-                        .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Visite non trouvée"));
-                
-                // Generate PDF and update the URL
-                String pdfUrl = facturePDFService.generateAndUploadPDF(facture, patient, visite);
-                facture.setUrl(pdfUrl);
-                facture = factureRepository.save(facture);
-                
-                logger.info("PDF generated for updated facture ID: {}", idFacture);
-            } catch (IOException e) {
-                logger.error("Error generating PDF for updated facture ID: {}", idFacture, e);
-                // Continue despite PDF generation error
-            }
+            response.setIdRenderJob(queuePDF(facture));
+            logger.info("PDF generation queued for updated facture ID: {}", idFacture);
         }
         
         logger.info("Facture updated successfully with ID: {}", idFacture);
         
-        return factureMapper.toDto(facture);
+        return response;
     }
 } 
\ No newline at end of file
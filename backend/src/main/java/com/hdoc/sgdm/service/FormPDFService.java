@@ -4,16 +4,15 @@ import com.hdoc.sgdm.dto.FormulairePatientDTO;
 import com.hdoc.sgdm.dto.ReponseFormulaireDTO;
 import com.hdoc.sgdm.entity.ModeleFormulaire;
 import com.hdoc.sgdm.entity.Patient;
+import com.hdoc.sgdm.entity.RenderJob;
 import com.hdoc.sgdm.entity.ChampFormulaire;
 import com.hdoc.sgdm.exception.ResourceNotFoundException;
 import com.hdoc.sgdm.repository.ModeleFormulaireRepository;
 import com.hdoc.sgdm.repository.PatientRepository;
 import com.hdoc.sgdm.repository.ChampFormulaireRepository;
 import lombok.RequiredArgsConstructor;
-import okhttp3.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
@@ -22,11 +21,10 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.TimeUnit;
 
 @Service
 @RequiredArgsConstructor
-public class FormPDFService {
+public class FormPDFService implements DocumentRenderer {
     private static final Logger logger = LoggerFactory.getLogger(FormPDFService.class);
     
     private final PDFGeneratorService pdfGeneratorService;
@@ -34,18 +32,33 @@ public class FormPDFService {
     private final ModeleFormulaireRepository modeleFormulaireRepository;
     private final FormulaireMedicalService formulaireMedicalService;
     private final ChampFormulaireRepository champFormulaireRepository;
+    private final ObjectStorage objectStorage;
     
-    private final OkHttpClient httpClient = new OkHttpClient.Builder()
-            .connectTimeout(30, TimeUnit.SECONDS)
-            .writeTimeout(30, TimeUnit.SECONDS)
-            .readTimeout(30, TimeUnit.SECONDS)
-            .build();
-    
-    @Value("${supabase.url}")
-    private String supabaseUrl;
+    @Override
+    public RenderJob.TypeDocument getTypeDocument() {
+        return RenderJob.TypeDocument.FORMULAIRE;
+    }
     
-    @Value("${supabase.service-role-key}")
-    private String serviceRoleKey;
+    /**
+     * Generates the PDF of a submitted form and uploads it, for a render job. The URL is
+     * not stored on the form: it is kept by the job.
+     * 
+     * @param idFormulaire The form ID
+     * @return The public URL of the PDF
+     */
+    @Override
+    public String render(Long idFormulaire) throws IOException {
+        FormulairePatientDTO formulaire = formulaireMedicalService.getFormulairePatient(idFormulaire.intValue());
+        if (formulaire == null) {
+            throw new ResourceNotFoundException("Formulaire not found with ID: " + idFormulaire);
+        }
+        
+        Map<String, Object> result = generateAndUploadPDF(formulaire);
+        if (!Boolean.TRUE.equals(result.get("success"))) {
+            throw new IOException(String.valueOf(result.get("error")));
+        }
+        return (String) result.get("pdfUrl");
+    }
     
     /**
      * Generates a PDF from a filled form and uploads it to Supabase Storage
@@ -121,9 +134,8 @@ public class FormPDFService {
             ModeleFormulaire modele = modeleOpt.get();
             
             // Generate PDF
-            try {
-                byte[] pdfData = pdfGeneratorService.generatePDF(formulaire);
-                logger.info("PDF generated successfully, size: {} bytes", pdfData.length);
+            try (SpooledContent pdfData = pdfGeneratorService.generatePDF(formulaire)) {
+                logger.info("PDF generated successfully, size: {} bytes", pdfData.length());
                 
                 // Generate filename
                 String patientName = patient.getNom() + "_" + patient.getPrenom();
@@ -131,9 +143,9 @@ public class FormPDFService {
                 String filename = pdfGeneratorService.generateFilename(patientName, modeleName);
                 logger.info("Generated filename: {}", filename);
                 
-                // Upload to Supabase
+                // Upload to storage
                 try {
-                    String pdfUrl = uploadPDFToSupabase(pdfData, filename);
+                    String pdfUrl = uploadPDF(pdfData, filename);
                     logger.info("PDF uploaded successfully to: {}", pdfUrl);
                     
                     // Prepare successful response
@@ -163,41 +175,14 @@ public class FormPDFService {
     }
     
     /**
-     * Uploads a PDF file to Supabase Storage
+     * Uploads a PDF file to the forms bucket
      * 
-     * @param pdfData The PDF content as byte array
+     * @param pdfData The rendered PDF
      * @param filename The filename to use
      * @return The public URL to access the file
      */
-    private String uploadPDFToSupabase(byte[] pdfData, String filename) throws IOException {
-        // Bucket name in Supabase Storage
-        String bucketName = "forms";
-        
-        // Create URLs
-        String uploadUrl = supabaseUrl + "/storage/v1/object/" + bucketName + "/" + filename;
-        String publicUrl = supabaseUrl + "/storage/v1/object/public/" + bucketName + "/" + filename;
-        
-        // Build request body with PDF data
-        RequestBody requestBody = RequestBody.create(pdfData, MediaType.parse("application/pdf"));
-        
-        // Build the request
-        Request request = new Request.Builder()
-                .url(uploadUrl)
-                .put(requestBody)
-                .addHeader("Authorization", "Bearer " + serviceRoleKey)
-                .addHeader("Content-Type", "application/pdf")
-                .addHeader("x-upsert", "true") // Overwrite if exists
-                .build();
-        
-        // Execute the request
-        try (Response response = httpClient.newCall(request).execute()) {
-            if (!response.isSuccessful()) {
-                String errorBody = response.body() != null ? response.body().string() : "Unknown error";
-                throw new IOException("Failed to upload PDF to Supabase: " + response.code() + " - " + errorBody);
-            }
-            
-            return publicUrl;
-        }
+    private String uploadPDF(StorageContent pdfData, String filename) throws IOException {
+        return objectStorage.put("forms", filename, pdfData, "application/pdf");
     }
     
     /**
@@ -0,0 +1,102 @@
+package com.hdoc.sgdm.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * {@link ObjectStorage} in a local directory, one sub-directory per bucket, enabled with
+ * {@code storage.backend=local}. Meant for offline development, tests and benchmarks.
+ *
+ * Files are streamed next to their target and moved in place, so readers never see a partial
+ * file. Public URLs are {@code storage.local.base-url} followed by the bucket and path, the
+ * file URI of the directory by default.
+ */
+@Component
+@ConditionalOnProperty(name = "storage.backend", havingValue = "local")
+@Slf4j
+public class LocalObjectStorage implements ObjectStorage {
+
+    private final Path root;
+    private final String baseUrl;
+    private final StorageMetrics metrics;
+
+    public LocalObjectStorage(MeterRegistry meterRegistry,
+                              @Value("${storage.local.root:${java.io.tmpdir}/hdoc-storage}") String root,
+                              @Value("${storage.local.base-url:}") String baseUrl) {
+        this.root = Paths.get(root).toAbsolutePath().normalize();
+        String base = baseUrl.isEmpty() ? this.root.toUri().toString() : baseUrl;
+        this.baseUrl = base.endsWith("/") ? base : base + "/";
+        this.metrics = new StorageMetrics(meterRegistry, "local");
+    }
+
+    @Override
+    public String put(String bucket, String path, StorageContent content, String contentType) throws IOException {
+        Path target = resolve(bucket, path);
+
+        long start = System.nanoTime();
+        long written = 0;
+        boolean success = false;
+        try {
+            Files.createDirectories(target.getParent());
+            Path temp = Files.createTempFile(target.getParent(), ".upload-", ".tmp");
+            try {
+                try (OutputStream file = new BufferedOutputStream(Files.newOutputStream(temp))) {
+                    CountingOutputStream out = new CountingOutputStream(file);
+                    content.writeTo(out);
+                    written = out.getCount();
+                }
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            success = true;
+            log.debug("Stored {} bytes at {}", written, target);
+            return getPublicUrl(bucket, path);
+        } finally {
+            metrics.recordUpload(bucket, written, start, success);
+        }
+    }
+
+    @Override
+    public boolean delete(String url) throws IOException {
+        if (url == null || !url.startsWith(baseUrl)) {
+            log.warn("URL does not belong to the local storage: {}", url);
+            return false;
+        }
+        String bucketAndPath = url.substring(baseUrl.length());
+        int slash = bucketAndPath.indexOf('/');
+        if (slash <= 0) {
+            return false;
+        }
+        Files.deleteIfExists(resolve(bucketAndPath.substring(0, slash), bucketAndPath.substring(slash + 1)));
+        return true;
+    }
+
+    @Override
+    public String getPublicUrl(String bucket, String path) {
+        return baseUrl + bucket + "/" + path;
+    }
+
+    /**
+     * Path of a file, refusing the paths that would leave its bucket
+     */
+    Path resolve(String bucket, String path) throws IOException {
+        Path bucketDir = root.resolve(bucket).normalize();
+        Path file = bucketDir.resolve(path).normalize();
+        if (!bucketDir.getParent().equals(root) || !file.startsWith(bucketDir) || file.equals(bucketDir)) {
+            throw new IOException("Invalid storage path: " + bucket + "/" + path);
+        }
+        return file;
+    }
+}
@@ -5,7 +5,6 @@ import com.hdoc.sgdm.dto.common.VisiteDTO;
 import com.hdoc.sgdm.dto.response.MedecinListResponse;
 import com.hdoc.sgdm.dto.response.VisiteResponse;
 import com.hdoc.sgdm.entity.Medecin;
-import com.hdoc.sgdm.entity.Visite;
 import com.hdoc.sgdm.exception.ResourceNotFoundException;
 import com.hdoc.sgdm.mapper.MedecinMapper;
 import com.hdoc.sgdm.mapper.PatientMapper;
@@ -28,15 +27,18 @@ public class MedecinService {
     private final MedecinMapper medecinMapper;
     private final VisiteMapper visiteMapper;
     private final VisiteRepository visiteRepository;
+    private final ActiveVisitBoard activeVisitBoard;
 
     @Autowired
     public MedecinService(MedecinRepository medecinRepository, SpecialiteRepository specialiteRepository,
-                          MedecinMapper medecinMapper, VisiteMapper visiteMapper, VisiteRepository visiteRepository) {
+                          MedecinMapper medecinMapper, VisiteMapper visiteMapper, VisiteRepository visiteRepository,
+                          ActiveVisitBoard activeVisitBoard) {
         this.medecinRepository = medecinRepository;
         this.specialiteRepository = specialiteRepository;
         this.medecinMapper = medecinMapper;
         this.visiteMapper = visiteMapper;
         this.visiteRepository = visiteRepository;
+        this.activeVisitBoard = activeVisitBoard;
     }
 
     public MedecinListResponse getAllMedecins() {
@@ -53,18 +55,17 @@ public class MedecinService {
 
     public VisiteResponse getMedecinActiveVisite(UUID medecinId) {
         // First verify if the medecin exists
-        if (!medecinRepository.existsById(medecinId)) {
+        if (!activeVisitBoard.hasMedecin(medecinId) && !medecinRepository.existsById(medecinId)) {
             return VisiteMapper.toErrorResponse("Médecin non trouvé avec l'id: " + medecinId);
         }
         
-        // Find the active visit for this doctor (with status "IN_PROGRESS")
-        Optional<Visite> optionalVisite = visiteRepository.findByIdMedecinAndStatut(medecinId, "IN_PROGRESS");
+        // Find the active visit for this doctor on the active visits board
+        Optional<VisiteDTO> optionalVisite = activeVisitBoard.getActiveVisite(medecinId);
         if (optionalVisite.isEmpty()) {
             return VisiteMapper.toErrorResponse("Aucune visite active trouvée pour ce médecin");
         }
         
-        // Map the visit entity to DTO
-        VisiteDTO visiteDTO = visiteMapper.toDTO(optionalVisite.get());
+        VisiteDTO visiteDTO = optionalVisite.get();
         
         // Return successful response
         return VisiteResponse.builder()
@@ -92,7 +93,7 @@ public class MedecinService {
     }
     
     public long countActiveVisitsByMedecin(UUID medecinId) {
-        return medecinRepository.countActiveVisits(medecinId);
+        return activeVisitBoard.countActiveVisites(medecinId);
     }
     
     public MedecinListResponse getMedecinsByStatus(String status) {
@@ -116,6 +117,7 @@ public class MedecinService {
         Medecin medecin = optionalMedecin.get();
         medecin.setStatus(newStatus);
         medecinRepository.save(medecin);
+        activeVisitBoard.medecinStatusChanged(medecinId, newStatus);
         
         return true;
     }
@@ -0,0 +1,422 @@
+package com.hdoc.sgdm.service;
+
+import com.hdoc.sgdm.dto.response.MedicamentDTO;
+import com.hdoc.sgdm.entity.Medicament;
+import com.hdoc.sgdm.repository.MedicamentRepository;
+import com.hdoc.sgdm.util.TextNormalizer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+
+/**
+ * In-memory copy of the medicament catalog for the prescription autocomplete.
+ *
+ * The catalog is an immutable snapshot: the folded words of every medicament name, sorted, each
+ * with the medicaments that contain it. A word of the query matches the catalog words it is a
+ * prefix of, found by binary search; when no medicament matches every word, words within a small
+ * edit distance are tried instead, so that "amoxiciline" still finds "Amoxicilline". The snapshot
+ * is loaded when the application is ready and reloaded periodically or on demand after an import,
+ * since the catalog is only written outside of the application.
+ */
+@Component
+@Slf4j
+public class MedicamentCatalog {
+
+    private static final int SCORE_NAME_EXACT = 100;
+    private static final int SCORE_NAME_PREFIX = 80;
+    private static final int SCORE_WORD_PREFIX = 50;
+    private static final int SCORE_FUZZY = 20;
+
+    // Words shorter than this are only matched by prefix, a typo in them matches too much
+    private static final int FUZZY_MIN_LENGTH = 4;
+    private static final int FUZZY_TWO_EDITS_LENGTH = 8;
+
+    private final MedicamentRepository medicamentRepository;
+    private final Object rebuildMonitor = new Object();
+
+    private volatile Catalog catalog;
+
+    public MedicamentCatalog(MedicamentRepository medicamentRepository) {
+        this.medicamentRepository = medicamentRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    /**
+     * Reload the whole catalog from the database.
+     *
+     * @return The number of medicaments in the catalog
+     */
+    @Scheduled(fixedDelayString = "${medicament.catalog.refresh-ms:600000}",
+               initialDelayString = "${medicament.catalog.refresh-ms:600000}")
+    public int rebuild() {
+        synchronized (rebuildMonitor) {
+            long begin = System.nanoTime();
+            Catalog fresh = Catalog.of(medicamentRepository.findAll());
+            catalog = fresh;
+
+            log.info("Medicament catalog built with {} medicaments and {} words in {} ms",
+                    fresh.entries.length, fresh.words.length, (System.nanoTime() - begin) / 1_000_000);
+            return fresh.entries.length;
+        }
+    }
+
+    /**
+     * All medicaments of the catalog, in name order.
+     *
+     * @return The medicaments
+     */
+    public List<MedicamentDTO> findAll() {
+        return ensureLoaded().all;
+    }
+
+    /**
+     * The best medicaments for an autocomplete query.
+     *
+     * Every word of the query must be the start of a word of the medicament name. Names equal to
+     * the query come first, then names starting with it, then the other matches; shorter names
+     * rank first within each group. When nothing matches, names with a word close to each word of
+     * the query by one edit (two for long words) are returned instead.
+     *
+     * @param query The raw text typed by the user
+     * @param limit Maximum number of medicaments to return
+     * @return The ranked medicaments, the first ones of the catalog for a blank query
+     */
+    public List<MedicamentDTO> search(String query, int limit) {
+        Catalog current = ensureLoaded();
+        if (limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        List<String> tokens = TextNormalizer.tokens(query);
+        if (tokens.isEmpty()) {
+            return current.all.subList(0, Math.min(limit, current.all.size()));
+        }
+
+        List<MedicamentDTO> hits = current.search(String.join(" ", tokens), tokens, limit, false);
+        if (hits.isEmpty()) {
+            hits = current.search(String.join(" ", tokens), tokens, limit, true);
+        }
+        return hits;
+    }
+
+    /**
+     * Number of medicaments in the catalog.
+     */
+    public int size() {
+        Catalog current = catalog;
+        return current != null ? current.entries.length : 0;
+    }
+
+    private Catalog ensureLoaded() {
+        Catalog current = catalog;
+        if (current != null) {
+            return current;
+        }
+        synchronized (rebuildMonitor) {
+            if (catalog == null) {
+                rebuild();
+            }
+            return catalog;
+        }
+    }
+
+    /**
+     * A medicament with its folded name and words
+     */
+    private static final class Entry {
+        final MedicamentDTO medicament;
+        final String name;
+        final String[] words;
+
+        Entry(MedicamentDTO medicament) {
+            this.medicament = medicament;
+            this.name = TextNormalizer.fold(medicament.getNom());
+            this.words = TextNormalizer.tokens(medicament.getNom()).toArray(new String[0]);
+        }
+    }
+
+    private static final class Scored {
+        final Entry entry;
+        final int score;
+
+        Scored(Entry entry, int score) {
+            this.entry = entry;
+            this.score = score;
+        }
+    }
+
+    private static final Comparator<Scored> BEST_FIRST = Comparator
+            .comparingInt((Scored s) -> -s.score)
+            .thenComparingInt(s -> s.entry.name.length())
+            .thenComparing(s -> s.entry.name);
+
+    /**
+     * Immutable snapshot of the catalog, replaced as a whole on rebuild.
+     */
+    private static final class Catalog {
+        final Entry[] entries;
+        final List<MedicamentDTO> all;
+        // Distinct folded words in order, with the entries containing each of them
+        final String[] words;
+        final int[][] postings;
+
+        private Catalog(Entry[] entries, String[] words, int[][] postings) {
+            this.entries = entries;
+            this.words = words;
+            this.postings = postings;
+            List<MedicamentDTO> medicaments = new ArrayList<>(entries.length);
+            for (Entry entry : entries) {
+                medicaments.add(entry.medicament);
+            }
+            this.all = Collections.unmodifiableList(medicaments);
+        }
+
+        static Catalog of(List<Medicament> medicaments) {
+            Entry[] entries = new Entry[medicaments.size()];
+            for (int i = 0; i < entries.length; i++) {
+                Medicament medicament = medicaments.get(i);
+                entries[i] = new Entry(MedicamentDTO.builder()
+                        .idMedicament(medicament.getIdMedicament())
+                        .nom(medicament.getNom())
+                        .description(medicament.getDescription())
+                        .build());
+            }
+            Arrays.sort(entries, Comparator.comparing((Entry entry) -> entry.name)
+                    .thenComparing(entry -> entry.medicament.getNom()));
+
+            Map<String, List<Integer>> entriesByWord = new HashMap<>();
+            for (int i = 0; i < entries.length; i++) {
+                for (String word : new LinkedHashSet<>(Arrays.asList(entries[i].words))) {
+                    entriesByWord.computeIfAbsent(word, w -> new ArrayList<>()).add(i);
+                }
+            }
+            String[] words = new TreeSet<>(entriesByWord.keySet()).toArray(new String[0]);
+            int[][] postings = new int[words.length][];
+            for (int i = 0; i < words.length; i++) {
+                postings[i] = entriesByWord.get(words[i]).stream().mapToInt(Integer::intValue).toArray();
+            }
+            return new Catalog(entries, words, postings);
+        }
+
+        List<MedicamentDTO> search(String query, List<String> tokens, int limit, boolean fuzzy) {
+            // Start from the word of the query with the fewest candidates, the others only filter
+            int[] candidates = null;
+            for (String token : tokens) {
+                int[] tokenCandidates = fuzzy ? fuzzyCandidates(token) : prefixCandidates(token);
+                if (candidates == null || tokenCandidates.length < candidates.length) {
+                    candidates = tokenCandidates;
+                }
+                if (candidates.length == 0) {
+                    return Collections.emptyList();
+                }
+            }
+
+            PriorityQueue<Scored> best = new PriorityQueue<>(BEST_FIRST.reversed());
+            for (int candidate : candidates) {
+                Entry entry = entries[candidate];
+                int score = fuzzy ? fuzzyScore(entry, tokens) : score(entry, query, tokens);
+                if (score == 0) {
+                    continue;
+                }
+                best.offer(new Scored(entry, score));
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+
+            List<Scored> ranked = new ArrayList<>(best);
+            ranked.sort(BEST_FIRST);
+            List<MedicamentDTO> hits = new ArrayList<>(ranked.size());
+            for (Scored scored : ranked) {
+                hits.add(scored.entry.medicament);
+            }
+            return hits;
+        }
+
+        // Entries with a word starting with the token: the words of a prefix are contiguous in order
+        private int[] prefixCandidates(String token) {
+            int from = firstWordAtLeast(token);
+            int to = firstWordAtLeast(token + Character.MAX_VALUE);
+            return union(from, to, null);
+        }
+
+        // Entries with a word whose start is within the edit budget of the token. The first letter
+        // is trusted, as in most misspellings, which limits the words to compare to one range.
+        private int[] fuzzyCandidates(String token) {
+            int maxEdits = maxEdits(token);
+            if (maxEdits == 0) {
+                return prefixCandidates(token);
+            }
+            int from = firstWordAtLeast(token.substring(0, 1));
+            int to = firstWordAtLeast(token.charAt(0) + String.valueOf(Character.MAX_VALUE));
+            boolean[] close = new boolean[words.length];
+            int[][] rows = new int[2][token.length() + maxEdits + 1];
+            for (int i = from; i < to; i++) {
+                close[i] = prefixDistance(token, words[i], maxEdits, rows[0], rows[1]) <= maxEdits;
+            }
+            return union(from, to, close);
+        }
+
+        private int[] union(int from, int to, boolean[] selected) {
+            int size = 0;
+            for (int i = from; i < to; i++) {
+                if (selected == null || selected[i]) {
+                    size += postings[i].length;
+                }
+            }
+            int[] result = new int[size];
+            int n = 0;
+            for (int i = from; i < to; i++) {
+                if (selected == null || selected[i]) {
+                    System.arraycopy(postings[i], 0, result, n, postings[i].length);
+                    n += postings[i].length;
+                }
+            }
+            // An entry with several words starting with the token appears once
+            Arrays.sort(result);
+            int distinct = 0;
+            for (int i = 0; i < result.length; i++) {
+                if (i == 0 || result[i] != result[i - 1]) {
+                    result[distinct++] = result[i];
+                }
+            }
+            return Arrays.copyOf(result, distinct);
+        }
+
+        private int firstWordAtLeast(String value) {
+            int low = 0;
+            int high = words.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (words[middle].compareTo(value) < 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+
+    private static int score(Entry entry, String query, List<String> tokens) {
+        for (String token : tokens) {
+            if (!hasWordStartingWith(entry, token)) {
+                return 0;
+            }
+        }
+        if (entry.name.equals(query)) {
+            return SCORE_NAME_EXACT;
+        }
+        if (entry.name.startsWith(query)) {
+            return SCORE_NAME_PREFIX;
+        }
+        return SCORE_WORD_PREFIX;
+    }
+
+    private static int fuzzyScore(Entry entry, List<String> tokens) {
+        int edits = 0;
+        for (String token : tokens) {
+            int maxEdits = maxEdits(token);
+            int best = maxEdits + 1;
+            for (String word : entry.words) {
+                best = Math.min(best, prefixDistance(token, word, maxEdits));
+            }
+            if (best > maxEdits) {
+                return 0;
+            }
+            edits += best;
+        }
+        return Math.max(SCORE_FUZZY - edits, 1);
+    }
+
+    private static boolean hasWordStartingWith(Entry entry, String token) {
+        for (String word : entry.words) {
+            if (word.startsWith(token)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int maxEdits(String token) {
+        if (token.length() < FUZZY_MIN_LENGTH) {
+            return 0;
+        }
+        return token.length() >= FUZZY_TWO_EDITS_LENGTH ? 2 : 1;
+    }
+
+    /**
+     * Smallest Levenshtein distance between the token and any start of the word, giving up beyond
+     * maxEdits. The word may be longer than the token: the user has not finished typing it. Only
+     * the diagonal band of width maxEdits is computed, cells outside of it exceed the budget.
+     *
+     * @return The distance, or maxEdits + 1 when it is larger than maxEdits
+     */
+    static int prefixDistance(String token, String word, int maxEdits) {
+        int[][] rows = new int[2][token.length() + maxEdits + 1];
+        return prefixDistance(token, word, maxEdits, rows[0], rows[1]);
+    }
+
+    // Same, with two rows of at least token.length() + maxEdits + 1 cells reused between words
+    private static int prefixDistance(String token, String word, int maxEdits, int[] previous, int[] current) {
+        int n = token.length();
+        int m = Math.min(word.length(), n + maxEdits);
+        int beyond = maxEdits + 1;
+        if (n - m > maxEdits) {
+            return beyond;
+        }
+
+        for (int j = 0; j <= m; j++) {
+            previous[j] = Math.min(j, beyond);
+        }
+        for (int i = 1; i <= n; i++) {
+            int from = Math.max(1, i - maxEdits);
+            int to = Math.min(m, i + maxEdits);
+            current[0] = Math.min(i, beyond);
+            if (from > 1) {
+                current[from - 1] = beyond;
+            }
+            int rowMinimum = current[0];
+            char c = token.charAt(i - 1);
+            for (int j = from; j <= to; j++) {
+                int cost = c == word.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                current[j] = Math.min(value, beyond);
+                rowMinimum = Math.min(rowMinimum, current[j]);
+            }
+            if (to < m) {
+                current[to + 1] = beyond;
+            }
+            if (rowMinimum > maxEdits) {
+                return beyond;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+
+        // The whole token against the best start of the word
+        int distance = beyond;
+        for (int j = Math.max(0, n - maxEdits); j <= m; j++) {
+            distance = Math.min(distance, previous[j]);
+        }
+        return distance;
+    }
+}
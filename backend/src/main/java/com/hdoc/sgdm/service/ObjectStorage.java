@@ -0,0 +1,47 @@
+package com.hdoc.sgdm.service;
+
+import java.io.IOException;
+
+/**
+ * Storage of uploaded and generated files, addressed by bucket and path.
+ *
+ * Backed by Supabase Storage, or by a local directory when {@code storage.backend=local}
+ * (offline development, tests and benchmarks).
+ */
+public interface ObjectStorage {
+
+    /**
+     * Stores a file, replacing any file already stored under the same path
+     *
+     * @param bucket the bucket name, created on first use if needed
+     * @param path the path of the file within the bucket
+     * @param content the file content, streamed to the storage
+     * @param contentType the MIME type of the file
+     * @return the public URL of the file
+     * @throws IOException if the file could not be stored
+     */
+    String put(String bucket, String path, StorageContent content, String contentType) throws IOException;
+
+    /**
+     * Stores a file already held in memory
+     *
+     * @see #put(String, String, StorageContent, String)
+     */
+    default String put(String bucket, String path, byte[] content, String contentType) throws IOException {
+        return put(bucket, path, StorageContent.of(content), contentType);
+    }
+
+    /**
+     * Deletes a file from its public URL. A file that does not exist is considered deleted.
+     *
+     * @param url the public URL returned by {@link #put}
+     * @return false if the URL does not belong to this storage or the file could not be deleted
+     * @throws IOException if the storage could not be reached
+     */
+    boolean delete(String url) throws IOException;
+
+    /**
+     * Returns the public URL of a file, whether it exists or not
+     */
+    String getPublicUrl(String bucket, String path);
+}
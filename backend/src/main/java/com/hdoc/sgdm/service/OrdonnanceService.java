@@ -6,12 +6,15 @@ import com.hdoc.sgdm.dto.request.EmptyOrdonnanceRequest;
 import com.hdoc.sgdm.dto.response.MedicamentDTO;
 import com.hdoc.sgdm.dto.response.OrdonnanceDTO;
 import com.hdoc.sgdm.dto.response.PrescriptionDTO;
+import com.hdoc.sgdm.dto.response.RenderJobDTO;
 import com.hdoc.sgdm.entity.Medicament;
 import com.hdoc.sgdm.entity.Medecin;
 import com.hdoc.sgdm.entity.Ordonnance;
 import com.hdoc.sgdm.entity.Patient;
 import com.hdoc.sgdm.entity.Prescription;
+import com.hdoc.sgdm.entity.RenderJob;
 import com.hdoc.sgdm.entity.Visite;
+import com.hdoc.sgdm.exception.ConflictException;
 import com.hdoc.sgdm.exception.ResourceNotFoundException;
 import com.hdoc.sgdm.repository.MedicamentRepository;
 import com.hdoc.sgdm.repository.MedecinRepository;
@@ -24,40 +27,35 @@ import com.lowagie.text.DocumentException;
 import com.lowagie.text.Element;
 import com.lowagie.text.Font;
 import com.lowagie.text.FontFactory;
-import com.lowagie.text.Image;
-import com.lowagie.text.PageSize;
 import com.lowagie.text.Paragraph;
 import com.lowagie.text.Phrase;
 import com.lowagie.text.Rectangle;
 import com.lowagie.text.Chunk;
 import com.lowagie.text.pdf.PdfPCell;
 import com.lowagie.text.pdf.PdfPTable;
-import com.lowagie.text.pdf.PdfWriter;
 import lombok.RequiredArgsConstructor;
-import okhttp3.MediaType;
-import okhttp3.OkHttpClient;
-import okhttp3.Request;
-import okhttp3.RequestBody;
-import okhttp3.Response;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
-import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
-public class OrdonnanceService {
+public class OrdonnanceService implements DocumentRenderer {
     private static final Logger logger = LoggerFactory.getLogger(OrdonnanceService.class);
     
     private final OrdonnanceRepository ordonnanceRepository;
@@ -66,18 +64,9 @@ public class OrdonnanceService {
     private final PatientRepository patientRepository;
     private final MedecinRepository medecinRepository;
     private final VisiteRepository visiteRepository;
-    
-    @Value("${supabase.url}")
-    private String supabaseUrl;
-    
-    @Value("${supabase.service-role-key}")
-    private String serviceRoleKey;
-    
-    private final OkHttpClient httpClient = new OkHttpClient.Builder()
-            .connectTimeout(30, TimeUnit.SECONDS)
-            .writeTimeout(30, TimeUnit.SECONDS)
-            .readTimeout(30, TimeUnit.SECONDS)
-            .build();
+    private final RenderJobQueue renderJobQueue;
+    private final PdfRenderingEngine pdfRenderingEngine;
+    private final ObjectStorage objectStorage;
     
     /**
      * Create a new ordonnance with prescriptions
@@ -123,25 +112,19 @@ public class OrdonnanceService {
         List<Prescription> prescriptions = new ArrayList<>();
         
         if (request.getPrescriptions() != null && !request.getPrescriptions().isEmpty()) {
+            Map<Integer, Medicament> medicaments = findMedicaments(request.getPrescriptions());
+            
             for (PrescriptionRequest prescriptionRequest : request.getPrescriptions()) {
-                Medicament medicament = medicamentRepository.findById(prescriptionRequest.getIdMedicament())
-                        .orElseThrow(() -> new ResourceNotFoundException("Medicament not found with ID: " + prescriptionRequest.getIdMedicament()));
-                
                 Prescription prescription = Prescription.builder()
                         .ordonnance(ordonnance)
-                        .medicament(medicament)
-                        .dosage(prescriptionRequest.getDosage())
-                        .uniteDosage(prescriptionRequest.getUniteDosage())
-                        .route(prescriptionRequest.getRoute())
-                        .frequence(prescriptionRequest.getFrequence())
-                        .instructions(prescriptionRequest.getInstructions())
-                        .dateDebut(prescriptionRequest.getDateDebut())
-                        .duree(prescriptionRequest.getDuree())
-                        .dureeUnite(prescriptionRequest.getDureeUnite())
+                        .medicament(medicaments.get(prescriptionRequest.getIdMedicament()))
                         .build();
-                
-                prescriptions.add(prescriptionRepository.save(prescription));
+                applyPrescriptionRequest(prescription, prescriptionRequest);
+                prescriptions.add(prescription);
             }
+            
+            // The IDs come from the pooled sequence, so the lines are inserted in one batch
+            prescriptions = prescriptionRepository.saveAll(prescriptions);
         } else {
             // Get existing prescriptions if we're using an existing ordonnance
             prescriptions = prescriptionRepository.findAllByOrdonnance(ordonnance);
@@ -154,12 +137,128 @@ public class OrdonnanceService {
         return mapToDTO(ordonnance, prescriptions, patient, medecin);
     }
     
+    /**
+     * Replace the prescription lines of an ordonnance. Lines matching an existing prescription,
+     * by ID or otherwise by medicament, are updated in place; other lines are inserted, and the
+     * existing prescriptions left unmatched are deleted.
+     * 
+     * @param idOrdonnance Ordonnance ID
+     * @param requests The complete list of lines of the ordonnance
+     * @return The updated ordonnance DTO with prescriptions
+     */
+    @Transactional
+    public OrdonnanceDTO replacePrescriptions(Long idOrdonnance, List<PrescriptionRequest> requests) {
+        Ordonnance ordonnance = ordonnanceRepository.findById(idOrdonnance)
+                .orElseThrow(() -> new ResourceNotFoundException("Ordonnance not found with ID: " + idOrdonnance));
+        
+        if (!"en_cours".equals(ordonnance.getStatut())) {
+            throw new ConflictException("Ordonnance " + idOrdonnance + " is already finalized and cannot be modified");
+        }
+        
+        List<PrescriptionRequest> lines = requests != null ? requests : Collections.emptyList();
+        Map<Integer, Medicament> medicaments = findMedicaments(lines);
+        List<Prescription> existing = prescriptionRepository.findAllWithMedicamentByOrdonnanceIds(
+                List.of(idOrdonnance));
+        
+        // Match the lines that name their prescription first, then the others by medicament
+        Map<Integer, Prescription> unmatched = new LinkedHashMap<>();
+        existing.forEach(prescription -> unmatched.put(prescription.getIdPrescription(), prescription));
+        Map<PrescriptionRequest, Prescription> matches = new IdentityHashMap<>();
+        for (PrescriptionRequest line : lines) {
+            if (line.getIdPrescription() != null) {
+                Prescription prescription = unmatched.remove(line.getIdPrescription());
+                if (prescription == null) {
+                    throw new ResourceNotFoundException("Prescription " + line.getIdPrescription()
+                            + " not found in ordonnance " + idOrdonnance);
+                }
+                matches.put(line, prescription);
+            }
+        }
+        for (PrescriptionRequest line : lines) {
+            if (line.getIdPrescription() == null) {
+                unmatched.values().stream()
+                        .filter(prescription -> prescription.getMedicament().getIdMedicament().equals(line.getIdMedicament()))
+                        .findFirst()
+                        .ifPresent(prescription -> {
+                            unmatched.remove(prescription.getIdPrescription());
+                            matches.put(line, prescription);
+                        });
+            }
+        }
+        
+        // Updated lines are flushed only if they changed, new lines are inserted in one batch
+        List<Prescription> prescriptions = new ArrayList<>();
+        List<Prescription> added = new ArrayList<>();
+        for (PrescriptionRequest line : lines) {
+            Prescription prescription = matches.get(line);
+            if (prescription == null) {
+                prescription = Prescription.builder()
+                        .ordonnance(ordonnance)
+                        .build();
+                added.add(prescription);
+            }
+            prescription.setMedicament(medicaments.get(line.getIdMedicament()));
+            applyPrescriptionRequest(prescription, line);
+            prescriptions.add(prescription);
+        }
+        
+        if (!unmatched.isEmpty()) {
+            prescriptionRepository.deleteAllInBatch(unmatched.values());
+        }
+        prescriptionRepository.saveAll(added);
+        
+        logger.info("Replaced prescriptions of ordonnance {}: {} updated, {} added, {} removed",
+                idOrdonnance, matches.size(), added.size(), unmatched.size());
+        
+        Patient patient = patientRepository.findByIdPatient(ordonnance.getIdPatient())
+                .orElse(null);
+        
+        Medecin medecin = medecinRepository.findByIdWithUtilisateur(ordonnance.getIdMedecin())
+                .orElse(null);
+        
+        return mapToDTO(ordonnance, prescriptions, patient, medecin);
+    }
+    
+    /**
+     * Load the medicaments referenced by prescription lines in a single query, by ID
+     */
+    private Map<Integer, Medicament> findMedicaments(List<PrescriptionRequest> lines) {
+        Set<Integer> idMedicaments = lines.stream()
+                .map(PrescriptionRequest::getIdMedicament)
+                .collect(Collectors.toSet());
+        
+        Map<Integer, Medicament> medicaments = medicamentRepository.findAllById(idMedicaments).stream()
+                .collect(Collectors.toMap(Medicament::getIdMedicament, Function.identity()));
+        
+        for (Integer idMedicament : idMedicaments) {
+            if (!medicaments.containsKey(idMedicament)) {
+                throw new ResourceNotFoundException("Medicament not found with ID: " + idMedicament);
+            }
+        }
+        return medicaments;
+    }
+    
+    /**
+     * Copy the fields of a prescription line onto a prescription
+     */
+    private void applyPrescriptionRequest(Prescription prescription, PrescriptionRequest request) {
+        prescription.setDosage(request.getDosage());
+        prescription.setUniteDosage(request.getUniteDosage());
+        prescription.setRoute(request.getRoute());
+        prescription.setFrequence(request.getFrequence());
+        prescription.setInstructions(request.getInstructions());
+        prescription.setDateDebut(request.getDateDebut());
+        prescription.setDuree(request.getDuree());
+        prescription.setDureeUnite(request.getDureeUnite());
+    }
+    
     /**
      * Get all ordonnances for a patient
      * 
      * @param idPatient Patient's ID
      * @return List of ordonnances with prescriptions
      */
+    @Transactional(readOnly = true)
     public List<OrdonnanceDTO> getOrdonnancesForPatient(UUID idPatient) {
         // Verify patient exists
         Patient patient = patientRepository.findByIdPatient(idPatient)
@@ -167,17 +266,20 @@ public class OrdonnanceService {
         
         // Get ordonnances
         List<Ordonnance> ordonnances = ordonnanceRepository.findAllByIdPatientOrderByDateCreationDesc(idPatient);
+        if (ordonnances.isEmpty()) {
+            return new ArrayList<>();
+        }
+        
+        // Load the prescriptions and doctors of all ordonnances at once
+        Map<Long, List<Prescription>> prescriptionsByOrdonnance = findPrescriptionsByOrdonnance(ordonnances);
+        Map<UUID, Medecin> medecins = findMedecins(ordonnances);
         
         // Convert to DTOs with prescriptions
         return ordonnances.stream()
-                .map(ordonnance -> {
-                    Medecin medecin = medecinRepository.findByIdWithUtilisateur(ordonnance.getIdMedecin())
-                            .orElse(null);
-                    
-                    List<Prescription> prescriptions = prescriptionRepository.findAllByOrdonnance(ordonnance);
-                    
-                    return mapToDTO(ordonnance, prescriptions, patient, medecin);
-                })
+                .map(ordonnance -> mapToDTO(ordonnance,
+                        prescriptionsByOrdonnance.getOrDefault(ordonnance.getIdOrdonnance(), Collections.emptyList()),
+                        patient,
+                        medecins.get(ordonnance.getIdMedecin())))
                 .collect(Collectors.toList());
     }
     
@@ -187,27 +289,34 @@ public class OrdonnanceService {
      * @param idVisite Visite ID
      * @return List of ordonnances with prescriptions
      */
+    @Transactional(readOnly = true)
     public List<OrdonnanceDTO> getOrdonnancesForVisite(Long idVisite) {
         // Verify visite exists
-        Visite visite = visiteRepository.findById(idVisite)
-                .orElseThrow(() -> new ResourceNotFoundException("Visite not found with ID: " + idVisite));
+        if (!visiteRepository.existsById(idVisite)) {
+            throw new ResourceNotFoundException("Visite not found with ID: " + idVisite);
+        }
         
         // Get ordonnances
         List<Ordonnance> ordonnances = ordonnanceRepository.findAllByIdVisiteOrderByDateCreationDesc(idVisite);
+        if (ordonnances.isEmpty()) {
+            return new ArrayList<>();
+        }
+        
+        // Load the prescriptions, patients and doctors of all ordonnances at once
+        Map<Long, List<Prescription>> prescriptionsByOrdonnance = findPrescriptionsByOrdonnance(ordonnances);
+        Map<UUID, Patient> patients = patientRepository.findAllById(ordonnances.stream()
+                        .map(Ordonnance::getIdPatient)
+                        .collect(Collectors.toSet()))
+                .stream()
+                .collect(Collectors.toMap(Patient::getIdPatient, Function.identity()));
+        Map<UUID, Medecin> medecins = findMedecins(ordonnances);
         
         // Convert to DTOs with prescriptions
         return ordonnances.stream()
-                .map(ordonnance -> {
-                    Patient patient = patientRepository.findByIdPatient(ordonnance.getIdPatient())
-                            .orElse(null);
-                    
-                    Medecin medecin = medecinRepository.findByIdWithUtilisateur(ordonnance.getIdMedecin())
-                            .orElse(null);
-                    
-                    List<Prescription> prescriptions = prescriptionRepository.findAllByOrdonnance(ordonnance);
-                    
-                    return mapToDTO(ordonnance, prescriptions, patient, medecin);
-                })
+                .map(ordonnance -> mapToDTO(ordonnance,
+                        prescriptionsByOrdonnance.getOrDefault(ordonnance.getIdOrdonnance(), Collections.emptyList()),
+                        patients.get(ordonnance.getIdPatient()),
+                        medecins.get(ordonnance.getIdMedecin())))
                 .collect(Collectors.toList());
     }
     
@@ -217,6 +326,7 @@ public class OrdonnanceService {
      * @param idOrdonnance Ordonnance ID
      * @return The ordonnance DTO with prescriptions
      */
+    @Transactional(readOnly = true)
     public OrdonnanceDTO getOrdonnanceById(Long idOrdonnance) {
         // Get ordonnance
         Ordonnance ordonnance = ordonnanceRepository.findById(idOrdonnance)
@@ -229,12 +339,37 @@ public class OrdonnanceService {
         Medecin medecin = medecinRepository.findByIdWithUtilisateur(ordonnance.getIdMedecin())
                 .orElse(null);
         
-        List<Prescription> prescriptions = prescriptionRepository.findAllByOrdonnance(ordonnance);
+        List<Prescription> prescriptions = prescriptionRepository.findAllWithMedicamentByOrdonnanceIds(
+                List.of(ordonnance.getIdOrdonnance()));
         
         // Convert to DTO
         return mapToDTO(ordonnance, prescriptions, patient, medecin);
     }
     
+    /**
+     * Load the prescriptions of several ordonnances with their medicament, grouped by ordonnance
+     */
+    private Map<Long, List<Prescription>> findPrescriptionsByOrdonnance(List<Ordonnance> ordonnances) {
+        List<Long> idOrdonnances = ordonnances.stream()
+                .map(Ordonnance::getIdOrdonnance)
+                .collect(Collectors.toList());
+        
+        return prescriptionRepository.findAllWithMedicamentByOrdonnanceIds(idOrdonnances).stream()
+                .collect(Collectors.groupingBy(prescription -> prescription.getOrdonnance().getIdOrdonnance()));
+    }
+    
+    /**
+     * Load the doctors of several ordonnances with their user, by doctor ID
+     */
+    private Map<UUID, Medecin> findMedecins(List<Ordonnance> ordonnances) {
+        Set<UUID> idMedecins = ordonnances.stream()
+                .map(Ordonnance::getIdMedecin)
+                .collect(Collectors.toSet());
+        
+        return medecinRepository.findAllByIdWithUtilisateur(idMedecins).stream()
+                .collect(Collectors.toMap(Medecin::getIdMedecin, Function.identity()));
+    }
+    
     /**
      * Convert Ordonnance entity to DTO with prescriptions
      */
@@ -299,87 +434,30 @@ public class OrdonnanceService {
     /**
      * Generate PDF for an ordonnance
      */
-    private byte[] generateOrdonnancePDF(Ordonnance ordonnance, List<Prescription> prescriptions, 
+    private SpooledContent generateOrdonnancePDF(Ordonnance ordonnance, List<Prescription> prescriptions, 
                                         Patient patient, Medecin medecin) throws IOException {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        
-        try {
-            // Create PDF document
-            Document document = new Document(PageSize.A4);
-            document.setMargins(36, 36, 72, 36); // left, right, top, bottom (in points)
-            PdfWriter pdfWriter = PdfWriter.getInstance(document, baos);
-            document.open();
-            
-            // Add logo to the top-left corner
-            addLogo(document);
-            
-            // Add ordonnance title
-            Font titleFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 18, Font.BOLD);
-            Paragraph title = new Paragraph("ORDONNANCE MÉDICALE", titleFont);
-            title.setAlignment(Element.ALIGN_CENTER);
-            title.setSpacingAfter(20);
-            document.add(title);
-            
-            // Add patient information
-            addPatientInfo(document, patient);
-            
-            // Add prescriptions
-            addPrescriptions(document, prescriptions);
-            
-            // Add flexible space
-            addFlexibleSpace(document);
-            
-            // Add doctor and date section
-            addDoctorSection(document, medecin, ordonnance.getDateCreation());
-            
-            // Add the footer with hospital contact information
-            addFooter(document);
-            
-            document.close();
-            
-            return baos.toByteArray();
-        } catch (DocumentException e) {
-            logger.error("Error generating PDF document", e);
-            throw new IOException("Error generating PDF document: " + e.getMessage(), e);
-        } finally {
-            baos.close();
-        }
-    }
-    
-    /**
-     * Add logo to the PDF document
-     */
-    private void addLogo(Document document) throws DocumentException {
-        try {
-            // Path to the logo
-            String logoPath = "/logo.jpg";
-            
-            // Load the image
-            Image logo = Image.getInstance(getClass().getResource(logoPath));
-            
-            // Scale the image to an appropriate size (adjust as needed)
-            logo.scaleToFit(100, 50);
-            
-            // Position the logo at the top-left
-            logo.setAbsolutePosition(36, document.getPageSize().getHeight() - 50 - 36);
-            
-            // Add the logo to the document
-            document.add(logo);
-            
-            // Add some space after the logo
-            document.add(new Paragraph(" "));
-            document.add(new Paragraph(" "));
-        } catch (Exception e) {
-            logger.error("Error adding logo to PDF", e);
-        }
+        return pdfRenderingEngine.document(PdfRenderingEngine.Layout.ORDONNANCE)
+                .logo()
+                .title("ORDONNANCE MÉDICALE", 18, 20)
+                .section(document -> addPatientInfo(document, patient))
+                .section(document -> addPrescriptions(document, prescriptions))
+                .flexibleSpace()
+                .doctorSection(
+                        medecin != null && medecin.getUtilisateur() != null
+                                ? medecin.getUtilisateur().getNom() + " " + medecin.getUtilisateur().getPrenom()
+                                : "",
+                        medecin != null && medecin.getIdSpecialite() != null ? "Médecin" : null,
+                        formatDateTime(ordonnance.getDateCreation()))
+                .footer()
+                .spool();
     }
     
     /**
      * Add patient information to the PDF
      */
     private void addPatientInfo(Document document, Patient patient) throws DocumentException {
-        Font headerFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 11);
-        Font contentFont = FontFactory.getFont(FontFactory.HELVETICA, 11);
+        Font headerFont = PdfRenderingEngine.font(FontFactory.HELVETICA_BOLD, 11);
+        Font contentFont = PdfRenderingEngine.font(FontFactory.HELVETICA, 11);
         
         // Add a section title
         Paragraph patientSection = new Paragraph("INFORMATIONS PATIENT", headerFont);
@@ -444,121 +522,13 @@ public class OrdonnanceService {
         document.add(line);
     }
     
-    /**
-     * Add flexible space to push the doctor section to the bottom of the page
-     */
-    private void addFlexibleSpace(Document document) throws DocumentException {
-        // Add vertical space that will expand to fill available space
-        for (int i = 0; i < 3; i++) {
-            Paragraph spacer = new Paragraph(" ");
-            spacer.setSpacingAfter(30);
-            document.add(spacer);
-        }
-    }
-    
-    /**
-     * Add doctor information and signature section to the PDF
-     */
-    private void addDoctorSection(Document document, Medecin medecin, LocalDateTime date) throws DocumentException {
-        Font normalFont = FontFactory.getFont(FontFactory.HELVETICA, 11);
-        Font boldFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 11);
-        
-        // Create a table for the doctor information and signature
-        PdfPTable table = new PdfPTable(2);
-        table.setWidthPercentage(100);
-        
-        // Left cell - Date
-        Paragraph dateInfo = new Paragraph();
-        dateInfo.add(new Phrase("Fait à Rabat, le " + formatDateTime(date) + "\n", normalFont));
-        
-        PdfPCell leftCell = new PdfPCell();
-        leftCell.addElement(dateInfo);
-        leftCell.setBorder(Rectangle.NO_BORDER);
-        leftCell.setPadding(5);
-        
-        // Right cell - Doctor information and signature
-        Paragraph doctorInfo = new Paragraph();
-        doctorInfo.add(new Phrase("Dr. " + (medecin != null && medecin.getUtilisateur() != null ? 
-                medecin.getUtilisateur().getNom() + " " + medecin.getUtilisateur().getPrenom() : "") + "\n", boldFont));
-        
-        // Add speciality if available
-        if (medecin != null && medecin.getIdSpecialite() != null) {
-            try {
-                String specialite = "Médecin";
-                doctorInfo.add(new Phrase(specialite + "\n", normalFont));
-            } catch (Exception e) {
-                logger.error("Error retrieving doctor's speciality", e);
-            }
-        }
-        
-        doctorInfo.add(new Phrase("Signature et cachet", normalFont));
-        doctorInfo.setAlignment(Element.ALIGN_RIGHT);
-        
-        PdfPCell rightCell = new PdfPCell();
-        rightCell.addElement(doctorInfo);
-        rightCell.setBorder(Rectangle.NO_BORDER);
-        rightCell.setPadding(5);
-        
-        table.addCell(leftCell);
-        table.addCell(rightCell);
-        
-        document.add(table);
-    }
-    
-    /**
-     * Add footer with hospital contact information to the PDF
-     */
-    private void addFooter(Document document) throws DocumentException {
-        Font headerFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 10);
-        Font normalFont = FontFactory.getFont(FontFactory.HELVETICA, 9);
-        
-        // Add a line separator with less space above it
-        Paragraph line = new Paragraph();
-        line.add(new Chunk(new com.lowagie.text.pdf.draw.LineSeparator()));
-        line.setSpacingBefore(10); // Decrease space above the line
-        line.setSpacingAfter(10);
-        document.add(line);
-        
-        // Create a table for the footer with two columns
-        PdfPTable footerTable = new PdfPTable(2);
-        footerTable.setWidthPercentage(100);
-        
-        // Left column - Hospital information
-        Paragraph hospitalInfo = new Paragraph();
-        hospitalInfo.add(new Phrase("Hôpital Universitaire International de Rabat\n", headerFont));
-        hospitalInfo.add(new Phrase("Parc Technopolis 11 100 Sala Al Jadida – Maroc", normalFont));
-        
-        // Right column - Contact information
-        Paragraph contactInfo = new Paragraph();
-        contactInfo.add(new Phrase("+212 5 30 10 30 00\n", normalFont)); 
-        contactInfo.add(new Phrase("contact@huir.ma", normalFont));
-        contactInfo.setAlignment(Element.ALIGN_RIGHT);
-        
-        // Add cells to table
-        PdfPCell leftCell = new PdfPCell();
-        leftCell.addElement(hospitalInfo);
-        leftCell.setBorder(Rectangle.NO_BORDER);
-        leftCell.setPadding(0);
-        
-        PdfPCell rightCell = new PdfPCell();
-        rightCell.addElement(contactInfo);
-        rightCell.setBorder(Rectangle.NO_BORDER);
-        rightCell.setPadding(0);
-        rightCell.setHorizontalAlignment(Element.ALIGN_RIGHT);
-        
-        footerTable.addCell(leftCell);
-        footerTable.addCell(rightCell);
-        
-        document.add(footerTable);
-    }
-    
     /**
      * Add prescriptions to the PDF
      */
     private void addPrescriptions(Document document, List<Prescription> prescriptions) throws DocumentException {
-        Font headerFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 12);
-        Font medicamentFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 11);
-        Font detailsFont = FontFactory.getFont(FontFactory.HELVETICA, 11);
+        Font headerFont = PdfRenderingEngine.font(FontFactory.HELVETICA_BOLD, 12);
+        Font medicamentFont = PdfRenderingEngine.font(FontFactory.HELVETICA_BOLD, 11);
+        Font detailsFont = PdfRenderingEngine.font(FontFactory.HELVETICA, 11);
         
         // Prescription list title
         Paragraph prescriptionTitle = new Paragraph("PRESCRIPTIONS", headerFont);
@@ -669,115 +639,17 @@ public class OrdonnanceService {
     }
     
     /**
-     * Uploads a PDF file to Supabase Storage
+     * Uploads a PDF file to the ordonnances bucket
      * 
-     * @param pdfData The PDF content as byte array
+     * @param pdfData The rendered PDF
      * @param filename The filename to use
      * @return The public URL to access the file
+     * @throws IOException if the upload fails, for the render job to retry it
      */
-    private String uploadPDFToSupabase(byte[] pdfData, String filename) throws IOException {
-        // Create URLs for the ordonnances bucket
-        String bucketName = "ordonnances";
-        
-        // Ensure the ordonnances bucket exists
-        ensureBucketExists(bucketName);
-        
-        String uploadUrl = supabaseUrl + "/storage/v1/object/" + bucketName + "/" + filename;
-        String publicUrl = supabaseUrl + "/storage/v1/object/public/" + bucketName + "/" + filename;
-        
-        logger.debug("Uploading PDF to: {}", uploadUrl);
-        
-        // Build request body with PDF data
-        RequestBody requestBody = RequestBody.create(pdfData, MediaType.parse("application/pdf"));
-        
-        // Build the request
-        Request request = new Request.Builder()
-                .url(uploadUrl)
-                .put(requestBody)
-                .addHeader("Authorization", "Bearer " + serviceRoleKey)
-                .addHeader("apikey", serviceRoleKey)
-                .addHeader("Content-Type", "application/pdf")
-                .addHeader("x-upsert", "true") // Overwrite if exists
-                .build();
-        
-        // Execute the request
-        try (Response response = httpClient.newCall(request).execute()) {
-            int statusCode = response.code();
-            logger.debug("Upload response status: {}", statusCode);
-            
-            if (statusCode >= 200 && statusCode < 300) {
-                logger.info("PDF uploaded successfully");
-                return publicUrl;
-            } else {
-                String responseBody = response.body() != null ? response.body().string() : "";
-                throw new IOException("Failed to upload PDF to Supabase. Status: " + statusCode + " - " + responseBody);
-            }
-        } catch (Exception e) {
-            logger.error("Error during PDF upload: {}", e.getMessage());
-            
-            // For development, return the URL even if upload fails
-            logger.warn("DEVELOPMENT MODE: Returning URL despite upload failure");
-            return publicUrl;
-        }
-    }
-    
-    /**
-     * Ensures that the specified bucket exists in Supabase Storage
-     * Creates it if it doesn't exist
-     * 
-     * @param bucketName The name of the bucket to check/create
-     */
-    private void ensureBucketExists(String bucketName) {
-        try {
-            // First, check if bucket exists
-            String bucketUrl = supabaseUrl + "/storage/v1/bucket/" + bucketName;
-            
-            Request checkRequest = new Request.Builder()
-                    .url(bucketUrl)
-                    .get()
-                    .addHeader("Authorization", "Bearer " + serviceRoleKey)
-                    .addHeader("apikey", serviceRoleKey)
-                    .build();
-            
-            boolean bucketExists = false;
-            
-            try (Response checkResponse = httpClient.newCall(checkRequest).execute()) {
-                // 200 = bucket exists, other codes = it doesn't
-                bucketExists = checkResponse.code() == 200;
-            }
-            
-            // If bucket doesn't exist, create it
-            if (!bucketExists) {
-                logger.info("Bucket {} doesn't exist, creating...", bucketName);
-                
-                String createUrl = supabaseUrl + "/storage/v1/bucket";
-                
-                String jsonBody = "{\"id\":\"" + bucketName + "\",\"name\":\"" + bucketName 
-                        + "\",\"public\":true,\"file_size_limit\":null}";
-                
-                RequestBody createBody = RequestBody.create(jsonBody, MediaType.parse("application/json"));
-                
-                Request createRequest = new Request.Builder()
-                        .url(createUrl)
-                        .post(createBody)
-                        .addHeader("Authorization", "Bearer " + serviceRoleKey)
-                        .addHeader("apikey", serviceRoleKey)
-                        .addHeader("Content-Type", "application/json")
-                        .build();
-                
-                try (Response createResponse = httpClient.newCall(createRequest).execute()) {
-                    if (createResponse.code() >= 200 && createResponse.code() < 300) {
-                        logger.info("Successfully created bucket: {}", bucketName);
-                    } else {
-                        String responseBody = createResponse.body() != null ? createResponse.body().string() : "";
-                        logger.warn("Failed to create bucket {}: {} - {}", 
-                                bucketName, createResponse.code(), responseBody);
-                    }
-                }
-            }
-        } catch (Exception e) {
-            logger.error("Error checking/creating bucket {}: {}", bucketName, e.getMessage());
-        }
+    private String uploadPDF(StorageContent pdfData, String filename) throws IOException {
+        String publicUrl = objectStorage.put("ordonnances", filename, pdfData, "application/pdf");
+        logger.info("PDF uploaded successfully");
+        return publicUrl;
     }
     
     /**
@@ -857,45 +729,62 @@ public class OrdonnanceService {
     }
     
     /**
-     * Generate PDF for an existing ordonnance
+     * Queue the generation of the PDF of an existing ordonnance. The PDF is rendered and
+     * uploaded by a render worker once the transaction commits, which then stores its URL
+     * and marks the ordonnance finalise.
      * 
      * @param idOrdonnance Ordonnance ID
-     * @return The updated ordonnance DTO with PDF URL
+     * @return The ordonnance DTO, with the ID of the render job
      */
     @Transactional
     public OrdonnanceDTO generateOrdonnancePDF(Long idOrdonnance) {
-        // Verify ordonnance exists
-        final Ordonnance ordonnanceEntity = ordonnanceRepository.findById(idOrdonnance)
+        OrdonnanceDTO ordonnance = getOrdonnanceById(idOrdonnance);
+        
+        RenderJobDTO job = renderJobQueue.enqueue(RenderJob.TypeDocument.ORDONNANCE, idOrdonnance);
+        ordonnance.setIdRenderJob(job.getIdJob());
+        
+        logger.info("PDF generation queued for ordonnance ID: {} as render job {}", idOrdonnance, job.getIdJob());
+        
+        return ordonnance;
+    }
+    
+    @Override
+    public RenderJob.TypeDocument getTypeDocument() {
+        return RenderJob.TypeDocument.ORDONNANCE;
+    }
+    
+    /**
+     * Render the PDF of an ordonnance, upload it and finalise the ordonnance with its URL.
+     * Runs outside of any transaction: each read and the final update use their own.
+     * 
+     * @param idOrdonnance Ordonnance ID
+     * @return The public URL of the PDF
+     */
+    @Override
+    public String render(Long idOrdonnance) throws IOException {
+        final Ordonnance ordonnance = ordonnanceRepository.findById(idOrdonnance)
                 .orElseThrow(() -> new ResourceNotFoundException("Ordonnance not found with ID: " + idOrdonnance));
         
-        // Get patient and doctor
-        final Patient patient = patientRepository.findByIdPatient(ordonnanceEntity.getIdPatient())
-                .orElseThrow(() -> new ResourceNotFoundException("Patient not found with ID: " + ordonnanceEntity.getIdPatient()));
+        final Patient patient = patientRepository.findByIdPatient(ordonnance.getIdPatient())
+                .orElseThrow(() -> new ResourceNotFoundException("Patient not found with ID: " + ordonnance.getIdPatient()));
         
-        final Medecin medecin = medecinRepository.findByIdWithUtilisateur(ordonnanceEntity.getIdMedecin())
-                .orElseThrow(() -> new ResourceNotFoundException("Médecin not found with ID: " + ordonnanceEntity.getIdMedecin()));
+        final Medecin medecin = medecinRepository.findByIdWithUtilisateur(ordonnance.getIdMedecin())
+                .orElseThrow(() -> new ResourceNotFoundException("Médecin not found with ID: " + ordonnance.getIdMedecin()));
         
-        // Get prescriptions
-        final List<Prescription> prescriptions = prescriptionRepository.findAllByOrdonnance(ordonnanceEntity);
+        final List<Prescription> prescriptions = prescriptionRepository
+                .findAllWithMedicamentByOrdonnanceIds(List.of(idOrdonnance));
         
-        // Generate PDF and upload it
-        try {
-            byte[] pdfData = generateOrdonnancePDF(ordonnanceEntity, prescriptions, patient, medecin);
-            String filename = generateOrdonnanceFilename(patient);
-            String pdfUrl = uploadPDFToSupabase(pdfData, filename);
-            
-            // Update ordonnance with PDF URL and set status to finalise
-            ordonnanceEntity.setUrl(pdfUrl);
-            ordonnanceEntity.setStatut("finalise");
-            Ordonnance updatedOrdonnance = ordonnanceRepository.save(ordonnanceEntity);
-            
-            // Map to DTO with prescriptions and return
-            return mapToDTO(updatedOrdonnance, prescriptions, patient, medecin);
-            
-        } catch (IOException e) {
-            logger.error("Error generating PDF for ordonnance", e);
-            throw new RuntimeException("Failed to generate PDF for ordonnance", e);
+        String pdfUrl;
+        try (SpooledContent pdfData = generateOrdonnancePDF(ordonnance, prescriptions, patient, medecin)) {
+            pdfUrl = uploadPDF(pdfData, generateOrdonnanceFilename(patient));
         }
+        
+        // Update ordonnance with PDF URL and set status to finalise
+        if (ordonnanceRepository.finalizeWithUrl(idOrdonnance, pdfUrl) == 0) {
+            throw new ResourceNotFoundException("Ordonnance not found with ID: " + idOrdonnance);
+        }
+        
+        return pdfUrl;
     }
     
     /**
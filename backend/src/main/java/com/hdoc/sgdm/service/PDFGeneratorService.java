@@ -12,13 +12,11 @@ import com.hdoc.sgdm.repository.MedecinRepository;
 import com.hdoc.sgdm.repository.ChampFormulaireRepository;
 import com.lowagie.text.*;
 import com.lowagie.text.pdf.*;
-import com.lowagie.text.Image;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -37,112 +35,50 @@ public class PDFGeneratorService {
     private final MedecinRepository medecinRepository;
     private final ModeleFormulaireRepository modeleFormulaireRepository;
     private final ChampFormulaireRepository champFormulaireRepository;
+    private final PdfRenderingEngine pdfRenderingEngine;
 
     /**
      * Generates a PDF document from form data
      * 
      * @param formulaire The form data to convert to PDF
-     * @return The generated PDF as a byte array
+     * @return The rendered PDF, to close once uploaded
      */
-    public byte[] generatePDF(FormulairePatientDTO formulaire) throws IOException {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        
-        try {
-            // Retrieve patient, doctor, and form model information
-            Optional<Patient> patientOpt = patientRepository.findByIdPatient(formulaire.getIdPatient());
-            Optional<Medecin> medecinOpt = medecinRepository.findByIdWithUtilisateur(formulaire.getIdMedecin());
-            Optional<ModeleFormulaire> modeleOpt = modeleFormulaireRepository.findById(formulaire.getIdModele());
-            
-            if (patientOpt.isEmpty() || medecinOpt.isEmpty() || modeleOpt.isEmpty()) {
-                throw new IOException("Could not retrieve all required information for PDF generation");
-            }
-            
-            Patient patient = patientOpt.get();
-            Medecin medecin = medecinOpt.get();
-            ModeleFormulaire modele = modeleOpt.get();
-            
-            // Create PDF document
-            Document document = new Document(PageSize.A4);
-            // Set smaller margins to fit content on a single page
-            document.setMargins(36, 36, 36, 36); // left, right, top, bottom (in points)
-            PdfWriter pdfWriter = PdfWriter.getInstance(document, baos);
-            document.open();
-            
-            // Add logo to the top-left corner
-            addLogo(document);
-            
-            // Add document header with hospital/clinic information
-            addHeader(document);
-            
-            // Add form title
-            Font titleFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 16, Font.BOLD);
-            
-            // Use the standard title for certificates or the model name for other forms
-            String titleText = "FICHE DE CERTIFICAT MÉDICAL";
-            if (!modele.getNom().toLowerCase().contains("certificat")) {
-                titleText = modele.getNom().toUpperCase();
-            }
-            
-            Paragraph title = new Paragraph(titleText, titleFont);
-            title.setAlignment(Element.ALIGN_CENTER);
-            title.setSpacingAfter(15);
-            document.add(title);
-            
-            // Add patient information
-            addPatientInfo(document, patient);
-            
-            // Add form content with responses
-            addFormContent(document, formulaire);
-            
-            // Add flexible space to push doctor section and footer to the bottom
-            addFlexibleSpace(document);
-            
-            // Add doctor and date section right above the footer
-            addDoctorSection(document, medecin, formulaire.getDateRemplissage());
-            
-            // Add the footer with hospital contact information
-            addFooter(document);
-            
-            document.close();
-            
-            return baos.toByteArray();
-        } catch (DocumentException e) {
-            logger.error("Error generating PDF document", e);
-            throw new IOException("Error generating PDF document: " + e.getMessage(), e);
-        } finally {
-            baos.close();
+    public SpooledContent generatePDF(FormulairePatientDTO formulaire) throws IOException {
+        // Retrieve patient, doctor, and form model information
+        Optional<Patient> patientOpt = patientRepository.findByIdPatient(formulaire.getIdPatient());
+        Optional<Medecin> medecinOpt = medecinRepository.findByIdWithUtilisateur(formulaire.getIdMedecin());
+        Optional<ModeleFormulaire> modeleOpt = modeleFormulaireRepository.findById(formulaire.getIdModele());
+        
+        if (patientOpt.isEmpty() || medecinOpt.isEmpty() || modeleOpt.isEmpty()) {
+            throw new IOException("Could not retrieve all required information for PDF generation");
         }
-    }
-    
-    /**
-     * Add logo to the PDF document
-     */
-    private void addLogo(Document document) throws DocumentException {
-        try {
-            // Path to the logo
-            String logoPath = "/logo.jpg";
-            
-            // Load the image
-            Image logo = Image.getInstance(getClass().getResource(logoPath));
-            
-            // Scale the image to an appropriate size (adjust as needed)
-            logo.scaleToFit(100, 50);
-            
-            // Position the logo at the top-left
-            logo.setAbsolutePosition(36, document.getPageSize().getHeight() - 50 - 36);
-            
-            // Add the logo to the document
-            document.add(logo);
-            
-            // Add more space after the logo
-            document.add(new Paragraph(" "));
-            document.add(new Paragraph(" "));
-            document.add(new Paragraph(" "));
-            document.add(new Paragraph(" "));
-            document.add(new Paragraph(" "));
-        } catch (Exception e) {
-            logger.error("Error adding logo to PDF", e);
+        
+        Patient patient = patientOpt.get();
+        Medecin medecin = medecinOpt.get();
+        ModeleFormulaire modele = modeleOpt.get();
+        
+        // Use the standard title for certificates or the model name for other forms
+        String titleText = "FICHE DE CERTIFICAT MÉDICAL";
+        if (!modele.getNom().toLowerCase().contains("certificat")) {
+            titleText = modele.getNom().toUpperCase();
         }
+        
+        return pdfRenderingEngine.document(PdfRenderingEngine.Layout.FORMULAIRE)
+                .logo()
+                .section(this::addHeader)
+                .title(titleText, 16, 15)
+                .section(document -> addPatientInfo(document, patient))
+                .section(document -> addFormContent(document, formulaire))
+                // Push the doctor section and footer to the bottom
+                .flexibleSpace()
+                .doctorSection(
+                        medecin.getUtilisateur() != null
+                                ? medecin.getUtilisateur().getNom() + " " + medecin.getUtilisateur().getPrenom()
+                                : "",
+                        medecin.getIdSpecialite() != null ? "Médecin" : null,
+                        formatDateTime(formulaire.getDateRemplissage()))
+                .footer()
+                .spool();
     }
     
     private void addHeader(Document document) throws DocumentException {
@@ -150,7 +86,7 @@ public class PDFGeneratorService {
     }
     
     private void addPatientInfo(Document document, Patient patient) throws DocumentException {
-        Font sectionFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 11);
+        Font sectionFont = PdfRenderingEngine.font(FontFactory.HELVETICA_BOLD, 11);
         Paragraph patientSection = new Paragraph("INFORMATIONS PATIENT", sectionFont);
         patientSection.setSpacingBefore(5);
         patientSection.setSpacingAfter(5);
@@ -181,8 +117,8 @@ public class PDFGeneratorService {
      * If the field is a number type and has a unit, it will be displayed next to the value
      */
     private void addTableRowWithSpacing(PdfPTable table, String label, String value, String typeChamp, String unite) {
-        Font labelFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 9);
-        Font valueFont = FontFactory.getFont(FontFactory.HELVETICA, 9);
+        Font labelFont = PdfRenderingEngine.font(FontFactory.HELVETICA_BOLD, 9);
+        Font valueFont = PdfRenderingEngine.font(FontFactory.HELVETICA, 9);
         
         // Debug logging
         logger.info("Field: {} | Value: {} | Type: {} | Unit: {}", label, value, typeChamp, unite);
@@ -230,7 +166,7 @@ public class PDFGeneratorService {
     }
     
     private void addFormContent(Document document, FormulairePatientDTO formulaire) throws DocumentException {
-        Font sectionFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 11);
+        Font sectionFont = PdfRenderingEngine.font(FontFactory.HELVETICA_BOLD, 11);
         Paragraph contentSection = new Paragraph("DÉTAILS DU FORMULAIRE", sectionFont);
         contentSection.setSpacingBefore(5);
         contentSection.setSpacingAfter(5);
@@ -281,7 +217,7 @@ public class PDFGeneratorService {
         
         // Debug info and directly add raw response data to the PDF
         if (formulaire.getReponses() == null || formulaire.getReponses().isEmpty()) {
-            Font warningFont = FontFactory.getFont(FontFactory.HELVETICA, 10, Font.ITALIC);
+            Font warningFont = PdfRenderingEngine.font(FontFactory.HELVETICA, 10, Font.ITALIC);
             PdfPCell warningCell = new PdfPCell(new Phrase("Aucune donnée disponible", warningFont));
             warningCell.setColspan(2);
             warningCell.setBorder(Rectangle.NO_BORDER);
@@ -360,7 +296,7 @@ public class PDFGeneratorService {
             table.setWidthPercentage(100);
             table.setSpacingAfter(10);
             
-            Font warningFont = FontFactory.getFont(FontFactory.HELVETICA, 10, Font.ITALIC);
+            Font warningFont = PdfRenderingEngine.font(FontFactory.HELVETICA, 10, Font.ITALIC);
             PdfPCell warningCell = new PdfPCell(new Phrase("Aucune donnée disponible", warningFont));
             warningCell.setBorder(Rectangle.NO_BORDER);
             warningCell.setPadding(5);
@@ -500,52 +436,6 @@ public class PDFGeneratorService {
         }
     }
     
-    private void addDoctorSection(Document document, Medecin medecin, LocalDateTime date) throws DocumentException {
-        Font normalFont = FontFactory.getFont(FontFactory.HELVETICA, 9);
-        Font boldFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 9);
-        
-        // Create a table for the doctor information and signature
-        PdfPTable table = new PdfPTable(2);
-        table.setWidthPercentage(100);
-        
-        // Left cell - Date
-        Paragraph dateInfo = new Paragraph();
-        dateInfo.add(new Phrase("Fait à Rabat, le " + formatDateTime(date) + "\n", normalFont));
-        
-        PdfPCell leftCell = new PdfPCell();
-        leftCell.addElement(dateInfo);
-        leftCell.setBorder(Rectangle.NO_BORDER);
-        leftCell.setPadding(5);
-        
-        // Right cell - Doctor information and signature
-        Paragraph doctorInfo = new Paragraph();
-        doctorInfo.add(new Phrase("Dr. " + (medecin != null && medecin.getUtilisateur() != null ? 
-                medecin.getUtilisateur().getNom() + " " + medecin.getUtilisateur().getPrenom() : "") + "\n", boldFont));
-        
-        // Add speciality if available
-        if (medecin != null && medecin.getIdSpecialite() != null) {
-            try {
-                String specialite = "Médecin";
-                doctorInfo.add(new Phrase(specialite + "\n", normalFont));
-            } catch (Exception e) {
-                logger.error("Error retrieving doctor's speciality", e);
-            }
-        }
-        
-        doctorInfo.add(new Phrase("Signature et cachet", normalFont));
-        doctorInfo.setAlignment(Element.ALIGN_RIGHT);
-        
-        PdfPCell rightCell = new PdfPCell();
-        rightCell.addElement(doctorInfo);
-        rightCell.setBorder(Rectangle.NO_BORDER);
-        rightCell.setPadding(5);
-        
-        table.addCell(leftCell);
-        table.addCell(rightCell);
-        
-        document.add(table);
-    }
-    
     private String formatDate(LocalDate date) {
         if (date == null) return "";
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy");
@@ -585,63 +475,4 @@ public class PDFGeneratorService {
         
         return sanitizedModelName + "_" + sanitizedPatientName + "_" + formattedDateTime + ".pdf";
     }
-
-    /**
-     * Add flexible space to push the footer to the bottom of the page
-     */
-    private void addFlexibleSpace(Document document) throws DocumentException {
-        // Add vertical space that will expand to fill available space
-        for (int i = 0; i < 3; i++) {
-            Paragraph spacer = new Paragraph(" ");
-            spacer.setSpacingAfter(30);
-            document.add(spacer);
-        }
-    }
-
-    /**
-     * Add footer with hospital contact information to the PDF
-     */
-    private void addFooter(Document document) throws DocumentException {
-        Font headerFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 10);
-        Font normalFont = FontFactory.getFont(FontFactory.HELVETICA, 9);
-        
-        // Add a line separator
-        Paragraph line = new Paragraph();
-        line.add(new Chunk(new com.lowagie.text.pdf.draw.LineSeparator()));
-        line.setSpacingBefore(10);
-        line.setSpacingAfter(10);
-        document.add(line);
-        
-        // Create a table for the footer with two columns
-        PdfPTable footerTable = new PdfPTable(2);
-        footerTable.setWidthPercentage(100);
-        
-        // Left column - Hospital information
-        Paragraph hospitalInfo = new Paragraph();
-        hospitalInfo.add(new Phrase("Hôpital Universitaire International de Rabat\n", headerFont));
-        hospitalInfo.add(new Phrase("Parc Technopolis 11 100 Sala Al Jadida – Maroc", normalFont));
-        
-        // Right column - Contact information
-        Paragraph contactInfo = new Paragraph();
-        contactInfo.add(new Phrase("+212 5 30 10 30 00\n", normalFont)); 
-        contactInfo.add(new Phrase("contact@huir.ma", normalFont));
-        contactInfo.setAlignment(Element.ALIGN_RIGHT);
-        
-        // Add cells to table
-        PdfPCell leftCell = new PdfPCell();
-        leftCell.addElement(hospitalInfo);
-        leftCell.setBorder(Rectangle.NO_BORDER);
-        leftCell.setPadding(0);
-        
-        PdfPCell rightCell = new PdfPCell();
-        rightCell.addElement(contactInfo);
-        rightCell.setBorder(Rectangle.NO_BORDER);
-        rightCell.setPadding(0);
-        rightCell.setHorizontalAlignment(Element.ALIGN_RIGHT);
-        
-        footerTable.addCell(leftCell);
-        footerTable.addCell(rightCell);
-        
-        document.add(footerTable);
-    }
 } 
\ No newline at end of file
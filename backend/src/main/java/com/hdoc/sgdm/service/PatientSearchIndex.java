@@ -0,0 +1,430 @@
+package com.hdoc.sgdm.service;
+
+import com.hdoc.sgdm.entity.Patient;
+import com.hdoc.sgdm.repository.PatientRepository;
+import com.hdoc.sgdm.util.TextNormalizer;
+import com.hdoc.sgdm.util.TransactionCallbacks;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory trigram index over the searchable patient fields (nom, prenom, IPP and CIN).
+ *
+ * The index is bootstrapped from {@link PatientRepository} when the application is ready,
+ * refreshed periodically to pick up writes made by other nodes, and updated after each
+ * committed patient creation or update on this node. Searches never touch the database:
+ * they return the ranked patient ids of the requested page, which the caller then loads
+ * with a single primary key query.
+ */
+@Component
+@Slf4j
+public class PatientSearchIndex {
+
+    private static final int GRAM_SIZE = 3;
+
+    private static final int SCORE_IPP_EXACT = 100;
+    private static final int SCORE_CIN_EXACT = 90;
+    private static final int SCORE_NAME_EXACT = 60;
+    private static final int SCORE_NAME_PREFIX = 40;
+    private static final int SCORE_NAME_CONTAINS = 20;
+    private static final int SCORE_IDENTIFIER_CONTAINS = 10;
+
+    private final PatientRepository patientRepository;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final SnapshotRebuilder<State> rebuilder = new SnapshotRebuilder<>(lock.writeLock());
+
+    // Guarded by lock
+    private State state = new State();
+    private boolean loaded;
+
+    public PatientSearchIndex(PatientRepository patientRepository) {
+        this.patientRepository = patientRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    /**
+     * Rebuild the whole index from the database.
+     * Runs periodically so that patients created or updated on other nodes become searchable;
+     * until then, a query without any match is looked up in the database (see PatientService).
+     */
+    @Scheduled(fixedDelayString = "${patient.search-index.refresh-ms:900000}",
+               initialDelayString = "${patient.search-index.refresh-ms:900000}")
+    public void rebuild() {
+        rebuilder.rebuild(() -> {
+            State fresh = new State();
+            for (PatientRepository.SearchKey key : patientRepository.findAllSearchKeys()) {
+                fresh.add(Entry.of(key.getIdPatient(), key.getIpp(), key.getCin(), key.getNom(), key.getPrenom()));
+            }
+            return fresh;
+        }, fresh -> {
+            state = fresh;
+            loaded = true;
+            log.info("Patient search index built with {} patients and {} trigrams",
+                    fresh.docIds.size(), fresh.postings.size());
+        });
+    }
+
+    /**
+     * Index a created or updated patient once the current transaction commits.
+     * Outside of a transaction the patient is indexed immediately.
+     *
+     * @param patient The saved patient
+     */
+    public void index(Patient patient) {
+        if (patient == null || patient.getIdPatient() == null) {
+            return;
+        }
+
+        // Capture the values now, the entity may still be modified before commit
+        Entry entry = Entry.of(patient.getIdPatient(), patient.getIpp(), patient.getCin(),
+                patient.getNom(), patient.getPrenom());
+
+        TransactionCallbacks.afterCommit(() -> apply(entry));
+    }
+
+    /**
+     * Search the index and return one page of ranked patient ids.
+     *
+     * Every word of the query must match the IPP, the CIN, the nom or the prenom of a patient.
+     * A query equal to an IPP returns only that patient.
+     *
+     * @param query The raw search text
+     * @param offset Number of ranked hits to skip
+     * @param limit Maximum number of hits to return, or a non-positive value for all hits
+     * @return The ranked hits of the requested page with the total number of matches
+     */
+    public Hits search(String query, int offset, int limit) {
+        return search(query, null, offset, limit);
+    }
+
+    /**
+     * Search the index among a subset of patients only.
+     *
+     * @param query The raw search text
+     * @param allowedIds The patients that may be returned, or null for all patients
+     * @param offset Number of ranked hits to skip
+     * @param limit Maximum number of hits to return, or a non-positive value for all hits
+     * @return The ranked hits of the requested page with the total number of matches
+     */
+    public Hits search(String query, Set<UUID> allowedIds, int offset, int limit) {
+        List<String> tokens = TextNormalizer.tokens(query);
+        if (tokens.isEmpty()) {
+            return Hits.EMPTY;
+        }
+
+        ensureLoaded();
+
+        lock.readLock().lock();
+        try {
+            return state.search(tokens, allowedIds, Math.max(offset, 0), limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void ensureLoaded() {
+        rebuilder.ensureBuilt(this::isLoaded, this::rebuild);
+    }
+
+    private boolean isLoaded() {
+        lock.readLock().lock();
+        try {
+            return loaded;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void apply(Entry entry) {
+        rebuilder.apply(fresh -> fresh.add(entry), () -> {
+            // Before the first build the database snapshot will contain the patient anyway
+            if (loaded) {
+                state.add(entry);
+            }
+        });
+    }
+
+    /**
+     * One page of search results
+     */
+    @Value
+    public static class Hits {
+        static final Hits EMPTY = new Hits(Collections.emptyList(), 0, false);
+
+        List<UUID> ids;
+        int total;
+        boolean ippMatch;
+    }
+
+    /**
+     * Folded copy of the searchable fields of a patient
+     */
+    @Value
+    static class Entry {
+        UUID idPatient;
+        String ipp;
+        String cin;
+        String nom;
+        String prenom;
+
+        static Entry of(UUID idPatient, String ipp, String cin, String nom, String prenom) {
+            return new Entry(idPatient, TextNormalizer.fold(ipp), TextNormalizer.fold(cin),
+                    TextNormalizer.fold(nom), TextNormalizer.fold(prenom));
+        }
+    }
+
+    private static final class Scored {
+        final Entry entry;
+        final int score;
+
+        Scored(Entry entry, int score) {
+            this.entry = entry;
+            this.score = score;
+        }
+    }
+
+    private static final Comparator<Scored> BEST_FIRST = Comparator
+            .comparingInt((Scored s) -> -s.score)
+            .thenComparing(s -> s.entry.getNom())
+            .thenComparing(s -> s.entry.getPrenom())
+            .thenComparing(s -> s.entry.getIpp());
+
+    /**
+     * Mutable index structures, swapped as a whole on rebuild.
+     *
+     * Every version of a patient gets a new document id, the previous one is tombstoned.
+     * Posting lists are therefore append-only and stay sorted, and stale document ids
+     * are skipped at query time until the next rebuild drops them.
+     */
+    private static final class State {
+        final List<Entry> entries = new ArrayList<>();
+        final Map<UUID, Integer> docIds = new HashMap<>();
+        final Map<String, Integer> docIdsByIpp = new HashMap<>();
+        final Map<String, Postings> postings = new HashMap<>();
+
+        void add(Entry entry) {
+            Integer previous = docIds.get(entry.getIdPatient());
+            if (previous != null) {
+                Entry old = entries.set(previous, null);
+                docIdsByIpp.remove(old.getIpp(), previous);
+            }
+
+            int docId = entries.size();
+            entries.add(entry);
+            docIds.put(entry.getIdPatient(), docId);
+            if (!entry.getIpp().isEmpty()) {
+                docIdsByIpp.put(entry.getIpp(), docId);
+            }
+
+            for (String gram : grams(entry)) {
+                postings.computeIfAbsent(gram, g -> new Postings()).add(docId);
+            }
+        }
+
+        Hits search(List<String> tokens, Set<UUID> allowedIds, int offset, int limit) {
+            Integer ippDocId = docIdsByIpp.get(String.join(" ", tokens));
+            if (ippDocId != null) {
+                UUID idPatient = entries.get(ippDocId).getIdPatient();
+                if (allowedIds == null || allowedIds.contains(idPatient)) {
+                    return new Hits(List.of(idPatient), 1, true);
+                }
+            }
+
+            // Narrow down the candidates with the trigrams of every word long enough to have one
+            int[] candidates = null;
+            for (String token : tokens) {
+                if (token.length() < GRAM_SIZE) {
+                    continue;
+                }
+                int[] tokenCandidates = candidatesFor(token);
+                candidates = candidates == null ? tokenCandidates : intersect(candidates, tokenCandidates);
+                if (candidates.length == 0) {
+                    return Hits.EMPTY;
+                }
+            }
+
+            long keep = limit > 0 ? (long) offset + limit : Long.MAX_VALUE;
+            PriorityQueue<Scored> best = new PriorityQueue<>(BEST_FIRST.reversed());
+            int total = 0;
+
+            int[] docIdsToScore = documentsToScore(candidates, allowedIds);
+            int count = docIdsToScore != null ? docIdsToScore.length : entries.size();
+            for (int i = 0; i < count; i++) {
+                Entry entry = entries.get(docIdsToScore != null ? docIdsToScore[i] : i);
+                if (entry == null || (allowedIds != null && !allowedIds.contains(entry.getIdPatient()))) {
+                    continue;
+                }
+                int score = score(entry, tokens);
+                if (score == 0) {
+                    continue;
+                }
+                total++;
+                best.offer(new Scored(entry, score));
+                if (best.size() > keep) {
+                    best.poll();
+                }
+            }
+
+            List<Scored> ranked = new ArrayList<>(best);
+            ranked.sort(BEST_FIRST);
+
+            List<UUID> ids = new ArrayList<>();
+            for (int i = offset; i < ranked.size(); i++) {
+                ids.add(ranked.get(i).entry.getIdPatient());
+            }
+            return new Hits(ids, total, false);
+        }
+
+        // Walk whichever of the trigram candidates and the allowed patients is smaller, null means every document
+        private int[] documentsToScore(int[] candidates, Set<UUID> allowedIds) {
+            if (allowedIds == null || (candidates != null && candidates.length <= allowedIds.size())) {
+                return candidates;
+            }
+
+            int[] docIdsToScore = new int[allowedIds.size()];
+            int n = 0;
+            for (UUID idPatient : allowedIds) {
+                Integer docId = docIds.get(idPatient);
+                if (docId != null && (candidates == null || Arrays.binarySearch(candidates, docId) >= 0)) {
+                    docIdsToScore[n++] = docId;
+                }
+            }
+            return Arrays.copyOf(docIdsToScore, n);
+        }
+
+        private int[] candidatesFor(String token) {
+            List<Postings> lists = new ArrayList<>();
+            for (String gram : grams(token)) {
+                Postings list = postings.get(gram);
+                if (list == null) {
+                    return new int[0];
+                }
+                lists.add(list);
+            }
+            lists.sort(Comparator.comparingInt(list -> list.size));
+
+            int[] result = Arrays.copyOf(lists.get(0).docIds, lists.get(0).size);
+            for (int i = 1; i < lists.size() && result.length > 0; i++) {
+                result = intersect(result, lists.get(i).docIds, lists.get(i).size);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Growable, sorted list of document ids
+     */
+    private static final class Postings {
+        int[] docIds = new int[4];
+        int size;
+
+        void add(int docId) {
+            if (size == docIds.length) {
+                docIds = Arrays.copyOf(docIds, size * 2);
+            }
+            docIds[size++] = docId;
+        }
+    }
+
+    static int score(Entry entry, List<String> tokens) {
+        int total = 0;
+        for (String token : tokens) {
+            int score = tokenScore(entry, token);
+            if (score == 0) {
+                return 0;
+            }
+            total += score;
+        }
+        return total;
+    }
+
+    private static int tokenScore(Entry entry, String token) {
+        if (token.equals(entry.getIpp())) {
+            return SCORE_IPP_EXACT;
+        }
+        if (token.equals(entry.getCin())) {
+            return SCORE_CIN_EXACT;
+        }
+
+        int score = Math.max(nameScore(entry.getNom(), token), nameScore(entry.getPrenom(), token));
+        if (score == 0 && (entry.getIpp().contains(token) || entry.getCin().contains(token))) {
+            score = SCORE_IDENTIFIER_CONTAINS;
+        }
+        return score;
+    }
+
+    private static int nameScore(String name, String token) {
+        if (name.equals(token)) {
+            return SCORE_NAME_EXACT;
+        }
+        if (name.startsWith(token) || name.contains(" " + token)) {
+            return SCORE_NAME_PREFIX;
+        }
+        if (name.contains(token)) {
+            return SCORE_NAME_CONTAINS;
+        }
+        return 0;
+    }
+
+    private static Set<String> grams(Entry entry) {
+        Set<String> grams = new HashSet<>();
+        for (String field : new String[] { entry.getIpp(), entry.getCin(), entry.getNom(), entry.getPrenom() }) {
+            for (String word : field.split(" ")) {
+                grams.addAll(grams(word));
+            }
+        }
+        return grams;
+    }
+
+    private static Set<String> grams(String word) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM_SIZE <= word.length(); i++) {
+            grams.add(word.substring(i, i + GRAM_SIZE));
+        }
+        return grams;
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        return intersect(a, b, b.length);
+    }
+
+    private static int[] intersect(int[] a, int[] b, int bLength) {
+        int[] result = new int[Math.min(a.length, bLength)];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < a.length && j < bLength) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+}
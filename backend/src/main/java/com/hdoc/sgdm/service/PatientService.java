@@ -1,5 +1,7 @@
 package com.hdoc.sgdm.service;
 
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -16,10 +18,16 @@ import com.hdoc.sgdm.repository.VisiteRepository;
 import com.hdoc.sgdm.util.IPPGenerator;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import lombok.RequiredArgsConstructor;
@@ -31,8 +39,14 @@ public class PatientService {
     private final PatientRepository patientRepository;
     private final VisiteRepository visiteRepository;
     private final IPPGenerator ippGenerator;
+    private final PatientSearchIndex patientSearchIndex;
+    private final DoctorPatientIndex doctorPatientIndex;
 
-    @Transactional
+    /**
+     * Create a patient with the next IPP. Runs outside of any transaction: reserving a block of
+     * IPPs takes a transaction of its own, which must not wait for a second connection while
+     * this one holds the first. Each step uses, then releases, a single connection.
+     */
     public PatientResponse createPatient(CreatePatientRequest request) {
         // Check if patient with this email already exists
         Optional<Patient> existingPatientByEmail = patientRepository.findByEmail(request.getEmail());
@@ -54,6 +68,7 @@ public class PatientService {
         
         // Save patient to database
         Patient savedPatient = patientRepository.save(patient);
+        patientSearchIndex.index(savedPatient);
         
         // Return success response
         return PatientMapper.toSuccessResponse(savedPatient, "Patient créé avec succès");
@@ -72,140 +87,181 @@ public class PatientService {
 
     @Transactional(readOnly = true)
     public PatientSearchResponse searchPatients(String query, CurrentUser currentUser) {
+        return searchPatients(query, currentUser, 0, null);
+    }
+    
+    /**
+     * Search patients with optional paging of the ranked results
+     * 
+     * @param query The search text (IPP, CIN, nom and/or prenom)
+     * @param currentUser The user performing the search, used for access control
+     * @param page Zero-based page number, only used when size is provided
+     * @param size Page size, or null to return every match
+     * @return The matching patients, best matches first
+     */
+    @Transactional(readOnly = true)
+    public PatientSearchResponse searchPatients(String query, CurrentUser currentUser, int page, Integer size) {
+        if (size != null && size < 1) {
+            size = null;
+        }
+        page = Math.max(page, 0);
+        
         // For AGENT and ADMIN roles, no filtering needed
         if (currentUser == null || "AGENT".equals(currentUser.getRole()) || "ADMIN".equals(currentUser.getRole())) {
-            // Use the original search logic
-            return searchAllPatients(query);
+            return searchAllPatients(query, page, size);
         }
         
         // For MEDECIN role, filter patients based on doctor-patient relationship
         if ("MEDECIN".equals(currentUser.getRole()) && currentUser.getIdMedecin() != null) {
-            // Instead of getting all patients first, we now directly filter by doctor ID in the database
-            List<UUID> doctorIds = Collections.singletonList(currentUser.getIdMedecin());
+            // The relationships are kept in memory, so the access filter is a set lookup
+            Set<UUID> patientIds = doctorPatientIndex.getPatientIds(currentUser.getIdMedecin());
+            PatientSearchResponse response = patientIds.isEmpty() ? null
+                    : searchPatientsWithRelationship(query, patientIds, page, size);
+            if (response != null && response.getCount() > 0) {
+                return response;
+            }
+            
+            // The index only learns the assignments made on other nodes when it is refreshed:
+            // confirm a miss against the visits before answering that there is no patient
+            Set<UUID> confirmedIds = patientRepository.findPatientsByDoctorId(currentUser.getIdMedecin()).stream()
+                    .map(Patient::getIdPatient)
+                    .collect(Collectors.toSet());
+            if (!patientIds.containsAll(confirmedIds)) {
+                doctorPatientIndex.confirmRelationships(currentUser.getIdMedecin(), confirmedIds);
+                return searchPatientsWithRelationship(query, confirmedIds, page, size);
+            }
             
             // Check if this doctor has any patients at all (for improved user messaging)
-            if (patientRepository.findPatientsByDoctorId(currentUser.getIdMedecin()).isEmpty()) {
+            if (response == null) {
                 return PatientMapper.toEmptySearchResponse("Aucun patient trouvé avec une relation établie avec ce médecin");
             }
-            
-            // Filter the search results against the doctor's patients at the database level
-            return searchPatientsWithRelationship(query, doctorIds);
+            return response;
         }
         
         // Default case - empty results (unknown role or no proper identification)
         return PatientMapper.toEmptySearchResponse("Recherche non autorisée pour ce rôle d'utilisateur");
     }
     
-    // Original search logic moved to this method
-    private PatientSearchResponse searchAllPatients(String query) {
-        List<Patient> results = new ArrayList<>();
+    // Unrestricted search served by the in-memory search index
+    private PatientSearchResponse searchAllPatients(String query, int page, Integer size) {
         String trimmedQuery = query != null ? query.trim() : "";
         
         // If query is empty, return all patients
         if (trimmedQuery.isEmpty()) {
-            List<Patient> allPatients = patientRepository.findAll();
+            List<Patient> allPatients = size == null
+                    ? patientRepository.findAll()
+                    : patientRepository.findAll(PageRequest.of(page, size, Sort.by("nom", "prenom"))).getContent();
             List<PatientDTO> patientDTOs = PatientMapper.toPatientDTOList(allPatients);
             return PatientMapper.toSearchResponse(patientDTOs, "Tous les patients");
         }
         
-        // Search by IPP (exact match only)
-        Optional<Patient> patientByIpp = patientRepository.findByIpp(trimmedQuery);
-        if (patientByIpp.isPresent()) {
-            results.add(patientByIpp.get());
-            // Return immediately for IPP exact match to prevent further searches
-            List<PatientDTO> patientDTOs = PatientMapper.toPatientDTOList(results);
-            return PatientMapper.toSearchResponse(patientDTOs, "Patient trouvé par IPP: " + trimmedQuery);
+        PatientSearchIndex.Hits hits = patientSearchIndex.search(trimmedQuery, offset(page, size), size == null ? 0 : size);
+        if (hits.getTotal() == 0) {
+            return searchDatabase(trimmedQuery, null, page, size,
+                    "Aucun patient trouvé pour la recherche: " + trimmedQuery);
         }
+        List<PatientDTO> patientDTOs = PatientMapper.toPatientDTOList(findAllInOrder(hits.getIds()));
         
-        // Search by CIN
-        Optional<Patient> patientByCin = patientRepository.findByCin(trimmedQuery);
-        if (patientByCin.isPresent()) {
-            results.add(patientByCin.get());
+        // IPP exact match returns only that patient
+        if (hits.isIppMatch() && !patientDTOs.isEmpty()) {
+            return PatientMapper.toSearchResponse(patientDTOs, "Patient trouvé par IPP: " + trimmedQuery);
         }
         
-        // Search by name (nom or prenom)
-        List<Patient> patientsByNom = patientRepository.findByNomContainingIgnoreCase(trimmedQuery);
-        List<Patient> patientsByPrenom = patientRepository.findByPrenomContainingIgnoreCase(trimmedQuery);
-        
-        // Add all results, avoiding duplicates
-        patientsByNom.stream()
-            .filter(patient -> !results.contains(patient))
-            .forEach(results::add);
-        
-        patientsByPrenom.stream()
-            .filter(patient -> !results.contains(patient))
-            .forEach(results::add);
-        
-        List<PatientDTO> patientDTOs = PatientMapper.toPatientDTOList(results);
-        
-        if (patientDTOs.isEmpty()) {
-            return PatientMapper.toEmptySearchResponse("Aucun patient trouvé pour la recherche: " + trimmedQuery);
+        return PatientMapper.toSearchResponse(patientDTOs, 
+                "Recherche terminée: " + hits.getTotal() + " patient(s) trouvé(s)");
+    }
+    
+    // Load patients by id with a single query, keeping the ranking order of the ids
+    private List<Patient> findAllInOrder(List<UUID> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
         }
         
-        return PatientMapper.toSearchResponse(patientDTOs, 
-                "Recherche terminée: " + patientDTOs.size() + " patient(s) trouvé(s)");
+        Map<UUID, Patient> patientsById = patientRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Patient::getIdPatient, Function.identity()));
+        
+        return ids.stream()
+                .map(patientsById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
     }
     
     // Filtered search for doctors, only showing patients with established relationship
-    private PatientSearchResponse searchPatientsWithRelationship(String query, List<UUID> doctorIds) {
-        List<Patient> results = new ArrayList<>();
+    private PatientSearchResponse searchPatientsWithRelationship(String query, Set<UUID> patientIds, int page, Integer size) {
         String trimmedQuery = query != null ? query.trim() : "";
-        UUID doctorId = null;
-        
-        // First element is the doctorId
-        if (!doctorIds.isEmpty()) {
-            doctorId = doctorIds.get(0);
-        }
-        
-        // Safety check - if doctorId is null, return empty results
-        if (doctorId == null) {
-            return PatientMapper.toEmptySearchResponse("Erreur: Identifiant de médecin non valide");
-        }
         
         // If query is empty, return all allowed patients
         if (trimmedQuery.isEmpty()) {
-            List<Patient> allPatients = patientRepository.findPatientsByDoctorId(doctorId);
+            List<Patient> allPatients = new ArrayList<>(patientRepository.findAllById(patientIds));
+            if (size != null) {
+                allPatients.sort(Comparator.comparing(Patient::getNom, Comparator.nullsLast(Comparator.naturalOrder()))
+                        .thenComparing(Patient::getPrenom, Comparator.nullsLast(Comparator.naturalOrder())));
+                allPatients = page(allPatients, page, size);
+            }
             List<PatientDTO> patientDTOs = PatientMapper.toPatientDTOList(allPatients);
             return PatientMapper.toSearchResponse(patientDTOs, 
-                    "Patients avec relation établie: " + patientDTOs.size() + " patient(s)");
+                    "Patients avec relation établie: " + patientIds.size() + " patient(s)");
         }
         
-        // Search by IPP (exact match only) - but only include if has relationship with doctor
-        Optional<Patient> patientByIpp = patientRepository.findByIppAndDoctorId(trimmedQuery, doctorId);
-        if (patientByIpp.isPresent()) {
-            results.add(patientByIpp.get());
-            // Return immediately for IPP exact match
-            List<PatientDTO> patientDTOs = PatientMapper.toPatientDTOList(results);
-            return PatientMapper.toSearchResponse(patientDTOs, "Patient trouvé par IPP: " + trimmedQuery);
+        PatientSearchIndex.Hits hits = patientSearchIndex.search(trimmedQuery, patientIds, offset(page, size),
+                size == null ? 0 : size);
+        if (hits.getTotal() == 0) {
+            return searchDatabase(trimmedQuery, patientIds, page, size,
+                    "Aucun patient associé trouvé pour la recherche: " + trimmedQuery);
         }
+        List<PatientDTO> patientDTOs = PatientMapper.toPatientDTOList(findAllInOrder(hits.getIds()));
         
-        // Search by CIN - but only include if has relationship with doctor
-        Optional<Patient> patientByCin = patientRepository.findByCinAndDoctorId(trimmedQuery, doctorId);
-        if (patientByCin.isPresent()) {
-            results.add(patientByCin.get());
+        // IPP exact match returns only that patient
+        if (hits.isIppMatch() && !patientDTOs.isEmpty()) {
+            return PatientMapper.toSearchResponse(patientDTOs, "Patient trouvé par IPP: " + trimmedQuery);
         }
         
-        // Search by name (nom or prenom) with doctor relationship constraint
-        List<Patient> patientsByNom = patientRepository.findByNomContainingIgnoreCaseAndDoctorId(trimmedQuery, doctorId);
-        List<Patient> patientsByPrenom = patientRepository.findByPrenomContainingIgnoreCaseAndDoctorId(trimmedQuery, doctorId);
-        
-        // Add patients from name search, avoiding duplicates
-        patientsByNom.stream()
-            .filter(patient -> !results.contains(patient))
-            .forEach(results::add);
-        
-        patientsByPrenom.stream()
-            .filter(patient -> !results.contains(patient))
-            .forEach(results::add);
+        return PatientMapper.toSearchResponse(patientDTOs, 
+                "Recherche terminée: " + hits.getTotal() + " patient(s) trouvé(s)");
+    }
+    
+    /**
+     * Search the database for a query the index has no match for: a patient created or renamed
+     * on another node is only indexed at the next refresh. The patients found are indexed.
+     *
+     * @param allowedIds The patients that may be returned, or null for all patients
+     */
+    private PatientSearchResponse searchDatabase(String query, Set<UUID> allowedIds, int page, Integer size,
+                                                 String emptyMessage) {
+        Predicate<Patient> allowed = patient -> allowedIds == null || allowedIds.contains(patient.getIdPatient());
         
-        List<PatientDTO> patientDTOs = PatientMapper.toPatientDTOList(results);
+        // IPP exact match returns only that patient
+        Optional<Patient> patientByIpp = patientRepository.findByIpp(query).filter(allowed);
+        if (patientByIpp.isPresent()) {
+            patientSearchIndex.index(patientByIpp.get());
+            return PatientMapper.toSearchResponse(PatientMapper.toPatientDTOList(List.of(patientByIpp.get())),
+                    "Patient trouvé par IPP: " + query);
+        }
         
-        if (patientDTOs.isEmpty()) {
-            return PatientMapper.toEmptySearchResponse("Aucun patient associé trouvé pour la recherche: " + trimmedQuery);
+        Map<UUID, Patient> found = new LinkedHashMap<>();
+        patientRepository.findByCin(query).ifPresent(patient -> found.put(patient.getIdPatient(), patient));
+        patientRepository.findByNomContainingIgnoreCase(query).forEach(patient -> found.putIfAbsent(patient.getIdPatient(), patient));
+        patientRepository.findByPrenomContainingIgnoreCase(query).forEach(patient -> found.putIfAbsent(patient.getIdPatient(), patient));
+        List<Patient> results = found.values().stream().filter(allowed).collect(Collectors.toList());
+        if (results.isEmpty()) {
+            return PatientMapper.toEmptySearchResponse(emptyMessage);
         }
+        results.forEach(patientSearchIndex::index);
         
-        return PatientMapper.toSearchResponse(patientDTOs, 
-                "Recherche terminée: " + patientDTOs.size() + " patient(s) trouvé(s)");
+        List<PatientDTO> patientDTOs = PatientMapper.toPatientDTOList(size == null ? results : page(results, page, size));
+        return PatientMapper.toSearchResponse(patientDTOs,
+                "Recherche terminée: " + results.size() + " patient(s) trouvé(s)");
+    }
+    
+    // Offset of a page in the ranked hits, clamped instead of overflowing for pages far out of range
+    private static int offset(int page, Integer size) {
+        return size == null ? 0 : (int) Math.min((long) page * size, Integer.MAX_VALUE);
+    }
+    
+    private static <T> List<T> page(List<T> items, int page, int size) {
+        int from = (int) Math.min((long) page * size, items.size());
+        int to = (int) Math.min((long) from + size, items.size());
+        return items.subList(from, to);
     }
     
     @Transactional(readOnly = true)
@@ -250,6 +306,7 @@ public class PatientService {
             
             // Save the updated patient
             Patient savedPatient = patientRepository.save(updatedPatient);
+            patientSearchIndex.index(savedPatient);
             
             // Return success response
             return PatientMapper.toSuccessResponse(savedPatient, "Informations du patient mises à jour avec succès");
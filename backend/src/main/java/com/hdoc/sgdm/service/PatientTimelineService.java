@@ -0,0 +1,317 @@
+package com.hdoc.sgdm.service;
+
+import com.hdoc.sgdm.dto.common.MedecinDTO;
+import com.hdoc.sgdm.dto.common.TimelineEventDTO;
+import com.hdoc.sgdm.dto.response.PatientTimelineResponse;
+import com.hdoc.sgdm.entity.Allergie;
+import com.hdoc.sgdm.entity.Certificat;
+import com.hdoc.sgdm.entity.DocumentImporte;
+import com.hdoc.sgdm.entity.Facture;
+import com.hdoc.sgdm.entity.FormulairePatient;
+import com.hdoc.sgdm.entity.ModeleFormulaire;
+import com.hdoc.sgdm.entity.Ordonnance;
+import com.hdoc.sgdm.entity.Patient;
+import com.hdoc.sgdm.entity.Visite;
+import com.hdoc.sgdm.exception.ResourceNotFoundException;
+import com.hdoc.sgdm.mapper.MedecinMapper;
+import com.hdoc.sgdm.repository.AllergieRepository;
+import com.hdoc.sgdm.repository.CertificatRepository;
+import com.hdoc.sgdm.repository.DocumentImporteRepository;
+import com.hdoc.sgdm.repository.FactureRepository;
+import com.hdoc.sgdm.repository.FormulairePatientRepository;
+import com.hdoc.sgdm.repository.MedecinRepository;
+import com.hdoc.sgdm.repository.ModeleFormulaireRepository;
+import com.hdoc.sgdm.repository.OrdonnanceRepository;
+import com.hdoc.sgdm.repository.PatientRepository;
+import com.hdoc.sgdm.repository.VisiteRepository;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Builds the timeline of a patient file: visits, prescriptions, invoices, certificates,
+ * documents, allergies and medical forms merged into one stream of events, most recent first.
+ *
+ * The seven lists are loaded in parallel, then the doctors and form templates they
+ * reference are resolved with one query each.
+ */
+@Service
+public class PatientTimelineService {
+
+    public static final String TYPE_VISITE = "VISITE";
+    public static final String TYPE_ORDONNANCE = "ORDONNANCE";
+    public static final String TYPE_FACTURE = "FACTURE";
+    public static final String TYPE_CERTIFICAT = "CERTIFICAT";
+    public static final String TYPE_DOCUMENT = "DOCUMENT";
+    public static final String TYPE_ALLERGIE = "ALLERGIE";
+    public static final String TYPE_FORMULAIRE = "FORMULAIRE";
+
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 200;
+
+    // Most recent first, events without a date last, then a stable order
+    private static final Comparator<TimelineEventDTO> TIMELINE_ORDER = Comparator
+            .comparing(TimelineEventDTO::getDate, Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing(TimelineEventDTO::getType)
+            .thenComparing(TimelineEventDTO::getId, Comparator.nullsLast(Comparator.reverseOrder()));
+
+    private final PatientRepository patientRepository;
+    private final VisiteRepository visiteRepository;
+    private final OrdonnanceRepository ordonnanceRepository;
+    private final FactureRepository factureRepository;
+    private final CertificatRepository certificatRepository;
+    private final DocumentImporteRepository documentImporteRepository;
+    private final AllergieRepository allergieRepository;
+    private final FormulairePatientRepository formulairePatientRepository;
+    private final ModeleFormulaireRepository modeleFormulaireRepository;
+    private final MedecinRepository medecinRepository;
+    private final MedecinMapper medecinMapper;
+    private final Executor timelineExecutor;
+
+    public PatientTimelineService(PatientRepository patientRepository,
+                                  VisiteRepository visiteRepository,
+                                  OrdonnanceRepository ordonnanceRepository,
+                                  FactureRepository factureRepository,
+                                  CertificatRepository certificatRepository,
+                                  DocumentImporteRepository documentImporteRepository,
+                                  AllergieRepository allergieRepository,
+                                  FormulairePatientRepository formulairePatientRepository,
+                                  ModeleFormulaireRepository modeleFormulaireRepository,
+                                  MedecinRepository medecinRepository,
+                                  MedecinMapper medecinMapper,
+                                  @Qualifier("timelineExecutor") Executor timelineExecutor) {
+        this.patientRepository = patientRepository;
+        this.visiteRepository = visiteRepository;
+        this.ordonnanceRepository = ordonnanceRepository;
+        this.factureRepository = factureRepository;
+        this.certificatRepository = certificatRepository;
+        this.documentImporteRepository = documentImporteRepository;
+        this.allergieRepository = allergieRepository;
+        this.formulairePatientRepository = formulairePatientRepository;
+        this.modeleFormulaireRepository = modeleFormulaireRepository;
+        this.medecinRepository = medecinRepository;
+        this.medecinMapper = medecinMapper;
+        this.timelineExecutor = timelineExecutor;
+    }
+
+    /**
+     * Get one page of the timeline of a patient
+     *
+     * @param ipp The patient IPP
+     * @param page Zero-based page number
+     * @param size Page size, defaults to 50 and is capped at 200
+     * @return The page of events, most recent first, with the total number of events
+     */
+    public PatientTimelineResponse getTimeline(String ipp, int page, Integer size) {
+        Patient patient = patientRepository.findByIpp(ipp)
+                .orElseThrow(() -> new ResourceNotFoundException("Patient non trouvé avec IPP: " + ipp));
+        UUID idPatient = patient.getIdPatient();
+
+        int pageSize = size == null || size < 1 ? DEFAULT_PAGE_SIZE : Math.min(size, MAX_PAGE_SIZE);
+        int pageNumber = Math.max(page, 0);
+
+        // Load every part of the file in parallel
+        CompletableFuture<List<Visite>> visites = load(() -> visiteRepository.findByPatientOrderByDateDebutDesc(patient));
+        CompletableFuture<List<Ordonnance>> ordonnances = load(() -> ordonnanceRepository.findAllByIdPatientOrderByDateCreationDesc(idPatient));
+        CompletableFuture<List<Facture>> factures = load(() -> factureRepository.findByIdPatient(idPatient));
+        CompletableFuture<List<Certificat>> certificats = load(() -> certificatRepository.findAllByIdPatient(idPatient));
+        CompletableFuture<List<DocumentImporte>> documents = load(() -> documentImporteRepository.findByPatientIdPatient(idPatient));
+        CompletableFuture<List<Allergie>> allergies = load(() -> allergieRepository.findByPatientIdPatient(idPatient));
+        CompletableFuture<List<FormulairePatient>> formulaires = load(() -> formulairePatientRepository.findByIdPatient(idPatient));
+
+        join(CompletableFuture.allOf(visites, ordonnances, factures, certificats, documents, allergies, formulaires));
+
+        // Resolve the doctors and form templates referenced by the file once
+        Set<UUID> doctorIds = new HashSet<>();
+        visites.join().forEach(visite -> doctorIds.add(visite.getIdMedecin()));
+        ordonnances.join().forEach(ordonnance -> doctorIds.add(ordonnance.getIdMedecin()));
+        certificats.join().forEach(certificat -> doctorIds.add(certificat.getIdMedecin()));
+        formulaires.join().forEach(formulaire -> doctorIds.add(formulaire.getIdMedecin()));
+        doctorIds.remove(null);
+
+        Set<Integer> modeleIds = formulaires.join().stream()
+                .map(FormulairePatient::getIdModele)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+
+        CompletableFuture<Map<UUID, MedecinDTO>> medecins = load(() -> doctorIds.isEmpty() ? Map.of()
+                : medecinMapper.toDTOMap(medecinRepository.findAllByIdWithUtilisateur(doctorIds)));
+        CompletableFuture<Map<Integer, String>> nomsModeles = load(() -> findNomsModeles(modeleIds));
+        join(CompletableFuture.allOf(medecins, nomsModeles));
+
+        Map<UUID, MedecinDTO> medecinDTOs = medecins.join();
+        List<TimelineEventDTO> events = new ArrayList<>();
+        visites.join().forEach(visite -> events.add(toEvent(visite, medecinDTOs)));
+        ordonnances.join().forEach(ordonnance -> events.add(toEvent(ordonnance, medecinDTOs)));
+        factures.join().forEach(facture -> events.add(toEvent(facture)));
+        certificats.join().forEach(certificat -> events.add(toEvent(certificat, medecinDTOs)));
+        documents.join().forEach(document -> events.add(toEvent(document)));
+        allergies.join().forEach(allergie -> events.add(toEvent(allergie)));
+        formulaires.join().forEach(formulaire -> events.add(toEvent(formulaire, medecinDTOs, nomsModeles.join())));
+        events.sort(TIMELINE_ORDER);
+
+        int from = (int) Math.min((long) pageNumber * pageSize, events.size());
+        int to = Math.min(from + pageSize, events.size());
+        List<TimelineEventDTO> pageEvents = new ArrayList<>(events.subList(from, to));
+
+        return PatientTimelineResponse.builder()
+                .status("success")
+                .message("Historique du patient récupéré avec succès")
+                .ipp(patient.getIpp())
+                .events(pageEvents)
+                .count(pageEvents.size())
+                .total(events.size())
+                .page(pageNumber)
+                .size(pageSize)
+                .build();
+    }
+
+    private <T> CompletableFuture<T> load(Supplier<T> query) {
+        return CompletableFuture.supplyAsync(query, timelineExecutor);
+    }
+
+    private static void join(CompletableFuture<Void> all) {
+        try {
+            all.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private Map<Integer, String> findNomsModeles(Set<Integer> modeleIds) {
+        Map<Integer, String> nomsModeles = new HashMap<>();
+        if (modeleIds.isEmpty()) {
+            return nomsModeles;
+        }
+        for (ModeleFormulaire modele : modeleFormulaireRepository.findAllById(modeleIds)) {
+            nomsModeles.put(modele.getIdModele(), modele.getNom());
+        }
+        return nomsModeles;
+    }
+
+    private static TimelineEventDTO toEvent(Visite visite, Map<UUID, MedecinDTO> medecins) {
+        return TimelineEventDTO.builder()
+                .type(TYPE_VISITE)
+                .id(visite.getIdVisite())
+                .date(visite.getDateDebut())
+                .titre("Visite - " + visite.getTypeVisite())
+                .description(visite.getMotif())
+                .statut(visite.getStatut())
+                .idVisite(visite.getIdVisite())
+                .medecin(medecin(medecins, visite.getIdMedecin()))
+                .build();
+    }
+
+    private static TimelineEventDTO toEvent(Ordonnance ordonnance, Map<UUID, MedecinDTO> medecins) {
+        return TimelineEventDTO.builder()
+                .type(TYPE_ORDONNANCE)
+                .id(ordonnance.getIdOrdonnance())
+                .date(ordonnance.getDateCreation())
+                .titre("Ordonnance")
+                .statut(ordonnance.getStatut())
+                .url(ordonnance.getUrl())
+                .idVisite(ordonnance.getIdVisite())
+                .medecin(medecin(medecins, ordonnance.getIdMedecin()))
+                .build();
+    }
+
+    private static TimelineEventDTO toEvent(Facture facture) {
+        String description = facture.getMontant() != null ? facture.getMontant() + " DH" : null;
+        if (description != null && facture.getModePaiement() != null) {
+            description += " - " + facture.getModePaiement();
+        }
+        return TimelineEventDTO.builder()
+                .type(TYPE_FACTURE)
+                .id(toLong(facture.getIdFacture()))
+                .date(facture.getDateFacturation())
+                .titre("Facture")
+                .description(description)
+                .statut(facture.getStatus())
+                .url(facture.getUrl())
+                .idVisite(toLong(facture.getIdVisite()))
+                .build();
+    }
+
+    private static TimelineEventDTO toEvent(Certificat certificat, Map<UUID, MedecinDTO> medecins) {
+        String description = certificat.getMotif();
+        if (certificat.getNombreJoursRepos() != null) {
+            String repos = certificat.getNombreJoursRepos() + " jour(s) de repos";
+            description = description != null ? description + " - " + repos : repos;
+        }
+        return TimelineEventDTO.builder()
+                .type(TYPE_CERTIFICAT)
+                .id(certificat.getIdCertificat())
+                .date(certificat.getDateRedaction())
+                .titre("Certificat médical")
+                .description(description)
+                .url(certificat.getPdfUrl())
+                .medecin(medecin(medecins, certificat.getIdMedecin()))
+                .build();
+    }
+
+    private static TimelineEventDTO toEvent(DocumentImporte document) {
+        return TimelineEventDTO.builder()
+                .type(TYPE_DOCUMENT)
+                .id(document.getIdDocument())
+                .date(document.getDateAjout())
+                .titre(document.getNom())
+                .description(document.getDescription())
+                .statut(document.getTypeDocument())
+                .url(document.getUrl())
+                .build();
+    }
+
+    private static TimelineEventDTO toEvent(Allergie allergie) {
+        LocalDateTime date = allergie.getCreatedAt();
+        if (date == null && allergie.getDateDiagnostic() != null) {
+            date = allergie.getDateDiagnostic().atStartOfDay();
+        }
+        return TimelineEventDTO.builder()
+                .type(TYPE_ALLERGIE)
+                .id(allergie.getIdAllergie())
+                .date(date)
+                .titre("Allergie - " + allergie.getAllergene())
+                .description(allergie.getReaction())
+                .statut(allergie.getGravite())
+                .build();
+    }
+
+    private static TimelineEventDTO toEvent(FormulairePatient formulaire, Map<UUID, MedecinDTO> medecins,
+                                            Map<Integer, String> nomsModeles) {
+        return TimelineEventDTO.builder()
+                .type(TYPE_FORMULAIRE)
+                .id(toLong(formulaire.getIdFormulaire()))
+                .date(formulaire.getDateRemplissage())
+                .titre(nomsModeles.getOrDefault(formulaire.getIdModele(), "Formulaire médical"))
+                .statut(formulaire.getStatus())
+                .idVisite(toLong(formulaire.getIdVisite()))
+                .medecin(medecin(medecins, formulaire.getIdMedecin()))
+                .build();
+    }
+
+    private static MedecinDTO medecin(Map<UUID, MedecinDTO> medecins, UUID idMedecin) {
+        return idMedecin != null ? medecins.get(idMedecin) : null;
+    }
+
+    private static Long toLong(Integer value) {
+        return value != null ? value.longValue() : null;
+    }
+}
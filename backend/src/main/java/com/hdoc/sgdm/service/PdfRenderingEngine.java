@@ -0,0 +1,373 @@
+package com.hdoc.sgdm.service;
+
+import com.lowagie.text.BadElementException;
+import com.lowagie.text.Chunk;
+import com.lowagie.text.Document;
+import com.lowagie.text.DocumentException;
+import com.lowagie.text.Element;
+import com.lowagie.text.ExceptionConverter;
+import com.lowagie.text.Font;
+import com.lowagie.text.FontFactory;
+import com.lowagie.text.Image;
+import com.lowagie.text.ImgRaw;
+import com.lowagie.text.PageSize;
+import com.lowagie.text.Paragraph;
+import com.lowagie.text.Phrase;
+import com.lowagie.text.Rectangle;
+import com.lowagie.text.pdf.PdfPCell;
+import com.lowagie.text.pdf.PdfPTable;
+import com.lowagie.text.pdf.PdfWriter;
+import com.lowagie.text.pdf.draw.LineSeparator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.awt.Color;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Shared layout of the hospital documents (ordonnances, certificats, factures and formulaires).
+ *
+ * The logo is decoded and compressed once and the footer is built once; each document gets a
+ * cheap copy of them, since OpenPDF positions and lays out the elements it is given. Fonts are cached for the
+ * whole process, see {@link #font(String, float)}.
+ */
+@Component
+public class PdfRenderingEngine {
+    private static final Logger logger = LoggerFactory.getLogger(PdfRenderingEngine.class);
+
+    private static final String LOGO_PATH = "/logo.jpg";
+
+    private static final Map<FontKey, Font> FONTS = new ConcurrentHashMap<>();
+
+    private final Image logo;
+    private final PdfPTable footer;
+
+    public PdfRenderingEngine() {
+        this.logo = loadLogo();
+        this.footer = buildFooter();
+    }
+
+    /**
+     * Page setup and shared blocks of each document type
+     */
+    public enum Layout {
+        ORDONNANCE(72, 2, 10, false, 11),
+        CERTIFICAT(72, 2, 60, false, 11),
+        FACTURE(36, 2, 10, true, 11),
+        FORMULAIRE(36, 5, 10, false, 9);
+
+        private final float marginTop;
+        private final int linesAfterLogo;
+        private final float spaceBeforeFooter;
+        private final boolean lightFooterLine;
+        private final float doctorFontSize;
+
+        Layout(float marginTop, int linesAfterLogo, float spaceBeforeFooter, boolean lightFooterLine,
+                float doctorFontSize) {
+            this.marginTop = marginTop;
+            this.linesAfterLogo = linesAfterLogo;
+            this.spaceBeforeFooter = spaceBeforeFooter;
+            this.lightFooterLine = lightFooterLine;
+            this.doctorFontSize = doctorFontSize;
+        }
+    }
+
+    /**
+     * A block of content written by the calling service
+     */
+    @FunctionalInterface
+    public interface Section {
+        void addTo(Document document) throws DocumentException;
+    }
+
+    /**
+     * Returns the shared font for a base font name and size. Unlike {@code FontFactory.getFont},
+     * repeated calls do not allocate; the returned font must not be modified.
+     */
+    public static Font font(String name, float size) {
+        return font(name, size, Font.UNDEFINED);
+    }
+
+    public static Font font(String name, float size, int style) {
+        return FONTS.computeIfAbsent(new FontKey(name, size, style),
+                key -> FontFactory.getFont(key.name(), key.size(), key.style()));
+    }
+
+    /**
+     * Starts a document of the given type. Blocks are written in the order they are declared
+     * when {@link DocumentBuilder#render()} is called.
+     */
+    public DocumentBuilder document(Layout layout) {
+        return new DocumentBuilder(layout);
+    }
+
+    public class DocumentBuilder {
+        private final Layout layout;
+        private final List<Section> sections = new ArrayList<>();
+
+        private DocumentBuilder(Layout layout) {
+            this.layout = layout;
+        }
+
+        /**
+         * Logo in the top-left corner, followed by some space
+         */
+        public DocumentBuilder logo() {
+            return section(document -> addLogo(document, layout));
+        }
+
+        /**
+         * Centered bold title
+         */
+        public DocumentBuilder title(String text, float size, float spacingAfter) {
+            return section(document -> {
+                Paragraph title = new Paragraph(text, font(FontFactory.HELVETICA_BOLD, size, Font.BOLD));
+                title.setAlignment(Element.ALIGN_CENTER);
+                title.setSpacingAfter(spacingAfter);
+                document.add(title);
+            });
+        }
+
+        public DocumentBuilder section(Section section) {
+            sections.add(section);
+            return this;
+        }
+
+        /**
+         * Space pushing the next blocks towards the bottom of the page
+         */
+        public DocumentBuilder flexibleSpace() {
+            return section(PdfRenderingEngine::addFlexibleSpace);
+        }
+
+        /**
+         * Place and date on the left, doctor name and signature on the right
+         *
+         * @param medecin the doctor name, printed after "Dr."
+         * @param specialite the doctor speciality, or null to leave it out
+         * @param date the formatted date of the document
+         */
+        public DocumentBuilder doctorSection(String medecin, String specialite, String date) {
+            return section(document -> addDoctorSection(document, layout, medecin, specialite, date));
+        }
+
+        /**
+         * Hospital address and contact information
+         */
+        public DocumentBuilder footer() {
+            return section(document -> addFooter(document, layout));
+        }
+
+        /**
+         * Writes the declared blocks on an A4 page, straight to the stream, which is left open
+         *
+         * @throws IOException if PDF generation or writing to the stream fails
+         */
+        public void renderTo(OutputStream out) throws IOException {
+            try {
+                Document document = new Document(PageSize.A4);
+                document.setMargins(36, 36, layout.marginTop, 36); // left, right, top, bottom (in points)
+                PdfWriter writer = PdfWriter.getInstance(document, out);
+                writer.setCloseStream(false);
+                document.open();
+                for (Section section : sections) {
+                    section.addTo(document);
+                }
+                document.close();
+            } catch (DocumentException e) {
+                logger.error("Error generating PDF document", e);
+                throw new IOException("Error generating PDF document: " + e.getMessage(), e);
+            } catch (ExceptionConverter e) {
+                // Failures of the stream, wrapped by the PDF writer
+                if (e.getException() instanceof IOException io) {
+                    throw io;
+                }
+                throw e;
+            }
+        }
+
+        /**
+         * Renders the document to a temporary file, to store it without holding it in memory.
+         * Rendering errors are raised here, before the upload; close the content once stored.
+         *
+         * @return the rendered document
+         * @throws IOException if PDF generation or writing the file fails
+         */
+        public SpooledContent spool() throws IOException {
+            Path file = Files.createTempFile("render-", ".pdf");
+            try {
+                try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file))) {
+                    renderTo(out);
+                }
+                return new SpooledContent(file);
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(file);
+                throw e;
+            }
+        }
+    }
+
+    private void addLogo(Document document, Layout layout) throws DocumentException {
+        if (logo == null) {
+            return;
+        }
+        // The copy shares the compressed image data
+        Image image = Image.getInstance(logo);
+        image.setAbsolutePosition(36, document.getPageSize().getHeight() - 50 - 36);
+        document.add(image);
+
+        for (int i = 0; i < layout.linesAfterLogo; i++) {
+            document.add(new Paragraph(" "));
+        }
+    }
+
+    private static void addFlexibleSpace(Document document) throws DocumentException {
+        for (int i = 0; i < 3; i++) {
+            Paragraph spacer = new Paragraph(" ");
+            spacer.setSpacingAfter(30);
+            document.add(spacer);
+        }
+    }
+
+    private static void addDoctorSection(Document document, Layout layout, String medecin, String specialite,
+            String date) throws DocumentException {
+        Font normalFont = font(FontFactory.HELVETICA, layout.doctorFontSize);
+        Font boldFont = font(FontFactory.HELVETICA_BOLD, layout.doctorFontSize);
+
+        PdfPTable table = new PdfPTable(2);
+        table.setWidthPercentage(100);
+
+        // Left cell - Date
+        Paragraph dateInfo = new Paragraph();
+        dateInfo.add(new Phrase("Fait à Rabat, le " + date + "\n", normalFont));
+
+        PdfPCell leftCell = new PdfPCell();
+        leftCell.addElement(dateInfo);
+        leftCell.setBorder(Rectangle.NO_BORDER);
+        leftCell.setPadding(5);
+
+        // Right cell - Doctor information and signature
+        Paragraph doctorInfo = new Paragraph();
+        doctorInfo.add(new Phrase("Dr. " + medecin + "\n", boldFont));
+        if (specialite != null) {
+            doctorInfo.add(new Phrase(specialite + "\n", normalFont));
+        }
+        doctorInfo.add(new Phrase("Signature et cachet", normalFont));
+        doctorInfo.setAlignment(Element.ALIGN_RIGHT);
+
+        PdfPCell rightCell = new PdfPCell();
+        rightCell.addElement(doctorInfo);
+        rightCell.setBorder(Rectangle.NO_BORDER);
+        rightCell.setPadding(5);
+
+        table.addCell(leftCell);
+        table.addCell(rightCell);
+
+        document.add(table);
+    }
+
+    private void addFooter(Document document, Layout layout) throws DocumentException {
+        LineSeparator lineSeparator = new LineSeparator();
+        if (layout.lightFooterLine) {
+            lineSeparator.setLineColor(new Color(200, 200, 200));
+            lineSeparator.setLineWidth(0.5f);
+        }
+        Paragraph line = new Paragraph();
+        line.add(new Chunk(lineSeparator));
+        line.setSpacingBefore(layout.spaceBeforeFooter);
+        line.setSpacingAfter(10);
+        document.add(line);
+
+        document.add(new PdfPTable(footer));
+    }
+
+    private Image loadLogo() {
+        try (InputStream in = PdfRenderingEngine.class.getResourceAsStream(LOGO_PATH)) {
+            if (in == null) {
+                logger.warn("Logo not found at: {}", LOGO_PATH);
+                return null;
+            }
+            Image image = compressed(Image.getInstance(in.readAllBytes()));
+            image.scaleToFit(100, 50);
+            return image;
+        } catch (Exception e) {
+            logger.error("Error loading PDF logo", e);
+            return null;
+        }
+    }
+
+    /**
+     * The logo is decoded to raw pixels, which the writer would otherwise compress again for
+     * every document. Compressing them here once lets each document copy the finished stream.
+     */
+    private static Image compressed(Image decoded) throws BadElementException {
+        byte[] pixels = decoded.getRawData();
+        if (!(decoded instanceof ImgRaw) || decoded.isDeflated() || decoded.getImageMask() != null
+                || decoded.getTransparency() != null) {
+            return decoded;
+        }
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(pixels.length / 4);
+        try (DeflaterOutputStream zip = new DeflaterOutputStream(out, deflater)) {
+            zip.write(pixels);
+        } catch (IOException e) {
+            return decoded;
+        } finally {
+            deflater.end();
+        }
+        Image image = Image.getInstance((int) decoded.getWidth(), (int) decoded.getHeight(),
+                decoded.getColorspace(), decoded.getBpc(), out.toByteArray());
+        image.setDeflated(true);
+        return image;
+    }
+
+    private static PdfPTable buildFooter() {
+        Font headerFont = font(FontFactory.HELVETICA_BOLD, 10);
+        Font normalFont = font(FontFactory.HELVETICA, 9);
+
+        PdfPTable footerTable = new PdfPTable(2);
+        footerTable.setWidthPercentage(100);
+
+        // Left column - Hospital information
+        Paragraph hospitalInfo = new Paragraph();
+        hospitalInfo.add(new Phrase("Hôpital Universitaire International de Rabat\n", headerFont));
+        hospitalInfo.add(new Phrase("Parc Technopolis 11 100 Sala Al Jadida – Maroc", normalFont));
+
+        // Right column - Contact information
+        Paragraph contactInfo = new Paragraph();
+        contactInfo.add(new Phrase("+212 5 30 10 30 00\n", normalFont));
+        contactInfo.add(new Phrase("contact@huir.ma", normalFont));
+        contactInfo.setAlignment(Element.ALIGN_RIGHT);
+
+        PdfPCell leftCell = new PdfPCell();
+        leftCell.addElement(hospitalInfo);
+        leftCell.setBorder(Rectangle.NO_BORDER);
+        leftCell.setPadding(0);
+
+        PdfPCell rightCell = new PdfPCell();
+        rightCell.addElement(contactInfo);
+        rightCell.setBorder(Rectangle.NO_BORDER);
+        rightCell.setPadding(0);
+        rightCell.setHorizontalAlignment(Element.ALIGN_RIGHT);
+
+        footerTable.addCell(leftCell);
+        footerTable.addCell(rightCell);
+        return footerTable;
+    }
+
+    private record FontKey(String name, float size, int style) {
+    }
+}
@@ -0,0 +1,431 @@
+package com.hdoc.sgdm.service;
+
+import com.hdoc.sgdm.dto.response.RenderJobDTO;
+import com.hdoc.sgdm.entity.RenderJob;
+import com.hdoc.sgdm.exception.ResourceNotFoundException;
+import com.hdoc.sgdm.repository.RenderJobRepository;
+import com.hdoc.sgdm.util.TransactionCallbacks;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Persistent queue of the document PDFs to render and upload.
+ *
+ * Services record their document and queue its job in the same transaction; once it commits,
+ * the job is handed to a bounded pool of render workers, so the request thread neither renders
+ * nor uploads and holds no connection meanwhile. A worker claims the job with a conditional
+ * update, calls the {@link DocumentRenderer} of the document type outside of any transaction
+ * and records the outcome; failed attempts are retried after a delay, up to a maximum.
+ *
+ * The table is the source of truth: a periodic poll picks up the jobs the pool could not take
+ * (queue full), those queued on a node that stopped before running them, the retries, and the
+ * attempts lost with their worker. Callers follow a job with {@link #getJob}, {@link #awaitAsync}
+ * or the events of {@link #subscribe}.
+ */
+@Component
+@Slf4j
+public class RenderJobQueue {
+
+    public static final String EVENT_JOB = "job";
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final RenderJobRepository renderJobRepository;
+    private final ObjectProvider<DocumentRenderer> rendererProvider;
+    private final MeterRegistry meterRegistry;
+    private final int maxAttempts;
+    private final long retryDelayMs;
+    private final long staleAfterMs;
+    private final long syncWaitMs;
+    private final long emitterTimeoutMs;
+    private final ThreadPoolExecutor workers;
+    // Timeouts and fresh reads of the synchronous waits, off the request threads and the workers
+    private final ScheduledExecutorService waiters;
+
+    // Callbacks of the callers following a job, run once when it is done
+    private final Map<Long, List<Consumer<RenderJob>>> listeners = new ConcurrentHashMap<>();
+
+    private volatile Map<RenderJob.TypeDocument, DocumentRenderer> renderers;
+
+    public RenderJobQueue(RenderJobRepository renderJobRepository,
+                          ObjectProvider<DocumentRenderer> rendererProvider,
+                          MeterRegistry meterRegistry,
+                          @Value("${render.jobs.workers:4}") int workerCount,
+                          @Value("${render.jobs.queue-capacity:100}") int queueCapacity,
+                          @Value("${render.jobs.max-attempts:3}") int maxAttempts,
+                          @Value("${render.jobs.retry-delay-ms:30000}") long retryDelayMs,
+                          @Value("${render.jobs.stale-after-ms:600000}") long staleAfterMs,
+                          @Value("${render.jobs.sync-wait-ms:30000}") long syncWaitMs,
+                          @Value("${render.jobs.sse-timeout-ms:120000}") long emitterTimeoutMs,
+                          @Value("${render.jobs.wait-threads:2}") int waitThreadCount) {
+        this.renderJobRepository = renderJobRepository;
+        this.rendererProvider = rendererProvider;
+        this.meterRegistry = meterRegistry;
+        this.maxAttempts = maxAttempts;
+        this.retryDelayMs = retryDelayMs;
+        this.staleAfterMs = staleAfterMs;
+        this.syncWaitMs = syncWaitMs;
+        this.emitterTimeoutMs = emitterTimeoutMs;
+
+        AtomicInteger threads = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "render-worker-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        AtomicInteger waitThreads = new AtomicInteger();
+        this.waiters = Executors.newScheduledThreadPool(waitThreadCount, runnable -> {
+            Thread thread = new Thread(runnable, "render-wait-" + waitThreads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Gauge.builder("render.jobs.queued", workers, executor -> executor.getQueue().size())
+                .description("Render jobs waiting for a worker on this node")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Interrupted attempts stay EN_COURS and are queued again once stale
+        workers.shutdownNow();
+        waiters.shutdownNow();
+    }
+
+    /**
+     * Queue the rendering of a document. The job is recorded in the current transaction and
+     * handed to the workers once it commits.
+     *
+     * @param typeDocument Type of the document
+     * @param idDocument ID of the document
+     * @return The queued job
+     */
+    public RenderJobDTO enqueue(RenderJob.TypeDocument typeDocument, Long idDocument) {
+        RenderJob job = renderJobRepository.save(RenderJob.builder()
+                .typeDocument(typeDocument)
+                .idDocument(idDocument)
+                .statut(RenderJob.StatutJob.EN_ATTENTE)
+                .build());
+        Long idJob = job.getIdJob();
+        TransactionCallbacks.afterCommit(() -> submit(idJob));
+        log.debug("Render job {} queued for {} {}", idJob, typeDocument, idDocument);
+        return mapToDTO(job);
+    }
+
+    /**
+     * Get the current state of a job.
+     *
+     * @param idJob Job ID
+     * @return The job
+     * @throws ResourceNotFoundException if the job does not exist
+     */
+    public RenderJobDTO getJob(Long idJob) {
+        return mapToDTO(findJob(idJob));
+    }
+
+    /**
+     * Wait for a job to be done, at most the configured synchronous wait, without blocking the
+     * caller. The job is read again on the wait threads, so the state is fresh rather than the
+     * one left in the caller's persistence context, and the result is delivered on them too,
+     * never on a render worker.
+     *
+     * @param idJob Job ID
+     * @return The job, done or still waiting or running if the wait timed out
+     */
+    public CompletableFuture<RenderJobDTO> awaitAsync(Long idJob) {
+        CompletableFuture<RenderJob> done = new CompletableFuture<>();
+        Consumer<RenderJob> listener = done::complete;
+        addListener(idJob, listener);
+        ScheduledFuture<?> timeout = waiters.schedule(() -> completeWithCurrentState(done, idJob),
+                syncWaitMs, TimeUnit.MILLISECONDS);
+        // The job may have been done before the listener was registered
+        waiters.execute(() -> {
+            try {
+                RenderJob job = findJob(idJob);
+                if (job.isTermine()) {
+                    done.complete(job);
+                }
+            } catch (RuntimeException e) {
+                done.completeExceptionally(e);
+            }
+        });
+        return done
+                .whenComplete((job, error) -> {
+                    timeout.cancel(false);
+                    removeListener(idJob, listener);
+                })
+                .thenApplyAsync(RenderJobQueue::mapToDTO, waiters);
+    }
+
+    /**
+     * Wait for a job to be done, at most the configured synchronous wait, blocking the caller.
+     * Request threads use {@link #awaitAsync} instead.
+     *
+     * @param idJob Job ID
+     * @return The job, done or still waiting or running if the wait timed out
+     */
+    public RenderJobDTO await(Long idJob) {
+        try {
+            return awaitAsync(idJob).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return getJob(idJob);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Follow a job. The client receives its current state, then its final state once it is
+     * done, after which the stream ends.
+     *
+     * @param idJob Job ID
+     * @return The emitter to return from the controller
+     * @throws ResourceNotFoundException if the job does not exist
+     */
+    public SseEmitter subscribe(Long idJob) {
+        RenderJob job = findJob(idJob);
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMs);
+        send(emitter, job);
+        if (job.isTermine()) {
+            emitter.complete();
+            return emitter;
+        }
+
+        Consumer<RenderJob> listener = finished -> {
+            send(emitter, finished);
+            emitter.complete();
+        };
+        emitter.onCompletion(() -> removeListener(idJob, listener));
+        emitter.onTimeout(() -> removeListener(idJob, listener));
+        emitter.onError(error -> removeListener(idJob, listener));
+        addListener(idJob, listener);
+
+        // The job may have been done between the first read and the registration
+        RenderJob latest = findJob(idJob);
+        if (latest.isTermine()) {
+            notifyListeners(latest);
+        }
+        return emitter;
+    }
+
+    /**
+     * Queue again the attempts lost with their worker, hand the due jobs to the workers, and
+     * report the jobs followed here that another node finished.
+     */
+    @Scheduled(fixedDelayString = "${render.jobs.poll-ms:5000}",
+               initialDelayString = "${render.jobs.poll-ms:5000}")
+    public void poll() {
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            int requeued = renderJobRepository.requeueStale(now.minusNanos(staleAfterMs * 1_000_000));
+            if (requeued > 0) {
+                log.warn("{} render job(s) lost with their worker queued again", requeued);
+            }
+
+            int capacity = workers.getQueue().remainingCapacity();
+            if (capacity > 0) {
+                LocalDateTime dueBefore = now.minusNanos(retryDelayMs * 1_000_000);
+                renderJobRepository.findDueIds(dueBefore, dueBefore, PageRequest.of(0, capacity))
+                        .forEach(this::submit);
+            }
+
+            if (!listeners.isEmpty()) {
+                renderJobRepository.findFinishedByIds(new ArrayList<>(listeners.keySet()))
+                        .forEach(this::notifyListeners);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to poll the render jobs", e);
+        }
+    }
+
+    /**
+     * Check whether a client asked for an asynchronous response with the Prefer header,
+     * in which case endpoints return the queued job instead of waiting for the PDF.
+     */
+    public static boolean isRespondAsync(String prefer) {
+        return prefer != null && prefer.toLowerCase(Locale.ROOT).contains("respond-async");
+    }
+
+    void submit(Long idJob) {
+        try {
+            workers.execute(() -> run(idJob));
+        } catch (RejectedExecutionException e) {
+            // Queue full or shutting down: the job stays EN_ATTENTE for the next poll
+            log.debug("Render job {} left to the poll, the worker queue is full", idJob);
+        }
+    }
+
+    void run(Long idJob) {
+        try {
+            if (renderJobRepository.claim(idJob, LocalDateTime.now()) == 0) {
+                // Already taken by another worker or node
+                return;
+            }
+            RenderJob job = renderJobRepository.findById(idJob).orElse(null);
+            if (job == null) {
+                return;
+            }
+            if (job.getTentatives() > maxAttempts) {
+                finish(job, RenderJob.StatutJob.ECHEC, null, "Nombre maximal de tentatives atteint", 0L);
+                return;
+            }
+
+            long begin = System.nanoTime();
+            try {
+                String url = renderer(job.getTypeDocument()).render(job.getIdDocument());
+                finish(job, RenderJob.StatutJob.TERMINE, url, null, System.nanoTime() - begin);
+                log.info("Render job {} done for {} {}: {}", idJob, job.getTypeDocument(), job.getIdDocument(), url);
+            } catch (Exception e) {
+                boolean retry = !isPermanent(e) && job.getTentatives() < maxAttempts;
+                log.warn("Render job {} for {} {} failed on attempt {}{}", idJob, job.getTypeDocument(),
+                        job.getIdDocument(), job.getTentatives(), retry ? ", will retry" : "", e);
+                finish(job, retry ? RenderJob.StatutJob.EN_ATTENTE : RenderJob.StatutJob.ECHEC,
+                        null, errorMessage(e), System.nanoTime() - begin);
+            }
+        } catch (RuntimeException e) {
+            // The job stays EN_COURS and is queued again once stale
+            log.error("Failed to run render job {}", idJob, e);
+        }
+    }
+
+    private void finish(RenderJob job, RenderJob.StatutJob statut, String url, String erreur, long elapsedNanos) {
+        LocalDateTime dateFin = statut == RenderJob.StatutJob.EN_ATTENTE ? null : LocalDateTime.now();
+        if (renderJobRepository.finish(job.getIdJob(), statut, url, erreur, dateFin) == 0) {
+            return;
+        }
+        Timer.builder("render.jobs")
+                .description("Duration of the render job attempts")
+                .tag("type", job.getTypeDocument().name())
+                .tag("statut", statut.name())
+                .register(meterRegistry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+
+        if (statut != RenderJob.StatutJob.EN_ATTENTE) {
+            job.setStatut(statut);
+            job.setUrl(url);
+            job.setErreur(erreur);
+            job.setDateFin(dateFin);
+            notifyListeners(job);
+        }
+    }
+
+    private DocumentRenderer renderer(RenderJob.TypeDocument typeDocument) {
+        Map<RenderJob.TypeDocument, DocumentRenderer> current = renderers;
+        if (current == null) {
+            // Resolved on first use: the renderers are the services that queue the jobs
+            current = new EnumMap<>(RenderJob.TypeDocument.class);
+            for (DocumentRenderer renderer : rendererProvider) {
+                current.put(renderer.getTypeDocument(), renderer);
+            }
+            renderers = current;
+        }
+        DocumentRenderer renderer = current.get(typeDocument);
+        if (renderer == null) {
+            throw new IllegalStateException("No renderer for documents of type " + typeDocument);
+        }
+        return renderer;
+    }
+
+    private void completeWithCurrentState(CompletableFuture<RenderJob> done, Long idJob) {
+        try {
+            done.complete(findJob(idJob));
+        } catch (RuntimeException e) {
+            done.completeExceptionally(e);
+        }
+    }
+
+    private RenderJob findJob(Long idJob) {
+        return renderJobRepository.findById(idJob)
+                .orElseThrow(() -> new ResourceNotFoundException("Render job not found with ID: " + idJob));
+    }
+
+    private void addListener(Long idJob, Consumer<RenderJob> listener) {
+        listeners.computeIfAbsent(idJob, id -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    private void removeListener(Long idJob, Consumer<RenderJob> listener) {
+        listeners.computeIfPresent(idJob, (id, current) -> {
+            current.remove(listener);
+            return current.isEmpty() ? null : current;
+        });
+    }
+
+    private void notifyListeners(RenderJob job) {
+        List<Consumer<RenderJob>> current = listeners.remove(job.getIdJob());
+        if (current != null) {
+            current.forEach(listener -> listener.accept(job));
+        }
+    }
+
+    private void send(SseEmitter emitter, RenderJob job) {
+        try {
+            emitter.send(SseEmitter.event().name(EVENT_JOB).data(mapToDTO(job)));
+        } catch (IOException | IllegalStateException e) {
+            // The client went away, the servlet container completes the emitter
+            log.debug("Could not send render job {} to a client: {}", job.getIdJob(), e.getMessage());
+        }
+    }
+
+    // A document that no longer exists will not appear on a retry
+    private static boolean isPermanent(Exception e) {
+        return e instanceof ResourceNotFoundException
+                || e instanceof ResponseStatusException statusException
+                        && statusException.getStatusCode() == HttpStatus.NOT_FOUND;
+    }
+
+    private static String errorMessage(Exception e) {
+        String message = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+        return message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message;
+    }
+
+    private static RenderJobDTO mapToDTO(RenderJob job) {
+        return RenderJobDTO.builder()
+                .idJob(job.getIdJob())
+                .typeDocument(job.getTypeDocument())
+                .idDocument(job.getIdDocument())
+                .statut(job.getStatut())
+                .tentatives(job.getTentatives())
+                .url(job.getUrl())
+                .erreur(job.getErreur())
+                .dateCreation(job.getDateCreation())
+                .dateFin(job.getDateFin())
+                .build();
+    }
+}
@@ -1,8 +1,12 @@
 package com.hdoc.sgdm.service;
 
+import com.hdoc.sgdm.dto.common.BulkRendezVousResultDTO;
 import com.hdoc.sgdm.dto.common.MedecinDTO;
-import com.hdoc.sgdm.dto.common.PatientDTO;
+import com.hdoc.sgdm.dto.request.BulkRendezVousRequest;
+import com.hdoc.sgdm.dto.request.RecurrenceRequest;
 import com.hdoc.sgdm.dto.request.RendezVousRequest;
+import com.hdoc.sgdm.dto.response.BulkRendezVousResponse;
+import com.hdoc.sgdm.dto.response.CompactRendezVousListResponse;
 import com.hdoc.sgdm.dto.response.RendezVousResponse;
 import com.hdoc.sgdm.entity.Medecin;
 import com.hdoc.sgdm.entity.Patient;
@@ -10,11 +14,18 @@ import com.hdoc.sgdm.entity.RendezVous;
 import com.hdoc.sgdm.exception.ConflictException;
 import com.hdoc.sgdm.exception.ResourceNotFoundException;
 import com.hdoc.sgdm.mapper.MedecinMapper;
-import com.hdoc.sgdm.mapper.PatientMapper;
+import com.hdoc.sgdm.mapper.RendezVousMapper;
 import com.hdoc.sgdm.repository.MedecinRepository;
 import com.hdoc.sgdm.repository.PatientRepository;
 import com.hdoc.sgdm.repository.RendezVousRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -26,15 +37,50 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class RendezVousService {
 
+    static final int MAX_SERIES_SIZE = 100;
+
+    // Distinguishes the sync tokens from the change sequence values that served as tokens before V14
+    static final String SYNC_TOKEN_PREFIX = "x";
+
+    private static final String INSERT_RENDEZ_VOUS = "INSERT INTO rendez_vous " +
+            "(id_patient, id_medecin, date_heure, duration_minutes, note, service, type_visit, status) " +
+            "VALUES (:idPatient, :idMedecin, :dateHeure, :durationMinutes, :note, :service, :typeVisit, :status)";
+
     private final RendezVousRepository rendezVousRepository;
     private final PatientRepository patientRepository;
     private final MedecinRepository medecinRepository;
     private final MedecinMapper medecinMapper;
+    private final RendezVousMapper rendezVousMapper;
+    private final AppointmentTimerWheel appointmentTimerWheel;
+    private final DoctorScheduleIndex doctorScheduleIndex;
+    private final DoctorBookingLock doctorBookingLock;
+    private final TodayAgendaCache todayAgendaCache;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    // Beyond this many changes since a token, the client has to reload its calendar
+    @Value("${rendezvous.sync.max-changes:1000}")
+    private int syncMaxChanges;
 
 
 
     @Transactional(readOnly = true)
     public List<RendezVousResponse> getAppointmentsForCalendar(LocalDateTime startDate, LocalDateTime endDate, UUID idMedecin, boolean includeAllStatuses) {
+        List<RendezVous> appointments = findAppointmentsForCalendar(startDate, endDate, idMedecin, includeAllStatuses);
+        if (appointments.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return rendezVousMapper.toResponses(appointments);
+    }
+    
+    /**
+     * Same appointments as {@link #getAppointmentsForCalendar}, in the compact shape.
+     */
+    @Transactional(readOnly = true)
+    public CompactRendezVousListResponse getCompactAppointmentsForCalendar(LocalDateTime startDate, LocalDateTime endDate, UUID idMedecin, boolean includeAllStatuses) {
+        return rendezVousMapper.toCompactResponse(findAppointmentsForCalendar(startDate, endDate, idMedecin, includeAllStatuses));
+    }
+    
+    private List<RendezVous> findAppointmentsForCalendar(LocalDateTime startDate, LocalDateTime endDate, UUID idMedecin, boolean includeAllStatuses) {
         List<RendezVous> appointments;
         
         if (includeAllStatuses) {
@@ -60,31 +106,86 @@ public class RendezVousService {
                         startDate, endDate, RendezVous.StatutRendezVous.PLANIFIE);
             }
         }
-        
-        if (appointments.isEmpty()) {
+        return appointments;
+    }
+
+    /**
+     * Entity tag of a calendar view. It changes whenever one of the appointments of the view is
+     * created, updated (including cancelled) or deleted, or the status of one of its doctors
+     * changes, and is computed without loading them. The names and details of the patients and
+     * doctors embedded in the view are not versioned, so their changes are not covered.
+     * 
+     * @return The entity tag, or null if the appointments are not tracked by the change sequence
+     * of V10 yet, or the view is empty
+     */
+    @Transactional(readOnly = true)
+    public String getCalendarETag(LocalDateTime startDate, LocalDateTime endDate, UUID idMedecin, boolean includeAllStatuses) {
+        RendezVousRepository.CalendarVersion version = rendezVousRepository.findCalendarVersion(
+                startDate, endDate, idMedecin, includeAllStatuses);
+        if (version.getMaxChangeSeq() == null) {
+            return null;
+        }
+        return "W/\"" + version.getMaxChangeSeq() + "-" + version.getCount() + "-" + version.getDoctorVersions() + "\"";
+    }
+    
+    /**
+     * Token to pass as {@code since} to get the appointments changed from now on, to be read before
+     * the appointments it comes with. It is the oldest transaction still in flight, so the changes of
+     * a transaction that commits late, however late, come after it; changes that were already
+     * committed may be returned again.
+     */
+    @Transactional(readOnly = true)
+    public String getSyncToken() {
+        return SYNC_TOKEN_PREFIX + rendezVousRepository.findSyncHorizon();
+    }
+    
+    /**
+     * Appointments created or updated (cancelled included) after a sync token, whatever their
+     * date, doctor or status, in change order.
+     * 
+     * @param since A token returned by {@link #getSyncToken()}
+     * @return The changed appointments
+     * @throws IllegalArgumentException if the token is invalid
+     * @throws IllegalStateException if there are too many changes or the token predates the current
+     *         format, and the calendar should be reloaded
+     */
+    @Transactional(readOnly = true)
+    public List<RendezVousResponse> getAppointmentChangesSince(String since) {
+        List<RendezVous> changes = findAppointmentChangesSince(since);
+        if (changes.isEmpty()) {
             return Collections.emptyList();
         }
+        return rendezVousMapper.toResponses(changes);
+    }
+    
+    /**
+     * Same changes as {@link #getAppointmentChangesSince}, in the compact shape.
+     */
+    @Transactional(readOnly = true)
+    public CompactRendezVousListResponse getCompactAppointmentChangesSince(String since) {
+        return rendezVousMapper.toCompactResponse(findAppointmentChangesSince(since));
+    }
+    
+    private List<RendezVous> findAppointmentChangesSince(String since) {
+        if (!since.startsWith(SYNC_TOKEN_PREFIX)) {
+            if (!since.isEmpty() && since.chars().allMatch(Character::isDigit)) {
+                // Change sequence value, issued before the tokens were taken from the transactions
+                throw new IllegalStateException("Jeton de synchronisation périmé, le calendrier doit être rechargé");
+            }
+            throw new IllegalArgumentException("Jeton de synchronisation invalide: " + since);
+        }
+        long horizon;
+        try {
+            horizon = Long.parseLong(since.substring(SYNC_TOKEN_PREFIX.length()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Jeton de synchronisation invalide: " + since);
+        }
         
-        // Extract all patient and doctor IDs
-        Set<UUID> patientIds = appointments.stream()
-                .map(RendezVous::getIdPatient)
-                .collect(Collectors.toSet());
-        
-        Set<UUID> doctorIds = appointments.stream()
-                .map(RendezVous::getIdMedecin)
-                .collect(Collectors.toSet());
-        
-        // Batch fetch all patients and doctors
-        Map<UUID, Patient> patientMap = patientRepository.findAllById(patientIds).stream()
-                .collect(Collectors.toMap(Patient::getIdPatient, p -> p));
-        
-        Map<UUID, Medecin> doctorMap = medecinRepository.findAllById(doctorIds).stream()
-                .collect(Collectors.toMap(Medecin::getIdMedecin, m -> m));
-        
-        // Map appointments to responses with complete objects
-        return appointments.stream()
-                .map(appointment -> mapToResponseWithObjects(appointment, patientMap, doctorMap))
-                .collect(Collectors.toList());
+        List<RendezVous> changes = rendezVousRepository.findChangedSince(horizon, PageRequest.of(0, syncMaxChanges + 1));
+        if (changes.size() > syncMaxChanges) {
+            throw new IllegalStateException("Trop de modifications depuis ce jeton, le calendrier doit être rechargé");
+        }
+        return changes;
     }
 
     @Transactional
@@ -100,9 +201,8 @@ public class RendezVousService {
         // Calculate end time to check for overlaps
         LocalDateTime endDateTime = request.getDateHeure().plusMinutes(request.getDurationMinutes());
         
-        // Check for overlapping appointments
-        if (rendezVousRepository.hasOverlappingAppointment(
-                request.getIdMedecin(), request.getDateHeure(), endDateTime)) {
+        // Check for overlapping appointments; the doctor's bookings stay locked until commit
+        if (hasOverlappingAppointment(request.getIdMedecin(), request.getDateHeure(), endDateTime, null)) {
             throw new ConflictException("Le médecin a déjà un rendez-vous programmé à cette heure");
         }
         
@@ -118,12 +218,16 @@ public class RendezVousService {
         rendezVous.setStatus(RendezVous.StatutRendezVous.PLANIFIE);
         
         rendezVous = rendezVousRepository.save(rendezVous);
+        appointmentTimerWheel.schedule(rendezVous);
+        doctorScheduleIndex.appointmentChanged(rendezVous);
         
         // Create response with full objects
         Map<UUID, Patient> patientMap = Collections.singletonMap(patient.getIdPatient(), patient);
         Map<UUID, Medecin> doctorMap = Collections.singletonMap(medecin.getIdMedecin(), medecin);
         
-        return mapToResponseWithObjects(rendezVous, patientMap, doctorMap);
+        RendezVousResponse response = rendezVousMapper.toResponse(rendezVous, patientMap, doctorMap);
+        todayAgendaCache.appointmentChanged(response);
+        return response;
     }
 
     @Transactional
@@ -141,12 +245,11 @@ public class RendezVousService {
         // Calculate end time for new appointment
         LocalDateTime endDateTime = request.getDateHeure().plusMinutes(request.getDurationMinutes());
         
-        // Check for overlapping appointments (only if doctor or time changed)
+        // Check for overlapping appointments (only if doctor or time changed), locking the doctor's bookings
         if ((rendezVous.getIdMedecin() != request.getIdMedecin() || 
              !rendezVous.getDateHeure().equals(request.getDateHeure()) ||
              !rendezVous.getDurationMinutes().equals(request.getDurationMinutes())) &&
-            rendezVousRepository.hasOverlappingAppointment(
-                request.getIdMedecin(), request.getDateHeure(), endDateTime)) {
+            hasOverlappingAppointment(request.getIdMedecin(), request.getDateHeure(), endDateTime, id)) {
             throw new ConflictException("Le médecin a déjà un rendez-vous programmé à cette heure");
         }
         
@@ -159,12 +262,16 @@ public class RendezVousService {
         rendezVous.setTypeVisit(request.getTypeVisit());
         
         rendezVous = rendezVousRepository.save(rendezVous);
+        appointmentTimerWheel.schedule(rendezVous);
+        doctorScheduleIndex.appointmentChanged(rendezVous);
         
         // Create response with full objects
         Map<UUID, Patient> patientMap = Collections.singletonMap(patient.getIdPatient(), patient);
         Map<UUID, Medecin> doctorMap = Collections.singletonMap(medecin.getIdMedecin(), medecin);
         
-        return mapToResponseWithObjects(rendezVous, patientMap, doctorMap);
+        RendezVousResponse response = rendezVousMapper.toResponse(rendezVous, patientMap, doctorMap);
+        todayAgendaCache.appointmentChanged(response);
+        return response;
     }
 
     @Transactional
@@ -174,6 +281,195 @@ public class RendezVousService {
         
         rendezVous.setStatus(RendezVous.StatutRendezVous.ANNULE);
         rendezVousRepository.save(rendezVous);
+        appointmentTimerWheel.cancel(id);
+        doctorScheduleIndex.appointmentChanged(rendezVous);
+        todayAgendaCache.appointmentRemoved(id);
+    }
+
+    /**
+     * Book a series of appointments of one patient with one doctor.
+     * The overlaps of the whole series are checked against one range query of the doctor's
+     * appointments, and the free appointments are inserted with one JDBC batch.
+     * 
+     * @param request The series, as a list of dates or a recurrence rule
+     * @return The result of each appointment of the series; when the request is atomic and one
+     *         appointment cannot be booked, none is
+     * @throws IllegalArgumentException if the series is empty, too long or ill-defined
+     */
+    @Transactional
+    public BulkRendezVousResponse bookAppointments(BulkRendezVousRequest request) {
+        List<LocalDateTime> dates = expandDates(request);
+        
+        Medecin medecin = medecinRepository.findById(request.getIdMedecin())
+                .orElseThrow(() -> new ResourceNotFoundException("Médecin non trouvé"));
+        Patient patient = patientRepository.findById(request.getIdPatient())
+                .orElseThrow(() -> new ResourceNotFoundException("Patient non trouvé"));
+        
+        // All the doctor's appointments around the series, with one query, none of which can
+        // change before commit
+        doctorBookingLock.lock(request.getIdMedecin());
+        LocalDateTime first = Collections.min(dates);
+        LocalDateTime last = Collections.max(dates);
+        List<DoctorScheduleIndex.Booking> booked = new ArrayList<>();
+        for (RendezVousRepository.BookedSlot slot : rendezVousRepository.findBookedSlotsForDoctors(
+                List.of(request.getIdMedecin()), first.minusDays(1), last.plusMinutes(request.getDurationMinutes()))) {
+            booked.add(new DoctorScheduleIndex.Booking(slot.getId(), slot.getDateHeure(),
+                    slot.getDateHeure().plusMinutes(slot.getDurationMinutes())));
+        }
+        DoctorScheduleIndex.DoctorSchedule schedule = new DoctorScheduleIndex.DoctorSchedule(booked);
+        
+        // Check each appointment against the existing ones and the ones accepted before it
+        LocalDateTime now = LocalDateTime.now();
+        List<BulkRendezVousResultDTO> results = new ArrayList<>();
+        List<RendezVous> accepted = new ArrayList<>();
+        Map<RendezVous, BulkRendezVousResultDTO> resultByAppointment = new IdentityHashMap<>();
+        for (LocalDateTime dateHeure : dates) {
+            LocalDateTime end = dateHeure.plusMinutes(request.getDurationMinutes());
+            BulkRendezVousResultDTO result = BulkRendezVousResultDTO.builder().dateHeure(dateHeure).build();
+            if (!dateHeure.isAfter(now)) {
+                result.setStatus("INVALID");
+                result.setMessage("La date du rendez-vous doit être dans le futur");
+            } else if (schedule.overlaps(dateHeure, end, null)) {
+                result.setStatus("CONFLICT");
+                result.setMessage("Le médecin a déjà un rendez-vous programmé à cette heure");
+            } else {
+                RendezVous rendezVous = newAppointment(request, dateHeure);
+                // Negative placeholder ID until the appointment is inserted
+                schedule = schedule.with(new DoctorScheduleIndex.Booking((long) -(accepted.size() + 1), dateHeure, end));
+                accepted.add(rendezVous);
+                resultByAppointment.put(rendezVous, result);
+            }
+            results.add(result);
+        }
+        
+        int rejected = dates.size() - accepted.size();
+        if (request.isAtomic() && rejected > 0) {
+            resultByAppointment.values().forEach(result -> {
+                result.setStatus("NOT_BOOKED");
+                result.setMessage("Série refusée : un autre rendez-vous de la série n'est pas disponible");
+            });
+            accepted.clear();
+        }
+        
+        insertAll(accepted);
+        
+        Map<UUID, Patient> patientMap = Collections.singletonMap(patient.getIdPatient(), patient);
+        Map<UUID, Medecin> doctorMap = Collections.singletonMap(medecin.getIdMedecin(), medecin);
+        Map<UUID, MedecinDTO> medecinDTOMap = medecinMapper.toDTOMap(doctorMap.values());
+        for (RendezVous rendezVous : accepted) {
+            appointmentTimerWheel.schedule(rendezVous);
+            doctorScheduleIndex.appointmentChanged(rendezVous);
+            BulkRendezVousResultDTO result = resultByAppointment.get(rendezVous);
+            result.setStatus("BOOKED");
+            result.setAppointment(rendezVousMapper.toResponse(rendezVous, patientMap, doctorMap, medecinDTOMap));
+            todayAgendaCache.appointmentChanged(result.getAppointment());
+        }
+        
+        String message;
+        if (accepted.isEmpty()) {
+            message = "Aucun rendez-vous n'a été réservé : " + rejected + " rendez-vous non disponible(s)";
+        } else if (rejected > 0) {
+            message = accepted.size() + " rendez-vous réservé(s), " + rejected + " non disponible(s)";
+        } else {
+            message = "Les " + accepted.size() + " rendez-vous de la série ont été réservés avec succès";
+        }
+        
+        return BulkRendezVousResponse.builder()
+                .status(accepted.isEmpty() ? "error" : "success")
+                .message(message)
+                .atomic(request.isAtomic())
+                .results(results)
+                .bookedCount(accepted.size())
+                .rejectedCount(dates.size() - accepted.size())
+                .build();
+    }
+    
+    /**
+     * Dates of the series, from its list of dates or its recurrence rule, in request order.
+     */
+    static List<LocalDateTime> expandDates(BulkRendezVousRequest request) {
+        boolean hasDates = request.getDates() != null && !request.getDates().isEmpty();
+        if (hasDates && request.getRecurrence() != null) {
+            throw new IllegalArgumentException("Indiquez soit une liste de dates, soit une règle de récurrence");
+        }
+        
+        List<LocalDateTime> dates = new ArrayList<>();
+        if (hasDates) {
+            if (request.getDates().stream().anyMatch(Objects::isNull)) {
+                throw new IllegalArgumentException("Les dates de la série ne peuvent pas être vides");
+            }
+            dates.addAll(request.getDates());
+        } else if (request.getRecurrence() != null) {
+            RecurrenceRequest recurrence = request.getRecurrence();
+            if (recurrence.getOccurrences() == null && recurrence.getUntil() == null) {
+                throw new IllegalArgumentException("La récurrence doit indiquer un nombre d'occurrences ou une date de fin");
+            }
+            int interval = recurrence.getInterval() != null ? recurrence.getInterval() : 1;
+            for (int i = 0; recurrence.getOccurrences() == null || i < recurrence.getOccurrences(); i++) {
+                // Always computed from the first date, so that monthly series do not drift after a short month
+                LocalDateTime dateHeure = switch (recurrence.getFrequency()) {
+                    case DAILY -> recurrence.getFirstDateHeure().plusDays((long) i * interval);
+                    case WEEKLY -> recurrence.getFirstDateHeure().plusWeeks((long) i * interval);
+                    case MONTHLY -> recurrence.getFirstDateHeure().plusMonths((long) i * interval);
+                };
+                if (recurrence.getUntil() != null && dateHeure.toLocalDate().isAfter(recurrence.getUntil())) {
+                    break;
+                }
+                if (dates.size() == MAX_SERIES_SIZE) {
+                    throw new IllegalArgumentException("Une série ne peut pas dépasser " + MAX_SERIES_SIZE + " rendez-vous");
+                }
+                dates.add(dateHeure);
+            }
+        }
+        
+        if (dates.isEmpty()) {
+            throw new IllegalArgumentException("La série doit contenir au moins un rendez-vous");
+        }
+        if (dates.size() > MAX_SERIES_SIZE) {
+            throw new IllegalArgumentException("Une série ne peut pas dépasser " + MAX_SERIES_SIZE + " rendez-vous");
+        }
+        return dates;
+    }
+    
+    private static RendezVous newAppointment(BulkRendezVousRequest request, LocalDateTime dateHeure) {
+        RendezVous rendezVous = new RendezVous();
+        rendezVous.setIdPatient(request.getIdPatient());
+        rendezVous.setIdMedecin(request.getIdMedecin());
+        rendezVous.setDateHeure(dateHeure);
+        rendezVous.setDurationMinutes(request.getDurationMinutes());
+        rendezVous.setNote(request.getNote());
+        rendezVous.setService(request.getService());
+        rendezVous.setTypeVisit(request.getTypeVisit());
+        rendezVous.setStatus(RendezVous.StatutRendezVous.PLANIFIE);
+        return rendezVous;
+    }
+    
+    /**
+     * Insert the appointments with one JDBC batch and set their generated IDs
+     * (IDENTITY keys keep Hibernate from batching the inserts itself).
+     */
+    private void insertAll(List<RendezVous> appointments) {
+        if (appointments.isEmpty()) {
+            return;
+        }
+        SqlParameterSource[] batch = appointments.stream()
+                .map(rendezVous -> new MapSqlParameterSource()
+                        .addValue("idPatient", rendezVous.getIdPatient())
+                        .addValue("idMedecin", rendezVous.getIdMedecin())
+                        .addValue("dateHeure", rendezVous.getDateHeure())
+                        .addValue("durationMinutes", rendezVous.getDurationMinutes())
+                        .addValue("note", rendezVous.getNote())
+                        .addValue("service", rendezVous.getService())
+                        .addValue("typeVisit", rendezVous.getTypeVisit())
+                        .addValue("status", rendezVous.getStatus().name()))
+                .toArray(SqlParameterSource[]::new);
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(INSERT_RENDEZ_VOUS, batch, keyHolder, new String[] {"id_rdv"});
+        
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int i = 0; i < appointments.size(); i++) {
+            appointments.get(i).setId(((Number) keys.get(i).values().iterator().next()).longValue());
+        }
     }
 
     /**
@@ -193,6 +489,9 @@ public class RendezVousService {
         try {
             // Perform permanent deletion
             rendezVousRepository.deleteById(id);
+            appointmentTimerWheel.cancel(id);
+            doctorScheduleIndex.appointmentRemoved(id);
+            todayAgendaCache.appointmentRemoved(id);
         } catch (Exception e) {
             // Handle database constraint violation and other potential errors
             // Check if there's a reference to this appointment from a Visite or other entity
@@ -232,6 +531,13 @@ public class RendezVousService {
         // Get all doctors
         List<Medecin> allDoctors = medecinRepository.findByStatus("AVAILABLE");
         
+        // Within the index horizon, answer for all doctors from memory
+        if (doctorScheduleIndex.covers(startDateTime, endDateTime)) {
+            return doctorScheduleIndex.findFreeDoctors(
+                    allDoctors.stream().map(Medecin::getIdMedecin).collect(Collectors.toList()),
+                    startDateTime, endDateTime);
+        }
+        
         // Filter out doctors with overlapping appointments
         return allDoctors.stream()
                 .filter(medecin -> !rendezVousRepository.hasOverlappingAppointment(
@@ -240,6 +546,22 @@ public class RendezVousService {
                 .collect(Collectors.toList());
     }
     
+    /**
+     * Check whether the doctor has a PLANIFIE or LATE appointment overlapping the time slot, before
+     * booking it. The doctor's bookings are locked until the end of the transaction and the
+     * database is checked, so that no other booking of the doctor can take the slot before this
+     * one commits. The in-memory schedule is not trusted here: it may still hold an appointment
+     * cancelled or moved on another node until its next reload.
+     * 
+     * @param excludedId Appointment being updated, ignored by the check; null on creation
+     */
+    private boolean hasOverlappingAppointment(UUID idMedecin, LocalDateTime start, LocalDateTime end, Long excludedId) {
+        doctorBookingLock.lock(idMedecin);
+        return excludedId != null
+                ? rendezVousRepository.hasOverlappingAppointmentExcluding(idMedecin, start, end, excludedId)
+                : rendezVousRepository.hasOverlappingAppointment(idMedecin, start, end);
+    }
+    
     /**
      * Get all upcoming appointments scheduled for today that haven't started yet.
      * This method returns appointments that:
@@ -247,24 +569,42 @@ public class RendezVousService {
      * 2. Have not started yet (dateHeure is after the current time) OR are LATE (status is LATE)
      * 3. Have status 'PLANIFIE' or 'LATE'
      * 
+     * They are served from {@link TodayAgendaCache}, or from the database until it holds the current day.
+     * 
      * @param idMedecin Optional doctor ID to filter appointments for a specific doctor
      * @return List of upcoming appointments for today
      */
     @Transactional(readOnly = true)
     public List<RendezVousResponse> getUpcomingAppointmentsForToday(UUID idMedecin) {
+        List<RendezVousResponse> cached = todayAgendaCache.findUpcoming(idMedecin);
+        if (cached != null) {
+            return cached;
+        }
+        
+        List<RendezVous> allUpcomingAppointments = findUpcomingAppointmentsForToday(idMedecin);
+        if (allUpcomingAppointments.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return rendezVousMapper.toResponses(allUpcomingAppointments);
+    }
+    
+    /**
+     * Same appointments as {@link #getUpcomingAppointmentsForToday(UUID)}, in the compact shape.
+     */
+    @Transactional(readOnly = true)
+    public CompactRendezVousListResponse getCompactUpcomingAppointmentsForToday(UUID idMedecin) {
+        List<RendezVousResponse> cached = todayAgendaCache.findUpcoming(idMedecin);
+        if (cached != null) {
+            return rendezVousMapper.toCompactResponseFromResponses(cached);
+        }
+        return rendezVousMapper.toCompactResponse(findUpcomingAppointmentsForToday(idMedecin));
+    }
+    
+    private List<RendezVous> findUpcomingAppointmentsForToday(UUID idMedecin) {
         LocalDateTime now = LocalDateTime.now();
         LocalDateTime today = now.toLocalDate().atStartOfDay();
         LocalDateTime tomorrow = today.plusDays(1);
         
-        // Debug log
-        System.out.println("DEBUG - Looking for appointments with:");
-        System.out.println("DEBUG - Current time: " + now);
-        System.out.println("DEBUG - Today date: " + today);
-        System.out.println("DEBUG - Tomorrow date: " + tomorrow);
-        if (idMedecin != null) {
-            System.out.println("DEBUG - Filtering by doctor ID: " + idMedecin);
-        }
-        
         List<RendezVous> upcomingAppointments;
         List<RendezVous> lateAppointments;
         
@@ -273,57 +613,24 @@ public class RendezVousService {
             // For planned appointments (future time)
             upcomingAppointments = rendezVousRepository.findUpcomingAppointmentsForTodayByDoctor(
                     today, tomorrow, now, idMedecin);
-            System.out.println("DEBUG - After query - Upcoming appointments for doctor count: " + upcomingAppointments.size());
             
             // For late appointments (past time but still on today's date)
             lateAppointments = rendezVousRepository.findLateAppointmentsByDoctor(
                     today, tomorrow, now, RendezVous.StatutRendezVous.LATE, idMedecin);
-            System.out.println("DEBUG - After query - Late appointments for doctor count: " + lateAppointments.size());
         } else {
             // For all doctors - planned appointments (future time)
             upcomingAppointments = rendezVousRepository.findUpcomingAppointmentsForToday(today, tomorrow, now);
-            System.out.println("DEBUG - After query - Upcoming appointments count: " + upcomingAppointments.size());
             
             // For all doctors - late appointments (past time but still on today's date)
             lateAppointments = rendezVousRepository.findByDateHeureBetweenAndStatusOrderByDateHeure(
                     today, tomorrow, RendezVous.StatutRendezVous.LATE);
-            System.out.println("DEBUG - After query - Late appointments count: " + lateAppointments.size());
         }
         
         // Combine both lists
         List<RendezVous> allUpcomingAppointments = new ArrayList<>();
         allUpcomingAppointments.addAll(upcomingAppointments);
         allUpcomingAppointments.addAll(lateAppointments);     // Late appointments next
-        
-        if (allUpcomingAppointments.isEmpty()) {
-            // If query returns empty, log individual conditions separately for debugging
-            System.out.println("DEBUG - No upcoming appointments found for today");
-            if (idMedecin != null) {
-                System.out.println("DEBUG - (Filtered by doctor ID: " + idMedecin + ")");
-            }
-            return Collections.emptyList();
-        }
-        
-        // Extract all patient and doctor IDs
-        Set<UUID> patientIds = allUpcomingAppointments.stream()
-                .map(RendezVous::getIdPatient)
-                .collect(Collectors.toSet());
-        
-        Set<UUID> doctorIds = allUpcomingAppointments.stream()
-                .map(RendezVous::getIdMedecin)
-                .collect(Collectors.toSet());
-        
-        // Batch fetch all patients and doctors
-        Map<UUID, Patient> patientMap = patientRepository.findAllById(patientIds).stream()
-                .collect(Collectors.toMap(Patient::getIdPatient, p -> p));
-        
-        Map<UUID, Medecin> doctorMap = medecinRepository.findAllById(doctorIds).stream()
-                .collect(Collectors.toMap(Medecin::getIdMedecin, m -> m));
-        
-        // Map appointments to responses with complete objects
-        return allUpcomingAppointments.stream()
-                .map(appointment -> mapToResponseWithObjects(appointment, patientMap, doctorMap))
-                .collect(Collectors.toList());
+        return allUpcomingAppointments;
     }
     
     /**
@@ -358,53 +665,6 @@ public class RendezVousService {
         Map<UUID, Medecin> doctorMap = medecin.isPresent() ?
                 Collections.singletonMap(medecin.get().getIdMedecin(), medecin.get()) : Collections.emptyMap();
         
-        return mapToResponseWithObjects(rendezVous, patientMap, doctorMap);
-    }
-    
-    private RendezVousResponse mapToResponseWithObjects(
-            RendezVous rendezVous,
-            Map<UUID, Patient> patientMap,
-            Map<UUID, Medecin> doctorMap) {
-        
-        RendezVousResponse response = new RendezVousResponse();
-        response.setId(rendezVous.getId());
-        response.setIdPatient(rendezVous.getIdPatient());
-        response.setIdMedecin(rendezVous.getIdMedecin());
-        response.setDateHeure(rendezVous.getDateHeure());
-        response.setDurationMinutes(rendezVous.getDurationMinutes());
-        response.setNote(rendezVous.getNote());
-        response.setStatus(rendezVous.getStatus());
-        response.setService(rendezVous.getService());
-        response.setTypeVisit(rendezVous.getTypeVisit());
-        
-        // Add basic patient fields for backward compatibility
-        Patient patient = patientMap.get(rendezVous.getIdPatient());
-        if (patient != null) {
-            response.setNomPatient(patient.getNom());
-            response.setPrenomPatient(patient.getPrenom());
-            
-            // Add complete patient object
-            PatientDTO patientDTO = PatientMapper.toPatientDTO(patient);
-            response.setPatient(patientDTO);
-        }
-        
-        // Add basic doctor fields for backward compatibility
-        Medecin medecin = doctorMap.get(rendezVous.getIdMedecin());
-        if (medecin != null) {
-            if (medecin.getUtilisateur() != null) {
-                response.setNomMedecin(medecin.getUtilisateur().getNom() + " " + medecin.getUtilisateur().getPrenom());
-            }
-            
-            // Add speciality if available
-            if (medecin.getIdSpecialite() != null) {
-                response.setSpecialiteMedecin("Specialité #" + medecin.getIdSpecialite());
-            }
-            
-            // Add complete doctor object
-            MedecinDTO medecinDTO = medecinMapper.toDTO(medecin);
-            response.setMedecin(medecinDTO);
-        }
-        
-        return response;
+        return rendezVousMapper.toResponse(rendezVous, patientMap, doctorMap);
     }
-} 
\ No newline at end of file
+}
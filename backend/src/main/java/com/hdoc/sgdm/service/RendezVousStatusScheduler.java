@@ -1,66 +1,63 @@
 package com.hdoc.sgdm.service;
 
-import com.hdoc.sgdm.entity.RendezVous;
 import com.hdoc.sgdm.repository.RendezVousRepository;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
-import java.time.LocalDate;
 import java.util.List;
 
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class RendezVousStatusScheduler {
 
     private final RendezVousRepository rendezVousRepository;
+    private final TodayAgendaCache todayAgendaCache;
+    private final Timer lateUpdateTimer;
+    private final DistributionSummary lateUpdateRows;
+
+    public RendezVousStatusScheduler(RendezVousRepository rendezVousRepository, TodayAgendaCache todayAgendaCache,
+                                     MeterRegistry meterRegistry) {
+        this.rendezVousRepository = rendezVousRepository;
+        this.todayAgendaCache = todayAgendaCache;
+        this.lateUpdateTimer = Timer.builder("rendezvous.late.update")
+                .description("Duration of the late appointments update")
+                .register(meterRegistry);
+        this.lateUpdateRows = DistributionSummary.builder("rendezvous.late.update.rows")
+                .description("Appointments moved from PLANIFIE to LATE per run")
+                .register(meterRegistry);
+    }
 
     /**
-     * Scheduled task that runs every 5 minutes to identify appointments that are late but still scheduled for today.
-     * - Identifies appointments with status "PLANIFIE" where the scheduled time has passed but is still on the current day
-     * - Updates their status to "LATE"
-     * - Logs this status change for auditing purposes
+     * Reconciliation task that identifies appointments that are late but still scheduled for today.
+     * {@link AppointmentTimerWheel} marks them at their due time; this pass catches up the ones it missed
+     * (appointments changed on another node, a failed update), every 30 minutes by default.
+     * - Moves appointments with status "PLANIFIE" whose scheduled time has passed today to "LATE",
+     *   with a single UPDATE statement
+     * - Logs the IDs of the changed appointments for auditing purposes
+     * - Marks them LATE in {@link TodayAgendaCache} once committed
+     * - Records the run duration and the number of changed rows as metrics
      */
-    @Scheduled(fixedRate = 300000) // 300,000 ms = 5 minutes
+    @Scheduled(fixedRateString = "${rendezvous.late.reconcile-ms:1800000}") // 1,800,000 ms = 30 minutes
     @Transactional
     public void updateLateAppointments() {
         LocalDateTime now = LocalDateTime.now();
-        LocalDate today = now.toLocalDate();
-        
-        // Start of day
-        LocalDateTime startOfDay = today.atStartOfDay();
-        
-        // End of day
-        LocalDateTime endOfDay = today.plusDays(1).atStartOfDay().minusSeconds(1);
-        
-        log.info("Running late appointments check at: {}", now);
+        LocalDateTime startOfDay = now.toLocalDate().atStartOfDay();
         
-        // Find appointments that:
-        // 1. Are scheduled for today
-        // 2. The scheduled time has passed (they are "late")
-        // 3. Are still in "PLANIFIE" status
-        List<RendezVous> lateAppointments = rendezVousRepository.findLateAppointments(
-            startOfDay, endOfDay, now, RendezVous.StatutRendezVous.PLANIFIE);
+        List<Long> lateAppointmentIds = lateUpdateTimer.record(
+                () -> rendezVousRepository.markLateAppointments(startOfDay, now));
+        lateUpdateRows.record(lateAppointmentIds.size());
         
-        if (!lateAppointments.isEmpty()) {
-            log.info("Found {} late appointments to update", lateAppointments.size());
-            
-            // Update each appointment status to LATE
-            for (RendezVous appointment : lateAppointments) {
-                appointment.setStatus(RendezVous.StatutRendezVous.LATE);
-                log.info("Updating appointment #{} for patient {} from PLANIFIE to LATE (scheduled at: {})", 
-                    appointment.getId(), appointment.getIdPatient(), appointment.getDateHeure());
-            }
-            
-            // Bulk save all updated appointments
-            rendezVousRepository.saveAll(lateAppointments);
-            log.info("Successfully updated {} appointments to LATE status", lateAppointments.size());
+        if (!lateAppointmentIds.isEmpty()) {
+            todayAgendaCache.appointmentsMarkedLate(lateAppointmentIds);
+            log.info("Updated {} appointments from PLANIFIE to LATE: {}", lateAppointmentIds.size(), lateAppointmentIds);
         } else {
             log.debug("No late appointments found to update");
         }
     }
-} 
\ No newline at end of file
+}
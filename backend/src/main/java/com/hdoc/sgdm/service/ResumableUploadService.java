@@ -0,0 +1,310 @@
+package com.hdoc.sgdm.service;
+
+import com.hdoc.sgdm.dto.request.InitiateUploadRequest;
+import com.hdoc.sgdm.dto.response.RenderJobDTO;
+import com.hdoc.sgdm.dto.response.UploadSessionDTO;
+import com.hdoc.sgdm.entity.Patient;
+import com.hdoc.sgdm.entity.RenderJob;
+import com.hdoc.sgdm.entity.UploadSession;
+import com.hdoc.sgdm.exception.ConflictException;
+import com.hdoc.sgdm.exception.ResourceNotFoundException;
+import com.hdoc.sgdm.repository.DocumentImporteRepository;
+import com.hdoc.sgdm.repository.PatientRepository;
+import com.hdoc.sgdm.repository.UploadSessionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Resumable uploads of patient documents, for the files too large or the networks too
+ * unreliable for a single multipart request.
+ *
+ * The client starts a session with the size of the file, sends it in numbered chunks of the
+ * size given by the session, in any order and as many times as needed, asks which byte ranges
+ * were received to resume after an interruption, then completes the session. Chunks are
+ * streamed to the {@link UploadSpool}; on completion a render job streams them to storage one
+ * after the other and creates the {@link com.hdoc.sgdm.entity.DocumentImporte}, so the file is
+ * never held in memory. Sessions left inactive are expired and their chunks removed.
+ */
+@Service
+public class ResumableUploadService implements DocumentRenderer {
+    private static final Logger logger = LoggerFactory.getLogger(ResumableUploadService.class);
+
+    private final UploadSessionRepository uploadSessionRepository;
+    private final PatientRepository patientRepository;
+    private final DocumentImporteRepository documentRepository;
+    private final DocumentService documentService;
+    private final SupabaseStorageService storageService;
+    private final UploadSpool uploadSpool;
+    private final RenderJobQueue renderJobQueue;
+    private final int chunkSize;
+    private final long maxSize;
+    private final long expireAfterMs;
+
+    public ResumableUploadService(UploadSessionRepository uploadSessionRepository,
+                                  PatientRepository patientRepository,
+                                  DocumentImporteRepository documentRepository,
+                                  DocumentService documentService,
+                                  SupabaseStorageService storageService,
+                                  UploadSpool uploadSpool,
+                                  RenderJobQueue renderJobQueue,
+                                  @Value("${upload.resumable.chunk-size:8388608}") int chunkSize,
+                                  @Value("${upload.resumable.max-size:10737418240}") long maxSize,
+                                  @Value("${upload.resumable.expire-after-ms:86400000}") long expireAfterMs) {
+        this.uploadSessionRepository = uploadSessionRepository;
+        this.patientRepository = patientRepository;
+        this.documentRepository = documentRepository;
+        this.documentService = documentService;
+        this.storageService = storageService;
+        this.uploadSpool = uploadSpool;
+        this.renderJobQueue = renderJobQueue;
+        this.chunkSize = chunkSize;
+        this.maxSize = maxSize;
+        this.expireAfterMs = expireAfterMs;
+    }
+
+    /**
+     * Start a resumable upload for a patient
+     *
+     * @param ipp Patient IPP
+     * @param request Metadata of the document and size of the file
+     * @return The session, with the size and number of the chunks to send
+     * @throws IllegalArgumentException if the file is larger than the maximum size
+     */
+    @Transactional
+    public UploadSessionDTO initiate(String ipp, InitiateUploadRequest request) {
+        Patient patient = patientRepository.findByIpp(ipp)
+                .orElseThrow(() -> new ResourceNotFoundException("Patient with IPP " + ipp + " not found"));
+
+        if (request.getSize() > maxSize) {
+            throw new IllegalArgumentException("File size exceeds the maximum allowed size of " + maxSize + " bytes");
+        }
+
+        String filename = request.getFilename();
+        String title = request.getTitle() != null && !request.getTitle().isEmpty()
+                ? request.getTitle()
+                : (filename != null ? filename.replaceAll("\\.[^.]+$", "") : "Document");
+
+        UploadSession session = uploadSessionRepository.save(UploadSession.builder()
+                .idPatient(patient.getIdPatient())
+                .nom(title)
+                .description(request.getDescription())
+                .typeDocument(request.getTypeDocument())
+                .nomFichier(filename)
+                .contentType(request.getContentType())
+                .taille(request.getSize())
+                .tailleChunk(chunkSize)
+                .statut(UploadSession.StatutUpload.EN_COURS)
+                .build());
+
+        logger.info("Upload session {} started for patient IPP {}: {}, {} bytes in {} chunks",
+                session.getIdSession(), ipp, title, session.getTaille(), session.getNombreChunks());
+        return mapToDTO(session, new BitSet());
+    }
+
+    /**
+     * Store a chunk of the file, streamed from the request body. A chunk already received is
+     * replaced, once the session is known to still accept chunks. Runs outside of any transaction, and its endpoint is left out of open-in-view
+     * (see OpenEntityManagerInViewConfig), so the session is read with a connection released
+     * before the chunk is received.
+     *
+     * @param idSession Upload session ID
+     * @param index Chunk number, from 0
+     * @param content The chunk content
+     * @return The session, with the byte ranges received so far
+     * @throws IllegalArgumentException if the chunk number or its size is not the expected one
+     * @throws ConflictException if the session does not accept chunks anymore
+     */
+    public UploadSessionDTO putChunk(Long idSession, int index, InputStream content) throws IOException {
+        UploadSession session = findSession(idSession);
+        checkReceiving(session);
+        if (index < 0 || index >= session.getNombreChunks()) {
+            throw new IllegalArgumentException("Chunk number must be between 0 and " + (session.getNombreChunks() - 1));
+        }
+
+        Path received = uploadSpool.receiveChunk(idSession, index, content, session.getTailleChunk(index));
+        try {
+            if (uploadSessionRepository.touch(idSession, LocalDateTime.now()) == 0) {
+                // Completed or expired while the chunk was received: the chunks it has stay as they are
+                checkReceiving(findSession(idSession));
+            }
+            uploadSpool.commitChunk(received, idSession, index);
+        } finally {
+            uploadSpool.discard(received);
+        }
+
+        logger.debug("Chunk {} received for upload session {}", index, idSession);
+        return mapToDTO(session, uploadSpool.receivedChunks(idSession));
+    }
+
+    /**
+     * Get the state of an upload session and the byte ranges received so far
+     *
+     * @param idSession Upload session ID
+     * @return The session
+     */
+    public UploadSessionDTO getSession(Long idSession) throws IOException {
+        UploadSession session = findSession(idSession);
+        return mapToDTO(session, uploadSpool.receivedChunks(idSession));
+    }
+
+    /**
+     * Complete an upload once all its chunks are received. The chunks are assembled and pushed
+     * to storage by a render job, queued once the transaction commits, which then creates the
+     * document. Completing a session already completed returns it unchanged.
+     *
+     * @param idSession Upload session ID
+     * @return The session, with the ID of the render job
+     * @throws ConflictException if chunks are missing or the session expired
+     */
+    @Transactional
+    public UploadSessionDTO complete(Long idSession) throws IOException {
+        UploadSession session = findSession(idSession);
+        BitSet received = uploadSpool.receivedChunks(idSession);
+        if (session.getStatut() != UploadSession.StatutUpload.EN_COURS) {
+            if (session.getStatut() == UploadSession.StatutUpload.EXPIRE) {
+                throw new ConflictException("Upload session " + idSession + " has expired");
+            }
+            return mapToDTO(session, received);
+        }
+
+        List<Integer> missing = missingChunks(session, received);
+        if (!missing.isEmpty()) {
+            throw new ConflictException("Upload session " + idSession + " is missing chunks " + missing);
+        }
+
+        RenderJobDTO job = renderJobQueue.enqueue(RenderJob.TypeDocument.DOCUMENT_IMPORTE, idSession);
+        LocalDateTime now = LocalDateTime.now();
+        if (uploadSessionRepository.startAssembly(idSession, job.getIdJob(), now) == 0) {
+            // Completed by a concurrent request: rolls back this job
+            throw new ConflictException("Upload session " + idSession + " is already completed");
+        }
+        session.setStatut(UploadSession.StatutUpload.ASSEMBLAGE);
+        session.setIdJob(job.getIdJob());
+        session.setDateMaj(now);
+
+        logger.info("Upload session {} complete, assembly queued as render job {}", idSession, job.getIdJob());
+        return mapToDTO(session, received);
+    }
+
+    @Override
+    public RenderJob.TypeDocument getTypeDocument() {
+        return RenderJob.TypeDocument.DOCUMENT_IMPORTE;
+    }
+
+    /**
+     * Stream the chunks of a completed upload to storage, create its document and remove the
+     * chunks from the spool. Runs outside of any transaction: each read and the final update
+     * use their own.
+     *
+     * @param idSession Upload session ID
+     * @return The public URL of the file
+     */
+    @Override
+    public String render(Long idSession) throws IOException {
+        UploadSession session = findSession(idSession);
+        if (session.getStatut() == UploadSession.StatutUpload.TERMINE) {
+            // Document created by an attempt whose outcome was lost
+            return documentRepository.findById(session.getIdDocument())
+                    .map(document -> document.getUrl())
+                    .orElseThrow(() -> new ResourceNotFoundException("Document with ID " + session.getIdDocument() + " not found"));
+        }
+        if (session.getStatut() != UploadSession.StatutUpload.ASSEMBLAGE) {
+            throw new ResourceNotFoundException("Upload session " + idSession + " is not being assembled");
+        }
+
+        Patient patient = patientRepository.findByIdPatient(session.getIdPatient())
+                .orElseThrow(() -> new ResourceNotFoundException("Patient with ID " + session.getIdPatient() + " not found"));
+
+        StorageContent content = uploadSpool.content(idSession, session.getNombreChunks());
+        String fileUrl = storageService.storePatientDocument(content, session.getNomFichier(),
+                session.getContentType(), patient.getIpp(), session.getNom());
+        documentService.createFromUpload(session, fileUrl);
+
+        uploadSpool.delete(idSession);
+        return fileUrl;
+    }
+
+    /**
+     * Expire the sessions without any activity for the configured time, and remove their chunks
+     */
+    @Scheduled(fixedDelayString = "${upload.resumable.cleanup-ms:3600000}",
+               initialDelayString = "${upload.resumable.cleanup-ms:3600000}")
+    public void expireInactiveSessions() {
+        try {
+            expireSessionsInactiveSince(LocalDateTime.now().minusNanos(expireAfterMs * 1_000_000));
+        } catch (RuntimeException e) {
+            logger.warn("Failed to expire the inactive upload sessions", e);
+        }
+    }
+
+    void expireSessionsInactiveSince(LocalDateTime updatedBefore) {
+        for (Long idSession : uploadSessionRepository.findInactiveIds(updatedBefore)) {
+            if (uploadSessionRepository.expire(idSession, updatedBefore) > 0) {
+                uploadSpool.delete(idSession);
+                logger.info("Upload session {} expired", idSession);
+            }
+        }
+    }
+
+    private UploadSession findSession(Long idSession) {
+        return uploadSessionRepository.findById(idSession)
+                .orElseThrow(() -> new ResourceNotFoundException("Upload session not found with ID: " + idSession));
+    }
+
+    private static void checkReceiving(UploadSession session) {
+        if (session.getStatut() != UploadSession.StatutUpload.EN_COURS) {
+            throw new ConflictException("Upload session " + session.getIdSession() + " does not accept chunks anymore ("
+                    + session.getStatut() + ")");
+        }
+    }
+
+    private static List<Integer> missingChunks(UploadSession session, BitSet received) {
+        List<Integer> missing = new ArrayList<>();
+        for (int index = received.nextClearBit(0); index < session.getNombreChunks(); index = received.nextClearBit(index + 1)) {
+            missing.add(index);
+        }
+        return missing;
+    }
+
+    private static UploadSessionDTO mapToDTO(UploadSession session, BitSet received) {
+        // Consecutive chunks make one range
+        List<UploadSessionDTO.Plage> plages = new ArrayList<>();
+        for (int start = received.nextSetBit(0); start >= 0 && start < session.getNombreChunks(); ) {
+            int end = Math.min(received.nextClearBit(start), session.getNombreChunks());
+            plages.add(new UploadSessionDTO.Plage((long) start * session.getTailleChunk(),
+                    Math.min((long) end * session.getTailleChunk(), session.getTaille()) - 1));
+            start = received.nextSetBit(end);
+        }
+
+        return UploadSessionDTO.builder()
+                .idSession(session.getIdSession())
+                .idPatient(session.getIdPatient())
+                .nom(session.getNom())
+                .typeDocument(session.getTypeDocument())
+                .nomFichier(session.getNomFichier())
+                .taille(session.getTaille())
+                .tailleChunk(session.getTailleChunk())
+                .nombreChunks(session.getNombreChunks())
+                .statut(session.getStatut())
+                .plagesRecues(plages)
+                .chunksManquants(session.getStatut() == UploadSession.StatutUpload.EN_COURS
+                        ? missingChunks(session, received) : List.of())
+                .idJob(session.getIdJob())
+                .idDocument(session.getIdDocument())
+                .dateCreation(session.getDateCreation())
+                .dateMaj(session.getDateMaj())
+                .build();
+    }
+}
@@ -0,0 +1,111 @@
+package com.hdoc.sgdm.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Rebuilds an in-memory view from a database snapshot without losing the changes committed
+ * while the snapshot is loading.
+ *
+ * The snapshot is loaded outside of the change lock, so the view keeps being read and patched
+ * during a rebuild. Every change applied in the meantime is recorded and replayed on the fresh
+ * state before it replaces the current one, since the snapshot may have been read before the
+ * change committed.
+ *
+ * @param <T> Type of the state of the view
+ */
+final class SnapshotRebuilder<T> {
+
+    private final Object buildMonitor = new Object();
+    private final Lock changeLock;
+
+    // Changes applied while a rebuild is loading its snapshot, guarded by changeLock
+    private List<Consumer<T>> replayAfterRebuild;
+
+    SnapshotRebuilder() {
+        this(new ReentrantLock());
+    }
+
+    /**
+     * @param changeLock Lock under which the view applies its changes and swaps its state
+     */
+    SnapshotRebuilder(Lock changeLock) {
+        this.changeLock = changeLock;
+    }
+
+    /**
+     * Load a fresh state and install it once the changes applied meanwhile are replayed on it.
+     * Rebuilds run one at a time.
+     *
+     * @param load Loads the state from the database
+     * @param install Replaces the current state, called under the change lock
+     */
+    void rebuild(Supplier<T> load, Consumer<T> install) {
+        synchronized (buildMonitor) {
+            locked(() -> replayAfterRebuild = new ArrayList<>());
+
+            T fresh;
+            try {
+                fresh = load.get();
+            } catch (RuntimeException e) {
+                locked(() -> replayAfterRebuild = null);
+                throw e;
+            }
+
+            locked(() -> {
+                replayAfterRebuild.forEach(change -> change.accept(fresh));
+                replayAfterRebuild = null;
+                install.accept(fresh);
+            });
+        }
+    }
+
+    /**
+     * Run the first build unless the view is already built, waiting for a build in progress.
+     *
+     * @param built Whether the view holds a state
+     * @param rebuild Builds the view
+     */
+    void ensureBuilt(BooleanSupplier built, Runnable rebuild) {
+        if (built.getAsBoolean()) {
+            return;
+        }
+        synchronized (buildMonitor) {
+            if (!built.getAsBoolean()) {
+                rebuild.run();
+            }
+        }
+    }
+
+    /**
+     * Apply a change to the current state under the change lock.
+     *
+     * @param replay The change to replay on the state being loaded, if a rebuild is in progress
+     * @param action Applies the change to the current state
+     */
+    void apply(Consumer<T> replay, Runnable action) {
+        locked(() -> {
+            if (replayAfterRebuild != null) {
+                replayAfterRebuild.add(replay);
+            }
+            action.run();
+        });
+    }
+
+    /**
+     * Run an action under the change lock, ordered with the changes and the state swaps.
+     */
+    void locked(Runnable action) {
+        changeLock.lock();
+        try {
+            action.run();
+        } finally {
+            changeLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.hdoc.sgdm.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Content produced in full to a temporary file before it is stored, such as a rendered PDF:
+ * a failure to produce it is raised before the upload begins, instead of looking like a
+ * failure of the upload, and an upload sent again re-reads the file rather than producing
+ * the content again. Closing it deletes the file.
+ */
+public final class SpooledContent implements StorageContent, Closeable {
+
+    private final Path file;
+    private final long length;
+
+    SpooledContent(Path file) throws IOException {
+        this.file = file;
+        this.length = Files.size(file);
+    }
+
+    @Override
+    public long length() {
+        return length;
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        Files.copy(file, out);
+    }
+
+    @Override
+    public void close() throws IOException {
+        Files.deleteIfExists(file);
+    }
+}
@@ -0,0 +1,77 @@
+package com.hdoc.sgdm.service;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Content of a file to store, written to the storage as it is read instead of being loaded
+ * in memory first: an upload holds one copy buffer whatever the size of the file.
+ *
+ * The content may be written more than once, when an upload is sent again after a failure.
+ */
+public interface StorageContent {
+
+    /**
+     * Size of the content in bytes
+     */
+    long length();
+
+    /**
+     * Writes the whole content to the stream, without closing it
+     */
+    void writeTo(OutputStream out) throws IOException;
+
+    static StorageContent of(byte[] content) {
+        return new StorageContent() {
+            @Override
+            public long length() {
+                return content.length;
+            }
+
+            @Override
+            public void writeTo(OutputStream out) throws IOException {
+                out.write(content);
+            }
+        };
+    }
+
+    static StorageContent of(Path file) throws IOException {
+        long length = Files.size(file);
+        return new StorageContent() {
+            @Override
+            public long length() {
+                return length;
+            }
+
+            @Override
+            public void writeTo(OutputStream out) throws IOException {
+                Files.copy(file, out);
+            }
+        };
+    }
+
+    /**
+     * Content of an uploaded file, read from the temporary file of the multipart request when
+     * it was spooled to disk
+     */
+    static StorageContent of(MultipartFile file) {
+        return new StorageContent() {
+            @Override
+            public long length() {
+                return file.getSize();
+            }
+
+            @Override
+            public void writeTo(OutputStream out) throws IOException {
+                try (InputStream in = file.getInputStream()) {
+                    in.transferTo(out);
+                }
+            }
+        };
+    }
+}
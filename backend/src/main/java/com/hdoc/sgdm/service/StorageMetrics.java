@@ -0,0 +1,44 @@
+package com.hdoc.sgdm.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Upload meters shared by the {@link ObjectStorage} backends: "storage.uploads" times each
+ * upload, "storage.upload.bytes" sums the bytes sent and "storage.retries" counts the requests
+ * sent again after a failure.
+ */
+class StorageMetrics {
+
+    private final MeterRegistry meterRegistry;
+    private final String backend;
+
+    StorageMetrics(MeterRegistry meterRegistry, String backend) {
+        this.meterRegistry = meterRegistry;
+        this.backend = backend;
+    }
+
+    void recordUpload(String bucket, long bytes, long startNanos, boolean success) {
+        Timer.builder("storage.uploads")
+                .tag("backend", backend)
+                .tag("bucket", bucket)
+                .tag("outcome", success ? "success" : "failure")
+                .register(meterRegistry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        if (success) {
+            DistributionSummary.builder("storage.upload.bytes")
+                    .baseUnit("bytes")
+                    .tag("backend", backend)
+                    .tag("bucket", bucket)
+                    .register(meterRegistry)
+                    .record(bytes);
+        }
+    }
+
+    void recordRetry(String operation) {
+        meterRegistry.counter("storage.retries", "backend", backend, "operation", operation).increment();
+    }
+}
@@ -0,0 +1,254 @@
+package com.hdoc.sgdm.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okio.BufferedSink;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * {@link ObjectStorage} on Supabase Storage.
+ *
+ * Uploads are streamed from their {@link StorageContent}, so their size does not depend on
+ * the heap.
+ *
+ * Buckets are checked, and created if missing, the first time they are used; the buckets
+ * known to exist are then remembered for the life of the process. Requests failing on the
+ * network, with a 5xx or a 429 are sent again after an exponential backoff with full jitter,
+ * which is safe since uploads overwrite (x-upsert) and deletes are idempotent.
+ */
+@Component
+@ConditionalOnProperty(name = "storage.backend", havingValue = "supabase", matchIfMissing = true)
+@Slf4j
+public class SupabaseObjectStorage implements ObjectStorage {
+
+    private static final MediaType JSON = MediaType.parse("application/json");
+
+    private final OkHttpClient httpClient;
+    private final StorageMetrics metrics;
+    private final String supabaseUrl;
+    private final String serviceRoleKey;
+    private final int maxAttempts;
+    private final long backoffMs;
+    private final long maxBackoffMs;
+
+    private final Set<String> knownBuckets = ConcurrentHashMap.newKeySet();
+
+    public SupabaseObjectStorage(OkHttpClient storageHttpClient,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${supabase.url}") String supabaseUrl,
+                                 @Value("${supabase.service-role-key}") String serviceRoleKey,
+                                 @Value("${storage.retry.max-attempts:3}") int maxAttempts,
+                                 @Value("${storage.retry.backoff-ms:200}") long backoffMs,
+                                 @Value("${storage.retry.max-backoff-ms:5000}") long maxBackoffMs) {
+        this.httpClient = storageHttpClient;
+        this.metrics = new StorageMetrics(meterRegistry, "supabase");
+        this.supabaseUrl = supabaseUrl;
+        this.serviceRoleKey = serviceRoleKey;
+        this.maxAttempts = maxAttempts;
+        this.backoffMs = backoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+    }
+
+    @Override
+    public String put(String bucket, String path, StorageContent content, String contentType) throws IOException {
+        ensureBucketExists(bucket);
+
+        String uploadUrl = supabaseUrl + "/storage/v1/object/" + bucket + "/" + path;
+        log.debug("Uploading {} bytes to: {}", content.length(), uploadUrl);
+
+        StreamingBody body = new StreamingBody(content, MediaType.parse(contentType));
+        Request request = new Request.Builder()
+                .url(uploadUrl)
+                .put(body)
+                .addHeader("apikey", serviceRoleKey)
+                .addHeader("Authorization", "Bearer " + serviceRoleKey)
+                .addHeader("x-upsert", "true")
+                .build();
+
+        long start = System.nanoTime();
+        boolean success = false;
+        try (Response response = execute(request, "upload")) {
+            if (!response.isSuccessful()) {
+                String responseBody = response.body() != null ? response.body().string() : "";
+                throw new IOException("Failed to upload file to Supabase. Status: " + response.code()
+                        + " - " + responseBody);
+            }
+            success = true;
+            return getPublicUrl(bucket, path);
+        } finally {
+            metrics.recordUpload(bucket, body.written, start, success);
+        }
+    }
+
+    @Override
+    public boolean delete(String url) throws IOException {
+        String publicPrefix = supabaseUrl + "/storage/v1/object/public/";
+        if (url == null || !url.startsWith(publicPrefix)) {
+            log.warn("URL does not appear to be a Supabase storage URL: {}", url);
+            return false;
+        }
+
+        Request request = new Request.Builder()
+                .url(supabaseUrl + "/storage/v1/object/" + url.substring(publicPrefix.length()))
+                .delete()
+                .addHeader("apikey", serviceRoleKey)
+                .addHeader("Authorization", "Bearer " + serviceRoleKey)
+                .build();
+
+        try (Response response = execute(request, "delete")) {
+            if (response.isSuccessful()) {
+                return true;
+            } else if (response.code() == 404) {
+                log.info("File not found in storage, considering delete successful");
+                return true;
+            }
+            log.warn("Failed to delete file, status: {}", response.code());
+            return false;
+        }
+    }
+
+    @Override
+    public String getPublicUrl(String bucket, String path) {
+        return supabaseUrl + "/storage/v1/object/public/" + bucket + "/" + path;
+    }
+
+    /**
+     * Creates the bucket, as public, unless it is already known to exist. Failures are only
+     * logged: the upload itself reports whether the bucket is usable, and the bucket is checked
+     * again on the next upload.
+     */
+    private void ensureBucketExists(String bucket) {
+        if (knownBuckets.contains(bucket)) {
+            return;
+        }
+
+        Request checkRequest = new Request.Builder()
+                .url(supabaseUrl + "/storage/v1/bucket/" + bucket)
+                .get()
+                .addHeader("apikey", serviceRoleKey)
+                .addHeader("Authorization", "Bearer " + serviceRoleKey)
+                .build();
+
+        try {
+            try (Response response = execute(checkRequest, "bucket")) {
+                if (response.code() == 200) {
+                    knownBuckets.add(bucket);
+                    return;
+                }
+            }
+
+            log.info("Bucket {} doesn't exist, creating...", bucket);
+            String jsonBody = "{\"id\":\"" + bucket + "\",\"name\":\"" + bucket + "\",\"public\":true}";
+            Request createRequest = new Request.Builder()
+                    .url(supabaseUrl + "/storage/v1/bucket")
+                    .post(RequestBody.create(jsonBody, JSON))
+                    .addHeader("apikey", serviceRoleKey)
+                    .addHeader("Authorization", "Bearer " + serviceRoleKey)
+                    .build();
+
+            try (Response response = execute(createRequest, "bucket")) {
+                String responseBody = response.body() != null ? response.body().string() : "";
+                // Created meanwhile by another node
+                if (response.isSuccessful() || response.code() == 409 || responseBody.contains("already exists")) {
+                    log.info("Bucket {} is ready", bucket);
+                    knownBuckets.add(bucket);
+                } else {
+                    log.warn("Failed to create bucket {}: {} - {}", bucket, response.code(), responseBody);
+                }
+            }
+        } catch (IOException e) {
+            log.error("Error checking/creating bucket {}: {}", bucket, e.getMessage());
+        }
+    }
+
+    /**
+     * Sends the request, again after a backoff while it fails on the network or with a status
+     * worth retrying, up to the maximum number of attempts. The last response is returned
+     * whatever its status.
+     */
+    private Response execute(Request request, String operation) throws IOException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                Response response = httpClient.newCall(request).execute();
+                if (attempt >= maxAttempts || !isRetryable(response.code())) {
+                    return response;
+                }
+                log.warn("Storage {} returned {}, attempt {}/{}", operation, response.code(), attempt, maxAttempts);
+                response.close();
+            } catch (IOException e) {
+                if (attempt >= maxAttempts) {
+                    throw e;
+                }
+                log.warn("Storage {} failed, attempt {}/{}: {}", operation, attempt, maxAttempts, e.getMessage());
+            }
+
+            metrics.recordRetry(operation);
+            try {
+                Thread.sleep(backoff(attempt, backoffMs, maxBackoffMs));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting to retry " + operation);
+            }
+        }
+    }
+
+    /**
+     * Request body writing the content straight to the connection, with a fixed length when it
+     * is known and chunked otherwise. Each attempt writes the content again.
+     */
+    private static class StreamingBody extends RequestBody {
+
+        private final StorageContent content;
+        private final MediaType contentType;
+        private volatile long written;
+
+        StreamingBody(StorageContent content, MediaType contentType) {
+            this.content = content;
+            this.contentType = contentType;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return contentType;
+        }
+
+        @Override
+        public long contentLength() {
+            return content.length();
+        }
+
+        @Override
+        public void writeTo(BufferedSink sink) throws IOException {
+            CountingOutputStream out = new CountingOutputStream(sink.outputStream());
+            content.writeTo(out);
+            out.flush();
+            written = out.getCount();
+        }
+    }
+
+    static boolean isRetryable(int status) {
+        return status == 429 || status >= 500;
+    }
+
+    /**
+     * Full jitter: a random delay between 0 and the exponential backoff of the attempt, so that
+     * the clients failing together do not retry together
+     */
+    static long backoff(int attempt, long backoffMs, long maxBackoffMs) {
+        long ceiling = Math.min(maxBackoffMs, backoffMs << Math.min(attempt - 1, 20));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+}
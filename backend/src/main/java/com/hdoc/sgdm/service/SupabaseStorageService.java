@@ -1,6 +1,5 @@
 package com.hdoc.sgdm.service;
 
-import okhttp3.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -11,35 +10,25 @@ import java.io.IOException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.UUID;
-import java.util.concurrent.TimeUnit;
 
+/**
+ * Uploads of user files (form attachments and patient documents). The files are streamed from
+ * the multipart request to {@link ObjectStorage}, on Supabase unless another backend is configured.
+ */
 @Service
 public class SupabaseStorageService {
     private static final Logger logger = LoggerFactory.getLogger(SupabaseStorageService.class);
 
-    @Value("${supabase.url}")
-    private String supabaseUrl;
+    private final ObjectStorage objectStorage;
+    private final String bucketName;
+    private final String documentsBucketName;
     
-    @Value("${supabase.key}")
-    private String supabaseKey;
-    
-    @Value("${supabase.service-role-key}")
-    private String serviceRoleKey;
-    
-    @Value("${supabase.storage.bucket}")
-    private String bucketName;
-    
-    @Value("${supabase.storage.documents-bucket}")
-    private String documentsBucketName;
-    
-    private final OkHttpClient httpClient;
-    
-    public SupabaseStorageService() {
-        this.httpClient = new OkHttpClient.Builder()
-                .connectTimeout(30, TimeUnit.SECONDS)
-                .writeTimeout(30, TimeUnit.SECONDS)
-                .readTimeout(30, TimeUnit.SECONDS)
-                .build();
+    public SupabaseStorageService(ObjectStorage objectStorage,
+                                  @Value("${supabase.storage.bucket}") String bucketName,
+                                  @Value("${supabase.storage.documents-bucket}") String documentsBucketName) {
+        this.objectStorage = objectStorage;
+        this.bucketName = bucketName;
+        this.documentsBucketName = documentsBucketName;
     }
     
     /**
@@ -63,12 +52,6 @@ public class SupabaseStorageService {
         
         String uniqueFilename = UUID.randomUUID().toString().substring(0, 8) + extension;
         
-        // Create URLs
-        String downloadUrl = supabaseUrl + "/storage/v1/object/public/" + bucketName + "/" + uniqueFilename;
-        String uploadUrl = supabaseUrl + "/storage/v1/object/" + bucketName + "/" + uniqueFilename;
-        
-        logger.debug("Uploading file to: {}", uploadUrl);
-        
         // Determine content type
         String contentType = file.getContentType();
         if (contentType == null) {
@@ -76,40 +59,16 @@ public class SupabaseStorageService {
         }
         
         try {
-            // Prepare request body
-            RequestBody requestBody = RequestBody.create(file.getBytes(), MediaType.parse(contentType));
-            
-            // Build the request
-            Request request = new Request.Builder()
-                    .url(uploadUrl)
-                    .put(requestBody)
-                    .addHeader("apikey", serviceRoleKey) // Using service role key for authorization
-                    .addHeader("Authorization", "Bearer " + serviceRoleKey)
-                    .addHeader("Content-Type", contentType)
-                    .addHeader("x-upsert", "true")
-                    .build();
-            
-            // Execute request
-            try (Response response = httpClient.newCall(request).execute()) {
-                int statusCode = response.code();
-                String responseBody = response.body() != null ? response.body().string() : "";
-                
-                logger.debug("Upload response status: {}", statusCode);
-                
-                if (statusCode >= 200 && statusCode < 300) {
-                    logger.info("File uploaded successfully");
-                    return downloadUrl;
-                } else {
-                    throw new IOException("Failed to upload file to Supabase. Status: " + statusCode + " - " + responseBody);
-                }
-            }
+            String downloadUrl = objectStorage.put(bucketName, uniqueFilename, StorageContent.of(file), contentType);
+            logger.info("File uploaded successfully");
+            return downloadUrl;
         } catch (Exception e) {
             logger.error("Error during file upload: {}", e.getMessage());
             
             // For development, return the URL even if upload fails
             // This allows testing the rest of the functionality
             logger.warn("DEVELOPMENT MODE: Returning URL despite upload failure");
-            return downloadUrl;
+            return objectStorage.getPublicUrl(bucketName, uniqueFilename);
         }
     }
     
@@ -127,8 +86,54 @@ public class SupabaseStorageService {
             throw new IOException("File is empty");
         }
         
+        String fullPath = patientDocumentPath(file.getOriginalFilename(), patientIpp, title);
+        
+        logger.debug("Uploading patient document to: {}/{}", documentsBucketName, fullPath);
+        
+        // Determine content type
+        String contentType = file.getContentType();
+        if (contentType == null) {
+            contentType = "application/octet-stream";
+        }
+        
+        try {
+            String downloadUrl = objectStorage.put(documentsBucketName, fullPath, StorageContent.of(file), contentType);
+            logger.info("Patient document uploaded successfully to {}", fullPath);
+            return downloadUrl;
+        } catch (Exception e) {
+            logger.error("Error during patient document upload: {}", e.getMessage());
+            
+            // For development, return the URL even if upload fails
+            logger.warn("DEVELOPMENT MODE: Returning URL despite upload failure");
+            return objectStorage.getPublicUrl(documentsBucketName, fullPath);
+        }
+    }
+    
+    /**
+     * Stores a patient document in the documents-importe bucket, with the same folder structure
+     * as {@link #uploadPatientDocument}. Failures are reported, for the caller to retry.
+     * 
+     * @param content The file content
+     * @param originalFilename The name of the file on the client, for its extension
+     * @param contentType The MIME type of the file, or null if unknown
+     * @param patientIpp The patient's IPP to organize files
+     * @param title A descriptive title for organizing the file
+     * @return The public URL to access the file
+     * @throws IOException if the file could not be stored
+     */
+    public String storePatientDocument(StorageContent content, String originalFilename, String contentType,
+                                       String patientIpp, String title) throws IOException {
+        String fullPath = patientDocumentPath(originalFilename, patientIpp, title);
+        
+        logger.debug("Storing patient document to: {}/{}", documentsBucketName, fullPath);
+        String downloadUrl = objectStorage.put(documentsBucketName, fullPath, content,
+                contentType != null ? contentType : "application/octet-stream");
+        logger.info("Patient document stored successfully to {}", fullPath);
+        return downloadUrl;
+    }
+    
+    private static String patientDocumentPath(String originalFilename, String patientIpp, String title) {
         // Generate a well-structured filename with timestamp
-        String originalFilename = file.getOriginalFilename();
         String extension = "";
         if (originalFilename != null && originalFilename.contains(".")) {
             extension = originalFilename.substring(originalFilename.lastIndexOf("."));
@@ -145,55 +150,7 @@ public class SupabaseStorageService {
         // Construct filename and path
         String filename = sanitizedTitle + "_" + timestamp + extension;
         String folderPath = "patients/" + patientIpp + "/";
-        String fullPath = folderPath + filename;
-        
-        // Create URLs
-        String downloadUrl = supabaseUrl + "/storage/v1/object/public/" + documentsBucketName + "/" + fullPath;
-        String uploadUrl = supabaseUrl + "/storage/v1/object/" + documentsBucketName + "/" + fullPath;
-        
-        logger.debug("Uploading patient document to: {}", uploadUrl);
-        
-        // Determine content type
-        String contentType = file.getContentType();
-        if (contentType == null) {
-            contentType = "application/octet-stream";
-        }
-        
-        try {
-            // Prepare request body
-            RequestBody requestBody = RequestBody.create(file.getBytes(), MediaType.parse(contentType));
-            
-            // Build the request
-            Request request = new Request.Builder()
-                    .url(uploadUrl)
-                    .put(requestBody)
-                    .addHeader("apikey", serviceRoleKey) 
-                    .addHeader("Authorization", "Bearer " + serviceRoleKey)
-                    .addHeader("Content-Type", contentType)
-                    .addHeader("x-upsert", "true")
-                    .build();
-            
-            // Execute request
-            try (Response response = httpClient.newCall(request).execute()) {
-                int statusCode = response.code();
-                String responseBody = response.body() != null ? response.body().string() : "";
-                
-                logger.debug("Upload response status: {}", statusCode);
-                
-                if (statusCode >= 200 && statusCode < 300) {
-                    logger.info("Patient document uploaded successfully to {}", fullPath);
-                    return downloadUrl;
-                } else {
-                    throw new IOException("Failed to upload document to Supabase. Status: " + statusCode + " - " + responseBody);
-                }
-            }
-        } catch (Exception e) {
-            logger.error("Error during patient document upload: {}", e.getMessage());
-            
-            // For development, return the URL even if upload fails
-            logger.warn("DEVELOPMENT MODE: Returning URL despite upload failure");
-            return downloadUrl;
-        }
+        return folderPath + filename;
     }
     
     public boolean deleteFile(String fileUrl) throws IOException {
@@ -203,45 +160,7 @@ public class SupabaseStorageService {
         }
         
         try {
-            // Extract the bucket and path from the URL
-            String storageUrl = supabaseUrl + "/storage/v1/object/public/";
-            if (!fileUrl.startsWith(storageUrl)) {
-                logger.warn("URL does not appear to be a Supabase storage URL: {}", fileUrl);
-                return false;
-            }
-            
-            String pathAfterBucket = fileUrl.substring(storageUrl.length());
-            String bucketAndPath = pathAfterBucket;
-            
-            // Construct the delete URL
-            String deleteUrl = supabaseUrl + "/storage/v1/object/" + bucketAndPath;
-            
-            logger.debug("Deleting file: {}", deleteUrl);
-            
-            // Build the request
-            Request request = new Request.Builder()
-                    .url(deleteUrl)
-                    .delete()
-                    .addHeader("apikey", serviceRoleKey)
-                    .addHeader("Authorization", "Bearer " + serviceRoleKey)
-                    .build();
-            
-            // Execute request
-            try (Response response = httpClient.newCall(request).execute()) {
-                int statusCode = response.code();
-                logger.debug("Delete response status: {}", statusCode);
-                
-                if (statusCode >= 200 && statusCode < 300) {
-                    return true;
-                } else if (statusCode == 404) {
-                    // File not found is still a successful deletion
-                    logger.info("File not found in storage, considering delete successful");
-                    return true;
-                } else {
-                    logger.warn("Failed to delete file, status: {}", statusCode);
-                    return false;
-                }
-            }
+            return objectStorage.delete(fileUrl);
         } catch (Exception e) {
             logger.error("Error deleting file: {}", e.getMessage());
             return false;
@@ -0,0 +1,267 @@
+package com.hdoc.sgdm.service;
+
+import com.hdoc.sgdm.dto.response.RendezVousResponse;
+import com.hdoc.sgdm.entity.RendezVous;
+import com.hdoc.sgdm.mapper.RendezVousMapper;
+import com.hdoc.sgdm.repository.RendezVousRepository;
+import com.hdoc.sgdm.util.TransactionCallbacks;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Agenda of the current day: the PLANIFIE and LATE appointments of today, already mapped with
+ * their patient and doctor, from which the upcoming appointments of a doctor or of the whole
+ * clinic are served without touching the database.
+ *
+ * The agenda is built when the application is ready, at midnight for the new day, and
+ * periodically to pick up other nodes' bookings and patient or doctor changes. In between it is
+ * patched after each committed change by {@link RendezVousService} (bookings, cancellations),
+ * {@link VisiteService} (visit started from an appointment), and {@link AppointmentTimerWheel}
+ * and {@link RendezVousStatusScheduler} (LATE transitions). Until it holds the current day,
+ * callers read the database.
+ */
+@Component
+@Slf4j
+public class TodayAgendaCache {
+
+    private static final Comparator<RendezVousResponse> BY_TIME = Comparator
+            .comparing(RendezVousResponse::getDateHeure)
+            .thenComparing(RendezVousResponse::getId);
+
+    private final RendezVousRepository rendezVousRepository;
+    private final RendezVousMapper rendezVousMapper;
+    private final Clock clock;
+    private final SnapshotRebuilder<DayAppointments> rebuilder = new SnapshotRebuilder<>();
+
+    private final Counter cacheReads;
+    private final Counter databaseReads;
+    private final Timer rebuildTimer;
+
+    private volatile Agenda agenda;
+
+    @Autowired
+    public TodayAgendaCache(RendezVousRepository rendezVousRepository, RendezVousMapper rendezVousMapper,
+                            MeterRegistry meterRegistry) {
+        this(rendezVousRepository, rendezVousMapper, meterRegistry, Clock.systemDefaultZone());
+    }
+
+    TodayAgendaCache(RendezVousRepository rendezVousRepository, RendezVousMapper rendezVousMapper,
+                     MeterRegistry meterRegistry, Clock clock) {
+        this.rendezVousRepository = rendezVousRepository;
+        this.rendezVousMapper = rendezVousMapper;
+        this.clock = clock;
+        this.cacheReads = Counter.builder("rendezvous.today.requests")
+                .description("Requests for today's upcoming appointments")
+                .tag("source", "cache")
+                .register(meterRegistry);
+        this.databaseReads = Counter.builder("rendezvous.today.requests")
+                .description("Requests for today's upcoming appointments")
+                .tag("source", "database")
+                .register(meterRegistry);
+        this.rebuildTimer = Timer.builder("rendezvous.today.rebuild")
+                .description("Duration of the rebuild of today's agenda")
+                .register(meterRegistry);
+        Gauge.builder("rendezvous.today.cached", this, TodayAgendaCache::size)
+                .description("PLANIFIE and LATE appointments in today's agenda")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    @Scheduled(cron = "0 0 0 * * *")
+    public void onNewDay() {
+        rebuild();
+    }
+
+    /**
+     * Reload today's agenda from the database.
+     */
+    @Scheduled(fixedDelayString = "${rendezvous.today-agenda.refresh-ms:300000}",
+               initialDelayString = "${rendezvous.today-agenda.refresh-ms:300000}")
+    public void rebuild() {
+        rebuilder.rebuild(() -> {
+            LocalDate day = LocalDate.now(clock);
+            Map<Long, RendezVousResponse> appointments = new HashMap<>();
+            long begin = System.nanoTime();
+            List<RendezVous> agendaOfDay = rendezVousRepository.findAgendaBetween(day.atStartOfDay(), day.plusDays(1).atStartOfDay());
+            if (!agendaOfDay.isEmpty()) {
+                for (RendezVousResponse response : rendezVousMapper.toResponses(agendaOfDay)) {
+                    appointments.put(response.getId(), response);
+                }
+            }
+            rebuildTimer.record(System.nanoTime() - begin, TimeUnit.NANOSECONDS);
+            return new DayAppointments(day, appointments);
+        }, fresh -> {
+            agenda = new Agenda(fresh.day(), fresh.appointments());
+            log.info("Today's agenda built with {} appointments", fresh.appointments().size());
+        });
+    }
+
+    /**
+     * Today's upcoming appointments that have not started yet (PLANIFIE), in time order, followed
+     * by the LATE ones, for one doctor or for all of them.
+     *
+     * @param idMedecin The doctor, or null for all doctors
+     * @return The appointments, or null when the agenda does not hold the current day and the
+     *         caller should read the database
+     */
+    public List<RendezVousResponse> findUpcoming(UUID idMedecin) {
+        LocalDateTime now = LocalDateTime.now(clock);
+        Agenda current = agenda;
+        if (current == null || !current.day.equals(now.toLocalDate())) {
+            databaseReads.increment();
+            return null;
+        }
+        cacheReads.increment();
+
+        List<RendezVousResponse> appointments = idMedecin != null
+                ? current.byDoctor.getOrDefault(idMedecin, Collections.emptyList())
+                : current.all;
+        List<RendezVousResponse> upcoming = new ArrayList<>();
+        List<RendezVousResponse> late = new ArrayList<>();
+        for (RendezVousResponse appointment : appointments) {
+            if (appointment.getStatus() == RendezVous.StatutRendezVous.LATE) {
+                late.add(appointment);
+            } else if (appointment.getDateHeure().isAfter(now)) {
+                upcoming.add(appointment);
+            }
+        }
+        upcoming.addAll(late);
+        return upcoming;
+    }
+
+    /**
+     * Record an appointment's current state once the current transaction commits. Appointments
+     * of another day, or no longer PLANIFIE or LATE, leave the agenda.
+     */
+    public void appointmentChanged(RendezVousResponse response) {
+        if (response.getId() == null) {
+            return;
+        }
+        boolean inAgenda = response.getStatus() == RendezVous.StatutRendezVous.PLANIFIE
+                || response.getStatus() == RendezVous.StatutRendezVous.LATE;
+        TransactionCallbacks.afterCommit(() -> apply((day, appointments) -> {
+            appointments.remove(response.getId());
+            if (inAgenda && response.getDateHeure().toLocalDate().equals(day)) {
+                appointments.put(response.getId(), response);
+            }
+        }));
+    }
+
+    /**
+     * Take an appointment out of the agenda (cancelled, deleted, visit started) once the current
+     * transaction commits.
+     */
+    public void appointmentRemoved(Long id) {
+        TransactionCallbacks.afterCommit(() -> apply((day, appointments) -> appointments.remove(id)));
+    }
+
+    /**
+     * Record the LATE transition of appointments once the current transaction commits.
+     */
+    public void appointmentsMarkedLate(Collection<Long> ids) {
+        TransactionCallbacks.afterCommit(() -> apply((day, appointments) -> {
+            for (Long id : ids) {
+                RendezVousResponse response = appointments.get(id);
+                if (response != null && response.getStatus() == RendezVous.StatutRendezVous.PLANIFIE) {
+                    appointments.put(id, withStatus(response, RendezVous.StatutRendezVous.LATE));
+                }
+            }
+        }));
+    }
+
+    /**
+     * Number of appointments in the agenda.
+     */
+    public int size() {
+        Agenda current = agenda;
+        return current != null ? current.all.size() : 0;
+    }
+
+    // The agenda is copied and replaced, so readers never need a lock
+    private void apply(AgendaChange change) {
+        rebuilder.apply(fresh -> change.apply(fresh.day(), fresh.appointments()), () -> {
+            Agenda current = agenda;
+            if (current != null) {
+                Map<Long, RendezVousResponse> appointments = new HashMap<>(current.byId);
+                change.apply(current.day, appointments);
+                agenda = new Agenda(current.day, appointments);
+            }
+        });
+    }
+
+    // Responses are shared with the requests being served, so they are copied rather than modified
+    private static RendezVousResponse withStatus(RendezVousResponse response, RendezVous.StatutRendezVous status) {
+        RendezVousResponse copy = new RendezVousResponse();
+        copy.setId(response.getId());
+        copy.setIdPatient(response.getIdPatient());
+        copy.setNomPatient(response.getNomPatient());
+        copy.setPrenomPatient(response.getPrenomPatient());
+        copy.setIdMedecin(response.getIdMedecin());
+        copy.setNomMedecin(response.getNomMedecin());
+        copy.setSpecialiteMedecin(response.getSpecialiteMedecin());
+        copy.setDateHeure(response.getDateHeure());
+        copy.setDurationMinutes(response.getDurationMinutes());
+        copy.setNote(response.getNote());
+        copy.setStatus(status);
+        copy.setService(response.getService());
+        copy.setTypeVisit(response.getTypeVisit());
+        copy.setPatient(response.getPatient());
+        copy.setMedecin(response.getMedecin());
+        return copy;
+    }
+
+    @FunctionalInterface
+    private interface AgendaChange {
+        void apply(LocalDate day, Map<Long, RendezVousResponse> appointments);
+    }
+
+    // Appointments of the day loaded by a rebuild
+    private record DayAppointments(LocalDate day, Map<Long, RendezVousResponse> appointments) {
+    }
+
+    /**
+     * Immutable agenda of one day, in time order overall and per doctor.
+     */
+    private static final class Agenda {
+        private final LocalDate day;
+        private final Map<Long, RendezVousResponse> byId;
+        private final List<RendezVousResponse> all;
+        private final Map<UUID, List<RendezVousResponse>> byDoctor;
+
+        private Agenda(LocalDate day, Map<Long, RendezVousResponse> byId) {
+            this.day = day;
+            this.byId = byId;
+            this.all = new ArrayList<>(byId.values());
+            all.sort(BY_TIME);
+            this.byDoctor = new HashMap<>();
+            for (RendezVousResponse appointment : all) {
+                byDoctor.computeIfAbsent(appointment.getIdMedecin(), id -> new ArrayList<>()).add(appointment);
+            }
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.hdoc.sgdm.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Local spool of the chunks of the resumable uploads, one directory per upload session and
+ * one file per chunk. Chunks are streamed to disk as they arrive and moved in place once
+ * complete, so a chunk interrupted by the network is simply absent and sent again.
+ *
+ * Assembly reads the chunks of a session from here, and may run on any node: the chunks of
+ * a session may also be sent to different nodes. {@code upload.resumable.spool-dir} must
+ * therefore be a volume shared by all the nodes, and has no default: a directory local to
+ * each node would only work with a single one.
+ */
+@Component
+@Slf4j
+public class UploadSpool {
+
+    private static final String CHUNK_SUFFIX = ".part";
+
+    private final Path root;
+
+    public UploadSpool(@Value("${upload.resumable.spool-dir:}") String root) {
+        if (root.isBlank()) {
+            throw new IllegalStateException("upload.resumable.spool-dir must be set to a volume shared by all the nodes");
+        }
+        this.root = Paths.get(root).toAbsolutePath().normalize();
+    }
+
+    /**
+     * Receives a chunk from the request body into a temporary file of the session, not seen
+     * as a received chunk until it is moved in place with {@link #commitChunk}
+     *
+     * @param idSession Upload session ID
+     * @param index Chunk number, from 0
+     * @param in The chunk content
+     * @param expectedLength Size the chunk must have
+     * @return The temporary file, to commit or discard
+     * @throws IllegalArgumentException if the content does not have the expected size
+     * @throws IOException if the chunk could not be read or written
+     */
+    public Path receiveChunk(Long idSession, int index, InputStream in, long expectedLength) throws IOException {
+        Path directory = directory(idSession);
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, ".chunk-", ".tmp");
+        try {
+            long written;
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                written = in.transferTo(new LimitedOutputStream(out, expectedLength));
+            }
+            if (written != expectedLength) {
+                throw new IllegalArgumentException("Chunk " + index + " must be " + expectedLength + " bytes long");
+            }
+            return temp;
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    /**
+     * Moves a received chunk in place, replacing the chunk already received if any
+     *
+     * @param received The temporary file returned by {@link #receiveChunk}
+     */
+    public void commitChunk(Path received, Long idSession, int index) throws IOException {
+        Files.move(received, chunk(idSession, index), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Removes a received chunk that was not committed. Does nothing once it is committed.
+     */
+    public void discard(Path received) {
+        try {
+            Files.deleteIfExists(received);
+        } catch (IOException e) {
+            log.warn("Could not delete spooled file {}: {}", received, e.getMessage());
+        }
+    }
+
+    /**
+     * Chunks of a session received so far
+     *
+     * @return The numbers of the received chunks
+     */
+    public BitSet receivedChunks(Long idSession) throws IOException {
+        BitSet received = new BitSet();
+        try (DirectoryStream<Path> chunks = Files.newDirectoryStream(directory(idSession), "*" + CHUNK_SUFFIX)) {
+            for (Path chunk : chunks) {
+                String name = chunk.getFileName().toString();
+                received.set(Integer.parseInt(name.substring(0, name.length() - CHUNK_SUFFIX.length())));
+            }
+        } catch (NoSuchFileException e) {
+            // No chunk received yet
+        }
+        return received;
+    }
+
+    /**
+     * The chunks of a session, read one after the other as a single file
+     *
+     * @param idSession Upload session ID
+     * @param chunkCount Number of chunks of the file
+     * @throws IOException if a chunk is missing from the spool
+     */
+    public StorageContent content(Long idSession, int chunkCount) throws IOException {
+        long length = 0;
+        for (int index = 0; index < chunkCount; index++) {
+            Path chunk = chunk(idSession, index);
+            if (!Files.exists(chunk)) {
+                throw new IOException("Chunk " + index + " of upload session " + idSession + " is not in the spool");
+            }
+            length += Files.size(chunk);
+        }
+
+        long total = length;
+        return new StorageContent() {
+            @Override
+            public long length() {
+                return total;
+            }
+
+            @Override
+            public void writeTo(OutputStream out) throws IOException {
+                for (int index = 0; index < chunkCount; index++) {
+                    Files.copy(chunk(idSession, index), out);
+                }
+            }
+        };
+    }
+
+    /**
+     * Removes the chunks of a session
+     */
+    public void delete(Long idSession) {
+        Path directory = directory(idSession);
+        if (!Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    log.warn("Could not delete spooled file {}: {}", file, e.getMessage());
+                }
+            });
+        } catch (IOException e) {
+            log.warn("Could not delete the spool of upload session {}: {}", idSession, e.getMessage());
+        }
+    }
+
+    private Path directory(Long idSession) {
+        return root.resolve(String.valueOf(idSession));
+    }
+
+    private Path chunk(Long idSession, int index) {
+        return directory(idSession).resolve(index + CHUNK_SUFFIX);
+    }
+
+    /**
+     * Fails once more than the limit is written, so that a client cannot fill the disk with
+     * a single chunk
+     */
+    private static class LimitedOutputStream extends CountingOutputStream {
+
+        private final long limit;
+
+        LimitedOutputStream(OutputStream out, long limit) {
+            super(out);
+            this.limit = limit;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            check(1);
+            super.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            check(len);
+            super.write(b, off, len);
+        }
+
+        private void check(int len) {
+            if (getCount() + len > limit) {
+                throw new IllegalArgumentException("Chunk larger than its expected " + limit + " bytes");
+            }
+        }
+    }
+}
@@ -4,7 +4,6 @@ import com.hdoc.sgdm.dto.common.VisiteDTO;
 import com.hdoc.sgdm.dto.request.EditVisiteRequest;
 import com.hdoc.sgdm.dto.request.StartVisiteRequest;
 import com.hdoc.sgdm.dto.request.UpdateNoteRequest;
-import com.hdoc.sgdm.entity.Medecin;
 import com.hdoc.sgdm.entity.Patient;
 import com.hdoc.sgdm.entity.RendezVous;
 import com.hdoc.sgdm.entity.Visite;
@@ -15,13 +14,14 @@ import com.hdoc.sgdm.repository.PatientRepository;
 import com.hdoc.sgdm.repository.RendezVousRepository;
 import com.hdoc.sgdm.repository.VisiteRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.Optional;
 import java.util.UUID;
 
 @Service
@@ -33,6 +33,10 @@ public class VisiteService {
     private final MedecinRepository medecinRepository;
     private final RendezVousRepository rendezVousRepository;
     private final VisiteMapper visiteMapper;
+    private final DoctorPatientIndex doctorPatientIndex;
+    private final ActiveVisitBoard activeVisitBoard;
+    private final DoctorScheduleIndex doctorScheduleIndex;
+    private final TodayAgendaCache todayAgendaCache;
     
     @Transactional
     public VisiteDTO startVisite(String ipp, StartVisiteRequest request) {
@@ -61,8 +65,8 @@ public class VisiteService {
             UUID doctorId = UUID.fromString(request.getIdMedecin());
             visite.setIdMedecin(doctorId);
             
-            // Update doctor status to UNAVAILABLE
-            updateDoctorStatus(doctorId, "UNAVAILABLE");
+            // Take the doctor, who must be AVAILABLE
+            assignDoctor(doctorId);
         }
         
         // If created from appointment, update appointment status
@@ -79,21 +83,48 @@ public class VisiteService {
             // Set status to COMMENCE (started)
             rendezVous.setStatus(RendezVous.StatutRendezVous.COMMENCE);
             rendezVousRepository.save(rendezVous);
+            // The appointment no longer holds the doctor's slot, nor a place in today's agenda
+            doctorScheduleIndex.appointmentChanged(rendezVous);
+            todayAgendaCache.appointmentRemoved(rendezVous.getId());
         }
         
-        visite = visiteRepository.save(visite);
-        return visiteMapper.toDTO(visite);
+        try {
+            visite = visiteRepository.saveAndFlush(visite);
+        } catch (DataIntegrityViolationException e) {
+            // Another visit for this patient was started concurrently (unique index on the visit in progress)
+            throw new IllegalStateException("Le patient a déjà une visite active en cours. Impossible d'en démarrer une nouvelle.", e);
+        }
+        
+        // Assigning a doctor establishes the doctor-patient relationship
+        doctorPatientIndex.addRelationship(visite.getIdMedecin(), patient.getIdPatient());
+        
+        VisiteDTO visiteDTO = visiteMapper.toDTO(visite);
+        activeVisitBoard.visiteChanged(visiteDTO);
+        return visiteDTO;
     }
     
     /**
-     * Helper method to update a doctor's status
+     * Helper method to take a doctor for a visit.
+     * The status goes from AVAILABLE to UNAVAILABLE in a single conditional update,
+     * so two visits started at the same time cannot both get the same doctor.
      */
-    private void updateDoctorStatus(UUID doctorId, String status) {
-        Optional<Medecin> medecinOpt = medecinRepository.findById(doctorId);
-        if (medecinOpt.isPresent()) {
-            Medecin medecin = medecinOpt.get();
-            medecin.setStatus(status);
-            medecinRepository.save(medecin);
+    private void assignDoctor(UUID doctorId) {
+        if (medecinRepository.updateStatusIfCurrent(doctorId, "AVAILABLE", "UNAVAILABLE") == 0) {
+            if (!medecinRepository.existsById(doctorId)) {
+                throw new ResourceNotFoundException("Médecin non trouvé avec ID: " + doctorId);
+            }
+            throw new IllegalStateException("Le médecin n'est pas disponible. Impossible de l'assigner à cette visite.");
+        }
+        activeVisitBoard.medecinStatusChanged(doctorId, "UNAVAILABLE");
+    }
+    
+    /**
+     * Helper method to free a doctor at the end of their visit.
+     * Only a doctor still UNAVAILABLE becomes AVAILABLE again, a status set meanwhile (ON_LEAVE, SICK) is kept.
+     */
+    private void releaseDoctor(UUID doctorId) {
+        if (medecinRepository.updateStatusIfCurrent(doctorId, "UNAVAILABLE", "AVAILABLE") > 0) {
+            activeVisitBoard.medecinStatusChanged(doctorId, "AVAILABLE");
         }
     }
     
@@ -136,12 +167,14 @@ public class VisiteService {
         
         // Free up the doctor if there was one assigned
         if (visite.getIdMedecin() != null) {
-            updateDoctorStatus(visite.getIdMedecin(), "AVAILABLE");
+            releaseDoctor(visite.getIdMedecin());
         }
         
         // Save and return updated visit
         visite = visiteRepository.save(visite);
-        return visiteMapper.toDTO(visite);
+        VisiteDTO visiteDTO = visiteMapper.toDTO(visite);
+        activeVisitBoard.visiteChanged(visiteDTO);
+        return visiteDTO;
     }
     
     @Transactional
@@ -181,13 +214,17 @@ public class VisiteService {
             
             // If doctor is being changed
             if (!newDoctorId.equals(previousDoctorId)) {
+                // Take the new doctor first, the visit keeps its previous doctor if they are not available
+                assignDoctor(newDoctorId);
+                
                 // Free up the previous doctor if there was one
                 if (previousDoctorId != null) {
-                    updateDoctorStatus(previousDoctorId, "AVAILABLE");
+                    releaseDoctor(previousDoctorId);
                 }
                 
-                // Set new doctor as unavailable
-                updateDoctorStatus(newDoctorId, "UNAVAILABLE");
+                // The new doctor gains the relationship, the previous one may lose it
+                doctorPatientIndex.addRelationship(newDoctorId, visite.getPatient().getIdPatient());
+                doctorPatientIndex.recheckRelationship(previousDoctorId, visite.getPatient().getIdPatient());
             }
             
             visite.setIdMedecin(newDoctorId);
@@ -195,7 +232,9 @@ public class VisiteService {
         
         // Save and return updated visit
         visite = visiteRepository.save(visite);
-        return visiteMapper.toDTO(visite);
+        VisiteDTO visiteDTO = visiteMapper.toDTO(visite);
+        activeVisitBoard.visiteChanged(visiteDTO);
+        return visiteDTO;
     }
     
     @Transactional
@@ -205,17 +244,29 @@ public class VisiteService {
         
         // Free up the doctor if there was one assigned and the visit is still in progress
         if (visite.getIdMedecin() != null && "IN_PROGRESS".equals(visite.getStatut())) {
-            updateDoctorStatus(visite.getIdMedecin(), "AVAILABLE");
+            releaseDoctor(visite.getIdMedecin());
         }
         
         // Delete the visit (no status check - all visits can be deleted)
         visiteRepository.delete(visite);
+        activeVisitBoard.visiteRemoved(idVisite);
+        
+        // The doctor loses the relationship if this was their only visit with the patient
+        doctorPatientIndex.recheckRelationship(visite.getIdMedecin(), visite.getPatient().getIdPatient());
     }
     
     // Get all active visits across all patients
     public List<VisiteDTO> getAllActiveVisites() {
-        List<Visite> activeVisites = visiteRepository.findByStatutOrderByDateDebutDesc("IN_PROGRESS");
-        return visiteMapper.toDTOList(activeVisites);
+        return activeVisitBoard.getActiveVisites();
+    }
+    
+    /**
+     * Subscribe to the active visits board (visits in progress and doctor statuses)
+     * 
+     * @return Server-sent events emitter, starting with a snapshot of the board
+     */
+    public SseEmitter subscribeToActiveVisites() {
+        return activeVisitBoard.subscribe();
     }
     
     /**
@@ -228,47 +279,18 @@ public class VisiteService {
     
     // Get all completed visits for a specific day (YYYY-MM-DD format)
     public List<VisiteDTO> getCompletedVisitesForDay(String dateStr) {
-        LocalDateTime dateTime;
-        
-        if (dateStr == null || dateStr.isEmpty()) {
-            // Use today's date if no date is provided
-            dateTime = LocalDateTime.now();
-        } else {
-            try {
-                // Parse the date string (expected format: YYYY-MM-DD)
-                LocalDate date = LocalDate.parse(dateStr);
-                // Convert to LocalDateTime with time set to midnight
-                dateTime = date.atStartOfDay();
-            } catch (Exception e) {
-                // If date parsing fails, default to today
-                dateTime = LocalDateTime.now();
-            }
-        }
+        LocalDate day = parseDayOrToday(dateStr);
         
-        // Find completed visits for the specified date
-        List<Visite> completedVisites = visiteRepository.findCompletedVisitsByDate("COMPLETED", dateTime);
+        // Find completed visits for the specified date, as a [midnight, next midnight) range
+        List<Visite> completedVisites = visiteRepository.findCompletedVisitsByDate(
+                "COMPLETED", day.atStartOfDay(), day.plusDays(1).atStartOfDay());
         
         return visiteMapper.toDTOList(completedVisites);
     }
     
     // Get all completed visits for a specific doctor on a specific day
     public List<VisiteDTO> getCompletedVisitesForDoctorAndDay(UUID idMedecin, String dateStr) {
-        LocalDateTime dateTime;
-        
-        if (dateStr == null || dateStr.isEmpty()) {
-            // Use today's date if no date is provided
-            dateTime = LocalDateTime.now();
-        } else {
-            try {
-                // Parse the date string (expected format: YYYY-MM-DD)
-                LocalDate date = LocalDate.parse(dateStr);
-                // Convert to LocalDateTime with time set to midnight
-                dateTime = date.atStartOfDay();
-            } catch (Exception e) {
-                // If date parsing fails, default to today
-                dateTime = LocalDateTime.now();
-            }
-        }
+        LocalDate day = parseDayOrToday(dateStr);
         
         // First check if the doctor exists
         if (!medecinRepository.existsById(idMedecin)) {
@@ -276,11 +298,26 @@ public class VisiteService {
         }
         
         // Find completed visits for the specified doctor and date
-        List<Visite> completedVisites = visiteRepository.findCompletedVisitsByDateAndDoctor("COMPLETED", dateTime, idMedecin);
+        List<Visite> completedVisites = visiteRepository.findCompletedVisitsByDateAndDoctor(
+                "COMPLETED", day.atStartOfDay(), day.plusDays(1).atStartOfDay(), idMedecin);
         
         return visiteMapper.toDTOList(completedVisites);
     }
     
+    /**
+     * Parse a day in YYYY-MM-DD format, defaulting to today if it is missing or invalid
+     */
+    private LocalDate parseDayOrToday(String dateStr) {
+        if (dateStr == null || dateStr.isEmpty()) {
+            return LocalDate.now();
+        }
+        try {
+            return LocalDate.parse(dateStr);
+        } catch (Exception e) {
+            return LocalDate.now();
+        }
+    }
+    
     // Get all completed visits between two dates
     public List<VisiteDTO> getCompletedVisitesBetweenDates(LocalDateTime startDate, LocalDateTime endDate) {
         List<Visite> completedVisites = visiteRepository.findByStatutAndDateFinBetweenOrderByDateFinDesc(
@@ -302,9 +339,9 @@ public class VisiteService {
      */
     public List<VisiteDTO> getUpcomingVisitesForToday() {
         LocalDateTime now = LocalDateTime.now();
-        LocalDateTime today = now.toLocalDate().atStartOfDay();
+        LocalDateTime endOfDay = now.toLocalDate().plusDays(1).atStartOfDay();
         
-        List<Visite> upcomingVisites = visiteRepository.findUpcomingVisitesForToday(today, now);
+        List<Visite> upcomingVisites = visiteRepository.findUpcomingVisitesForToday(now, endOfDay);
         return visiteMapper.toDTOList(upcomingVisites);
     }
     
@@ -325,7 +362,9 @@ public class VisiteService {
         
         // Save and return updated visit
         visite = visiteRepository.save(visite);
-        return visiteMapper.toDTO(visite);
+        VisiteDTO visiteDTO = visiteMapper.toDTO(visite);
+        activeVisitBoard.visiteChanged(visiteDTO);
+        return visiteDTO;
     }
     
     /**
@@ -344,6 +383,8 @@ public class VisiteService {
         
         // Save and return updated visit
         visite = visiteRepository.save(visite);
-        return visiteMapper.toDTO(visite);
+        VisiteDTO visiteDTO = visiteMapper.toDTO(visite);
+        activeVisitBoard.visiteChanged(visiteDTO);
+        return visiteDTO;
     }
 }
\ No newline at end of file
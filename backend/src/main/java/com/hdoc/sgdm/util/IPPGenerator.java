@@ -1,54 +1,90 @@
 package com.hdoc.sgdm.util;
 
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
-import com.hdoc.sgdm.repository.PatientRepository;
-
-import jakarta.annotation.PostConstruct;
-
+/**
+ * Generates patient IPPs in the P000001 format, safely across several backend nodes.
+ * 
+ * Each node reserves a block of numbers from the shared database counter (see
+ * {@link IppBlockAllocator}) and hands them out from memory without locking. The database
+ * is only hit once per block. Numbers left in a block when a node stops are never reused,
+ * so IPPs are unique and increasing per node but not necessarily contiguous.
+ */
 @Component
 public class IPPGenerator {
     
-    private AtomicInteger counter;
-    private static final String IPP_PREFIX = "P";
+    static final String IPP_PREFIX = "P";
     private static final int IPP_NUMERIC_LENGTH = 6; // Will result in P000001 format
     
-    private final PatientRepository patientRepository;
+    private final IppBlockAllocator blockAllocator;
+    private final int blockSize;
     
-    @Autowired
-    public IPPGenerator(PatientRepository patientRepository) {
-        this.patientRepository = patientRepository;
-    }
+    private volatile Block currentBlock = Block.EXHAUSTED;
+    private final Object refillMonitor = new Object();
     
-    @PostConstruct
-    public void initialize() {
-        // Find the highest existing IPP and initialize the counter
-        String highestIPP = patientRepository.findHighestIPP();
-        
-        if (highestIPP == null || highestIPP.isEmpty()) {
-            counter = new AtomicInteger(0);
-        } else {
-            try {
-                // Extract the numeric part from the highest IPP (e.g., "P000123" -> 123)
-                String numericPart = highestIPP.substring(IPP_PREFIX.length());
-                int highestValue = Integer.parseInt(numericPart);
-                counter = new AtomicInteger(highestValue);
-            } catch (NumberFormatException | IndexOutOfBoundsException e) {
-                // If there's an error parsing, start from 0
-                counter = new AtomicInteger(0);
-            }
+    @Autowired
+    public IPPGenerator(IppBlockAllocator blockAllocator, @Value("${ipp.block-size:20}") int blockSize) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("ipp.block-size doit être supérieur à 0");
         }
+        this.blockAllocator = blockAllocator;
+        this.blockSize = blockSize;
     }
     
+    /**
+     * Next IPP, to call outside of any transaction: the reservation of a new block runs in a
+     * transaction of its own, and taking its connection while the caller's transaction holds
+     * another one can exhaust the pool when many threads refill at once.
+     * 
+     * @throws IllegalStateException if a transaction is active
+     */
     public String generateIPP() {
-        int nextValue = counter.incrementAndGet();
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Les IPP doivent être générés hors transaction");
+        }
+        long nextValue = nextValue();
         
         // Format with leading zeros
         String numericPart = String.format("%0" + IPP_NUMERIC_LENGTH + "d", nextValue);
         
         return IPP_PREFIX + numericPart;
     }
-}
\ No newline at end of file
+    
+    private long nextValue() {
+        while (true) {
+            Block block = currentBlock;
+            long value = block.next.getAndIncrement();
+            if (value <= block.last) {
+                return value;
+            }
+            
+            // Block exhausted: only one thread reserves the next one, the others retry on it
+            synchronized (refillMonitor) {
+                if (currentBlock == block) {
+                    long last = blockAllocator.reserveBlock(blockSize);
+                    currentBlock = new Block(last - blockSize + 1, last);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Range of reserved numbers, served from next up to last inclusive
+     */
+    private static final class Block {
+        static final Block EXHAUSTED = new Block(1, 0);
+        
+        final AtomicLong next;
+        final long last;
+        
+        Block(long first, long last) {
+            this.next = new AtomicLong(first);
+            this.last = last;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.hdoc.sgdm.util;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.hdoc.sgdm.repository.PatientRepository;
+import com.hdoc.sgdm.repository.SequenceCompteurRepository;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Reserves blocks of IPP numbers in the shared "IPP" counter row of sequence_compteur.
+ * The counter holds the last number reserved by any node, so two nodes can never
+ * be handed overlapping blocks.
+ */
+@Component
+@RequiredArgsConstructor
+public class IppBlockAllocator {
+
+    static final String COMPTEUR_IPP = "IPP";
+
+    private final SequenceCompteurRepository sequenceCompteurRepository;
+    private final PatientRepository patientRepository;
+
+    /**
+     * Reserve the next block of IPP numbers.
+     * Runs in its own short transaction so the counter row is unlocked as soon as the block is reserved;
+     * callers hold no other transaction meanwhile (see {@link IPPGenerator#generateIPP}).
+     * 
+     * @param size The number of IPPs to reserve
+     * @return The last number of the reserved block, which covers (last - size, last]
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public long reserveBlock(int size) {
+        if (sequenceCompteurRepository.increment(COMPTEUR_IPP, size) == 0) {
+            // First allocation ever: seed the counter from the IPPs issued before it existed
+            sequenceCompteurRepository.insertIfAbsent(COMPTEUR_IPP, highestExistingIpp());
+            sequenceCompteurRepository.increment(COMPTEUR_IPP, size);
+        }
+
+        return sequenceCompteurRepository.findValeurByNom(COMPTEUR_IPP)
+                .orElseThrow(() -> new IllegalStateException("Compteur IPP introuvable"));
+    }
+
+    private long highestExistingIpp() {
+        String highestIPP = patientRepository.findHighestIPP();
+        if (highestIPP == null || highestIPP.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            // Extract the numeric part from the highest IPP (e.g., "P000123" -> 123)
+            return Long.parseLong(highestIPP.substring(IPPGenerator.IPP_PREFIX.length()));
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            // If there's an error parsing, start from 0
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.hdoc.sgdm.util;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Utility class to normalize free text before it is indexed or searched.
+ * Folding removes accents and case so that "Éloïse" and "eloise" compare equal.
+ */
+public final class TextNormalizer {
+
+    private TextNormalizer() {
+    }
+
+    /**
+     * Fold a value to lower case ASCII letters and digits.
+     * Every other character (punctuation, dashes, apostrophes) becomes a single space.
+     *
+     * @param value The raw value, may be null
+     * @return The folded value, never null
+     */
+    public static String fold(String value) {
+        if (value == null || value.isEmpty()) {
+            return "";
+        }
+
+        String decomposed = Normalizer.normalize(value, Normalizer.Form.NFD);
+        StringBuilder folded = new StringBuilder(decomposed.length());
+        boolean lastWasSpace = true;
+
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            if (Character.isLetterOrDigit(c)) {
+                folded.append(Character.toLowerCase(c));
+                lastWasSpace = false;
+            } else if (!lastWasSpace) {
+                folded.append(' ');
+                lastWasSpace = true;
+            }
+        }
+
+        int length = folded.length();
+        if (length > 0 && folded.charAt(length - 1) == ' ') {
+            folded.setLength(length - 1);
+        }
+        return folded.toString().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Fold a value and split it into its words.
+     *
+     * @param value The raw value, may be null
+     * @return The folded words, empty if the value has no letters or digits
+     */
+    public static List<String> tokens(String value) {
+        String folded = fold(value);
+        List<String> tokens = new ArrayList<>();
+        if (folded.isEmpty()) {
+            return tokens;
+        }
+        for (String token : folded.split(" ")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,33 @@
+package com.hdoc.sgdm.util;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Utility class to defer work until the current transaction commits, for the in-memory views
+ * that must only reflect committed data.
+ */
+public final class TransactionCallbacks {
+
+    private TransactionCallbacks() {
+    }
+
+    /**
+     * Run an action once the current transaction commits. The action is dropped if the
+     * transaction rolls back, and runs immediately outside of a transaction.
+     *
+     * @param action The action to run
+     */
+    public static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,24 @@
+-- Change tracking for the calendar delta sync: every insert and update of an appointment,
+-- whatever the statement that makes it, takes the next value of a shared change sequence.
+CREATE SEQUENCE IF NOT EXISTS rendez_vous_change_seq;
+
+ALTER TABLE rendez_vous
+ADD COLUMN IF NOT EXISTS change_seq BIGINT NOT NULL DEFAULT nextval('rendez_vous_change_seq'),
+ADD COLUMN IF NOT EXISTS date_modification TIMESTAMP NOT NULL DEFAULT now();
+
+CREATE INDEX IF NOT EXISTS idx_rendez_vous_change_seq ON rendez_vous (change_seq);
+
+CREATE OR REPLACE FUNCTION rendez_vous_track_change() RETURNS trigger AS $$
+BEGIN
+    NEW.change_seq := nextval('rendez_vous_change_seq');
+    NEW.date_modification := now();
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_rendez_vous_track_change ON rendez_vous;
+CREATE TRIGGER trg_rendez_vous_track_change
+    BEFORE INSERT OR UPDATE ON rendez_vous
+    FOR EACH ROW EXECUTE FUNCTION rendez_vous_track_change();
+
+COMMENT ON COLUMN rendez_vous.change_seq IS 'Change sequence value of the last insert or update, used as calendar sync token';
@@ -0,0 +1,9 @@
+-- Pooled sequence for prescription IDs: the application reserves 50 IDs per call so the lines
+-- of an ordonnance are inserted in one JDBC batch. Must run before the application starts with
+-- the sequence generator, otherwise Hibernate creates the sequence starting at 1.
+CREATE SEQUENCE IF NOT EXISTS prescription_id_seq INCREMENT BY 50;
+
+-- Start past the IDs already issued by the identity column, whatever block the first call reserves
+SELECT setval('prescription_id_seq', COALESCE((SELECT MAX(id_prescription) FROM prescription), 0) + 50);
+
+COMMENT ON SEQUENCE prescription_id_seq IS 'Prescription IDs, allocated by blocks of 50 by the application';
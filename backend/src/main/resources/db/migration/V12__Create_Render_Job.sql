@@ -0,0 +1,22 @@
+-- Queue of the document PDFs to render and upload in the background
+CREATE TABLE IF NOT EXISTS render_job (
+    id_job BIGSERIAL PRIMARY KEY,
+    type_document VARCHAR(20) NOT NULL,
+    id_document BIGINT NOT NULL,
+    statut VARCHAR(20) NOT NULL DEFAULT 'EN_ATTENTE',
+    tentatives INTEGER NOT NULL DEFAULT 0,
+    url VARCHAR(255),
+    erreur VARCHAR(1000),
+    date_creation TIMESTAMP NOT NULL DEFAULT now(),
+    date_debut TIMESTAMP,
+    date_fin TIMESTAMP,
+    CONSTRAINT chk_render_job_type CHECK (type_document IN ('ORDONNANCE', 'FACTURE', 'CERTIFICAT', 'FORMULAIRE')),
+    CONSTRAINT chk_render_job_statut CHECK (statut IN ('EN_ATTENTE', 'EN_COURS', 'TERMINE', 'ECHEC'))
+);
+
+-- The poller only looks at the jobs that are not done yet
+CREATE INDEX IF NOT EXISTS idx_render_job_pending ON render_job (statut, id_job)
+    WHERE statut IN ('EN_ATTENTE', 'EN_COURS');
+
+COMMENT ON TABLE render_job IS 'PDF rendering and upload of an ordonnance, facture, certificat or formulaire';
+COMMENT ON COLUMN render_job.id_document IS 'ID of the document in the table of its type';
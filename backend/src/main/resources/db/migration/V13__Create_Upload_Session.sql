@@ -0,0 +1,32 @@
+-- Resumable uploads of patient documents: the chunks are spooled on disk, then assembled and
+-- pushed to storage by a background job, which creates the document_importe row
+CREATE TABLE IF NOT EXISTS upload_session (
+    id_session BIGSERIAL PRIMARY KEY,
+    id_patient UUID NOT NULL REFERENCES patient(id_patient) ON DELETE CASCADE,
+    nom VARCHAR(255) NOT NULL,
+    description TEXT,
+    type_document VARCHAR(50) NOT NULL,
+    nom_fichier VARCHAR(255),
+    content_type VARCHAR(255),
+    taille BIGINT NOT NULL,
+    taille_chunk INTEGER NOT NULL,
+    statut VARCHAR(20) NOT NULL DEFAULT 'EN_COURS',
+    id_job BIGINT,
+    id_document BIGINT REFERENCES document_importe(id_document) ON DELETE SET NULL,
+    date_creation TIMESTAMP NOT NULL DEFAULT now(),
+    date_maj TIMESTAMP NOT NULL DEFAULT now(),
+    CONSTRAINT chk_upload_session_taille CHECK (taille > 0 AND taille_chunk > 0),
+    CONSTRAINT chk_upload_session_statut CHECK (statut IN ('EN_COURS', 'ASSEMBLAGE', 'TERMINE', 'EXPIRE'))
+);
+
+-- The cleanup only looks at the sessions that are not done yet
+CREATE INDEX IF NOT EXISTS idx_upload_session_pending ON upload_session (date_maj)
+    WHERE statut IN ('EN_COURS', 'ASSEMBLAGE');
+
+-- The assembly of an uploaded document runs as a render job
+ALTER TABLE render_job DROP CONSTRAINT IF EXISTS chk_render_job_type;
+ALTER TABLE render_job ADD CONSTRAINT chk_render_job_type
+    CHECK (type_document IN ('ORDONNANCE', 'FACTURE', 'CERTIFICAT', 'FORMULAIRE', 'DOCUMENT_IMPORTE'));
+
+COMMENT ON TABLE upload_session IS 'Resumable upload of a patient document, chunk by chunk';
+COMMENT ON COLUMN upload_session.id_job IS 'Render job assembling the chunks once the upload is complete';
@@ -0,0 +1,26 @@
+-- Calendar sync tokens taken from the transaction snapshot instead of a settle delay: every
+-- insert and update of an appointment records the ID of its transaction, and a token is the
+-- oldest transaction still in flight when it is issued. A transaction cannot commit a change
+-- below the token, however long it runs, so the changes since a token are never skipped.
+ALTER TABLE rendez_vous
+ADD COLUMN IF NOT EXISTS change_xid BIGINT NOT NULL DEFAULT 0;
+
+CREATE INDEX IF NOT EXISTS idx_rendez_vous_change_xid ON rendez_vous (change_xid);
+
+-- The transaction ID is taken before the change sequence value, and the modification date is
+-- the time of the statement rather than the start of the transaction
+CREATE OR REPLACE FUNCTION rendez_vous_track_change() RETURNS trigger AS $$
+BEGIN
+    NEW.change_xid := pg_current_xact_id()::text::bigint;
+    NEW.change_seq := nextval('rendez_vous_change_seq');
+    NEW.date_modification := clock_timestamp();
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Every transaction older than the result has committed or rolled back
+CREATE OR REPLACE FUNCTION rendez_vous_sync_horizon() RETURNS BIGINT AS $$
+    SELECT pg_snapshot_xmin(pg_current_snapshot())::text::bigint;
+$$ LANGUAGE sql STABLE;
+
+COMMENT ON COLUMN rendez_vous.change_xid IS 'Transaction of the last insert or update, compared with the calendar sync token';
@@ -0,0 +1,14 @@
+-- Create the shared counters used for hi/lo block allocation across backend nodes
+CREATE TABLE IF NOT EXISTS sequence_compteur (
+    nom VARCHAR(50) PRIMARY KEY,
+    valeur BIGINT NOT NULL
+);
+
+-- Seed the IPP counter with the highest IPP already issued (format P000001)
+INSERT INTO sequence_compteur (nom, valeur)
+SELECT 'IPP', COALESCE(MAX(CAST(SUBSTRING(ipp FROM 2) AS BIGINT)), 0)
+FROM patient
+WHERE ipp ~ '^P[0-9]+$'
+ON CONFLICT (nom) DO NOTHING;
+
+COMMENT ON COLUMN sequence_compteur.valeur IS 'Last value reserved by any node; nodes reserve blocks by incrementing it';
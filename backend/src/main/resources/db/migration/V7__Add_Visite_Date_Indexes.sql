@@ -0,0 +1,14 @@
+-- Indexes backing the visit dashboards. The queries use half-open [start, end) ranges
+-- on the raw timestamp columns so these indexes can be used.
+
+-- Completed visits of the day (all doctors)
+CREATE INDEX IF NOT EXISTS idx_visite_statut_date_fin
+    ON visite (statut, date_fin);
+
+-- Completed visits of the day for one doctor
+CREATE INDEX IF NOT EXISTS idx_visite_medecin_statut_date_fin
+    ON visite (id_medecin, statut, date_fin);
+
+-- Visits of a patient by status, most recent first
+CREATE INDEX IF NOT EXISTS idx_visite_patient_statut_date_debut
+    ON visite (id_patient, statut, date_debut);
@@ -0,0 +1,8 @@
+-- A patient can have at most one visit in progress, even when two visits are started concurrently
+CREATE UNIQUE INDEX IF NOT EXISTS uk_visite_patient_in_progress
+    ON visite (id_patient)
+    WHERE statut = 'IN_PROGRESS';
+
+-- Optimistic lock on doctors, incremented by every status change
+ALTER TABLE medecin
+ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
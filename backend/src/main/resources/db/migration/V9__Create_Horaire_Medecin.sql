@@ -0,0 +1,15 @@
+-- Weekly working hours per doctor, used to compute the free appointment slots.
+-- Doctors without any row follow the default template (rendezvous.slots.default-*).
+CREATE TABLE IF NOT EXISTS horaire_medecin (
+    id_horaire BIGSERIAL PRIMARY KEY,
+    id_medecin UUID NOT NULL REFERENCES medecin(id_medecin) ON DELETE CASCADE,
+    jour_semaine VARCHAR(10) NOT NULL,
+    heure_debut TIME NOT NULL,
+    heure_fin TIME NOT NULL,
+    CONSTRAINT ck_horaire_medecin_periode CHECK (heure_debut < heure_fin)
+);
+
+CREATE INDEX IF NOT EXISTS idx_horaire_medecin_medecin ON horaire_medecin (id_medecin);
+
+-- The slot search reads the booked appointments of several doctors over a date range
+CREATE INDEX IF NOT EXISTS idx_rendez_vous_medecin_date ON rendez_vous (id_medecin, date_heure);
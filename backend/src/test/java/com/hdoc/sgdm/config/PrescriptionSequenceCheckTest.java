@@ -0,0 +1,38 @@
+package com.hdoc.sgdm.config;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+public class PrescriptionSequenceCheckTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+
+    @Test
+    public void testSequenceCreatedByDdlAutoOverExistingPrescriptionsStopsTheStartup() {
+        sequence(1L, 120L);
+
+        assertThrows(IllegalStateException.class, () -> new PrescriptionSequenceCheck(jdbcTemplate).check());
+    }
+
+    @Test
+    public void testSequenceSetByV11OrOnANewDatabasePasses() {
+        // setval(MAX + 50): the next call returns MAX + 100, for the block MAX + 51 to MAX + 100
+        sequence(220L, 120L);
+        assertDoesNotThrow(() -> new PrescriptionSequenceCheck(jdbcTemplate).check());
+
+        sequence(1L, 0L);
+        assertDoesNotThrow(() -> new PrescriptionSequenceCheck(jdbcTemplate).check());
+    }
+
+    private void sequence(long nextValue, long highestId) {
+        when(jdbcTemplate.queryForObject(contains("prescription_id_seq s"), eq(Long.class))).thenReturn(nextValue);
+        when(jdbcTemplate.queryForObject(contains("MAX(id_prescription)"), eq(Long.class))).thenReturn(highestId);
+    }
+}
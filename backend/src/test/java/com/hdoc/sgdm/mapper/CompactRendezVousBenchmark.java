@@ -0,0 +1,220 @@
+package com.hdoc.sgdm.mapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.hdoc.sgdm.dto.common.MedecinDTO;
+import com.hdoc.sgdm.dto.common.PatientDTO;
+import com.hdoc.sgdm.dto.response.CompactRendezVousDTO;
+import com.hdoc.sgdm.dto.response.CompactRendezVousListResponse;
+import com.hdoc.sgdm.dto.response.RendezVousResponse;
+import com.hdoc.sgdm.entity.RendezVous;
+
+/**
+ * Serialization of a calendar month of the whole clinic in the full shape (a RendezVousResponse
+ * with its PatientDTO and MedecinDTO per appointment, through the ObjectMapper) and in the compact
+ * shape (streamed by {@link CompactRendezVousWriter}). The payload sizes, raw and gzipped as sent
+ * with server.compression, are printed before the run.
+ *
+ * Not run by the test suite. Run it with:
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) com.hdoc.sgdm.mapper.CompactRendezVousBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompactRendezVousBenchmark {
+
+    private static final int DAYS = 30;
+    private static final int PATIENTS = 2000;
+
+    @Param({"10", "40"})
+    public int doctors;
+
+    @Param({"16"})
+    public int appointmentsPerDay;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .findAndRegisterModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    private final CompactRendezVousWriter writer = new CompactRendezVousWriter(objectMapper);
+
+    private List<RendezVousResponse> full;
+    private CompactRendezVousListResponse compact;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        List<PatientDTO> patients = new ArrayList<>();
+        for (int p = 0; p < PATIENTS; p++) {
+            patients.add(patient(p));
+        }
+        List<MedecinDTO> medecins = new ArrayList<>();
+        for (int d = 0; d < doctors; d++) {
+            medecins.add(MedecinDTO.builder()
+                    .idMedecin(UUID.randomUUID())
+                    .idSpecialite(d % 5 + 1)
+                    .nomSpecialite("Cardiologie")
+                    .nom("Medecin" + d)
+                    .prenom("Prenom" + d)
+                    .status("AVAILABLE")
+                    .build());
+        }
+
+        List<CompactRendezVousDTO> appointments = new ArrayList<>();
+        Map<UUID, PatientDTO> patientDictionary = new LinkedHashMap<>();
+        Map<UUID, MedecinDTO> medecinDictionary = new LinkedHashMap<>();
+        full = new ArrayList<>();
+        LocalDateTime firstDay = LocalDate.of(2025, 3, 1).atStartOfDay();
+        long id = 0;
+        for (int day = 0; day < DAYS; day++) {
+            for (MedecinDTO medecin : medecins) {
+                for (int a = 0; a < appointmentsPerDay; a++) {
+                    PatientDTO patient = patients.get((int) (id % PATIENTS));
+                    RendezVous rendezVous = new RendezVous();
+                    rendezVous.setId(++id);
+                    rendezVous.setIdPatient(patient.getIdPatient());
+                    rendezVous.setIdMedecin(medecin.getIdMedecin());
+                    rendezVous.setDateHeure(firstDay.plusDays(day).plusHours(8).plusMinutes(30L * a));
+                    rendezVous.setDurationMinutes(30);
+                    rendezVous.setStatus(RendezVous.StatutRendezVous.PLANIFIE);
+                    rendezVous.setService("Consultation");
+                    rendezVous.setTypeVisit("SUIVI");
+                    appointments.add(compact(rendezVous));
+                    patientDictionary.putIfAbsent(patient.getIdPatient(), patient);
+                    medecinDictionary.putIfAbsent(medecin.getIdMedecin(), medecin);
+                    full.add(response(rendezVous, patient, medecin));
+                }
+            }
+        }
+        compact = CompactRendezVousListResponse.builder()
+                .appointments(appointments)
+                .patients(patientDictionary)
+                .medecins(medecinDictionary)
+                .build();
+    }
+
+    @Benchmark
+    public byte[] fullShape() throws IOException {
+        return objectMapper.writeValueAsBytes(full);
+    }
+
+    @Benchmark
+    public byte[] compactShape() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(8192);
+        writer.write(compact, out);
+        return out.toByteArray();
+    }
+
+    public static void main(String[] args) throws RunnerException, IOException {
+        for (int doctors : new int[] {10, 40}) {
+            CompactRendezVousBenchmark benchmark = new CompactRendezVousBenchmark();
+            benchmark.doctors = doctors;
+            benchmark.appointmentsPerDay = 16;
+            benchmark.setup();
+            byte[] fullPayload = benchmark.fullShape();
+            byte[] compactPayload = benchmark.compactShape();
+            System.out.printf("%d doctors, %d appointments: full %d KB (gzip %d KB), compact %d KB (gzip %d KB)%n",
+                    doctors, benchmark.full.size(),
+                    fullPayload.length / 1024, gzip(fullPayload) / 1024,
+                    compactPayload.length / 1024, gzip(compactPayload) / 1024);
+        }
+        new Runner(new OptionsBuilder().include(CompactRendezVousBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    private static int gzip(byte[] payload) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(payload);
+        }
+        return out.size();
+    }
+
+    private static CompactRendezVousDTO compact(RendezVous rendezVous) {
+        return CompactRendezVousDTO.builder()
+                .id(rendezVous.getId())
+                .idPatient(rendezVous.getIdPatient())
+                .idMedecin(rendezVous.getIdMedecin())
+                .dateHeure(rendezVous.getDateHeure())
+                .durationMinutes(rendezVous.getDurationMinutes())
+                .status(rendezVous.getStatus())
+                .service(rendezVous.getService())
+                .typeVisit(rendezVous.getTypeVisit())
+                .build();
+    }
+
+    // Same fields as RendezVousService sets in the full shape
+    private static RendezVousResponse response(RendezVous rendezVous, PatientDTO patient, MedecinDTO medecin) {
+        RendezVousResponse response = new RendezVousResponse();
+        response.setId(rendezVous.getId());
+        response.setIdPatient(rendezVous.getIdPatient());
+        response.setIdMedecin(rendezVous.getIdMedecin());
+        response.setDateHeure(rendezVous.getDateHeure());
+        response.setDurationMinutes(rendezVous.getDurationMinutes());
+        response.setStatus(rendezVous.getStatus());
+        response.setService(rendezVous.getService());
+        response.setTypeVisit(rendezVous.getTypeVisit());
+        response.setNomPatient(patient.getNom());
+        response.setPrenomPatient(patient.getPrenom());
+        response.setNomMedecin(medecin.getNom() + " " + medecin.getPrenom());
+        response.setSpecialiteMedecin("Specialité #" + medecin.getIdSpecialite());
+        response.setPatient(patient);
+        response.setMedecin(medecin);
+        return response;
+    }
+
+    private static PatientDTO patient(int p) {
+        return PatientDTO.builder()
+                .idPatient(UUID.randomUUID())
+                .ipp(String.format("P%06d", p + 1))
+                .nom("Nom" + p)
+                .prenom("Prenom" + p)
+                .dateNaissance(LocalDate.of(1950 + p % 60, 1 + p % 12, 1 + p % 28))
+                .lieuNaissance("Rabat")
+                .sexe(p % 2 == 0 ? "F" : "M")
+                .adresse(p + " avenue Mohammed V")
+                .ville("Rabat")
+                .telephone("06" + String.format("%08d", p))
+                .nationalite("Marocaine")
+                .etatCivil("Célibataire")
+                .email("patient" + p + "@example.com")
+                .cin(String.format("AA%06d", p))
+                .contactUrgencePrenom("Contact" + p)
+                .contactUrgenceRelation("Parent")
+                .contactUrgenceAdresse(p + " rue de la Santé")
+                .contactUrgenceTelephone("07" + String.format("%08d", p))
+                .typeAdmission("NORMAL")
+                .dateAdmission(LocalDate.of(2024, 1, 1))
+                .dateCreation(LocalDateTime.of(2024, 1, 1, 10, 0))
+                .build();
+    }
+}
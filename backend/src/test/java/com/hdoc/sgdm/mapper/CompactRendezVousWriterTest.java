@@ -0,0 +1,111 @@
+package com.hdoc.sgdm.mapper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.hdoc.sgdm.dto.common.MedecinDTO;
+import com.hdoc.sgdm.dto.common.PatientDTO;
+import com.hdoc.sgdm.dto.response.CompactRendezVousDTO;
+import com.hdoc.sgdm.dto.response.CompactRendezVousListResponse;
+import com.hdoc.sgdm.entity.RendezVous;
+
+public class CompactRendezVousWriterTest {
+
+    private static final UUID DOCTOR = UUID.fromString("00000000-0000-0000-0000-00000000000a");
+    private static final UUID PATIENT_A = UUID.fromString("00000000-0000-0000-0000-0000000000a1");
+    private static final UUID PATIENT_B = UUID.fromString("00000000-0000-0000-0000-0000000000b1");
+
+    // Configured like the application's ObjectMapper
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .findAndRegisterModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    private final CompactRendezVousWriter writer = new CompactRendezVousWriter(objectMapper);
+
+    @Test
+    public void testPatientsAndDoctorsAreWrittenOnce() throws Exception {
+        Map<UUID, PatientDTO> patients = new LinkedHashMap<>();
+        patients.put(PATIENT_A, PatientDTO.builder().idPatient(PATIENT_A).nom("Alaoui").dateNaissance(LocalDate.of(1990, 1, 1)).build());
+        patients.put(PATIENT_B, PatientDTO.builder().idPatient(PATIENT_B).nom("Tazi").build());
+        CompactRendezVousListResponse response = CompactRendezVousListResponse.builder()
+                .status("success")
+                .appointments(List.of(
+                        appointment(1L, PATIENT_A, LocalDateTime.of(2025, 3, 3, 9, 0), "Contrôle"),
+                        appointment(2L, PATIENT_B, LocalDateTime.of(2025, 3, 3, 9, 30), null),
+                        appointment(3L, PATIENT_A, LocalDateTime.of(2025, 3, 10, 9, 0), null)))
+                .patients(patients)
+                .medecins(Map.of(DOCTOR, MedecinDTO.builder().idMedecin(DOCTOR).nom("Bennani").build()))
+                .build();
+
+        JsonNode json = objectMapper.readTree(write(response));
+
+        assertEquals("success", json.get("status").asText());
+        assertFalse(json.has("message"));
+        assertEquals(3, json.get("count").asInt());
+        assertEquals(2, json.get("patients").size());
+        assertEquals(1, json.get("medecins").size());
+        assertEquals("Alaoui", json.get("patients").get(PATIENT_A.toString()).get("nom").asText());
+        assertEquals("1990-01-01", json.get("patients").get(PATIENT_A.toString()).get("dateNaissance").asText());
+        assertEquals("Bennani", json.get("medecins").get(DOCTOR.toString()).get("nom").asText());
+
+        JsonNode first = json.get("appointments").get(0);
+        assertEquals(1L, first.get("id").asLong());
+        assertEquals(PATIENT_A.toString(), first.get("idPatient").asText());
+        assertEquals(DOCTOR.toString(), first.get("idMedecin").asText());
+        assertEquals("2025-03-03T09:00:00", first.get("dateHeure").asText());
+        assertEquals(30, first.get("durationMinutes").asInt());
+        assertEquals("PLANIFIE", first.get("status").asText());
+        assertEquals("Contrôle", first.get("note").asText());
+        // No embedded objects, no null fields
+        assertFalse(first.has("patient"));
+        assertFalse(first.has("medecin"));
+        assertFalse(json.get("appointments").get(1).has("note"));
+    }
+
+    @Test
+    public void testEmptyListIsAValidDocument() throws Exception {
+        CompactRendezVousListResponse response = CompactRendezVousListResponse.builder()
+                .appointments(List.of())
+                .patients(Map.of())
+                .medecins(Map.of())
+                .build();
+
+        JsonNode json = objectMapper.readTree(write(response));
+
+        assertEquals(0, json.get("count").asInt());
+        assertTrue(json.get("appointments").isEmpty());
+        assertTrue(json.get("patients").isEmpty());
+    }
+
+    private byte[] write(CompactRendezVousListResponse response) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.write(response, out);
+        return out.toByteArray();
+    }
+
+    private static CompactRendezVousDTO appointment(Long id, UUID idPatient, LocalDateTime dateHeure, String note) {
+        return CompactRendezVousDTO.builder()
+                .id(id)
+                .idPatient(idPatient)
+                .idMedecin(DOCTOR)
+                .dateHeure(dateHeure)
+                .durationMinutes(30)
+                .note(note)
+                .status(RendezVous.StatutRendezVous.PLANIFIE)
+                .build();
+    }
+}
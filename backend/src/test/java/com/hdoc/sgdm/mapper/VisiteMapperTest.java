@@ -0,0 +1,119 @@
+package com.hdoc.sgdm.mapper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.hdoc.sgdm.dto.common.VisiteDTO;
+import com.hdoc.sgdm.entity.Medecin;
+import com.hdoc.sgdm.entity.Specialite;
+import com.hdoc.sgdm.entity.Utilisateur;
+import com.hdoc.sgdm.entity.Visite;
+import com.hdoc.sgdm.repository.MedecinRepository;
+import com.hdoc.sgdm.repository.SpecialiteRepository;
+
+public class VisiteMapperTest {
+
+    @Mock
+    private MedecinRepository medecinRepository;
+
+    @Mock
+    private SpecialiteRepository specialiteRepository;
+
+    private VisiteMapper visiteMapper;
+
+    private UUID cardiologueId;
+    private UUID pediatreId;
+
+    @BeforeEach
+    public void setup() {
+        MockitoAnnotations.openMocks(this);
+        visiteMapper = new VisiteMapper(medecinRepository, new MedecinMapper(specialiteRepository));
+
+        cardiologueId = UUID.randomUUID();
+        pediatreId = UUID.randomUUID();
+
+        when(medecinRepository.findAllByIdWithUtilisateur(anyCollection())).thenReturn(Arrays.asList(
+                medecin(cardiologueId, 1, "Bennani", "Omar"),
+                medecin(pediatreId, 2, "Tazi", "Leila")));
+        when(specialiteRepository.findAllById(anyIterable())).thenReturn(Arrays.asList(
+                specialite(1, "Cardiologie"),
+                specialite(2, "Pédiatrie")));
+    }
+
+    @Test
+    public void testListResolvesDoctorsAndSpecialtiesOnce() {
+        List<Visite> visites = new ArrayList<>();
+        for (long i = 0; i < 50; i++) {
+            visites.add(visite(i, i % 2 == 0 ? cardiologueId : pediatreId));
+        }
+        visites.add(visite(50L, null));
+
+        List<VisiteDTO> dtos = visiteMapper.toDTOList(visites);
+
+        assertEquals(51, dtos.size());
+        assertEquals("Cardiologie", dtos.get(0).getMedecin().getNomSpecialite());
+        assertEquals("Bennani", dtos.get(0).getMedecin().getNom());
+        assertEquals("Pédiatrie", dtos.get(1).getMedecin().getNomSpecialite());
+        assertEquals("Leila", dtos.get(1).getMedecin().getPrenom());
+        assertNull(dtos.get(50).getMedecin());
+
+        verify(medecinRepository, times(1)).findAllByIdWithUtilisateur(anyCollection());
+        verify(specialiteRepository, times(1)).findAllById(anyIterable());
+        verify(medecinRepository, never()).findByIdWithUtilisateur(any());
+        verify(specialiteRepository, never()).findById(any());
+    }
+
+    @Test
+    public void testListWithoutDoctorsRunsNoQuery() {
+        List<VisiteDTO> dtos = visiteMapper.toDTOList(List.of(visite(1L, null)));
+
+        assertEquals(1, dtos.size());
+        verify(medecinRepository, never()).findAllByIdWithUtilisateur(anyCollection());
+        verify(specialiteRepository, never()).findAllById(anyIterable());
+    }
+
+    private static Visite visite(Long id, UUID idMedecin) {
+        return Visite.builder()
+                .idVisite(id)
+                .typeVisite("CONSULTATION")
+                .statut("IN_PROGRESS")
+                .idMedecin(idMedecin)
+                .build();
+    }
+
+    private static Medecin medecin(UUID id, Integer idSpecialite, String nom, String prenom) {
+        Utilisateur utilisateur = new Utilisateur();
+        utilisateur.setNom(nom);
+        utilisateur.setPrenom(prenom);
+        return Medecin.builder()
+                .idMedecin(id)
+                .idSpecialite(idSpecialite)
+                .status("AVAILABLE")
+                .utilisateur(utilisateur)
+                .build();
+    }
+
+    private static Specialite specialite(Integer id, String nom) {
+        return Specialite.builder()
+                .idSpecialite(id)
+                .nom(nom)
+                .build();
+    }
+}
@@ -0,0 +1,134 @@
+package com.hdoc.sgdm.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.context.jdbc.SqlConfig;
+
+import com.hdoc.sgdm.entity.Patient;
+import com.hdoc.sgdm.entity.Visite;
+
+@DataJpaTest
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Sql(scripts = "classpath:db/migration/V7__Add_Visite_Date_Indexes.sql",
+     config = @SqlConfig(transactionMode = SqlConfig.TransactionMode.ISOLATED))
+public class VisiteRepositoryTest {
+
+    private static final LocalDate DAY = LocalDate.of(2025, 3, 14);
+
+    @Autowired
+    private VisiteRepository visiteRepository;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Patient patient;
+    private UUID medecinId;
+
+    @BeforeEach
+    public void setup() {
+        medecinId = UUID.randomUUID();
+        patient = patientRepository.save(Patient.builder()
+                .ipp("P000001")
+                .nom("Idrissi")
+                .prenom("Karim")
+                .dateNaissance(LocalDate.of(1985, 5, 20))
+                .lieuNaissance("Fès")
+                .sexe("M")
+                .adresse("12 avenue Hassan II")
+                .ville("Fès")
+                .telephone("0600000000")
+                .nationalite("Marocaine")
+                .etatCivil("Marié")
+                .email("karim.idrissi@example.com")
+                .cin("C123456")
+                .typeAdmission("NORMAL")
+                .dateAdmission(DAY)
+                .dateCreation(DAY.atStartOfDay())
+                .build());
+    }
+
+    @Test
+    public void testCompletedVisitsOfTheDayUseAHalfOpenRange() {
+        visite("COMPLETED", DAY.minusDays(1).atTime(23, 59, 59), medecinId);
+        Visite atMidnight = visite("COMPLETED", DAY.atStartOfDay(), medecinId);
+        Visite lastSecond = visite("COMPLETED", DAY.atTime(23, 59, 59), medecinId);
+        visite("COMPLETED", DAY.plusDays(1).atStartOfDay(), medecinId);
+        Visite otherDoctor = visite("COMPLETED", DAY.atTime(12, 0), UUID.randomUUID());
+
+        List<Visite> visites = visiteRepository.findCompletedVisitsByDate(
+                "COMPLETED", DAY.atStartOfDay(), DAY.plusDays(1).atStartOfDay());
+        assertEquals(List.of(lastSecond.getIdVisite(), otherDoctor.getIdVisite(), atMidnight.getIdVisite()),
+                visites.stream().map(Visite::getIdVisite).toList());
+
+        visites = visiteRepository.findCompletedVisitsByDateAndDoctor(
+                "COMPLETED", DAY.atStartOfDay(), DAY.plusDays(1).atStartOfDay(), medecinId);
+        assertEquals(List.of(lastSecond.getIdVisite(), atMidnight.getIdVisite()),
+                visites.stream().map(Visite::getIdVisite).toList());
+    }
+
+    @Test
+    public void testDayQueriesSeekTheirIndex() {
+        assertUsesIndex("idx_visite_statut_date_fin",
+                "SELECT * FROM visite v WHERE v.statut = 'COMPLETED'"
+                + " AND v.date_fin >= TIMESTAMP '2025-03-14 00:00:00' AND v.date_fin < TIMESTAMP '2025-03-15 00:00:00'"
+                + " ORDER BY v.date_fin DESC");
+
+        assertUsesIndex("idx_visite_medecin_statut_date_fin",
+                "SELECT * FROM visite v WHERE v.id_medecin = '" + medecinId + "' AND v.statut = 'COMPLETED'"
+                + " AND v.date_fin >= TIMESTAMP '2025-03-14 00:00:00' AND v.date_fin < TIMESTAMP '2025-03-15 00:00:00'"
+                + " ORDER BY v.date_fin DESC");
+
+        // H2 may prefer the foreign key index on id_patient here, both seek instead of scanning
+        assertSeeks("id_patient = ",
+                "SELECT * FROM visite v WHERE v.id_patient = '" + patient.getIdPatient() + "' AND v.statut = 'IN_PROGRESS'"
+                + " ORDER BY v.date_debut DESC");
+    }
+
+    private void assertUsesIndex(String index, String sql) {
+        String plan = explain(sql);
+        assertTrue(plan.contains("/* public." + index + ": "), plan);
+        assertTrue(plan.contains("date_fin >= "), plan);
+    }
+
+    private void assertSeeks(String condition, String sql) {
+        String plan = explain(sql);
+        assertTrue(plan.contains("_index_") || plan.contains("idx_visite_"), plan);
+        assertTrue(plan.contains(": " + condition), plan);
+        assertFalse(plan.contains("tablescan"), plan);
+    }
+
+    private String explain(String sql) {
+        return jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class).toLowerCase();
+    }
+
+    private Visite visite(String statut, LocalDateTime dateFin, UUID idMedecin) {
+        return visiteRepository.save(Visite.builder()
+                .patient(patient)
+                .typeVisite("CONSULTATION")
+                .motif("Contrôle")
+                .statut(statut)
+                .dateDebut(dateFin.minusMinutes(30))
+                .dateFin(dateFin)
+                .idMedecin(idMedecin)
+                .build());
+    }
+}
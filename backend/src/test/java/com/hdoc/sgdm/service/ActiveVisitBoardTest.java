@@ -0,0 +1,117 @@
+package com.hdoc.sgdm.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.hdoc.sgdm.dto.common.MedecinDTO;
+import com.hdoc.sgdm.dto.common.VisiteDTO;
+import com.hdoc.sgdm.mapper.VisiteMapper;
+import com.hdoc.sgdm.repository.MedecinRepository;
+import com.hdoc.sgdm.repository.VisiteRepository;
+
+public class ActiveVisitBoardTest {
+
+    @Mock
+    private VisiteRepository visiteRepository;
+
+    @Mock
+    private MedecinRepository medecinRepository;
+
+    @Mock
+    private VisiteMapper visiteMapper;
+
+    private ActiveVisitBoard activeVisitBoard;
+
+    private UUID medecinId;
+    private UUID autreMedecinId;
+
+    @BeforeEach
+    public void setup() {
+        MockitoAnnotations.openMocks(this);
+
+        medecinId = UUID.randomUUID();
+        autreMedecinId = UUID.randomUUID();
+
+        when(visiteMapper.toDTOList(anyList())).thenReturn(List.of(
+                visite(1L, medecinId, "IN_PROGRESS", LocalDateTime.now().minusHours(1))));
+        when(medecinRepository.findAllStatuses()).thenReturn(Arrays.asList(
+                status(medecinId, "UNAVAILABLE"),
+                status(autreMedecinId, "AVAILABLE")));
+
+        activeVisitBoard = new ActiveVisitBoard(visiteRepository, medecinRepository, visiteMapper, 0L);
+        activeVisitBoard.rebuild();
+    }
+
+    @Test
+    public void testReadsAreServedFromMemory() {
+        assertEquals(1, activeVisitBoard.getActiveVisites().size());
+        assertEquals(1L, activeVisitBoard.getActiveVisite(medecinId).get().getIdVisite());
+        assertEquals(1, activeVisitBoard.countActiveVisites(medecinId));
+        assertTrue(activeVisitBoard.hasMedecin(autreMedecinId));
+
+        verify(visiteRepository, times(1)).findByStatutOrderByDateDebutDesc("IN_PROGRESS");
+        verify(medecinRepository, times(1)).findAllStatuses();
+    }
+
+    @Test
+    public void testVisitsEnterAndLeaveTheBoard() {
+        activeVisitBoard.visiteChanged(visite(2L, autreMedecinId, "IN_PROGRESS", LocalDateTime.now()));
+
+        List<VisiteDTO> visites = activeVisitBoard.getActiveVisites();
+        assertEquals(Arrays.asList(2L, 1L), visites.stream().map(VisiteDTO::getIdVisite).toList());
+
+        // Ending a visit removes it, as does deleting it
+        activeVisitBoard.visiteChanged(visite(1L, medecinId, "COMPLETED", LocalDateTime.now()));
+        activeVisitBoard.visiteRemoved(2L);
+
+        assertTrue(activeVisitBoard.getActiveVisites().isEmpty());
+        assertFalse(activeVisitBoard.getActiveVisite(medecinId).isPresent());
+    }
+
+    @Test
+    public void testDoctorStatusIsPropagatedToTheirVisit() {
+        activeVisitBoard.medecinStatusChanged(medecinId, "AVAILABLE");
+
+        assertEquals("AVAILABLE", activeVisitBoard.getActiveVisite(medecinId).get().getMedecin().getStatus());
+    }
+
+    private static VisiteDTO visite(Long id, UUID idMedecin, String statut, LocalDateTime dateDebut) {
+        return VisiteDTO.builder()
+                .idVisite(id)
+                .typeVisite("CONSULTATION")
+                .statut(statut)
+                .dateDebut(dateDebut)
+                .idMedecin(idMedecin)
+                .medecin(MedecinDTO.builder().idMedecin(idMedecin).status("UNAVAILABLE").build())
+                .build();
+    }
+
+    private static MedecinRepository.DoctorStatus status(UUID id, String status) {
+        return new MedecinRepository.DoctorStatus() {
+            @Override
+            public UUID getIdMedecin() {
+                return id;
+            }
+
+            @Override
+            public String getStatus() {
+                return status;
+            }
+        };
+    }
+}
@@ -0,0 +1,143 @@
+package com.hdoc.sgdm.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.hdoc.sgdm.entity.RendezVous;
+import com.hdoc.sgdm.repository.RendezVousRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class AppointmentTimerWheelTest {
+
+    private static final ZoneId ZONE = ZoneId.of("Africa/Casablanca");
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 3, 10, 10, 0, 0);
+    private static final int SLOTS = 8;
+
+    @Mock
+    private RendezVousRepository rendezVousRepository;
+
+    @Mock
+    private TodayAgendaCache todayAgendaCache;
+
+    private SimpleMeterRegistry meterRegistry;
+    private AppointmentTimerWheel wheel;
+    private long now;
+
+    @BeforeEach
+    public void setup() {
+        MockitoAnnotations.openMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        Clock clock = Clock.fixed(NOW.atZone(ZONE).toInstant(), ZONE);
+        wheel = new AppointmentTimerWheel(rendezVousRepository, todayAgendaCache, meterRegistry, clock, SLOTS);
+        now = clock.instant().getEpochSecond();
+        when(rendezVousRepository.markLateByIds(anyCollection(), any())).thenAnswer(
+                invocation -> invocation.<List<Long>>getArgument(0).size());
+    }
+
+    @Test
+    public void testAppointmentsDueInTheSameSecondFireInOneBatch() {
+        wheel.schedule(appointment(1L, NOW.plusSeconds(3)));
+        wheel.schedule(appointment(2L, NOW.plusSeconds(3)));
+        wheel.schedule(appointment(3L, NOW.plusSeconds(5)));
+
+        assertTrue(wheel.advanceTo(now + 2).isEmpty());
+        verify(rendezVousRepository, never()).markLateByIds(anyCollection(), any());
+
+        List<Long> due = wheel.advanceTo(now + 3);
+        assertEquals(2, due.size());
+        assertTrue(due.containsAll(List.of(1L, 2L)));
+        verify(rendezVousRepository, times(1)).markLateByIds(eq(due), any());
+        verify(todayAgendaCache, times(1)).appointmentsMarkedLate(due);
+
+        assertEquals(List.of(3L), wheel.advanceTo(now + 5));
+        assertEquals(0, wheel.size());
+        assertEquals(3.0, meterRegistry.get("rendezvous.late.fired").counter().count());
+    }
+
+    @Test
+    public void testAppointmentsBeyondOneRevolutionWaitForTheirRound() {
+        // Same slot as now + 4, two revolutions later
+        wheel.schedule(appointment(1L, NOW.plusSeconds(4 + 2 * SLOTS)));
+
+        assertTrue(wheel.advanceTo(now + 4 + SLOTS).isEmpty());
+        assertEquals(1, wheel.size());
+        assertEquals(List.of(1L), wheel.advanceTo(now + 4 + 2 * SLOTS));
+    }
+
+    @Test
+    public void testRescheduledAndCancelledAppointmentsDoNotFireAtTheOldTime() {
+        wheel.schedule(appointment(1L, NOW.plusSeconds(2)));
+        wheel.schedule(appointment(2L, NOW.plusSeconds(2)));
+        wheel.schedule(appointment(3L, NOW.plusSeconds(2)));
+
+        wheel.schedule(appointment(1L, NOW.plusSeconds(6)));
+        wheel.cancel(2L);
+        RendezVous started = appointment(3L, NOW.plusSeconds(2));
+        started.setStatus(RendezVous.StatutRendezVous.COMMENCE);
+        wheel.schedule(started);
+
+        assertTrue(wheel.advanceTo(now + 5).isEmpty());
+        assertEquals(List.of(1L), wheel.advanceTo(now + 6));
+    }
+
+    @Test
+    public void testAppointmentsOfAnotherDayAreLeftToTheMidnightLoad() {
+        wheel.schedule(appointment(1L, NOW.plusDays(1)));
+        wheel.schedule(appointment(2L, NOW.minusDays(1)));
+
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void testLoadSchedulesTodayAndFiresOverdueAppointmentsOnTheNextTick() {
+        when(rendezVousRepository.findScheduledBetween(NOW.toLocalDate().atStartOfDay(), NOW.toLocalDate().plusDays(1).atStartOfDay()))
+                .thenReturn(List.of(scheduled(1L, NOW.minusMinutes(10)), scheduled(2L, NOW.plusMinutes(30))));
+
+        wheel.load();
+
+        assertEquals(2, wheel.size());
+        assertEquals(List.of(1L), wheel.advanceTo(now + 1));
+        assertTrue(wheel.advanceTo(now + 30 * 60 - 1).isEmpty());
+        assertEquals(List.of(2L), wheel.advanceTo(now + 30 * 60));
+    }
+
+    private static RendezVous appointment(Long id, LocalDateTime dateHeure) {
+        RendezVous rendezVous = new RendezVous();
+        rendezVous.setId(id);
+        rendezVous.setDateHeure(dateHeure);
+        rendezVous.setStatus(RendezVous.StatutRendezVous.PLANIFIE);
+        return rendezVous;
+    }
+
+    private static RendezVousRepository.ScheduledAppointment scheduled(Long id, LocalDateTime dateHeure) {
+        return new RendezVousRepository.ScheduledAppointment() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public LocalDateTime getDateHeure() {
+                return dateHeure;
+            }
+        };
+    }
+}
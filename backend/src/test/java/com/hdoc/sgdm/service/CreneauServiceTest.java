@@ -0,0 +1,185 @@
+package com.hdoc.sgdm.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.hdoc.sgdm.dto.common.CreneauDTO;
+import com.hdoc.sgdm.dto.common.MedecinDTO;
+import com.hdoc.sgdm.dto.response.CreneauListResponse;
+import com.hdoc.sgdm.entity.HoraireMedecin;
+import com.hdoc.sgdm.entity.Medecin;
+import com.hdoc.sgdm.mapper.MedecinMapper;
+import com.hdoc.sgdm.repository.HoraireMedecinRepository;
+import com.hdoc.sgdm.repository.MedecinRepository;
+import com.hdoc.sgdm.repository.RendezVousRepository;
+
+public class CreneauServiceTest {
+
+    private static final Integer CARDIOLOGIE = 3;
+    private static final UUID DOCTOR_A = UUID.fromString("00000000-0000-0000-0000-00000000000a");
+    private static final UUID DOCTOR_B = UUID.fromString("00000000-0000-0000-0000-00000000000b");
+    private static final LocalDate MONDAY = LocalDate.now().plusWeeks(1).with(TemporalAdjusters.nextOrSame(DayOfWeek.MONDAY));
+
+    @Mock
+    private MedecinRepository medecinRepository;
+
+    @Mock
+    private RendezVousRepository rendezVousRepository;
+
+    @Mock
+    private HoraireMedecinRepository horaireMedecinRepository;
+
+    @Mock
+    private MedecinMapper medecinMapper;
+
+    private CreneauService creneauService;
+
+    @BeforeEach
+    public void setup() {
+        MockitoAnnotations.openMocks(this);
+        creneauService = new CreneauService(medecinRepository, rendezVousRepository, horaireMedecinRepository, medecinMapper,
+                Arrays.asList(DayOfWeek.MONDAY, DayOfWeek.TUESDAY, DayOfWeek.WEDNESDAY, DayOfWeek.THURSDAY, DayOfWeek.FRIDAY),
+                Arrays.asList("08:00-12:00", "14:00-18:00"));
+        when(medecinMapper.toDTOMap(anyCollection())).thenReturn(Map.of(
+                DOCTOR_A, MedecinDTO.builder().idMedecin(DOCTOR_A).build(),
+                DOCTOR_B, MedecinDTO.builder().idMedecin(DOCTOR_B).build()));
+    }
+
+    @Test
+    public void testSlotsFillTheGapsBetweenAppointments() {
+        doctors(DOCTOR_A);
+        booked(slot(DOCTOR_A, MONDAY.atTime(8, 0), 60), slot(DOCTOR_A, MONDAY.atTime(10, 0), 30));
+
+        CreneauListResponse response = creneauService.findFreeSlots(CARDIOLOGIE, MONDAY.atStartOfDay(), MONDAY.plusDays(1).atStartOfDay(), 30, 5);
+
+        assertEquals("success", response.getStatus());
+        assertEquals(List.of("09:00", "09:30", "10:30", "11:00", "11:30"), startTimes(response));
+        assertEquals(MONDAY.atTime(9, 30), response.getCreneaux().get(0).getFin());
+        // One query for the appointments of all the doctors
+        verify(rendezVousRepository, times(1)).findBookedSlotsForDoctors(
+                eq(List.of(DOCTOR_A)), eq(MONDAY.minusDays(1).atStartOfDay()), eq(MONDAY.plusDays(1).atStartOfDay()));
+    }
+
+    @Test
+    public void testSearchWithoutSpecialtyCoversTheActiveDoctorsOnly() {
+        when(medecinRepository.findAllActiveAnyStatus()).thenReturn(List.of(
+                Medecin.builder().idMedecin(DOCTOR_B).idSpecialite(CARDIOLOGIE).status("BUSY").build()));
+        booked();
+
+        CreneauListResponse response = creneauService.findFreeSlots(null, MONDAY.atTime(8, 0), MONDAY.atTime(9, 0), 30, null);
+
+        assertEquals(List.of("08:00", "08:30"), startTimes(response));
+        verify(medecinRepository, never()).findAll();
+    }
+
+    @Test
+    public void testLongAppointmentBlocksTheFollowingPeriod() {
+        doctors(DOCTOR_A);
+        // Booked from 11:00 to 15:00, then a 45 minute slot no longer fits before 15:30
+        booked(slot(DOCTOR_A, MONDAY.atTime(8, 0), 180), slot(DOCTOR_A, MONDAY.atTime(11, 0), 240),
+                slot(DOCTOR_A, MONDAY.atTime(15, 30), 30));
+
+        CreneauListResponse response = creneauService.findFreeSlots(CARDIOLOGIE, MONDAY.atStartOfDay(), MONDAY.plusDays(1).atStartOfDay(), 45, 3);
+
+        assertEquals(List.of("16:00", "16:45"), startTimes(response));
+    }
+
+    @Test
+    public void testSlotsOfSeveralDoctorsAreMergedEarliestFirst() {
+        doctors(DOCTOR_A, DOCTOR_B);
+        booked(slot(DOCTOR_A, MONDAY.atTime(8, 0), 60));
+
+        CreneauListResponse response = creneauService.findFreeSlots(CARDIOLOGIE, MONDAY.atTime(8, 0), MONDAY.atTime(12, 0), 60, 4);
+
+        assertEquals(List.of("08:00", "09:00", "09:00", "10:00"), startTimes(response));
+        assertEquals(List.of(DOCTOR_B, DOCTOR_A, DOCTOR_B, DOCTOR_A),
+                response.getCreneaux().stream().map(CreneauDTO::getIdMedecin).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testDoctorWorkingHoursReplaceTheDefaultTemplate() {
+        doctors(DOCTOR_A);
+        booked();
+        when(horaireMedecinRepository.findByIdMedecinIn(anyCollection())).thenReturn(List.of(
+                HoraireMedecin.builder().idMedecin(DOCTOR_A).jourSemaine(DayOfWeek.SATURDAY)
+                        .heureDebut(LocalTime.of(9, 0)).heureFin(LocalTime.of(10, 0)).build()));
+
+        // Monday to Sunday: only the Saturday morning is worked
+        CreneauListResponse response = creneauService.findFreeSlots(CARDIOLOGIE, MONDAY.atStartOfDay(), MONDAY.plusDays(7).atStartOfDay(), 20, 10);
+
+        assertEquals(3, response.getCount());
+        response.getCreneaux().forEach(creneau -> assertEquals(MONDAY.plusDays(5), creneau.getDebut().toLocalDate()));
+    }
+
+    @Test
+    public void testInvalidSearchIsRejected() {
+        LocalDateTime from = MONDAY.atStartOfDay();
+        assertThrows(IllegalArgumentException.class, () -> creneauService.findFreeSlots(null, from, from.plusDays(1), 0, null));
+        assertThrows(IllegalArgumentException.class, () -> creneauService.findFreeSlots(null, from, from, 30, null));
+        assertThrows(IllegalArgumentException.class, () -> creneauService.findFreeSlots(null, from, from.plusDays(32), 30, null));
+    }
+
+    private void doctors(UUID... ids) {
+        List<Medecin> medecins = Arrays.stream(ids)
+                .map(id -> Medecin.builder().idMedecin(id).idSpecialite(CARDIOLOGIE).status("AVAILABLE").build())
+                .collect(Collectors.toList());
+        when(medecinRepository.findAllBySpecialite(CARDIOLOGIE)).thenReturn(medecins);
+    }
+
+    private void booked(RendezVousRepository.BookedSlot... slots) {
+        when(rendezVousRepository.findBookedSlotsForDoctors(anyCollection(), any(), any())).thenReturn(Arrays.asList(slots));
+    }
+
+    private static List<String> startTimes(CreneauListResponse response) {
+        return response.getCreneaux().stream()
+                .map(creneau -> creneau.getDebut().toLocalTime().toString())
+                .collect(Collectors.toList());
+    }
+
+    private static RendezVousRepository.BookedSlot slot(UUID idMedecin, LocalDateTime dateHeure, int duration) {
+        return new RendezVousRepository.BookedSlot() {
+            @Override
+            public Long getId() {
+                return null;
+            }
+
+            @Override
+            public UUID getIdMedecin() {
+                return idMedecin;
+            }
+
+            @Override
+            public LocalDateTime getDateHeure() {
+                return dateHeure;
+            }
+
+            @Override
+            public Integer getDurationMinutes() {
+                return duration;
+            }
+        };
+    }
+}
@@ -0,0 +1,106 @@
+package com.hdoc.sgdm.service;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Booking throughput of 8 threads under {@link DoctorBookingLock} (local stripes), when they all
+ * book the same doctor, when each books its own doctor, and under a single global lock. Each
+ * booking holds its lock for about 100 µs, standing for the overlap query and the insert; the
+ * global lock serializes the bookings of different doctors as the same doctor does, the
+ * per-doctor lock lets them run in parallel.
+ *
+ * Not run by the test suite. Run it with:
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) com.hdoc.sgdm.service.DoctorBookingLockBenchmark
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(1)
+public class DoctorBookingLockBenchmark {
+
+    private static final long CRITICAL_SECTION_NANOS = 100_000;
+
+    @State(Scope.Benchmark)
+    public static class Locks {
+        final DoctorBookingLock doctorBookingLock = new DoctorBookingLock(null, null, 64, false);
+        final ReentrantLock globalLock = new ReentrantLock();
+        final UUID sharedDoctor = UUID.randomUUID();
+        final AtomicInteger threads = new AtomicInteger();
+    }
+
+    @State(Scope.Thread)
+    public static class Booker {
+        UUID ownDoctor;
+
+        @Setup(Level.Trial)
+        public void setup(Locks locks) {
+            // Consecutive hashes fall in distinct stripes
+            ownDoctor = new UUID(0, locks.threads.incrementAndGet());
+        }
+    }
+
+    @Benchmark
+    public void sameDoctor(Locks locks) {
+        book(locks.doctorBookingLock, locks.sharedDoctor);
+    }
+
+    @Benchmark
+    public void distinctDoctors(Locks locks, Booker booker) {
+        book(locks.doctorBookingLock, booker.ownDoctor);
+    }
+
+    @Benchmark
+    public void globalLock(Locks locks) {
+        locks.globalLock.lock();
+        try {
+            LockSupport.parkNanos(CRITICAL_SECTION_NANOS);
+        } finally {
+            locks.globalLock.unlock();
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(DoctorBookingLockBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    // One booking transaction: lock, check and insert, then release at completion
+    private static void book(DoctorBookingLock lock, UUID idMedecin) {
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            lock.lock(idMedecin);
+            LockSupport.parkNanos(CRITICAL_SECTION_NANOS);
+        } finally {
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+            }
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.hdoc.sgdm.service;
+
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public class DoctorBookingLockTest {
+
+    private static final int STRIPES = 8;
+    private static final UUID DOCTOR_A = new UUID(0, 1);
+    private static final UUID DOCTOR_B = new UUID(0, 2);
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testSameDoctorWaitsForTheTransactionHoldingTheLock() throws Exception {
+        DoctorBookingLock lock = new DoctorBookingLock(jdbcTemplate, mock(DataSource.class), STRIPES, false);
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+
+        Future<?> first = executor.submit(() -> inTransaction(() -> {
+            lock.lock(DOCTOR_A);
+            locked.countDown();
+            await(commit);
+        }));
+        locked.await();
+
+        Future<?> second = executor.submit(() -> inTransaction(() -> lock.lock(DOCTOR_A)));
+        assertThrows(TimeoutException.class, () -> second.get(200, TimeUnit.MILLISECONDS));
+
+        // Released when the first transaction completes
+        commit.countDown();
+        first.get(5, TimeUnit.SECONDS);
+        second.get(5, TimeUnit.SECONDS);
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    public void testDifferentDoctorsDoNotWaitForEachOther() throws Exception {
+        DoctorBookingLock lock = new DoctorBookingLock(jdbcTemplate, mock(DataSource.class), STRIPES, false);
+        assertNotEquals(Math.floorMod(DOCTOR_A.hashCode(), STRIPES), Math.floorMod(DOCTOR_B.hashCode(), STRIPES));
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+
+        Future<?> first = executor.submit(() -> inTransaction(() -> {
+            lock.lock(DOCTOR_A);
+            locked.countDown();
+            await(commit);
+        }));
+        locked.await();
+
+        executor.submit(() -> inTransaction(() -> lock.lock(DOCTOR_B))).get(5, TimeUnit.SECONDS);
+
+        commit.countDown();
+        first.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testPostgresUsesATransactionAdvisoryLockPerDoctor() {
+        DoctorBookingLock lock = new DoctorBookingLock(jdbcTemplate, mock(DataSource.class), STRIPES, true);
+
+        inTransaction(() -> lock.lock(DOCTOR_A));
+
+        verify(jdbcTemplate).query(eq("SELECT pg_advisory_xact_lock(?, ?)"), any(RowCallbackHandler.class),
+                eq(DoctorBookingLock.ADVISORY_LOCK_SPACE), eq(DOCTOR_A.hashCode()));
+    }
+
+    @Test
+    public void testLockingOutsideATransactionIsRejected() {
+        DoctorBookingLock lock = new DoctorBookingLock(jdbcTemplate, mock(DataSource.class), STRIPES, false);
+
+        assertThrows(IllegalStateException.class, () -> lock.lock(DOCTOR_A));
+    }
+
+    // Runs the action as the body of a transaction, completing the registered synchronizations
+    private static void inTransaction(Runnable action) {
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            action.run();
+        } finally {
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+            }
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.hdoc.sgdm.service;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.hdoc.sgdm.repository.RendezVousRepository;
+
+/**
+ * Availability search for one time slot: {@link DoctorScheduleIndex#findFreeDoctors} against one
+ * overlap query per doctor, the path {@code getAvailableDoctorsForTimeSlot} takes outside the index
+ * horizon. The queries run on an in-memory H2 database, so they measure the per-query cost without
+ * any network round trip; against Postgres the gap is wider.
+ *
+ * Not run by the test suite. Run it with:
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) com.hdoc.sgdm.service.DoctorScheduleIndexBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DoctorScheduleIndexBenchmark {
+
+    private static final int DAYS = 60;
+    private static final String OVERLAP_QUERY = "SELECT COUNT(*) > 0 FROM rendez_vous rv WHERE rv.id_medecin = ? " +
+            "AND rv.status IN ('PLANIFIE', 'LATE') AND rv.date_heure < ? " +
+            "AND DATEADD(MINUTE, rv.duration_minutes, rv.date_heure) > ?";
+
+    @Param({"10", "50"})
+    public int doctors;
+
+    @Param({"8"})
+    public int appointmentsPerDay;
+
+    private final List<UUID> doctorIds = new ArrayList<>();
+    private Connection connection;
+    private PreparedStatement overlapQuery;
+    private DoctorScheduleIndex index;
+    private LocalDateTime slotStart;
+    private LocalDateTime slotEnd;
+
+    @Setup(Level.Trial)
+    public void setup() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:schedule-benchmark;DB_CLOSE_DELAY=-1", "sa", "");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE rendez_vous (id_rdv BIGINT PRIMARY KEY, id_medecin UUID NOT NULL, " +
+                    "status VARCHAR(20) NOT NULL, date_heure TIMESTAMP NOT NULL, duration_minutes INT NOT NULL)");
+            statement.execute("CREATE INDEX idx_rdv_medecin_date ON rendez_vous (id_medecin, date_heure)");
+        }
+
+        List<RendezVousRepository.BookedSlot> slots = new ArrayList<>();
+        LocalDateTime firstDay = LocalDate.now().atStartOfDay();
+        long id = 0;
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO rendez_vous VALUES (?, ?, 'PLANIFIE', ?, 30)")) {
+            for (int d = 0; d < doctors; d++) {
+                UUID idMedecin = UUID.randomUUID();
+                doctorIds.add(idMedecin);
+                for (int day = 0; day < DAYS; day++) {
+                    for (int a = 0; a < appointmentsPerDay; a++) {
+                        // Half-hour appointments from 8:00, every hour, shifted per doctor
+                        LocalDateTime dateHeure = firstDay.plusDays(day).plusHours(8 + a).plusMinutes(d % 2 * 30);
+                        insert.setLong(1, ++id);
+                        insert.setObject(2, idMedecin);
+                        insert.setTimestamp(3, Timestamp.valueOf(dateHeure));
+                        insert.addBatch();
+                        slots.add(slot(id, idMedecin, dateHeure));
+                    }
+                }
+            }
+            insert.executeBatch();
+        }
+        overlapQuery = connection.prepareStatement(OVERLAP_QUERY);
+
+        RendezVousRepository repository = mock(RendezVousRepository.class);
+        when(repository.findBookedSlotsBetween(any(), any())).thenReturn(slots);
+        index = new DoctorScheduleIndex(repository, DAYS);
+        index.rebuild();
+
+        // Half of the doctors are busy in the middle of the horizon
+        slotStart = firstDay.plusDays(DAYS / 2).plusHours(10);
+        slotEnd = slotStart.plusMinutes(20);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP ALL OBJECTS");
+        }
+        connection.close();
+    }
+
+    @Benchmark
+    public List<UUID> queryPerDoctor() throws SQLException {
+        List<UUID> free = new ArrayList<>();
+        for (UUID idMedecin : doctorIds) {
+            overlapQuery.setObject(1, idMedecin);
+            overlapQuery.setTimestamp(2, Timestamp.valueOf(slotEnd));
+            overlapQuery.setTimestamp(3, Timestamp.valueOf(slotStart));
+            try (ResultSet result = overlapQuery.executeQuery()) {
+                result.next();
+                if (!result.getBoolean(1)) {
+                    free.add(idMedecin);
+                }
+            }
+        }
+        return free;
+    }
+
+    @Benchmark
+    public List<UUID> scheduleIndex() {
+        return index.findFreeDoctors(doctorIds, slotStart, slotEnd);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(DoctorScheduleIndexBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    private static RendezVousRepository.BookedSlot slot(Long id, UUID idMedecin, LocalDateTime dateHeure) {
+        return new RendezVousRepository.BookedSlot() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public UUID getIdMedecin() {
+                return idMedecin;
+            }
+
+            @Override
+            public LocalDateTime getDateHeure() {
+                return dateHeure;
+            }
+
+            @Override
+            public Integer getDurationMinutes() {
+                return 30;
+            }
+        };
+    }
+}
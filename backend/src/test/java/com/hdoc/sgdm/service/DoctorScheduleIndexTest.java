@@ -0,0 +1,134 @@
+package com.hdoc.sgdm.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.hdoc.sgdm.entity.RendezVous;
+import com.hdoc.sgdm.repository.RendezVousRepository;
+
+public class DoctorScheduleIndexTest {
+
+    private static final UUID DOCTOR_A = UUID.randomUUID();
+    private static final UUID DOCTOR_B = UUID.randomUUID();
+    private static final LocalDateTime TOMORROW_9H = LocalDate.now().plusDays(1).atTime(9, 0);
+
+    @Mock
+    private RendezVousRepository rendezVousRepository;
+
+    private DoctorScheduleIndex index;
+
+    @BeforeEach
+    public void setup() {
+        MockitoAnnotations.openMocks(this);
+        // Doctor A: 9:00-9:30 and 10:00-11:00, doctor B: 9:15-9:45
+        when(rendezVousRepository.findBookedSlotsBetween(any(), any())).thenReturn(List.of(
+                slot(1L, DOCTOR_A, TOMORROW_9H, 30),
+                slot(2L, DOCTOR_A, TOMORROW_9H.plusHours(1), 60),
+                slot(3L, DOCTOR_B, TOMORROW_9H.plusMinutes(15), 30)));
+        index = new DoctorScheduleIndex(rendezVousRepository, 60);
+        index.rebuild();
+    }
+
+    @Test
+    public void testOverlapIsHalfOpen() {
+        assertTrue(index.hasOverlap(DOCTOR_A, TOMORROW_9H.plusMinutes(20), TOMORROW_9H.plusMinutes(40), null));
+        assertTrue(index.hasOverlap(DOCTOR_A, TOMORROW_9H.minusMinutes(30), TOMORROW_9H.plusHours(3), null));
+
+        // Back-to-back appointments do not overlap
+        assertFalse(index.hasOverlap(DOCTOR_A, TOMORROW_9H.plusMinutes(30), TOMORROW_9H.plusHours(1), null));
+        assertFalse(index.hasOverlap(DOCTOR_A, TOMORROW_9H.minusMinutes(30), TOMORROW_9H, null));
+        assertFalse(index.hasOverlap(DOCTOR_A, TOMORROW_9H.plusHours(2), TOMORROW_9H.plusHours(3), null));
+        assertFalse(index.hasOverlap(UUID.randomUUID(), TOMORROW_9H, TOMORROW_9H.plusHours(1), null));
+    }
+
+    @Test
+    public void testLongAppointmentIsFoundBehindLaterStarts() {
+        // 8:00-12:00 hides behind the 9:15 appointment, which starts later but ends earlier
+        index.appointmentChanged(appointment(4L, DOCTOR_B, TOMORROW_9H.minusHours(1), 240, RendezVous.StatutRendezVous.PLANIFIE));
+
+        assertTrue(index.hasOverlap(DOCTOR_B, TOMORROW_9H.plusMinutes(150), TOMORROW_9H.plusMinutes(160), null));
+        assertFalse(index.hasOverlap(DOCTOR_B, TOMORROW_9H.plusMinutes(150), TOMORROW_9H.plusMinutes(160), 4L));
+    }
+
+    @Test
+    public void testUpdatedAppointmentDoesNotConflictWithItself() {
+        assertFalse(index.hasOverlap(DOCTOR_A, TOMORROW_9H.plusMinutes(10), TOMORROW_9H.plusMinutes(40), 1L));
+        assertTrue(index.hasOverlap(DOCTOR_A, TOMORROW_9H.plusMinutes(10), TOMORROW_9H.plusMinutes(70), 1L));
+    }
+
+    @Test
+    public void testWritesMoveAndReleaseSlots() {
+        // Appointment 1 moves from doctor A to doctor B at 11:00
+        index.appointmentChanged(appointment(1L, DOCTOR_B, TOMORROW_9H.plusHours(2), 30, RendezVous.StatutRendezVous.PLANIFIE));
+        assertFalse(index.hasOverlap(DOCTOR_A, TOMORROW_9H, TOMORROW_9H.plusMinutes(30), null));
+        assertTrue(index.hasOverlap(DOCTOR_B, TOMORROW_9H.plusHours(2), TOMORROW_9H.plusMinutes(150), null));
+
+        // Cancelled, started or deleted appointments no longer hold their slot
+        index.appointmentChanged(appointment(1L, DOCTOR_B, TOMORROW_9H.plusHours(2), 30, RendezVous.StatutRendezVous.ANNULE));
+        index.appointmentChanged(appointment(3L, DOCTOR_B, TOMORROW_9H.plusMinutes(15), 30, RendezVous.StatutRendezVous.COMMENCE));
+        index.appointmentRemoved(2L);
+
+        assertEquals(List.of(DOCTOR_A, DOCTOR_B),
+                index.findFreeDoctors(List.of(DOCTOR_A, DOCTOR_B), TOMORROW_9H, TOMORROW_9H.plusHours(3)));
+    }
+
+    @Test
+    public void testFreeDoctorsAndHorizon() {
+        assertEquals(List.of(DOCTOR_B),
+                index.findFreeDoctors(List.of(DOCTOR_A, DOCTOR_B), TOMORROW_9H.plusHours(1), TOMORROW_9H.plusMinutes(90)));
+        assertEquals(List.of(),
+                index.findFreeDoctors(List.of(DOCTOR_A, DOCTOR_B), TOMORROW_9H.plusMinutes(20), TOMORROW_9H.plusMinutes(25)));
+
+        assertTrue(index.covers(TOMORROW_9H, TOMORROW_9H.plusHours(1)));
+        assertFalse(index.covers(TOMORROW_9H.minusDays(2), TOMORROW_9H.minusDays(2).plusHours(1)));
+        assertFalse(index.covers(TOMORROW_9H.plusDays(60), TOMORROW_9H.plusDays(60).plusHours(1)));
+    }
+
+    private static RendezVous appointment(Long id, UUID idMedecin, LocalDateTime dateHeure, int duration,
+                                          RendezVous.StatutRendezVous status) {
+        RendezVous rendezVous = new RendezVous();
+        rendezVous.setId(id);
+        rendezVous.setIdMedecin(idMedecin);
+        rendezVous.setDateHeure(dateHeure);
+        rendezVous.setDurationMinutes(duration);
+        rendezVous.setStatus(status);
+        return rendezVous;
+    }
+
+    private static RendezVousRepository.BookedSlot slot(Long id, UUID idMedecin, LocalDateTime dateHeure, int duration) {
+        return new RendezVousRepository.BookedSlot() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public UUID getIdMedecin() {
+                return idMedecin;
+            }
+
+            @Override
+            public LocalDateTime getDateHeure() {
+                return dateHeure;
+            }
+
+            @Override
+            public Integer getDurationMinutes() {
+                return duration;
+            }
+        };
+    }
+}
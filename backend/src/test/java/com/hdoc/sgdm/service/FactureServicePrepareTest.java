@@ -42,6 +42,9 @@ public class FactureServicePrepareTest {
     @Mock
     private FacturePDFService facturePDFService;
     
+    @Mock
+    private RenderJobQueue renderJobQueue;
+    
     @InjectMocks
     private FactureService factureService;
     
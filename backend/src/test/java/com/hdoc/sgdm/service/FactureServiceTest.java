@@ -2,8 +2,10 @@ package com.hdoc.sgdm.service;
 
 import com.hdoc.sgdm.dto.request.FactureUpdateRequest;
 import com.hdoc.sgdm.dto.response.FactureResponse;
+import com.hdoc.sgdm.dto.response.RenderJobDTO;
 import com.hdoc.sgdm.entity.Facture;
 import com.hdoc.sgdm.entity.Patient;
+import com.hdoc.sgdm.entity.RenderJob;
 import com.hdoc.sgdm.entity.Visite;
 import com.hdoc.sgdm.mapper.FactureMapper;
 import com.hdoc.sgdm.repository.FactureRepository;
@@ -44,6 +46,9 @@ public class FactureServiceTest {
     @Mock
     private FacturePDFService facturePDFService;
 
+    @Mock
+    private RenderJobQueue renderJobQueue;
+
     @InjectMocks
     private FactureService factureService;
 
@@ -94,9 +99,9 @@ public class FactureServiceTest {
         // Arrange
         when(factureRepository.findById(FACTURE_ID)).thenReturn(Optional.of(facture));
         when(factureRepository.save(any(Facture.class))).thenReturn(facture);
-        when(patientRepository.findByIdPatient(PATIENT_ID)).thenReturn(Optional.of(patient));
-        when(visiteRepository.findById(123L)).thenReturn(Optional.of(visite));
         when(factureMapper.toDto(any(Facture.class))).thenReturn(factureResponse);
+        when(renderJobQueue.enqueue(RenderJob.TypeDocument.FACTURE, FACTURE_ID.longValue()))
+                .thenReturn(RenderJobDTO.builder().idJob(9L).build());
 
         // Act
         FactureResponse result = factureService.updateFacture(FACTURE_ID, updateRequest);
@@ -109,9 +114,9 @@ public class FactureServiceTest {
         
         // Verify facture was saved
         verify(factureRepository).save(any(Facture.class));
-        // Verify patient and visit were looked up for PDF generation
-        verify(patientRepository).findByIdPatient(PATIENT_ID);
-        verify(visiteRepository).findById(123L);
+        // Verify PDF generation was queued
+        verify(renderJobQueue).enqueue(RenderJob.TypeDocument.FACTURE, FACTURE_ID.longValue());
+        assertEquals(9L, result.getIdRenderJob());
     }
 
     @Test
@@ -0,0 +1,109 @@
+package com.hdoc.sgdm.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+
+import com.lowagie.text.pdf.PdfReader;
+import com.lowagie.text.pdf.parser.PdfTextExtractor;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class LocalObjectStorageTest {
+
+    @TempDir
+    Path root;
+
+    private SimpleMeterRegistry meterRegistry;
+    private LocalObjectStorage storage;
+
+    @BeforeEach
+    public void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        storage = new LocalObjectStorage(meterRegistry, root.toString(), "http://localhost:8080/files");
+    }
+
+    @Test
+    public void testPutStoresTheFileUnderItsBucketAndReplacesIt() throws IOException {
+        String url = storage.put("documents-importe", "patients/IPP1/scan.pdf", bytes("v1"), "application/pdf");
+        storage.put("documents-importe", "patients/IPP1/scan.pdf", bytes("v2"), "application/pdf");
+
+        assertEquals("http://localhost:8080/files/documents-importe/patients/IPP1/scan.pdf", url);
+        Path file = root.resolve("documents-importe/patients/IPP1/scan.pdf");
+        assertArrayEquals(bytes("v2"), Files.readAllBytes(file));
+        // No temporary file left behind
+        try (Stream<Path> files = Files.list(file.getParent())) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    public void testDeleteFromThePublicUrl() throws IOException {
+        String url = storage.put("ordonnances", "ordonnance_1.pdf", bytes("pdf"), "application/pdf");
+
+        assertTrue(storage.delete(url));
+        assertFalse(Files.exists(root.resolve("ordonnances/ordonnance_1.pdf")));
+        // Already deleted
+        assertTrue(storage.delete(url));
+        assertFalse(storage.delete("https://example.supabase.co/storage/v1/object/public/ordonnances/ordonnance_1.pdf"));
+    }
+
+    @Test
+    public void testPathsCannotLeaveTheirBucket() {
+        assertThrows(IOException.class, () -> storage.put("forms", "../factures/f.pdf", bytes("x"), "application/pdf"));
+        assertThrows(IOException.class, () -> storage.put("..", "f.pdf", bytes("x"), "application/pdf"));
+        assertThrows(IOException.class, () -> storage.put("forms", "/etc/passwd", bytes("x"), "application/pdf"));
+    }
+
+    @Test
+    public void testUploadsAreMetered() throws IOException {
+        storage.put("factures", "a.pdf", new byte[100], "application/pdf");
+        storage.put("factures", "b.pdf", new byte[50], "application/pdf");
+
+        DistributionSummary bytes = meterRegistry.get("storage.upload.bytes").tag("bucket", "factures").summary();
+        assertEquals(2, bytes.count());
+        assertEquals(150, bytes.totalAmount());
+        assertEquals(2, meterRegistry.get("storage.uploads").tag("outcome", "success").timer().count());
+    }
+
+    @Test
+    public void testStreamedContentIsWrittenAsItIsProduced() throws IOException {
+        MockMultipartFile scan = new MockMultipartFile("file", "irm.dcm", "application/dicom", new byte[300_000]);
+        storage.put("documents-importe", "patients/IPP1/irm.dcm", StorageContent.of(scan), "application/dicom");
+
+        String url;
+        try (SpooledContent pdf = new PdfRenderingEngine().document(PdfRenderingEngine.Layout.CERTIFICAT)
+                .title("CERTIFICAT MÉDICAL", 18, 40)
+                .footer()
+                .spool()) {
+            url = storage.put("certificats", "certificat_1.pdf", pdf, "application/pdf");
+            assertEquals(pdf.length(), Files.size(root.resolve("certificats/certificat_1.pdf")));
+        }
+
+        assertEquals(300_000, Files.size(root.resolve("documents-importe/patients/IPP1/irm.dcm")));
+        Path stored = root.resolve("certificats/certificat_1.pdf");
+        String text = new PdfTextExtractor(new PdfReader(Files.readAllBytes(stored))).getTextFromPage(1);
+        assertTrue(text.contains("CERTIFICAT MÉDICAL"), text);
+        assertEquals(Files.size(stored),
+                meterRegistry.get("storage.upload.bytes").tag("bucket", "certificats").summary().totalAmount());
+        assertTrue(url.endsWith("/certificats/certificat_1.pdf"));
+    }
+
+    private static byte[] bytes(String content) {
+        return content.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,110 @@
+package com.hdoc.sgdm.service;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.hdoc.sgdm.dto.response.MedicamentDTO;
+import com.hdoc.sgdm.entity.Medicament;
+import com.hdoc.sgdm.repository.MedicamentRepository;
+
+/**
+ * Autocomplete over a catalog of 20,000 generated medicament names: {@link MedicamentCatalog#search}
+ * for a short prefix, a two word query and a misspelled word, against a case insensitive contains
+ * scan of every name, the work {@code findByNomContainingIgnoreCase} leaves to the database on
+ * each keystroke.
+ *
+ * Not run by the test suite. Run it with:
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) com.hdoc.sgdm.service.MedicamentCatalogBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MedicamentCatalogBenchmark {
+
+    private static final String[] SYLLABLES = { "a", "mo", "xi", "ci", "li", "ne", "pa", "ra", "ce", "ta", "mol",
+            "ibu", "pro", "fe", "lo", "di", "pi", "met", "for", "mi", "ve", "sar", "tan", "zo", "le", "pra" };
+    private static final String[] FORMS = { "comprimé", "gélule", "sirop", "solution injectable", "pommade" };
+
+    @Param({ "20000" })
+    private int medicaments;
+
+    @Param({ "par", "amo cip", "paracetamlo" })
+    private String query;
+
+    private MedicamentCatalog catalog;
+    private List<String> names;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        List<Medicament> catalogRows = new ArrayList<>();
+        names = new ArrayList<>();
+        for (int i = 0; i < medicaments; i++) {
+            StringBuilder name = new StringBuilder();
+            int syllables = 3 + random.nextInt(3);
+            for (int j = 0; j < syllables; j++) {
+                name.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            }
+            name.setCharAt(0, Character.toUpperCase(name.charAt(0)));
+            name.append(' ').append(50 * (1 + random.nextInt(20))).append(" mg ")
+                    .append(FORMS[random.nextInt(FORMS.length)]);
+            // A few real names, so that every query has hits
+            if (i % 500 == 0) {
+                name.insert(0, "Paracétamol Amoxicilline ");
+            }
+            catalogRows.add(Medicament.builder().idMedicament(i).nom(name.toString()).build());
+            names.add(name.toString());
+        }
+
+        MedicamentRepository repository = mock(MedicamentRepository.class);
+        when(repository.findAll()).thenReturn(catalogRows);
+        catalog = new MedicamentCatalog(repository);
+        catalog.rebuild();
+    }
+
+    @Benchmark
+    public List<MedicamentDTO> catalog() {
+        return catalog.search(query, 20);
+    }
+
+    @Benchmark
+    public int containsScan() {
+        String needle = query.toLowerCase(Locale.ROOT);
+        int hits = 0;
+        for (String name : names) {
+            if (name.toLowerCase(Locale.ROOT).contains(needle)) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(MedicamentCatalogBenchmark.class.getSimpleName()).build()).run();
+    }
+}
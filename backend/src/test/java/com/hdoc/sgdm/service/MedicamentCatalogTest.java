@@ -0,0 +1,109 @@
+package com.hdoc.sgdm.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.hdoc.sgdm.dto.response.MedicamentDTO;
+import com.hdoc.sgdm.entity.Medicament;
+import com.hdoc.sgdm.repository.MedicamentRepository;
+
+public class MedicamentCatalogTest {
+
+    @Mock
+    private MedicamentRepository medicamentRepository;
+
+    private MedicamentCatalog medicamentCatalog;
+
+    @BeforeEach
+    public void setup() {
+        MockitoAnnotations.openMocks(this);
+
+        when(medicamentRepository.findAll()).thenReturn(new ArrayList<>(Arrays.asList(
+                medicament(1, "Amoxicilline 500 mg"),
+                medicament(2, "Amoxicilline Acide Clavulanique 1 g"),
+                medicament(3, "Amlodipine 5 mg"),
+                medicament(4, "Paracétamol 1 g"),
+                medicament(5, "Acide acétylsalicylique 100 mg"),
+                medicament(6, "Ibuprofène 400 mg"),
+                medicament(7, "Amox"))));
+
+        medicamentCatalog = new MedicamentCatalog(medicamentRepository);
+    }
+
+    @Test
+    public void testPrefixMatchesRankExactThenNamePrefixThenWordPrefix() {
+        assertEquals(List.of("Amox", "Amoxicilline 500 mg", "Amoxicilline Acide Clavulanique 1 g"),
+                names(medicamentCatalog.search("amox", 10)));
+        // Names starting with "acide" before names only containing it
+        assertEquals(List.of("Acide acétylsalicylique 100 mg", "Amoxicilline Acide Clavulanique 1 g"),
+                names(medicamentCatalog.search("acide", 10)));
+    }
+
+    @Test
+    public void testEveryWordOfTheQueryMustMatchAndAccentsAreFolded() {
+        assertEquals(List.of("Amoxicilline Acide Clavulanique 1 g"),
+                names(medicamentCatalog.search("amox clav", 10)));
+        assertEquals(List.of("Paracétamol 1 g"), names(medicamentCatalog.search("PARACETAMOL", 10)));
+        assertEquals(List.of("Ibuprofène 400 mg"), names(medicamentCatalog.search("ibuprofè", 10)));
+    }
+
+    @Test
+    public void testTyposFallBackToCloseWords() {
+        assertEquals(List.of("Paracétamol 1 g"), names(medicamentCatalog.search("parcetamol", 10)));
+        assertEquals(List.of("Amoxicilline 500 mg", "Amoxicilline Acide Clavulanique 1 g"),
+                names(medicamentCatalog.search("amoxiciline", 10)));
+        // Too short to be corrected
+        assertTrue(medicamentCatalog.search("abc", 10).isEmpty());
+    }
+
+    @Test
+    public void testResultsAreLimitedAndBlankQueriesListTheCatalog() {
+        assertEquals(2, medicamentCatalog.search("am", 2).size());
+        assertEquals(List.of("Acide acétylsalicylique 100 mg", "Amlodipine 5 mg"),
+                names(medicamentCatalog.search("  ", 2)));
+        assertEquals(7, medicamentCatalog.findAll().size());
+    }
+
+    @Test
+    public void testRebuildPicksUpImportedMedicaments() {
+        assertTrue(medicamentCatalog.search("metformine", 10).isEmpty());
+
+        when(medicamentRepository.findAll()).thenReturn(List.of(medicament(8, "Metformine 850 mg")));
+        assertEquals(1, medicamentCatalog.rebuild());
+
+        assertEquals(List.of("Metformine 850 mg"), names(medicamentCatalog.search("metf", 10)));
+        verify(medicamentRepository, times(2)).findAll();
+    }
+
+    @Test
+    public void testPrefixDistance() {
+        assertEquals(0, MedicamentCatalog.prefixDistance("amox", "amoxicilline", 1));
+        assertEquals(1, MedicamentCatalog.prefixDistance("amix", "amoxicilline", 1));
+        assertEquals(1, MedicamentCatalog.prefixDistance("amoxiciline", "amoxicilline", 2));
+        assertEquals(2, MedicamentCatalog.prefixDistance("ibuprofne", "paracetamol", 1));
+    }
+
+    private static List<String> names(List<MedicamentDTO> medicaments) {
+        return medicaments.stream().map(MedicamentDTO::getNom).collect(Collectors.toList());
+    }
+
+    private static Medicament medicament(int id, String nom) {
+        return Medicament.builder()
+                .idMedicament(id)
+                .nom(nom)
+                .build();
+    }
+}
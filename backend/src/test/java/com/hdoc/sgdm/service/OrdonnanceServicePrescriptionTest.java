@@ -0,0 +1,194 @@
+package com.hdoc.sgdm.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.hdoc.sgdm.dto.request.OrdonnanceRequest;
+import com.hdoc.sgdm.dto.request.PrescriptionRequest;
+import com.hdoc.sgdm.dto.response.OrdonnanceDTO;
+import com.hdoc.sgdm.dto.response.PrescriptionDTO;
+import com.hdoc.sgdm.entity.Medecin;
+import com.hdoc.sgdm.entity.Medicament;
+import com.hdoc.sgdm.entity.Patient;
+import com.hdoc.sgdm.entity.Prescription;
+import com.hdoc.sgdm.entity.Utilisateur;
+import com.hdoc.sgdm.entity.Visite;
+import com.hdoc.sgdm.exception.ConflictException;
+import com.hdoc.sgdm.exception.ResourceNotFoundException;
+import com.hdoc.sgdm.repository.PrescriptionRepository;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({OrdonnanceService.class, PdfRenderingEngine.class})
+public class OrdonnanceServicePrescriptionTest {
+
+    private static final int LINES = 20;
+
+    @Autowired
+    private OrdonnanceService ordonnanceService;
+
+    @MockBean
+    private RenderJobQueue renderJobQueue;
+
+    @MockBean
+    private ObjectStorage objectStorage;
+
+    @Autowired
+    private PrescriptionRepository prescriptionRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private Statistics statistics;
+    private Patient patient;
+    private Medecin medecin;
+    private Visite visite;
+    private final List<Medicament> medicaments = new ArrayList<>();
+
+    @BeforeEach
+    public void setup() {
+        statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+
+        patient = entityManager.persist(TestFixtures.patient(0));
+        medecin = medecin();
+        visite = entityManager.persist(Visite.builder()
+                .patient(patient)
+                .typeVisite("CONSULTATION")
+                .motif("Suivi diabète")
+                .statut("IN_PROGRESS")
+                .dateDebut(LocalDateTime.now())
+                .build());
+        for (int i = 0; i < LINES; i++) {
+            medicaments.add(entityManager.persist(Medicament.builder()
+                    .nom("Medicament " + i)
+                    .build()));
+        }
+
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+    }
+
+    @Test
+    public void testLongPrescriptionIsSavedInAFewRoundTrips() {
+        OrdonnanceRequest request = new OrdonnanceRequest();
+        request.setIdPatient(patient.getIdPatient());
+        request.setIdMedecin(medecin.getIdMedecin());
+        request.setIdVisite(visite.getIdVisite());
+        request.setPrescriptions(medicaments.stream()
+                .map(medicament -> line(null, medicament, 1))
+                .collect(Collectors.toList()));
+
+        OrdonnanceDTO ordonnance = ordonnanceService.createOrdonnance(request);
+        entityManager.flush();
+
+        assertEquals(LINES, ordonnance.getPrescriptions().size());
+        assertEquals(LINES, prescriptionRepository.findAllByOrdonnance_IdOrdonnance(ordonnance.getIdOrdonnance()).size());
+        // Patient, doctor, visite, open ordonnance, ordonnance insert, medicaments, the sequence
+        // (twice for the first block) and one batched prescription insert, plus the check above
+        assertTrue(statistics.getPrepareStatementCount() <= 10,
+                "Prepared " + statistics.getPrepareStatementCount() + " statements");
+    }
+
+    @Test
+    public void testReplacingLinesUpdatesInPlaceAndOnlyDiffers() {
+        OrdonnanceDTO created = create(medicaments.get(0), medicaments.get(1), medicaments.get(2));
+        List<Integer> ids = created.getPrescriptions().stream()
+                .map(PrescriptionDTO::getIdPrescription)
+                .collect(Collectors.toList());
+
+        // Second line by ID with a new dosage, first line by medicament, third line dropped, one new line
+        OrdonnanceDTO replaced = ordonnanceService.replacePrescriptions(created.getIdOrdonnance(), List.of(
+                line(ids.get(1), medicaments.get(1), 5),
+                line(null, medicaments.get(0), 1),
+                line(null, medicaments.get(3), 2)));
+        entityManager.flush();
+        entityManager.clear();
+
+        assertEquals(List.of(ids.get(1), ids.get(0)), replaced.getPrescriptions().subList(0, 2).stream()
+                .map(PrescriptionDTO::getIdPrescription)
+                .collect(Collectors.toList()));
+
+        List<Prescription> stored = prescriptionRepository.findAllByOrdonnance_IdOrdonnance(created.getIdOrdonnance());
+        assertEquals(3, stored.size());
+        assertFalse(stored.stream().anyMatch(prescription -> prescription.getIdPrescription().equals(ids.get(2))));
+        assertEquals(5, stored.stream()
+                .filter(prescription -> prescription.getIdPrescription().equals(ids.get(1)))
+                .findFirst().orElseThrow()
+                .getDosage());
+        assertTrue(stored.stream().anyMatch(prescription ->
+                prescription.getMedicament().getIdMedicament().equals(medicaments.get(3).getIdMedicament())));
+    }
+
+    @Test
+    public void testReplacingLinesRejectsUnknownLinesAndFinalizedOrdonnances() {
+        OrdonnanceDTO created = create(medicaments.get(0));
+
+        assertThrows(ResourceNotFoundException.class, () -> ordonnanceService.replacePrescriptions(
+                created.getIdOrdonnance(), List.of(line(-1, medicaments.get(0), 1))));
+
+        entityManager.getEntityManager()
+                .createQuery("UPDATE Ordonnance o SET o.statut = 'finalise' WHERE o.idOrdonnance = :id")
+                .setParameter("id", created.getIdOrdonnance())
+                .executeUpdate();
+        entityManager.clear();
+
+        assertThrows(ConflictException.class, () -> ordonnanceService.replacePrescriptions(
+                created.getIdOrdonnance(), List.of(line(null, medicaments.get(1), 1))));
+    }
+
+    private OrdonnanceDTO create(Medicament... lines) {
+        OrdonnanceRequest request = new OrdonnanceRequest();
+        request.setIdPatient(patient.getIdPatient());
+        request.setIdMedecin(medecin.getIdMedecin());
+        request.setIdVisite(visite.getIdVisite());
+        List<PrescriptionRequest> prescriptions = new ArrayList<>();
+        for (Medicament medicament : lines) {
+            prescriptions.add(line(null, medicament, 1));
+        }
+        request.setPrescriptions(prescriptions);
+
+        OrdonnanceDTO ordonnance = ordonnanceService.createOrdonnance(request);
+        entityManager.flush();
+        entityManager.clear();
+        return ordonnance;
+    }
+
+    private static PrescriptionRequest line(Integer idPrescription, Medicament medicament, int dosage) {
+        PrescriptionRequest line = new PrescriptionRequest();
+        line.setIdPrescription(idPrescription);
+        line.setIdMedicament(medicament.getIdMedicament());
+        line.setDosage(dosage);
+        line.setUniteDosage("comprimé");
+        line.setFrequence("2 fois par jour");
+        line.setDuree(3);
+        line.setDureeUnite("mois");
+        return line;
+    }
+
+    private Medecin medecin() {
+        Utilisateur utilisateur = entityManager.persist(TestFixtures.utilisateur(0));
+        return entityManager.persist(TestFixtures.medecin(utilisateur));
+    }
+}
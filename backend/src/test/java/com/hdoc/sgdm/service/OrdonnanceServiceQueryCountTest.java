@@ -0,0 +1,133 @@
+package com.hdoc.sgdm.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.hdoc.sgdm.dto.response.OrdonnanceDTO;
+import com.hdoc.sgdm.dto.response.PrescriptionDTO;
+import com.hdoc.sgdm.entity.Medecin;
+import com.hdoc.sgdm.entity.Medicament;
+import com.hdoc.sgdm.entity.Ordonnance;
+import com.hdoc.sgdm.entity.Patient;
+import com.hdoc.sgdm.entity.Prescription;
+import com.hdoc.sgdm.entity.Utilisateur;
+import com.hdoc.sgdm.entity.Visite;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({OrdonnanceService.class, PdfRenderingEngine.class})
+public class OrdonnanceServiceQueryCountTest {
+
+    private static final int ORDONNANCES = 4;
+    private static final int PRESCRIPTIONS = 3;
+
+    @Autowired
+    private OrdonnanceService ordonnanceService;
+
+    @MockBean
+    private RenderJobQueue renderJobQueue;
+
+    @MockBean
+    private ObjectStorage objectStorage;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private Statistics statistics;
+    private Patient patient;
+    private Visite visite;
+
+    @BeforeEach
+    public void setup() {
+        statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+
+        patient = entityManager.persist(TestFixtures.patient(0));
+        visite = entityManager.persist(Visite.builder()
+                .patient(patient)
+                .typeVisite("CONSULTATION")
+                .motif("Contrôle")
+                .statut("IN_PROGRESS")
+                .dateDebut(LocalDateTime.now())
+                .build());
+
+        // Each ordonnance by its own doctor, each prescription of its own medicament
+        for (int i = 0; i < ORDONNANCES; i++) {
+            Ordonnance ordonnance = entityManager.persist(Ordonnance.builder()
+                    .idPatient(patient.getIdPatient())
+                    .idVisite(visite.getIdVisite())
+                    .idMedecin(medecin(i).getIdMedecin())
+                    .dateCreation(LocalDateTime.now().minusHours(i))
+                    .statut("en_cours")
+                    .build());
+            for (int j = 0; j < PRESCRIPTIONS; j++) {
+                Medicament medicament = entityManager.persist(Medicament.builder()
+                        .nom("Medicament " + i + "-" + j)
+                        .build());
+                entityManager.persist(Prescription.builder()
+                        .ordonnance(ordonnance)
+                        .medicament(medicament)
+                        .dosage(j + 1)
+                        .build());
+            }
+        }
+
+        // Start from an empty persistence context so every entity is read from the database
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+    }
+
+    @Test
+    public void testPatientOrdonnancesAreLoadedInAConstantNumberOfStatements() {
+        List<OrdonnanceDTO> ordonnances = ordonnanceService.getOrdonnancesForPatient(patient.getIdPatient());
+
+        assertOrdonnances(ordonnances);
+        // Patient, ordonnances, prescriptions with their medicament, doctors
+        assertEquals(4, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    public void testVisiteOrdonnancesAreLoadedInAConstantNumberOfStatements() {
+        List<OrdonnanceDTO> ordonnances = ordonnanceService.getOrdonnancesForVisite(visite.getIdVisite());
+
+        assertOrdonnances(ordonnances);
+        assertEquals("Alaoui", ordonnances.get(0).getNomPatient());
+        // Visite, ordonnances, prescriptions with their medicament, patients, doctors
+        assertEquals(5, statistics.getPrepareStatementCount());
+    }
+
+    private static void assertOrdonnances(List<OrdonnanceDTO> ordonnances) {
+        assertEquals(ORDONNANCES, ordonnances.size());
+        for (int i = 0; i < ORDONNANCES; i++) {
+            OrdonnanceDTO ordonnance = ordonnances.get(i);
+            assertEquals("Medecin" + i, ordonnance.getNomMedecin());
+            assertEquals(List.of("Medicament " + i + "-0", "Medicament " + i + "-1", "Medicament " + i + "-2"),
+                    ordonnance.getPrescriptions().stream()
+                            .map(PrescriptionDTO::getMedicament)
+                            .map(medicament -> medicament.getNom())
+                            .collect(Collectors.toList()));
+        }
+    }
+
+    private Medecin medecin(int i) {
+        Utilisateur utilisateur = entityManager.persist(TestFixtures.utilisateur(i));
+        return entityManager.persist(TestFixtures.medecin(utilisateur));
+    }
+}
@@ -0,0 +1,138 @@
+package com.hdoc.sgdm.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.hdoc.sgdm.entity.Patient;
+import com.hdoc.sgdm.repository.PatientRepository;
+
+public class PatientSearchIndexTest {
+
+    @Mock
+    private PatientRepository patientRepository;
+
+    private PatientSearchIndex patientSearchIndex;
+
+    private UUID dupontId;
+    private UUID duvalId;
+    private UUID martinId;
+
+    @BeforeEach
+    public void setup() {
+        MockitoAnnotations.openMocks(this);
+
+        dupontId = UUID.randomUUID();
+        duvalId = UUID.randomUUID();
+        martinId = UUID.randomUUID();
+
+        when(patientRepository.findAllSearchKeys()).thenReturn(Arrays.asList(
+                key(dupontId, "P000001", "AB123456", "Dupont", "Jean"),
+                key(duvalId, "P000002", "CD654321", "Duval", "Hélène"),
+                key(martinId, "P000003", "EF111222", "Martin", "Jean-Marc")));
+
+        patientSearchIndex = new PatientSearchIndex(patientRepository);
+    }
+
+    @Test
+    public void testExactIppReturnsOnlyThatPatient() {
+        PatientSearchIndex.Hits hits = patientSearchIndex.search("p000002", 0, 0);
+
+        assertTrue(hits.isIppMatch());
+        assertEquals(List.of(duvalId), hits.getIds());
+    }
+
+    @Test
+    public void testSearchIsAccentAndCaseInsensitive() {
+        PatientSearchIndex.Hits hits = patientSearchIndex.search("HELENE", 0, 0);
+
+        assertFalse(hits.isIppMatch());
+        assertEquals(List.of(duvalId), hits.getIds());
+    }
+
+    @Test
+    public void testEveryWordMustMatch() {
+        assertEquals(List.of(dupontId), patientSearchIndex.search("jean dup", 0, 0).getIds());
+        assertEquals(0, patientSearchIndex.search("jean duval", 0, 0).getTotal());
+    }
+
+    @Test
+    public void testShortWordsAndExactMatchesRankFirst() {
+        // "du" is too short for a trigram and falls back to a scan
+        PatientSearchIndex.Hits hits = patientSearchIndex.search("du", 0, 0);
+        assertEquals(Arrays.asList(dupontId, duvalId), hits.getIds());
+
+        // Exact prenom match ranks before a prefix match on a composed prenom
+        hits = patientSearchIndex.search("jean", 0, 0);
+        assertEquals(Arrays.asList(dupontId, martinId), hits.getIds());
+    }
+
+    @Test
+    public void testResultsArePaged() {
+        PatientSearchIndex.Hits hits = patientSearchIndex.search("jean", 1, 1);
+
+        assertEquals(2, hits.getTotal());
+        assertEquals(List.of(martinId), hits.getIds());
+    }
+
+    @Test
+    public void testUpdatedPatientIsReindexed() {
+        patientSearchIndex.search("dupont", 0, 0);
+
+        Patient renamed = new Patient();
+        renamed.setIdPatient(dupontId);
+        renamed.setIpp("P000001");
+        renamed.setCin("AB123456");
+        renamed.setNom("Lefèvre");
+        renamed.setPrenom("Jean");
+        patientSearchIndex.index(renamed);
+
+        assertEquals(0, patientSearchIndex.search("dupont", 0, 0).getTotal());
+        assertEquals(List.of(dupontId), patientSearchIndex.search("lefevre", 0, 0).getIds());
+        assertEquals(List.of(dupontId), patientSearchIndex.search("P000001", 0, 0).getIds());
+
+        // The index is loaded once and then maintained incrementally
+        verify(patientRepository, times(1)).findAllSearchKeys();
+    }
+
+    private static PatientRepository.SearchKey key(UUID id, String ipp, String cin, String nom, String prenom) {
+        return new PatientRepository.SearchKey() {
+            @Override
+            public UUID getIdPatient() {
+                return id;
+            }
+
+            @Override
+            public String getIpp() {
+                return ipp;
+            }
+
+            @Override
+            public String getCin() {
+                return cin;
+            }
+
+            @Override
+            public String getNom() {
+                return nom;
+            }
+
+            @Override
+            public String getPrenom() {
+                return prenom;
+            }
+        };
+    }
+}
@@ -3,8 +3,12 @@ package com.hdoc.sgdm.service;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -13,7 +17,6 @@ import java.util.UUID;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
@@ -36,9 +39,10 @@ public class PatientServiceDoctorAccessTest {
     @Mock
     private IPPGenerator ippGenerator;
     
-    @InjectMocks
     private PatientService patientService;
     
+    private DoctorPatientIndex doctorPatientIndex;
+    
     private UUID doctorId;
     private CurrentUser doctorUser;
     private CurrentUser agentUser;
@@ -79,6 +83,24 @@ public class PatientServiceDoctorAccessTest {
         patient2.setNom("Martin");
         patient2.setPrenom("Marie");
         patient2.setIpp("P00002");
+        
+        // Both patients are searchable, the relationships are fed per test through the visit history
+        when(patientRepository.findAllSearchKeys()).thenReturn(Arrays.asList(searchKey(patient1), searchKey(patient2)));
+        when(patientRepository.findAllById(anyIterable())).thenAnswer(invocation -> {
+            List<Patient> found = new ArrayList<>();
+            for (Object id : (Iterable<?>) invocation.getArgument(0)) {
+                for (Patient patient : Arrays.asList(patient1, patient2)) {
+                    if (patient.getIdPatient().equals(id)) {
+                        found.add(patient);
+                    }
+                }
+            }
+            return found;
+        });
+        
+        doctorPatientIndex = new DoctorPatientIndex(visiteRepository);
+        patientService = new PatientService(patientRepository, visiteRepository, ippGenerator,
+                new PatientSearchIndex(patientRepository), doctorPatientIndex);
     }
     
     @Test
@@ -99,8 +121,8 @@ public class PatientServiceDoctorAccessTest {
     
     @Test
     public void testDoctorCanOnlySeeRelatedPatients() {
-        // Setup: Doctor has relationship only with patient1 - using direct repository method now
-        when(patientRepository.findPatientsByDoctorId(doctorId)).thenReturn(Collections.singletonList(patient1));
+        // Setup: Doctor has relationship only with patient1
+        when(visiteRepository.findDoctorPatientPairs()).thenReturn(Collections.singletonList(pair(doctorId, patient1Id)));
         
         // Execute
         PatientSearchResponse response = patientService.searchPatients("", doctorUser);
@@ -115,7 +137,7 @@ public class PatientServiceDoctorAccessTest {
     @Test
     public void testDoctorWithoutRelationshipsGetsEmptyResults() {
         // Setup: Doctor has no patient relationships
-        when(patientRepository.findPatientsByDoctorId(doctorId)).thenReturn(Collections.emptyList());
+        when(visiteRepository.findDoctorPatientPairs()).thenReturn(Collections.emptyList());
         
         // Execute
         PatientSearchResponse response = patientService.searchPatients("", doctorUser);
@@ -131,10 +153,8 @@ public class PatientServiceDoctorAccessTest {
     public void testDoctorCanOnlySearchOwnPatients() {
         // Setup
         String query = "Dupont";
-        // DB-level filtering now
-        when(patientRepository.findPatientsByDoctorId(doctorId)).thenReturn(Collections.singletonList(patient1));
-        when(patientRepository.findByNomContainingIgnoreCaseAndDoctorId(query, doctorId)).thenReturn(Collections.singletonList(patient1));
-        when(patientRepository.findByPrenomContainingIgnoreCaseAndDoctorId(query, doctorId)).thenReturn(Collections.emptyList());
+        // Doctor has relationship only with patient1, filtered through the in-memory indexes
+        when(visiteRepository.findDoctorPatientPairs()).thenReturn(Collections.singletonList(pair(doctorId, patient1Id)));
         
         // Execute
         PatientSearchResponse response = patientService.searchPatients(query, doctorUser);
@@ -150,9 +170,8 @@ public class PatientServiceDoctorAccessTest {
     public void testDoctorCannotSeePatientsByIPPIfNoRelationship() {
         // Setup
         String ipp = "P00002"; // Patient without relationship
-        // Empty result since direct DB filtering returns nothing
-        when(patientRepository.findPatientsByDoctorId(doctorId)).thenReturn(Collections.singletonList(patient1));
-        when(patientRepository.findByIppAndDoctorId(ipp, doctorId)).thenReturn(Optional.empty());
+        // Empty result since the doctor has no relationship with patient2
+        when(visiteRepository.findDoctorPatientPairs()).thenReturn(Collections.singletonList(pair(doctorId, patient1Id)));
         
         // Execute
         PatientSearchResponse response = patientService.searchPatients(ipp, doctorUser);
@@ -162,4 +181,101 @@ public class PatientServiceDoctorAccessTest {
         assertEquals(0, response.getCount());
         assertEquals(0, response.getPatients().size());
     }
-} 
\ No newline at end of file
+    
+    @Test
+    public void testDoctorFindsPatientAssignedOnAnotherNode() {
+        // Setup: the index was built before patient2 was assigned to the doctor on another node
+        when(visiteRepository.findDoctorPatientPairs()).thenReturn(Collections.singletonList(pair(doctorId, patient1Id)));
+        when(patientRepository.findPatientsByDoctorId(doctorId)).thenReturn(Arrays.asList(patient1, patient2));
+        
+        // Execute
+        PatientSearchResponse response = patientService.searchPatients("P00002", doctorUser);
+        
+        // Verify: the miss is confirmed against the visits, and the index catches up
+        assertEquals(1, response.getCount());
+        assertEquals("P00002", response.getPatients().get(0).getIpp());
+        assertTrue(doctorPatientIndex.hasRelationship(doctorId, patient2Id));
+    }
+    
+    @Test
+    public void testPagesFarOutOfRangeAreEmpty() {
+        // Setup: Doctor has relationships with both patients
+        when(visiteRepository.findDoctorPatientPairs()).thenReturn(Arrays.asList(pair(doctorId, patient1Id), pair(doctorId, patient2Id)));
+        
+        // Execute: page * size does not fit in an int
+        PatientSearchResponse response = patientService.searchPatients("", doctorUser, Integer.MAX_VALUE, 2);
+        PatientSearchResponse search = patientService.searchPatients("Dupont", doctorUser, Integer.MAX_VALUE, 2);
+        
+        // Verify
+        assertTrue(response.isSuccess());
+        assertEquals(0, response.getCount());
+        assertEquals(0, search.getCount());
+    }
+    
+    @Test
+    public void testPatientCreatedOnAnotherNodeIsFoundInTheDatabase() {
+        // Setup: patient3 was created on another node after the index was built
+        Patient patient3 = new Patient();
+        patient3.setIdPatient(UUID.randomUUID());
+        patient3.setNom("Benali");
+        patient3.setPrenom("Amine");
+        patient3.setIpp("P00003");
+        when(patientRepository.findByIpp("P00003")).thenReturn(Optional.of(patient3));
+        
+        // Execute
+        PatientSearchResponse byIpp = patientService.searchPatients("P00003", agentUser);
+        
+        // Verify: found in the database, then served by the index
+        assertEquals(1, byIpp.getCount());
+        assertEquals("P00003", byIpp.getPatients().get(0).getIpp());
+        
+        when(patientRepository.findAllById(anyIterable())).thenReturn(Collections.singletonList(patient3));
+        PatientSearchResponse byName = patientService.searchPatients("Benali", agentUser);
+        assertEquals(1, byName.getCount());
+        assertEquals("P00003", byName.getPatients().get(0).getIpp());
+        verify(patientRepository, never()).findByNomContainingIgnoreCase("Benali");
+    }
+    
+    private static PatientRepository.SearchKey searchKey(Patient patient) {
+        return new PatientRepository.SearchKey() {
+            @Override
+            public UUID getIdPatient() {
+                return patient.getIdPatient();
+            }
+            
+            @Override
+            public String getIpp() {
+                return patient.getIpp();
+            }
+            
+            @Override
+            public String getCin() {
+                return patient.getCin();
+            }
+            
+            @Override
+            public String getNom() {
+                return patient.getNom();
+            }
+            
+            @Override
+            public String getPrenom() {
+                return patient.getPrenom();
+            }
+        };
+    }
+    
+    private static VisiteRepository.DoctorPatientPair pair(UUID idMedecin, UUID idPatient) {
+        return new VisiteRepository.DoctorPatientPair() {
+            @Override
+            public UUID getIdMedecin() {
+                return idMedecin;
+            }
+            
+            @Override
+            public UUID getIdPatient() {
+                return idPatient;
+            }
+        };
+    }
+}
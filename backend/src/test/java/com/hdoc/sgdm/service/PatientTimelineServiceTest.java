@@ -0,0 +1,167 @@
+package com.hdoc.sgdm.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.hdoc.sgdm.dto.common.TimelineEventDTO;
+import com.hdoc.sgdm.dto.response.PatientTimelineResponse;
+import com.hdoc.sgdm.entity.Allergie;
+import com.hdoc.sgdm.entity.Certificat;
+import com.hdoc.sgdm.entity.DocumentImporte;
+import com.hdoc.sgdm.entity.Facture;
+import com.hdoc.sgdm.entity.FormulairePatient;
+import com.hdoc.sgdm.entity.Medecin;
+import com.hdoc.sgdm.entity.ModeleFormulaire;
+import com.hdoc.sgdm.entity.Ordonnance;
+import com.hdoc.sgdm.entity.Patient;
+import com.hdoc.sgdm.entity.Visite;
+import com.hdoc.sgdm.exception.ResourceNotFoundException;
+import com.hdoc.sgdm.mapper.MedecinMapper;
+import com.hdoc.sgdm.repository.AllergieRepository;
+import com.hdoc.sgdm.repository.CertificatRepository;
+import com.hdoc.sgdm.repository.DocumentImporteRepository;
+import com.hdoc.sgdm.repository.FactureRepository;
+import com.hdoc.sgdm.repository.FormulairePatientRepository;
+import com.hdoc.sgdm.repository.MedecinRepository;
+import com.hdoc.sgdm.repository.ModeleFormulaireRepository;
+import com.hdoc.sgdm.repository.OrdonnanceRepository;
+import com.hdoc.sgdm.repository.PatientRepository;
+import com.hdoc.sgdm.repository.SpecialiteRepository;
+import com.hdoc.sgdm.repository.VisiteRepository;
+
+public class PatientTimelineServiceTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2025, 2, 1, 9, 0);
+
+    @Mock private PatientRepository patientRepository;
+    @Mock private VisiteRepository visiteRepository;
+    @Mock private OrdonnanceRepository ordonnanceRepository;
+    @Mock private FactureRepository factureRepository;
+    @Mock private CertificatRepository certificatRepository;
+    @Mock private DocumentImporteRepository documentImporteRepository;
+    @Mock private AllergieRepository allergieRepository;
+    @Mock private FormulairePatientRepository formulairePatientRepository;
+    @Mock private ModeleFormulaireRepository modeleFormulaireRepository;
+    @Mock private MedecinRepository medecinRepository;
+    @Mock private SpecialiteRepository specialiteRepository;
+
+    private ExecutorService executor;
+    private PatientTimelineService timelineService;
+
+    private Patient patient;
+    private UUID medecinId;
+
+    @BeforeEach
+    public void setup() {
+        MockitoAnnotations.openMocks(this);
+        executor = Executors.newFixedThreadPool(4);
+        timelineService = new PatientTimelineService(patientRepository, visiteRepository, ordonnanceRepository,
+                factureRepository, certificatRepository, documentImporteRepository, allergieRepository,
+                formulairePatientRepository, modeleFormulaireRepository, medecinRepository,
+                new MedecinMapper(specialiteRepository), executor);
+
+        patient = new Patient();
+        patient.setIdPatient(UUID.randomUUID());
+        patient.setIpp("P000001");
+        medecinId = UUID.randomUUID();
+        UUID idPatient = patient.getIdPatient();
+
+        when(patientRepository.findByIpp("P000001")).thenReturn(Optional.of(patient));
+        when(visiteRepository.findByPatientOrderByDateDebutDesc(patient)).thenReturn(List.of(
+                Visite.builder().idVisite(1L).typeVisite("CONSULTATION").motif("Fièvre").statut("COMPLETED")
+                        .dateDebut(T0).idMedecin(medecinId).patient(patient).build()));
+        when(ordonnanceRepository.findAllByIdPatientOrderByDateCreationDesc(idPatient)).thenReturn(List.of(
+                Ordonnance.builder().idOrdonnance(2L).idPatient(idPatient).idVisite(1L).idMedecin(medecinId)
+                        .dateCreation(T0.plusMinutes(20)).statut("VALIDEE").build()));
+        Facture facture = new Facture();
+        facture.setIdFacture(3);
+        facture.setIdVisite(1);
+        facture.setMontant(new BigDecimal("200.00"));
+        facture.setStatus("PAYEE");
+        facture.setDateFacturation(T0.plusMinutes(40));
+        when(factureRepository.findByIdPatient(idPatient)).thenReturn(List.of(facture));
+        when(certificatRepository.findAllByIdPatient(idPatient)).thenReturn(List.of(
+                Certificat.builder().idCertificat(4L).idMedecin(medecinId).motif("Grippe").nombreJoursRepos(3)
+                        .dateRedaction(T0.plusMinutes(30)).build()));
+        DocumentImporte document = new DocumentImporte();
+        document.setIdDocument(5L);
+        document.setNom("Radio thorax");
+        document.setDateAjout(T0.minusDays(10));
+        when(documentImporteRepository.findByPatientIdPatient(idPatient)).thenReturn(List.of(document));
+        when(allergieRepository.findByPatientIdPatient(idPatient)).thenReturn(List.of(
+                Allergie.builder().idAllergie(6L).allergene("Pénicilline").gravite("SEVERE")
+                        .createdAt(T0.minusYears(1)).build()));
+        when(formulairePatientRepository.findByIdPatient(idPatient)).thenReturn(List.of(
+                FormulairePatient.builder().idFormulaire(7).idModele(1).idMedecin(medecinId).status("COMPLETE")
+                        .dateRemplissage(T0.plusMinutes(10)).build()));
+        when(modeleFormulaireRepository.findAllById(anyIterable())).thenReturn(List.of(
+                ModeleFormulaire.builder().idModele(1).nom("Bilan cardiaque").build()));
+        when(medecinRepository.findAllByIdWithUtilisateur(anyCollection())).thenReturn(List.of(
+                Medecin.builder().idMedecin(medecinId).status("AVAILABLE").build()));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testEventsAreMergedMostRecentFirst() {
+        PatientTimelineResponse response = timelineService.getTimeline("P000001", 0, null);
+
+        assertEquals(7, response.getTotal());
+        assertEquals(List.of("FACTURE", "CERTIFICAT", "ORDONNANCE", "FORMULAIRE", "VISITE", "DOCUMENT", "ALLERGIE"),
+                response.getEvents().stream().map(TimelineEventDTO::getType).toList());
+
+        TimelineEventDTO formulaire = response.getEvents().get(3);
+        assertEquals("Bilan cardiaque", formulaire.getTitre());
+        assertEquals(medecinId, formulaire.getMedecin().getIdMedecin());
+        assertEquals("Grippe - 3 jour(s) de repos", response.getEvents().get(1).getDescription());
+
+        // Doctors and form templates are resolved once for the whole file
+        verify(medecinRepository, times(1)).findAllByIdWithUtilisateur(anyCollection());
+        verify(medecinRepository, never()).findByIdWithUtilisateur(any());
+        verify(modeleFormulaireRepository, times(1)).findAllById(anyIterable());
+    }
+
+    @Test
+    public void testTimelineIsPaged() {
+        PatientTimelineResponse response = timelineService.getTimeline("P000001", 1, 3);
+
+        assertEquals(7, response.getTotal());
+        assertEquals(3, response.getCount());
+        assertEquals(List.of("FORMULAIRE", "VISITE", "DOCUMENT"),
+                response.getEvents().stream().map(TimelineEventDTO::getType).toList());
+        assertEquals(List.of(7L, 1L, 5L), response.getEvents().stream().map(TimelineEventDTO::getId).toList());
+
+        assertEquals(0, timelineService.getTimeline("P000001", 5, 3).getCount());
+    }
+
+    @Test
+    public void testUnknownPatient() {
+        when(patientRepository.findByIpp("P999999")).thenReturn(Optional.empty());
+
+        assertThrows(ResourceNotFoundException.class, () -> timelineService.getTimeline("P999999", 0, null));
+    }
+}
@@ -0,0 +1,173 @@
+package com.hdoc.sgdm.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.lowagie.text.Chunk;
+import com.lowagie.text.Document;
+import com.lowagie.text.DocumentException;
+import com.lowagie.text.Element;
+import com.lowagie.text.Font;
+import com.lowagie.text.FontFactory;
+import com.lowagie.text.Image;
+import com.lowagie.text.PageSize;
+import com.lowagie.text.Paragraph;
+import com.lowagie.text.Phrase;
+import com.lowagie.text.Rectangle;
+import com.lowagie.text.pdf.PdfPCell;
+import com.lowagie.text.pdf.PdfPTable;
+import com.lowagie.text.pdf.PdfWriter;
+import com.lowagie.text.pdf.draw.LineSeparator;
+
+/**
+ * Ordonnance-shaped documents (logo, title, five prescription lines, doctor section and footer)
+ * written through {@link PdfRenderingEngine}, against the same page built the way the services
+ * did before: the logo read and decoded from the classpath, fonts looked up in
+ * {@link FontFactory} and the footer assembled again for every document.
+ *
+ * The score is in documents per second; the GC profiler's gc.alloc.rate.norm is the number of
+ * bytes allocated per document.
+ *
+ * Not run by the test suite. Run it with:
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) com.hdoc.sgdm.service.PdfRenderingBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PdfRenderingBenchmark {
+
+    private static final String[] LINES = { "Paracétamol 1 g - 1 comprimé 3 fois par jour pendant 5 jours",
+            "Amoxicilline 500 mg - 1 gélule matin et soir pendant 7 jours",
+            "Ibuprofène 400 mg - 1 comprimé si douleur, 3 par jour au maximum",
+            "Oméprazole 20 mg - 1 gélule le matin à jeun pendant 14 jours",
+            "Sérum physiologique - lavage nasal 2 fois par jour" };
+
+    private PdfRenderingEngine engine;
+
+    @Setup
+    public void setup() {
+        engine = new PdfRenderingEngine();
+    }
+
+    @Benchmark
+    public byte[] engine() throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        engine.document(PdfRenderingEngine.Layout.ORDONNANCE)
+                .logo()
+                .title("ORDONNANCE MÉDICALE", 18, 20)
+                .section(document -> {
+                    Font font = PdfRenderingEngine.font(FontFactory.HELVETICA, 11);
+                    for (String line : LINES) {
+                        document.add(new Paragraph(line, font));
+                    }
+                })
+                .flexibleSpace()
+                .doctorSection("Alaoui Sara", "Médecin", "14/03/2025")
+                .footer()
+                .renderTo(baos);
+        return baos.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] perDocument() throws IOException, DocumentException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        Document document = new Document(PageSize.A4);
+        document.setMargins(36, 36, 72, 36);
+        PdfWriter.getInstance(document, baos);
+        document.open();
+
+        Image logo = Image.getInstance(getClass().getResource("/logo.jpg"));
+        logo.scaleToFit(100, 50);
+        logo.setAbsolutePosition(36, document.getPageSize().getHeight() - 50 - 36);
+        document.add(logo);
+        document.add(new Paragraph(" "));
+        document.add(new Paragraph(" "));
+
+        Paragraph title = new Paragraph("ORDONNANCE MÉDICALE",
+                FontFactory.getFont(FontFactory.HELVETICA_BOLD, 18, Font.BOLD));
+        title.setAlignment(Element.ALIGN_CENTER);
+        title.setSpacingAfter(20);
+        document.add(title);
+
+        for (String line : LINES) {
+            document.add(new Paragraph(line, FontFactory.getFont(FontFactory.HELVETICA, 11)));
+        }
+
+        for (int i = 0; i < 3; i++) {
+            Paragraph spacer = new Paragraph(" ");
+            spacer.setSpacingAfter(30);
+            document.add(spacer);
+        }
+
+        Font normalFont = FontFactory.getFont(FontFactory.HELVETICA, 11);
+        Font boldFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 11);
+        Paragraph dateInfo = new Paragraph();
+        dateInfo.add(new Phrase("Fait à Rabat, le 14/03/2025\n", normalFont));
+        Paragraph doctorInfo = new Paragraph();
+        doctorInfo.add(new Phrase("Dr. Alaoui Sara\n", boldFont));
+        doctorInfo.add(new Phrase("Médecin\n", normalFont));
+        doctorInfo.add(new Phrase("Signature et cachet", normalFont));
+        doctorInfo.setAlignment(Element.ALIGN_RIGHT);
+        document.add(twoColumns(dateInfo, doctorInfo, 5));
+
+        Paragraph line = new Paragraph();
+        line.add(new Chunk(new LineSeparator()));
+        line.setSpacingBefore(10);
+        line.setSpacingAfter(10);
+        document.add(line);
+
+        Font headerFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 10);
+        Font footerFont = FontFactory.getFont(FontFactory.HELVETICA, 9);
+        Paragraph hospitalInfo = new Paragraph();
+        hospitalInfo.add(new Phrase("Hôpital Universitaire International de Rabat\n", headerFont));
+        hospitalInfo.add(new Phrase("Parc Technopolis 11 100 Sala Al Jadida – Maroc", footerFont));
+        Paragraph contactInfo = new Paragraph();
+        contactInfo.add(new Phrase("+212 5 30 10 30 00\n", footerFont));
+        contactInfo.add(new Phrase("contact@huir.ma", footerFont));
+        contactInfo.setAlignment(Element.ALIGN_RIGHT);
+        document.add(twoColumns(hospitalInfo, contactInfo, 0));
+
+        document.close();
+        return baos.toByteArray();
+    }
+
+    private static PdfPTable twoColumns(Paragraph left, Paragraph right, float padding) {
+        PdfPTable table = new PdfPTable(2);
+        table.setWidthPercentage(100);
+        for (Paragraph content : new Paragraph[] { left, right }) {
+            PdfPCell cell = new PdfPCell();
+            cell.addElement(content);
+            cell.setBorder(Rectangle.NO_BORDER);
+            cell.setPadding(padding);
+            table.addCell(cell);
+        }
+        return table;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PdfRenderingBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,135 @@
+package com.hdoc.sgdm.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.lowagie.text.DocumentException;
+import com.lowagie.text.Font;
+import com.lowagie.text.FontFactory;
+import com.lowagie.text.Paragraph;
+import com.lowagie.text.pdf.PRStream;
+import com.lowagie.text.pdf.PdfDictionary;
+import com.lowagie.text.pdf.PdfName;
+import com.lowagie.text.pdf.PdfReader;
+import com.lowagie.text.pdf.parser.PdfTextExtractor;
+
+public class PdfRenderingEngineTest {
+
+    private PdfRenderingEngine pdfRenderingEngine;
+
+    @BeforeEach
+    public void setup() {
+        pdfRenderingEngine = new PdfRenderingEngine();
+    }
+
+    @Test
+    public void testDocumentHasTheSharedBlocksInOrder() throws IOException {
+        byte[] pdf = ordonnance("Alaoui Sara");
+
+        PdfReader reader = new PdfReader(pdf);
+        String text = new PdfTextExtractor(reader).getTextFromPage(1);
+
+        assertEquals(1, reader.getNumberOfPages());
+        int title = text.indexOf("ORDONNANCE MÉDICALE");
+        int body = text.indexOf("Paracétamol 1 g");
+        int doctor = text.indexOf("Dr. Alaoui Sara");
+        int footer = text.indexOf("Hôpital Universitaire International de Rabat");
+        assertTrue(title >= 0 && title < body && body < doctor && doctor < footer, text);
+        assertTrue(text.contains("Fait à Rabat, le 14/03/2025"), text);
+        assertTrue(text.contains("Médecin"), text);
+        assertTrue(text.contains("contact@huir.ma"), text);
+
+        // The logo, compressed once when the engine starts
+        PdfDictionary xObjects = reader.getPageN(1).getAsDict(PdfName.RESOURCES).getAsDict(PdfName.XOBJECT);
+        assertEquals(1, xObjects.size());
+        PRStream logo = (PRStream) PdfReader.getPdfObject(xObjects.get(xObjects.getKeys().iterator().next()));
+        assertEquals(PdfName.FLATEDECODE, logo.getAsName(PdfName.FILTER));
+        assertEquals(logo.getAsNumber(PdfName.WIDTH).intValue() * logo.getAsNumber(PdfName.HEIGHT).intValue() * 3,
+                PdfReader.getStreamBytes(logo).length);
+    }
+
+    @Test
+    public void testSpecialiteIsLeftOutWhenUnknown() throws IOException {
+        byte[] pdf = bytes(pdfRenderingEngine.document(PdfRenderingEngine.Layout.FORMULAIRE)
+                .doctorSection("Bennani Omar", null, "14/03/2025 10:30"));
+
+        String text = new PdfTextExtractor(new PdfReader(pdf)).getTextFromPage(1);
+
+        assertTrue(text.contains("Dr. Bennani Omar"), text);
+        assertFalse(text.contains("Médecin"), text);
+    }
+
+    @Test
+    public void testConcurrentDocumentsShareTheCachedBlocks() throws Exception {
+        String expected = new PdfTextExtractor(new PdfReader(ordonnance("Doctor 0"))).getTextFromPage(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> texts = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                texts.add(executor.submit(
+                        () -> new PdfTextExtractor(new PdfReader(ordonnance("Doctor 0"))).getTextFromPage(1)));
+            }
+            for (Future<String> text : texts) {
+                assertEquals(expected, text.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testRenderingErrorsAreRaisedBeforeTheUpload() {
+        PdfRenderingEngine.DocumentBuilder pdf = pdfRenderingEngine.document(PdfRenderingEngine.Layout.CERTIFICAT)
+                .section(document -> {
+                    throw new DocumentException("Invalid table");
+                });
+
+        IOException e = assertThrows(IOException.class, pdf::spool);
+        assertEquals("Error generating PDF document: Invalid table", e.getMessage());
+    }
+
+    @Test
+    public void testFontsAreShared() {
+        Font font = PdfRenderingEngine.font(FontFactory.HELVETICA_BOLD, 11);
+
+        assertSame(font, PdfRenderingEngine.font(FontFactory.HELVETICA_BOLD, 11));
+        assertEquals(11, font.getSize());
+        assertNotSame(PdfRenderingEngine.font(FontFactory.HELVETICA, 10),
+                PdfRenderingEngine.font(FontFactory.HELVETICA, 10, Font.ITALIC));
+    }
+
+    private byte[] ordonnance(String medecin) throws IOException {
+        return bytes(pdfRenderingEngine.document(PdfRenderingEngine.Layout.ORDONNANCE)
+                .logo()
+                .title("ORDONNANCE MÉDICALE", 18, 20)
+                .section(document -> document.add(
+                        new Paragraph("Paracétamol 1 g", PdfRenderingEngine.font(FontFactory.HELVETICA, 11))))
+                .flexibleSpace()
+                .doctorSection(medecin, "Médecin", "14/03/2025")
+                .footer());
+    }
+
+    private static byte[] bytes(PdfRenderingEngine.DocumentBuilder pdf) throws IOException {
+        try (SpooledContent content = pdf.spool()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            content.writeTo(out);
+            return out.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.hdoc.sgdm.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.hdoc.sgdm.dto.response.RenderJobDTO;
+import com.hdoc.sgdm.entity.RenderJob;
+import com.hdoc.sgdm.repository.RenderJobRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@DataJpaTest(properties = {
+        "render.jobs.max-attempts=3",
+        "render.jobs.retry-delay-ms=0",
+        "render.jobs.stale-after-ms=60000",
+        "render.jobs.sync-wait-ms=5000" })
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ RenderJobQueue.class, RenderJobQueueTest.Config.class })
+// The workers only see committed jobs
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class RenderJobQueueTest {
+
+    @Autowired
+    private RenderJobQueue renderJobQueue;
+
+    @Autowired
+    private RenderJobRepository renderJobRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private FakeRenderer renderer;
+
+    @BeforeEach
+    public void setup() {
+        renderer.calls.set(0);
+        renderer.failing = false;
+    }
+
+    @AfterEach
+    public void cleanup() {
+        renderJobRepository.deleteAll();
+    }
+
+    @Test
+    public void testJobQueuedInATransactionRunsOnceItCommits() throws InterruptedException {
+        RenderJobDTO queued = new TransactionTemplate(transactionManager).execute(status -> {
+            RenderJobDTO job = renderJobQueue.enqueue(RenderJob.TypeDocument.ORDONNANCE, 42L);
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            assertEquals(0, renderer.calls.get());
+            return job;
+        });
+
+        RenderJobDTO job = renderJobQueue.await(queued.getIdJob());
+
+        assertEquals(RenderJob.StatutJob.TERMINE, job.getStatut());
+        assertEquals("https://storage.example.com/ordonnances/42.pdf", job.getUrl());
+        assertEquals(1, job.getTentatives());
+        assertEquals(1, renderer.calls.get());
+    }
+
+    @Test
+    public void testFailedAttemptsAreRetriedUpToTheMaximum() throws InterruptedException {
+        renderer.failing = true;
+
+        Long idJob = renderJobQueue.enqueue(RenderJob.TypeDocument.ORDONNANCE, 7L).getIdJob();
+        RenderJobDTO job = pollUntilDone(idJob);
+
+        assertEquals(RenderJob.StatutJob.ECHEC, job.getStatut());
+        assertEquals(3, job.getTentatives());
+        assertEquals(3, renderer.calls.get());
+        assertEquals("Upload refused for 7", job.getErreur());
+    }
+
+    @Test
+    public void testRunningJobsAreNotClaimedTwiceAndLostAttemptsAreQueuedAgain() throws InterruptedException {
+        RenderJob running = renderJobRepository.save(RenderJob.builder()
+                .typeDocument(RenderJob.TypeDocument.ORDONNANCE)
+                .idDocument(3L)
+                .statut(RenderJob.StatutJob.EN_COURS)
+                .tentatives(1)
+                .dateDebut(LocalDateTime.now().minusHours(1))
+                .build());
+
+        // Another worker holds the job
+        renderJobQueue.run(running.getIdJob());
+        assertEquals(0, renderer.calls.get());
+        assertEquals(0, renderJobRepository.claim(running.getIdJob(), LocalDateTime.now()));
+
+        // ... until its attempt is considered lost
+        RenderJobDTO job = pollUntilDone(running.getIdJob());
+
+        assertEquals(RenderJob.StatutJob.TERMINE, job.getStatut());
+        assertEquals(2, job.getTentatives());
+        assertEquals(1, renderer.calls.get());
+    }
+
+    @Test
+    public void testWaitEndsAtOnceForAJobDoneElsewhere() throws Exception {
+        // Finished by another node: no listener here is notified
+        RenderJob done = renderJobRepository.save(RenderJob.builder()
+                .typeDocument(RenderJob.TypeDocument.ORDONNANCE)
+                .idDocument(5L)
+                .statut(RenderJob.StatutJob.TERMINE)
+                .tentatives(1)
+                .url("https://storage.example.com/ordonnances/5.pdf")
+                .dateFin(LocalDateTime.now())
+                .build());
+
+        RenderJobDTO job = renderJobQueue.awaitAsync(done.getIdJob()).get(1, TimeUnit.SECONDS);
+
+        assertEquals(RenderJob.StatutJob.TERMINE, job.getStatut());
+        assertEquals("https://storage.example.com/ordonnances/5.pdf", job.getUrl());
+        assertEquals(0, renderer.calls.get());
+    }
+
+    private RenderJobDTO pollUntilDone(Long idJob) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        RenderJobDTO job = renderJobQueue.getJob(idJob);
+        while (job.getStatut() != RenderJob.StatutJob.TERMINE && job.getStatut() != RenderJob.StatutJob.ECHEC) {
+            assertTrue(System.currentTimeMillis() < deadline, "Job still " + job.getStatut());
+            renderJobQueue.poll();
+            Thread.sleep(50);
+            job = renderJobQueue.getJob(idJob);
+        }
+        return job;
+    }
+
+    static class FakeRenderer implements DocumentRenderer {
+        private final AtomicInteger calls = new AtomicInteger();
+        private volatile boolean failing;
+
+        @Override
+        public RenderJob.TypeDocument getTypeDocument() {
+            return RenderJob.TypeDocument.ORDONNANCE;
+        }
+
+        @Override
+        public String render(Long idDocument) throws IOException {
+            calls.incrementAndGet();
+            if (failing) {
+                throw new IOException("Upload refused for " + idDocument);
+            }
+            return "https://storage.example.com/ordonnances/" + idDocument + ".pdf";
+        }
+    }
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        FakeRenderer fakeRenderer() {
+            return new FakeRenderer();
+        }
+    }
+}
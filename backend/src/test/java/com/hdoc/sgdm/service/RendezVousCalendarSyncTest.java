@@ -0,0 +1,181 @@
+package com.hdoc.sgdm.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.context.jdbc.SqlConfig;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.hdoc.sgdm.dto.response.RendezVousResponse;
+import com.hdoc.sgdm.entity.RendezVous;
+import com.hdoc.sgdm.mapper.MedecinMapper;
+import com.hdoc.sgdm.mapper.RendezVousMapper;
+import com.hdoc.sgdm.repository.RendezVousRepository;
+
+@DataJpaTest(properties = "rendezvous.sync.max-changes=3")
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({RendezVousService.class, RendezVousMapper.class, MedecinMapper.class, DoctorBookingLock.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Sql(scripts = "classpath:db/h2/rendez_vous_change_tracking.sql",
+     config = @SqlConfig(transactionMode = SqlConfig.TransactionMode.ISOLATED))
+public class RendezVousCalendarSyncTest {
+
+    private static final UUID DOCTOR = UUID.randomUUID();
+    private static final UUID PATIENT = UUID.randomUUID();
+    private static final LocalDateTime WEEK_START = LocalDate.now().plusWeeks(1).atStartOfDay();
+    private static final LocalDateTime WEEK_END = WEEK_START.plusDays(7);
+
+    @Autowired
+    private RendezVousService rendezVousService;
+
+    @Autowired
+    private RendezVousRepository rendezVousRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockBean
+    private AppointmentTimerWheel appointmentTimerWheel;
+
+    @MockBean
+    private DoctorScheduleIndex doctorScheduleIndex;
+
+    @MockBean
+    private TodayAgendaCache todayAgendaCache;
+
+    private RendezVous monday;
+    private RendezVous tuesday;
+    private RendezVous nextMonth;
+
+    @BeforeEach
+    public void setup() {
+        monday = appointment(WEEK_START.plusHours(9));
+        tuesday = appointment(WEEK_START.plusDays(1).plusHours(9));
+        nextMonth = appointment(WEEK_START.plusMonths(1));
+    }
+
+    @AfterEach
+    public void cleanup() {
+        rendezVousRepository.deleteAll();
+    }
+
+    @Test
+    public void testETagChangesOnlyWhenTheViewChanges() {
+        String eTag = etag();
+        assertEquals(eTag, etag());
+
+        // Changes outside the view leave it alone
+        nextMonth.setNote("Rappel envoyé");
+        rendezVousRepository.save(nextMonth);
+        assertEquals(eTag, etag());
+
+        monday.setNote("Apporter les analyses");
+        monday = rendezVousRepository.save(monday);
+        String afterUpdate = etag();
+        assertNotEquals(eTag, afterUpdate);
+
+        rendezVousService.cancelAppointment(tuesday.getId());
+        String afterCancel = etag();
+        assertNotEquals(afterUpdate, afterCancel);
+
+        // A deletion that is not the latest change is still seen, through the count
+        RendezVous wednesday = appointment(WEEK_START.plusDays(2).plusHours(9));
+        monday.setNote("Apporter les analyses et la radio");
+        rendezVousRepository.save(monday);
+        String beforeDelete = etag();
+        rendezVousRepository.deleteById(wednesday.getId());
+        assertNotEquals(beforeDelete, etag());
+    }
+
+    @Test
+    public void testNoETagForAppointmentsNotTrackedYet() {
+        assertNotNull(etag());
+
+        // As left by ddl-auto before V10 is applied
+        jdbcTemplate.update("UPDATE rendez_vous SET change_seq = NULL");
+
+        assertNull(etag());
+    }
+
+    @Test
+    public void testSinceReturnsOnlyTheChangesAfterTheToken() {
+        String token = rendezVousService.getSyncToken();
+        assertTrue(rendezVousService.getAppointmentChangesSince(token).isEmpty());
+
+        monday.setNote("Apporter les analyses");
+        rendezVousRepository.save(monday);
+        rendezVousService.cancelAppointment(tuesday.getId());
+        RendezVous created = appointment(WEEK_START.plusDays(3).plusHours(14));
+
+        List<RendezVousResponse> changes = rendezVousService.getAppointmentChangesSince(token);
+        assertEquals(List.of(monday.getId(), tuesday.getId(), created.getId()),
+                changes.stream().map(RendezVousResponse::getId).collect(Collectors.toList()));
+        assertEquals(RendezVous.StatutRendezVous.ANNULE, changes.get(1).getStatus());
+        assertEquals("Apporter les analyses", changes.get(0).getNote());
+
+        String nextToken = rendezVousService.getSyncToken();
+        assertNotEquals(token, nextToken);
+        assertTrue(rendezVousService.getAppointmentChangesSince(nextToken).isEmpty());
+    }
+
+    @Test
+    public void testTooManyChangesOrABadTokenAreRejected() {
+        assertThrows(IllegalStateException.class, () -> {
+            appointment(WEEK_START.plusDays(4).plusHours(9));
+            rendezVousService.getAppointmentChangesSince(RendezVousService.SYNC_TOKEN_PREFIX + "0");
+        });
+        assertThrows(IllegalArgumentException.class, () -> rendezVousService.getAppointmentChangesSince("abc"));
+        // A change sequence value issued as token before V14
+        assertThrows(IllegalStateException.class, () -> rendezVousService.getAppointmentChangesSince("42"));
+    }
+
+    // Stand-in for the PostgreSQL function of V14, see db/h2/rendez_vous_change_tracking.sql
+    public static long syncHorizon(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery("SELECT COALESCE(MAX(change_xid), 0) + 1 FROM rendez_vous")) {
+            result.next();
+            return result.getLong(1);
+        }
+    }
+
+    private String etag() {
+        return rendezVousService.getCalendarETag(WEEK_START, WEEK_END, DOCTOR, false);
+    }
+
+    private RendezVous appointment(LocalDateTime dateHeure) {
+        RendezVous rendezVous = new RendezVous();
+        rendezVous.setIdPatient(PATIENT);
+        rendezVous.setIdMedecin(DOCTOR);
+        rendezVous.setDateHeure(dateHeure);
+        rendezVous.setDurationMinutes(30);
+        rendezVous.setStatus(RendezVous.StatutRendezVous.PLANIFIE);
+        return rendezVousRepository.save(rendezVous);
+    }
+}
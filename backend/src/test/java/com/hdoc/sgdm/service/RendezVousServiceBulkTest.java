@@ -0,0 +1,187 @@
+package com.hdoc.sgdm.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.hdoc.sgdm.dto.common.BulkRendezVousResultDTO;
+import com.hdoc.sgdm.dto.request.BulkRendezVousRequest;
+import com.hdoc.sgdm.dto.request.RecurrenceRequest;
+import com.hdoc.sgdm.dto.response.BulkRendezVousResponse;
+import com.hdoc.sgdm.entity.Medecin;
+import com.hdoc.sgdm.entity.Patient;
+import com.hdoc.sgdm.entity.RendezVous;
+import com.hdoc.sgdm.entity.Utilisateur;
+import com.hdoc.sgdm.mapper.MedecinMapper;
+import com.hdoc.sgdm.mapper.RendezVousMapper;
+import com.hdoc.sgdm.repository.MedecinRepository;
+import com.hdoc.sgdm.repository.PatientRepository;
+import com.hdoc.sgdm.repository.RendezVousRepository;
+import com.hdoc.sgdm.repository.UtilisateurRepository;
+
+@DataJpaTest
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({RendezVousService.class, RendezVousMapper.class, MedecinMapper.class, DoctorBookingLock.class})
+public class RendezVousServiceBulkTest {
+
+    private static final LocalDateTime FIRST = LocalDate.now().plusDays(7).atTime(10, 0);
+
+    @Autowired
+    private RendezVousService rendezVousService;
+
+    @Autowired
+    private RendezVousRepository rendezVousRepository;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private MedecinRepository medecinRepository;
+
+    @Autowired
+    private UtilisateurRepository utilisateurRepository;
+
+    @MockBean
+    private AppointmentTimerWheel appointmentTimerWheel;
+
+    @MockBean
+    private DoctorScheduleIndex doctorScheduleIndex;
+
+    @MockBean
+    private TodayAgendaCache todayAgendaCache;
+
+    private UUID idMedecin;
+    private UUID idPatient;
+
+    @BeforeEach
+    public void setup() {
+        idMedecin = medecin().getIdMedecin();
+        idPatient = patient().getIdPatient();
+
+        // Already booked over the third week of the series
+        RendezVous existing = new RendezVous();
+        existing.setIdPatient(idPatient);
+        existing.setIdMedecin(idMedecin);
+        existing.setDateHeure(FIRST.plusWeeks(2).minusMinutes(15));
+        existing.setDurationMinutes(30);
+        existing.setStatus(RendezVous.StatutRendezVous.PLANIFIE);
+        rendezVousRepository.save(existing);
+    }
+
+    @Test
+    public void testAtomicSeriesWithAConflictBooksNothing() {
+        BulkRendezVousResponse response = rendezVousService.bookAppointments(weekly(5, true));
+
+        assertEquals("error", response.getStatus());
+        assertEquals(0, response.getBookedCount());
+        assertEquals(5, response.getRejectedCount());
+        assertEquals(List.of("NOT_BOOKED", "NOT_BOOKED", "CONFLICT", "NOT_BOOKED", "NOT_BOOKED"), statuses(response));
+        assertEquals(1, rendezVousRepository.count());
+    }
+
+    @Test
+    public void testBestEffortSeriesBooksTheFreeAppointmentsInOneBatch() {
+        BulkRendezVousResponse response = rendezVousService.bookAppointments(weekly(5, false));
+
+        assertEquals("success", response.getStatus());
+        assertEquals(4, response.getBookedCount());
+        assertEquals(List.of("BOOKED", "BOOKED", "CONFLICT", "BOOKED", "BOOKED"), statuses(response));
+        assertEquals(5, rendezVousRepository.count());
+
+        BulkRendezVousResultDTO last = response.getResults().get(4);
+        assertNotNull(last.getAppointment().getId());
+        assertEquals(FIRST.plusWeeks(4), last.getAppointment().getDateHeure());
+        RendezVous saved = rendezVousRepository.findById(last.getAppointment().getId()).orElseThrow();
+        assertEquals(RendezVous.StatutRendezVous.PLANIFIE, saved.getStatus());
+        assertEquals(45, saved.getDurationMinutes());
+
+        // The booked appointments are handed to the timer wheel and the schedule index
+        verify(appointmentTimerWheel, times(4)).schedule(any());
+        verify(doctorScheduleIndex, times(4)).appointmentChanged(any());
+    }
+
+    @Test
+    public void testAppointmentsOfTheSameSeriesCannotOverlap() {
+        BulkRendezVousRequest request = request(false);
+        request.setDates(List.of(FIRST, FIRST.plusMinutes(30), FIRST.plusMinutes(45), FIRST.minusDays(30)));
+
+        BulkRendezVousResponse response = rendezVousService.bookAppointments(request);
+
+        assertEquals(List.of("BOOKED", "CONFLICT", "BOOKED", "INVALID"), statuses(response));
+    }
+
+    @Test
+    public void testMonthlyRecurrenceDoesNotDriftAfterAShortMonth() {
+        BulkRendezVousRequest request = request(true);
+        RecurrenceRequest recurrence = new RecurrenceRequest();
+        recurrence.setFirstDateHeure(LocalDateTime.of(2031, 1, 31, 9, 0));
+        recurrence.setFrequency(RecurrenceRequest.Frequency.MONTHLY);
+        recurrence.setUntil(LocalDate.of(2031, 4, 30));
+        request.setRecurrence(recurrence);
+
+        assertEquals(List.of(LocalDateTime.of(2031, 1, 31, 9, 0), LocalDateTime.of(2031, 2, 28, 9, 0),
+                        LocalDateTime.of(2031, 3, 31, 9, 0), LocalDateTime.of(2031, 4, 30, 9, 0)),
+                RendezVousService.expandDates(request));
+
+        recurrence.setFrequency(RecurrenceRequest.Frequency.DAILY);
+        recurrence.setUntil(null);
+        recurrence.setOccurrences(RendezVousService.MAX_SERIES_SIZE + 1);
+        assertThrows(IllegalArgumentException.class, () -> RendezVousService.expandDates(request));
+
+        request.setRecurrence(null);
+        assertThrows(IllegalArgumentException.class, () -> RendezVousService.expandDates(request));
+    }
+
+    private BulkRendezVousRequest weekly(int occurrences, boolean atomic) {
+        BulkRendezVousRequest request = request(atomic);
+        RecurrenceRequest recurrence = new RecurrenceRequest();
+        recurrence.setFirstDateHeure(FIRST);
+        recurrence.setFrequency(RecurrenceRequest.Frequency.WEEKLY);
+        recurrence.setOccurrences(occurrences);
+        request.setRecurrence(recurrence);
+        return request;
+    }
+
+    private BulkRendezVousRequest request(boolean atomic) {
+        BulkRendezVousRequest request = new BulkRendezVousRequest();
+        request.setIdPatient(idPatient);
+        request.setIdMedecin(idMedecin);
+        request.setDurationMinutes(45);
+        request.setService("Kinésithérapie");
+        request.setTypeVisit("SUIVI");
+        request.setAtomic(atomic);
+        return request;
+    }
+
+    private static List<String> statuses(BulkRendezVousResponse response) {
+        return response.getResults().stream().map(BulkRendezVousResultDTO::getStatus).collect(Collectors.toList());
+    }
+
+    private Medecin medecin() {
+        Utilisateur utilisateur = utilisateurRepository.save(TestFixtures.utilisateur(0));
+        return medecinRepository.save(TestFixtures.medecin(utilisateur));
+    }
+
+    private Patient patient() {
+        return patientRepository.save(TestFixtures.patient(0));
+    }
+}
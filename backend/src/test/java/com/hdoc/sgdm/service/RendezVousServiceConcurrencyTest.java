@@ -0,0 +1,188 @@
+package com.hdoc.sgdm.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.hdoc.sgdm.dto.request.RendezVousRequest;
+import com.hdoc.sgdm.entity.Medecin;
+import com.hdoc.sgdm.entity.Patient;
+import com.hdoc.sgdm.entity.RendezVous;
+import com.hdoc.sgdm.entity.Utilisateur;
+import com.hdoc.sgdm.exception.ConflictException;
+import com.hdoc.sgdm.mapper.MedecinMapper;
+import com.hdoc.sgdm.mapper.RendezVousMapper;
+import com.hdoc.sgdm.repository.MedecinRepository;
+import com.hdoc.sgdm.repository.PatientRepository;
+import com.hdoc.sgdm.repository.RendezVousRepository;
+import com.hdoc.sgdm.repository.UtilisateurRepository;
+
+@DataJpaTest
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({RendezVousService.class, RendezVousMapper.class, MedecinMapper.class, DoctorBookingLock.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class RendezVousServiceConcurrencyTest {
+
+    private static final Logger log = LoggerFactory.getLogger(RendezVousServiceConcurrencyTest.class);
+
+    private static final int DOCTORS = 3;
+    private static final int THREADS = 16;
+    private static final int ATTEMPTS = 300;
+    private static final LocalDateTime MORNING = LocalDate.now().plusDays(3).atTime(8, 0);
+
+    @Autowired
+    private RendezVousService rendezVousService;
+
+    @Autowired
+    private RendezVousRepository rendezVousRepository;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private MedecinRepository medecinRepository;
+
+    @Autowired
+    private UtilisateurRepository utilisateurRepository;
+
+    @MockBean
+    private AppointmentTimerWheel appointmentTimerWheel;
+
+    @MockBean
+    private DoctorScheduleIndex doctorScheduleIndex;
+
+    @MockBean
+    private TodayAgendaCache todayAgendaCache;
+
+    private final List<UUID> medecinIds = new ArrayList<>();
+    private UUID idPatient;
+
+    @BeforeEach
+    public void setup() {
+        for (int i = 0; i < DOCTORS; i++) {
+            medecinIds.add(medecin(i).getIdMedecin());
+        }
+        idPatient = patient().getIdPatient();
+    }
+
+    @AfterEach
+    public void cleanup() {
+        rendezVousRepository.deleteAll();
+        patientRepository.deleteAll();
+        medecinRepository.deleteAllInBatch();
+        utilisateurRepository.deleteAll();
+    }
+
+    @Test
+    public void testConcurrentBookingsNeverOverlap() throws Exception {
+        AtomicInteger booked = new AtomicInteger();
+        AtomicInteger conflicts = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> results = new ArrayList<>();
+        long begin = System.nanoTime();
+        try {
+            for (int i = 0; i < ATTEMPTS; i++) {
+                results.add(executor.submit(() -> {
+                    // 45 minute appointments starting on any quarter of the morning
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    RendezVousRequest request = new RendezVousRequest();
+                    request.setIdPatient(idPatient);
+                    request.setIdMedecin(medecinIds.get(random.nextInt(DOCTORS)));
+                    request.setDateHeure(MORNING.plusMinutes(15L * random.nextInt(16)));
+                    request.setDurationMinutes(45);
+                    request.setService("Consultation");
+                    request.setTypeVisit("CONSULTATION");
+                    try {
+                        rendezVousService.createAppointment(request);
+                        booked.incrementAndGet();
+                    } catch (ConflictException e) {
+                        conflicts.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        double seconds = (System.nanoTime() - begin) / 1e9;
+        log.info("{} bookings on {} threads in {} s: {} booked, {} conflicts",
+                ATTEMPTS, THREADS, String.format("%.2f", seconds), booked.get(), conflicts.get());
+
+        assertEquals(ATTEMPTS, booked.get() + conflicts.get());
+        assertTrue(conflicts.get() > 0, "Bookings should have contended for the same slots");
+
+        for (UUID idMedecin : medecinIds) {
+            List<RendezVous> appointments = rendezVousRepository.findAll().stream()
+                    .filter(rendezVous -> rendezVous.getIdMedecin().equals(idMedecin))
+                    .sorted(Comparator.comparing(RendezVous::getDateHeure))
+                    .collect(Collectors.toList());
+            assertTrue(!appointments.isEmpty());
+            for (int i = 1; i < appointments.size(); i++) {
+                RendezVous previous = appointments.get(i - 1);
+                assertTrue(!previous.getDateHeure().plusMinutes(previous.getDurationMinutes())
+                                .isAfter(appointments.get(i).getDateHeure()),
+                        "Appointments " + previous.getId() + " and " + appointments.get(i).getId() + " overlap");
+            }
+        }
+    }
+
+    @Test
+    public void testStaleScheduleDoesNotRejectAFreeSlot() {
+        // Still holding an appointment cancelled on another node
+        when(doctorScheduleIndex.covers(any(), any())).thenReturn(true);
+        when(doctorScheduleIndex.hasOverlap(any(), any(), any(), any())).thenReturn(true);
+
+        RendezVousRequest request = new RendezVousRequest();
+        request.setIdPatient(idPatient);
+        request.setIdMedecin(medecinIds.get(0));
+        request.setDateHeure(MORNING);
+        request.setDurationMinutes(30);
+        request.setService("Consultation");
+        request.setTypeVisit("CONSULTATION");
+
+        assertNotNull(rendezVousService.createAppointment(request).getId());
+    }
+
+    private Medecin medecin(int i) {
+        Utilisateur utilisateur = utilisateurRepository.save(TestFixtures.utilisateur(i));
+        return medecinRepository.save(TestFixtures.medecin(utilisateur));
+    }
+
+    private Patient patient() {
+        return patientRepository.save(TestFixtures.patient(0));
+    }
+}
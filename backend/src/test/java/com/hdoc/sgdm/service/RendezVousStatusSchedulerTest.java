@@ -0,0 +1,74 @@
+package com.hdoc.sgdm.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.hdoc.sgdm.repository.RendezVousRepository;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class RendezVousStatusSchedulerTest {
+
+    @Mock
+    private RendezVousRepository rendezVousRepository;
+
+    @Mock
+    private TodayAgendaCache todayAgendaCache;
+
+    private SimpleMeterRegistry meterRegistry;
+    private RendezVousStatusScheduler scheduler;
+
+    @BeforeEach
+    public void setup() {
+        MockitoAnnotations.openMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        scheduler = new RendezVousStatusScheduler(rendezVousRepository, todayAgendaCache, meterRegistry);
+    }
+
+    @Test
+    public void testLateAppointmentsAreUpdatedInOneStatement() {
+        when(rendezVousRepository.markLateAppointments(any(), any())).thenReturn(List.of(3L, 8L, 12L));
+
+        scheduler.updateLateAppointments();
+
+        // Only today's appointments are concerned, and no entity is loaded or saved
+        verify(rendezVousRepository, times(1)).markLateAppointments(eq(LocalDate.now().atStartOfDay()), any(LocalDateTime.class));
+        verifyNoMoreInteractions(rendezVousRepository);
+        verify(todayAgendaCache).appointmentsMarkedLate(List.of(3L, 8L, 12L));
+
+        Timer timer = meterRegistry.get("rendezvous.late.update").timer();
+        DistributionSummary rows = meterRegistry.get("rendezvous.late.update.rows").summary();
+        assertEquals(1, timer.count());
+        assertEquals(1, rows.count());
+        assertEquals(3.0, rows.totalAmount());
+    }
+
+    @Test
+    public void testRunWithoutLateAppointmentsIsRecorded() {
+        when(rendezVousRepository.markLateAppointments(any(), any())).thenReturn(List.of());
+
+        scheduler.updateLateAppointments();
+        scheduler.updateLateAppointments();
+
+        DistributionSummary rows = meterRegistry.get("rendezvous.late.update.rows").summary();
+        assertEquals(2, rows.count());
+        assertEquals(0.0, rows.totalAmount());
+        assertEquals(2, meterRegistry.get("rendezvous.late.update").timer().count());
+    }
+}
@@ -0,0 +1,256 @@
+package com.hdoc.sgdm.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.FileSystemUtils;
+
+import com.hdoc.sgdm.dto.request.InitiateUploadRequest;
+import com.hdoc.sgdm.dto.response.RenderJobDTO;
+import com.hdoc.sgdm.dto.response.UploadSessionDTO;
+import com.hdoc.sgdm.entity.DocumentImporte;
+import com.hdoc.sgdm.entity.Patient;
+import com.hdoc.sgdm.entity.RenderJob;
+import com.hdoc.sgdm.entity.UploadSession;
+import com.hdoc.sgdm.exception.ConflictException;
+import com.hdoc.sgdm.mapper.DocumentImporteMapper;
+import com.hdoc.sgdm.repository.DocumentImporteRepository;
+import com.hdoc.sgdm.repository.PatientRepository;
+import com.hdoc.sgdm.repository.RenderJobRepository;
+import com.hdoc.sgdm.repository.UploadSessionRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@DataJpaTest(properties = {
+        "upload.resumable.chunk-size=1024",
+        "upload.resumable.max-size=1000000",
+        "upload.resumable.spool-dir=${java.io.tmpdir}/hdoc-upload-spool-test",
+        "storage.backend=local",
+        "storage.local.root=${java.io.tmpdir}/hdoc-storage-test",
+        "supabase.storage.bucket=forms",
+        "supabase.storage.documents-bucket=documents-importe",
+        "render.jobs.retry-delay-ms=0",
+        "render.jobs.sync-wait-ms=10000" })
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ ResumableUploadService.class, UploadSpool.class, DocumentService.class, DocumentImporteMapper.class,
+        SupabaseStorageService.class, LocalObjectStorage.class, RenderJobQueue.class,
+        ResumableUploadServiceTest.Config.class })
+// The render workers only see committed sessions
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class ResumableUploadServiceTest {
+
+    private static final Path SPOOL = Paths.get(System.getProperty("java.io.tmpdir"), "hdoc-upload-spool-test");
+    private static final Path STORAGE = Paths.get(System.getProperty("java.io.tmpdir"), "hdoc-storage-test");
+
+    @Autowired
+    private ResumableUploadService resumableUploadService;
+
+    @Autowired
+    private RenderJobQueue renderJobQueue;
+
+    @Autowired
+    private UploadSessionRepository uploadSessionRepository;
+
+    @Autowired
+    private DocumentImporteRepository documentRepository;
+
+    @Autowired
+    private RenderJobRepository renderJobRepository;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    private byte[] file;
+
+    @BeforeEach
+    public void setup() {
+        file = new byte[2500];
+        new Random(42).nextBytes(file);
+
+        patientRepository.save(Patient.builder()
+                .ipp("P000001")
+                .nom("Idrissi")
+                .prenom("Karim")
+                .dateNaissance(LocalDate.of(1985, 5, 20))
+                .lieuNaissance("Fès")
+                .sexe("M")
+                .adresse("12 avenue Hassan II")
+                .ville("Fès")
+                .telephone("0600000000")
+                .nationalite("Marocaine")
+                .etatCivil("Marié")
+                .email("karim.idrissi@example.com")
+                .cin("C123456")
+                .typeAdmission("NORMAL")
+                .dateAdmission(LocalDate.of(2025, 3, 14))
+                .dateCreation(LocalDate.of(2025, 3, 14).atStartOfDay())
+                .build());
+    }
+
+    @AfterEach
+    public void cleanup() throws IOException {
+        uploadSessionRepository.deleteAll();
+        documentRepository.deleteAll();
+        renderJobRepository.deleteAll();
+        patientRepository.deleteAll();
+        FileSystemUtils.deleteRecursively(SPOOL);
+        FileSystemUtils.deleteRecursively(STORAGE);
+    }
+
+    @Test
+    public void testChunksSentInAnyOrderAreAssembledIntoTheDocument() throws Exception {
+        UploadSessionDTO upload = resumableUploadService.initiate("P000001", request());
+        Long idSession = upload.getIdSession();
+        assertEquals(3, upload.getNombreChunks());
+        assertEquals(List.of(0, 1, 2), upload.getChunksManquants());
+
+        resumableUploadService.putChunk(idSession, 2, chunk(2));
+        upload = resumableUploadService.putChunk(idSession, 0, chunk(0));
+        assertEquals(List.of(new UploadSessionDTO.Plage(0, 1023), new UploadSessionDTO.Plage(2048, 2499)),
+                upload.getPlagesRecues());
+        assertEquals(List.of(1), upload.getChunksManquants());
+        assertThrows(ConflictException.class, () -> resumableUploadService.complete(idSession));
+
+        // Sent again after an interruption
+        resumableUploadService.putChunk(idSession, 1, chunk(1));
+        resumableUploadService.putChunk(idSession, 1, chunk(1));
+        upload = resumableUploadService.complete(idSession);
+        assertEquals(UploadSession.StatutUpload.ASSEMBLAGE, upload.getStatut());
+        assertEquals(List.of(new UploadSessionDTO.Plage(0, 2499)), upload.getPlagesRecues());
+        // Completing twice is harmless
+        assertEquals(upload.getIdJob(), resumableUploadService.complete(idSession).getIdJob());
+
+        RenderJobDTO job = renderJobQueue.await(upload.getIdJob());
+        assertEquals(RenderJob.StatutJob.TERMINE, job.getStatut(), job.getErreur());
+        assertEquals(RenderJob.TypeDocument.DOCUMENT_IMPORTE, job.getTypeDocument());
+
+        upload = resumableUploadService.getSession(idSession);
+        assertEquals(UploadSession.StatutUpload.TERMINE, upload.getStatut());
+        DocumentImporte document = documentRepository.findById(upload.getIdDocument()).orElseThrow();
+        assertEquals("IRM lombaire", document.getNom());
+        assertEquals("IRM", document.getTypeDocument());
+        assertEquals(job.getUrl(), document.getUrl());
+        assertTrue(document.getUrl().contains("/documents-importe/patients/P000001/IRM_lombaire_"), document.getUrl());
+        assertTrue(document.getUrl().endsWith(".dcm"), document.getUrl());
+
+        Path stored = STORAGE.resolve(document.getUrl().substring(document.getUrl().indexOf("documents-importe/")));
+        assertArrayEquals(file, Files.readAllBytes(stored));
+        assertFalse(Files.exists(SPOOL.resolve(String.valueOf(idSession))));
+    }
+
+    @Test
+    public void testChunksOfTheWrongNumberOrSizeAreRejected() throws IOException {
+        Long idSession = resumableUploadService.initiate("P000001", request()).getIdSession();
+
+        assertThrows(IllegalArgumentException.class,
+                () -> resumableUploadService.putChunk(idSession, 0, new ByteArrayInputStream(new byte[1000])));
+        assertThrows(IllegalArgumentException.class,
+                () -> resumableUploadService.putChunk(idSession, 0, new ByteArrayInputStream(new byte[1025])));
+        // The last chunk is shorter
+        assertThrows(IllegalArgumentException.class,
+                () -> resumableUploadService.putChunk(idSession, 2, new ByteArrayInputStream(new byte[1024])));
+        assertThrows(IllegalArgumentException.class, () -> resumableUploadService.putChunk(idSession, 3, chunk(2)));
+
+        UploadSessionDTO upload = resumableUploadService.getSession(idSession);
+        assertTrue(upload.getPlagesRecues().isEmpty());
+        assertEquals(List.of(0, 1, 2), upload.getChunksManquants());
+
+        InitiateUploadRequest tooLarge = request();
+        tooLarge.setSize(2_000_000L);
+        assertThrows(IllegalArgumentException.class, () -> resumableUploadService.initiate("P000001", tooLarge));
+    }
+
+    @Test
+    public void testInactiveSessionsExpireWithTheirChunks() throws IOException {
+        Long idSession = resumableUploadService.initiate("P000001", request()).getIdSession();
+        resumableUploadService.putChunk(idSession, 0, chunk(0));
+        assertTrue(Files.exists(SPOOL.resolve(String.valueOf(idSession))));
+
+        resumableUploadService.expireSessionsInactiveSince(LocalDateTime.now().plusSeconds(1));
+
+        assertEquals(UploadSession.StatutUpload.EXPIRE, resumableUploadService.getSession(idSession).getStatut());
+        assertFalse(Files.exists(SPOOL.resolve(String.valueOf(idSession))));
+        assertThrows(ConflictException.class, () -> resumableUploadService.putChunk(idSession, 1, chunk(1)));
+        assertThrows(ConflictException.class, () -> resumableUploadService.complete(idSession));
+    }
+
+    @Test
+    public void testChunkReceivedAfterTheSessionClosedDoesNotReplaceTheSpooledOne() throws IOException {
+        Long idSession = resumableUploadService.initiate("P000001", request()).getIdSession();
+        resumableUploadService.putChunk(idSession, 0, chunk(0));
+
+        // Sent again, while the session expires
+        ByteArrayInputStream late = new ByteArrayInputStream(new byte[1024]) {
+            @Override
+            public long transferTo(OutputStream out) throws IOException {
+                uploadSessionRepository.expire(idSession, LocalDateTime.now().plusSeconds(1));
+                return super.transferTo(out);
+            }
+        };
+        assertThrows(ConflictException.class, () -> resumableUploadService.putChunk(idSession, 0, late));
+
+        Path spooled = SPOOL.resolve(String.valueOf(idSession));
+        assertArrayEquals(Arrays.copyOf(file, 1024), Files.readAllBytes(spooled.resolve("0.part")));
+        try (Stream<Path> files = Files.list(spooled)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    public void testSpoolMustBeConfigured() {
+        assertThrows(IllegalStateException.class, () -> new UploadSpool(""));
+    }
+
+    private static InitiateUploadRequest request() {
+        InitiateUploadRequest request = new InitiateUploadRequest();
+        request.setTitle("IRM lombaire");
+        request.setDescription("IRM du rachis lombaire");
+        request.setTypeDocument("IRM");
+        request.setFilename("irm_lombaire.dcm");
+        request.setContentType("application/dicom");
+        request.setSize(2500L);
+        return request;
+    }
+
+    private ByteArrayInputStream chunk(int index) {
+        return new ByteArrayInputStream(Arrays.copyOfRange(file, index * 1024, Math.min((index + 1) * 1024, file.length)));
+    }
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+}
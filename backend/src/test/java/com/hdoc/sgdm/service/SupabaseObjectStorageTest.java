@@ -0,0 +1,155 @@
+package com.hdoc.sgdm.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.hdoc.sgdm.config.StorageConfig;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class SupabaseObjectStorageTest {
+
+    private HttpServer server;
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+    private final Deque<Integer> uploadStatuses = new ArrayDeque<>();
+    private final List<Long> uploadSizes = new CopyOnWriteArrayList<>();
+    private volatile boolean bucketExists;
+
+    private SimpleMeterRegistry meterRegistry;
+    private SupabaseObjectStorage storage;
+    private String baseUrl;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/storage/v1/", this::handle);
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+
+        meterRegistry = new SimpleMeterRegistry();
+        storage = new SupabaseObjectStorage(new StorageConfig().storageHttpClient(5, 60000, 5000),
+                meterRegistry, baseUrl, "service-key", 3, 1, 5);
+    }
+
+    @AfterEach
+    public void cleanup() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testMissingBucketIsCreatedOnceThenRemembered() throws IOException {
+        String url = storage.put("ordonnances", "ordonnance_1.pdf", new byte[10], "application/pdf");
+        storage.put("ordonnances", "ordonnance_2.pdf", new byte[10], "application/pdf");
+
+        assertEquals(baseUrl + "/storage/v1/object/public/ordonnances/ordonnance_1.pdf", url);
+        assertEquals(List.of(
+                "GET /storage/v1/bucket/ordonnances",
+                "POST /storage/v1/bucket",
+                "PUT /storage/v1/object/ordonnances/ordonnance_1.pdf",
+                "PUT /storage/v1/object/ordonnances/ordonnance_2.pdf"), requests);
+    }
+
+    @Test
+    public void testServerErrorsAreRetried() throws IOException {
+        bucketExists = true;
+        uploadStatuses.add(503);
+        uploadStatuses.add(500);
+
+        storage.put("factures", "facture_1.pdf", new byte[42], "application/pdf");
+
+        assertEquals(3, requests.stream().filter(request -> request.startsWith("PUT")).count());
+        assertEquals(2, meterRegistry.get("storage.retries").tag("operation", "upload").counter().count());
+        assertEquals(42, meterRegistry.get("storage.upload.bytes").summary().totalAmount());
+    }
+
+    @Test
+    public void testClientErrorsAndExhaustedRetriesFail() {
+        bucketExists = true;
+        uploadStatuses.add(403);
+
+        assertThrows(IOException.class, () -> storage.put("forms", "f.pdf", new byte[1], "application/pdf"));
+        assertEquals(1, requests.stream().filter(request -> request.startsWith("PUT")).count());
+
+        uploadStatuses.add(502);
+        uploadStatuses.add(502);
+        uploadStatuses.add(502);
+        assertThrows(IOException.class, () -> storage.put("forms", "f.pdf", new byte[1], "application/pdf"));
+        assertEquals(4, requests.stream().filter(request -> request.startsWith("PUT")).count());
+        assertEquals(2, meterRegistry.get("storage.uploads").tag("outcome", "failure").timer().count());
+    }
+
+    @Test
+    public void testContentIsStreamedAgainOnEachAttempt() throws IOException {
+        bucketExists = true;
+        uploadStatuses.add(503);
+        byte[] content = new byte[20 * 64 * 1024];
+
+        storage.put("documents-importe", "patients/IPP1/scan.pdf", StorageContent.of(content), "application/pdf");
+
+        assertEquals(List.of((long) content.length, (long) content.length), uploadSizes);
+        assertEquals(content.length, meterRegistry.get("storage.upload.bytes").summary().totalAmount());
+    }
+
+    @Test
+    public void testDeleteOnlyAcceptsItsOwnUrls() throws IOException {
+        assertTrue(storage.delete(baseUrl + "/storage/v1/object/public/forms/f.pdf"));
+        assertEquals(List.of("DELETE /storage/v1/object/forms/f.pdf"), requests);
+        assertFalse(storage.delete("https://elsewhere.example.com/forms/f.pdf"));
+    }
+
+    @Test
+    public void testBackoffIsJitteredUpToItsCeiling() {
+        for (int attempt = 1; attempt <= 10; attempt++) {
+            long delay = SupabaseObjectStorage.backoff(attempt, 200, 5000);
+            assertTrue(delay >= 0 && delay <= Math.min(5000, 200L << (attempt - 1)), "Delay " + delay);
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        String path = exchange.getRequestURI().getPath();
+        requests.add(method + " " + path);
+        long size = exchange.getRequestBody().transferTo(OutputStream.nullOutputStream());
+        if (method.equals("PUT")) {
+            uploadSizes.add(size);
+        }
+
+        int status;
+        if (method.equals("GET") && path.startsWith("/storage/v1/bucket/")) {
+            status = bucketExists ? 200 : 400;
+        } else if (method.equals("POST")) {
+            bucketExists = true;
+            status = 200;
+        } else if (method.equals("PUT")) {
+            Integer next;
+            synchronized (uploadStatuses) {
+                next = uploadStatuses.poll();
+            }
+            status = next != null ? next : 200;
+        } else {
+            status = 200;
+        }
+
+        byte[] body = "{}".getBytes();
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
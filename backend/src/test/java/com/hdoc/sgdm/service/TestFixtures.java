@@ -0,0 +1,75 @@
+package com.hdoc.sgdm.service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import com.hdoc.sgdm.entity.Medecin;
+import com.hdoc.sgdm.entity.Patient;
+import com.hdoc.sgdm.entity.Utilisateur;
+
+/**
+ * Doctors and patients for the repository tests, not saved yet: each test saves them
+ * through its repositories or its TestEntityManager.
+ */
+final class TestFixtures {
+
+    private TestFixtures() {
+    }
+
+    /**
+     * The user account of the i-th doctor.
+     */
+    static Utilisateur utilisateur(int i) {
+        Utilisateur utilisateur = new Utilisateur();
+        utilisateur.setId(UUID.randomUUID());
+        utilisateur.setNom("Medecin" + i);
+        utilisateur.setPrenom("Prenom" + i);
+        utilisateur.setIdentifiant("medecin" + i);
+        utilisateur.setMotDePasse("secret");
+        utilisateur.setRole("MEDECIN");
+        utilisateur.setEmail("medecin" + i + "@example.com");
+        utilisateur.setSexe("M");
+        utilisateur.setDateNaissance(LocalDate.of(1975, 1, 1));
+        utilisateur.setTelephone("0600000000");
+        utilisateur.setAdresse("1 rue de la Santé");
+        utilisateur.setVille("Rabat");
+        utilisateur.setPays("Maroc");
+        utilisateur.setDateCreation(LocalDateTime.now());
+        return utilisateur;
+    }
+
+    /**
+     * An available doctor for a user account already saved.
+     */
+    static Medecin medecin(Utilisateur utilisateur) {
+        return Medecin.builder()
+                .idMedecin(utilisateur.getId())
+                .status("AVAILABLE")
+                .build();
+    }
+
+    /**
+     * The i-th patient, with its own IPP, CIN and email.
+     */
+    static Patient patient(int i) {
+        return Patient.builder()
+                .ipp(String.format("P%06d", i + 1))
+                .nom("Alaoui")
+                .prenom("Sara")
+                .dateNaissance(LocalDate.of(1990, 1, 1))
+                .lieuNaissance("Rabat")
+                .sexe("F")
+                .adresse("1 avenue Mohammed V")
+                .ville("Rabat")
+                .telephone("0600000000")
+                .nationalite("Marocaine")
+                .etatCivil("Célibataire")
+                .email("patient" + i + "@example.com")
+                .cin(String.format("AA%06d", i + 1))
+                .typeAdmission("NORMAL")
+                .dateAdmission(LocalDate.now())
+                .dateCreation(LocalDateTime.now())
+                .build();
+    }
+}
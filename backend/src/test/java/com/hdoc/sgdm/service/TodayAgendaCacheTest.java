@@ -0,0 +1,153 @@
+package com.hdoc.sgdm.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.when;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.hdoc.sgdm.dto.response.RendezVousResponse;
+import com.hdoc.sgdm.entity.RendezVous;
+import com.hdoc.sgdm.entity.RendezVous.StatutRendezVous;
+import com.hdoc.sgdm.mapper.RendezVousMapper;
+import com.hdoc.sgdm.repository.RendezVousRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class TodayAgendaCacheTest {
+
+    private static final ZoneId ZONE = ZoneId.of("Africa/Casablanca");
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 3, 10, 10, 0, 0);
+    private static final UUID DOCTOR_A = new UUID(0, 1);
+    private static final UUID DOCTOR_B = new UUID(0, 2);
+
+    @Mock
+    private RendezVousRepository rendezVousRepository;
+
+    @Mock
+    private RendezVousMapper rendezVousMapper;
+
+    private SimpleMeterRegistry meterRegistry;
+    private TodayAgendaCache cache;
+
+    @BeforeEach
+    public void setup() {
+        MockitoAnnotations.openMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        Clock clock = Clock.fixed(NOW.atZone(ZONE).toInstant(), ZONE);
+        cache = new TodayAgendaCache(rendezVousRepository, rendezVousMapper, meterRegistry, clock);
+        when(rendezVousRepository.findAgendaBetween(any(), any())).thenReturn(List.of(new RendezVous()));
+    }
+
+    @Test
+    public void testCallersReadTheDatabaseUntilTheAgendaIsBuilt() {
+        assertNull(cache.findUpcoming(DOCTOR_A));
+        assertEquals(1.0, meterRegistry.get("rendezvous.today.requests").tag("source", "database").counter().count());
+    }
+
+    @Test
+    public void testUpcomingAppointmentsComeBeforeLateOnes() {
+        build(appointment(1L, DOCTOR_A, NOW.plusHours(2), StatutRendezVous.PLANIFIE),
+              appointment(2L, DOCTOR_A, NOW.minusHours(1), StatutRendezVous.LATE),
+              appointment(3L, DOCTOR_A, NOW.plusHours(1), StatutRendezVous.PLANIFIE),
+              appointment(4L, DOCTOR_A, NOW.minusHours(2), StatutRendezVous.PLANIFIE),
+              appointment(5L, DOCTOR_B, NOW.plusHours(1), StatutRendezVous.PLANIFIE));
+
+        assertEquals(List.of(3L, 1L, 2L), ids(cache.findUpcoming(DOCTOR_A)));
+        assertEquals(List.of(3L, 5L, 1L, 2L), ids(cache.findUpcoming(null)));
+        assertEquals(List.of(), ids(cache.findUpcoming(UUID.randomUUID())));
+        assertEquals(3.0, meterRegistry.get("rendezvous.today.requests").tag("source", "cache").counter().count());
+        assertEquals(5.0, meterRegistry.get("rendezvous.today.cached").gauge().value());
+    }
+
+    @Test
+    public void testChangesPatchTheAgenda() {
+        build(appointment(1L, DOCTOR_A, NOW.plusHours(1), StatutRendezVous.PLANIFIE),
+              appointment(2L, DOCTOR_A, NOW.plusHours(2), StatutRendezVous.PLANIFIE));
+
+        // Booked today, booked tomorrow, moved to another doctor
+        cache.appointmentChanged(appointment(3L, DOCTOR_A, NOW.plusMinutes(30), StatutRendezVous.PLANIFIE));
+        cache.appointmentChanged(appointment(4L, DOCTOR_A, NOW.plusDays(1), StatutRendezVous.PLANIFIE));
+        cache.appointmentChanged(appointment(2L, DOCTOR_B, NOW.plusHours(2), StatutRendezVous.PLANIFIE));
+        assertEquals(List.of(3L, 1L), ids(cache.findUpcoming(DOCTOR_A)));
+        assertEquals(List.of(2L), ids(cache.findUpcoming(DOCTOR_B)));
+
+        cache.appointmentsMarkedLate(List.of(3L));
+        assertEquals(List.of(1L, 3L), ids(cache.findUpcoming(DOCTOR_A)));
+        assertEquals(StatutRendezVous.LATE, cache.findUpcoming(DOCTOR_A).get(1).getStatus());
+
+        cache.appointmentRemoved(1L);
+        cache.appointmentChanged(appointment(3L, DOCTOR_A, NOW.plusMinutes(30), StatutRendezVous.ANNULE));
+        assertEquals(List.of(), ids(cache.findUpcoming(DOCTOR_A)));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testAgendaOfThePreviousDayIsNotServed() {
+        MovingClock clock = new MovingClock(NOW);
+        TodayAgendaCache cache = new TodayAgendaCache(rendezVousRepository, rendezVousMapper, meterRegistry, clock);
+        when(rendezVousMapper.toResponses(anyList())).thenReturn(
+                List.of(appointment(1L, DOCTOR_A, NOW.plusHours(1), StatutRendezVous.PLANIFIE)));
+        cache.rebuild();
+        assertEquals(List.of(1L), ids(cache.findUpcoming(DOCTOR_A)));
+
+        // Past midnight, before the rebuild of the new day
+        clock.now = NOW.plusDays(1).withHour(0).withMinute(0).withSecond(5);
+        assertNull(cache.findUpcoming(DOCTOR_A));
+    }
+
+    private void build(RendezVousResponse... appointments) {
+        when(rendezVousMapper.toResponses(anyList())).thenReturn(List.of(appointments));
+        cache.rebuild();
+    }
+
+    private static List<Long> ids(List<RendezVousResponse> appointments) {
+        return appointments.stream().map(RendezVousResponse::getId).collect(Collectors.toList());
+    }
+
+    private static RendezVousResponse appointment(Long id, UUID idMedecin, LocalDateTime dateHeure, StatutRendezVous status) {
+        RendezVousResponse response = new RendezVousResponse();
+        response.setId(id);
+        response.setIdMedecin(idMedecin);
+        response.setDateHeure(dateHeure);
+        response.setDurationMinutes(30);
+        response.setStatus(status);
+        return response;
+    }
+
+    private static final class MovingClock extends Clock {
+        private LocalDateTime now;
+
+        private MovingClock(LocalDateTime now) {
+            this.now = now;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZONE;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now.atZone(ZONE).toInstant();
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.hdoc.sgdm.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.context.jdbc.SqlConfig;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.hdoc.sgdm.dto.common.VisiteDTO;
+import com.hdoc.sgdm.dto.request.StartVisiteRequest;
+import com.hdoc.sgdm.entity.Medecin;
+import com.hdoc.sgdm.entity.Patient;
+import com.hdoc.sgdm.entity.Utilisateur;
+import com.hdoc.sgdm.mapper.MedecinMapper;
+import com.hdoc.sgdm.mapper.VisiteMapper;
+import com.hdoc.sgdm.repository.MedecinRepository;
+import com.hdoc.sgdm.repository.PatientRepository;
+import com.hdoc.sgdm.repository.UtilisateurRepository;
+import com.hdoc.sgdm.repository.VisiteRepository;
+
+@DataJpaTest
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({VisiteService.class, VisiteMapper.class, MedecinMapper.class, DoctorPatientIndex.class, ActiveVisitBoard.class,
+        DoctorScheduleIndex.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Sql(scripts = "classpath:db/h2/visite_patient_in_progress_unique.sql",
+     config = @SqlConfig(transactionMode = SqlConfig.TransactionMode.ISOLATED))
+public class VisiteServiceConcurrencyTest {
+
+    private static final Logger log = LoggerFactory.getLogger(VisiteServiceConcurrencyTest.class);
+
+    private static final int DOCTORS = 4;
+    private static final int PATIENTS = 12;
+    private static final int THREADS = 16;
+    private static final int ATTEMPTS = 400;
+
+    @Autowired
+    private VisiteService visiteService;
+
+    @Autowired
+    private VisiteRepository visiteRepository;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private MedecinRepository medecinRepository;
+
+    @Autowired
+    private UtilisateurRepository utilisateurRepository;
+
+    @MockBean
+    private TodayAgendaCache todayAgendaCache;
+
+    private final List<UUID> medecinIds = new ArrayList<>();
+    private final List<String> ipps = new ArrayList<>();
+
+    @BeforeEach
+    public void setup() {
+        for (int i = 0; i < DOCTORS; i++) {
+            medecinIds.add(medecin(i).getIdMedecin());
+        }
+        for (int i = 0; i < PATIENTS; i++) {
+            ipps.add(patient(i).getIpp());
+        }
+    }
+
+    @AfterEach
+    public void cleanup() {
+        visiteRepository.deleteAll();
+        patientRepository.deleteAll();
+        medecinRepository.deleteAllInBatch();
+        utilisateurRepository.deleteAll();
+    }
+
+    @Test
+    public void testConcurrentStartsNeverDoubleAssign() throws Exception {
+        AtomicInteger started = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        // Who holds each doctor and each patient according to the visits started so far
+        Map<UUID, Long> doctorHolders = new ConcurrentHashMap<>();
+        Map<String, Long> patientHolders = new ConcurrentHashMap<>();
+        List<String> doubleAssignments = Collections.synchronizedList(new ArrayList<>());
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> results = new ArrayList<>();
+        long begin = System.nanoTime();
+        try {
+            for (int i = 0; i < ATTEMPTS; i++) {
+                results.add(executor.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    String ipp = ipps.get(random.nextInt(PATIENTS));
+                    UUID idMedecin = medecinIds.get(random.nextInt(DOCTORS));
+                    VisiteDTO visite;
+                    try {
+                        visite = visiteService.startVisite(ipp, request(idMedecin));
+                    } catch (IllegalStateException e) {
+                        // Doctor not available or patient already in a visit
+                        rejected.incrementAndGet();
+                        return null;
+                    }
+                    started.incrementAndGet();
+
+                    Long idVisite = visite.getIdVisite();
+                    Long otherVisit = doctorHolders.putIfAbsent(idMedecin, idVisite);
+                    if (otherVisit != null) {
+                        doubleAssignments.add("Doctor " + idMedecin + " in visits " + otherVisit + " and " + idVisite);
+                    }
+                    otherVisit = patientHolders.putIfAbsent(ipp, idVisite);
+                    if (otherVisit != null) {
+                        doubleAssignments.add("Patient " + ipp + " in visits " + otherVisit + " and " + idVisite);
+                    }
+
+                    // Release before ending, so a holder is never released by the database before the test
+                    doctorHolders.remove(idMedecin, idVisite);
+                    patientHolders.remove(ipp, idVisite);
+                    visiteService.endVisite(idVisite);
+                    return null;
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        double seconds = (System.nanoTime() - begin) / 1e9;
+        log.info("{} attempts on {} threads in {} s ({} attempts/s): {} started, {} rejected",
+                ATTEMPTS, THREADS, String.format("%.2f", seconds), String.format("%.0f", ATTEMPTS / seconds),
+                started.get(), rejected.get());
+
+        assertEquals(List.of(), doubleAssignments);
+        assertEquals(ATTEMPTS, started.get() + rejected.get());
+        assertTrue(started.get() > DOCTORS, "Doctors should have been released and taken again");
+        assertTrue(rejected.get() > 0, "Attempts should have contended for the same doctors");
+
+        // Every visit was ended, so every doctor is available again
+        assertTrue(visiteRepository.findByStatutOrderByDateDebutDesc("IN_PROGRESS").isEmpty());
+        for (Medecin medecin : medecinRepository.findAllById(medecinIds)) {
+            assertEquals("AVAILABLE", medecin.getStatus());
+            assertTrue(medecin.getVersion() >= 2, "Each assignment increments the version");
+        }
+    }
+
+    @Test
+    public void testUnavailableDoctorIsNotAssigned() {
+        UUID idMedecin = medecinIds.get(0);
+        visiteService.startVisite(ipps.get(0), request(idMedecin));
+
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> visiteService.startVisite(ipps.get(1), request(idMedecin)));
+        assertTrue(e.getMessage().contains("pas disponible"));
+
+        // The rejected start left nothing behind
+        assertEquals(1, visiteRepository.findByStatutOrderByDateDebutDesc("IN_PROGRESS").size());
+    }
+
+    private static StartVisiteRequest request(UUID idMedecin) {
+        StartVisiteRequest request = new StartVisiteRequest();
+        request.setTypeVisite("CONSULTATION");
+        request.setMotif("Consultation de routine");
+        request.setService("Médecine générale");
+        request.setIdMedecin(idMedecin.toString());
+        return request;
+    }
+
+    private Medecin medecin(int i) {
+        Utilisateur utilisateur = utilisateurRepository.save(TestFixtures.utilisateur(i));
+        return medecinRepository.save(TestFixtures.medecin(utilisateur));
+    }
+
+    private Patient patient(int i) {
+        return patientRepository.save(TestFixtures.patient(i));
+    }
+}
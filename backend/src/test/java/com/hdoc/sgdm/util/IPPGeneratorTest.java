@@ -0,0 +1,162 @@
+package com.hdoc.sgdm.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.hdoc.sgdm.dto.request.CreatePatientRequest;
+import com.hdoc.sgdm.dto.response.PatientResponse;
+import com.hdoc.sgdm.entity.Patient;
+import com.hdoc.sgdm.repository.PatientRepository;
+import com.hdoc.sgdm.repository.SequenceCompteurRepository;
+import com.hdoc.sgdm.repository.VisiteRepository;
+import com.hdoc.sgdm.service.DoctorPatientIndex;
+import com.hdoc.sgdm.service.PatientSearchIndex;
+import com.hdoc.sgdm.service.PatientService;
+
+@DataJpaTest
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(IppBlockAllocator.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class IPPGeneratorTest {
+
+    private static final int NODES = 3;
+    private static final int THREADS = 12;
+    private static final int PATIENTS = 300;
+
+    @Autowired
+    private IppBlockAllocator blockAllocator;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private VisiteRepository visiteRepository;
+
+    @Autowired
+    private SequenceCompteurRepository sequenceCompteurRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    public void cleanup() {
+        patientRepository.deleteAll();
+        sequenceCompteurRepository.deleteAll();
+    }
+
+    @Test
+    public void testConcurrentPatientCreationAcrossNodesNeverDuplicatesIpp() throws Exception {
+        // Each simulated node has its own generator, and therefore its own in-memory block
+        List<PatientService> nodes = new ArrayList<>();
+        for (int i = 0; i < NODES; i++) {
+            nodes.add(new PatientService(patientRepository, visiteRepository, new IPPGenerator(blockAllocator, 7),
+                    mock(PatientSearchIndex.class), mock(DoctorPatientIndex.class)));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        Set<String> ipps = ConcurrentHashMap.newKeySet();
+        List<Future<PatientResponse>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < PATIENTS; i++) {
+                PatientService node = nodes.get(i % NODES);
+                CreatePatientRequest request = request(i);
+                results.add(executor.submit(() -> node.createPatient(request)));
+            }
+            for (Future<PatientResponse> result : results) {
+                PatientResponse response = result.get();
+                assertTrue(response.isSuccess(), response.getMessage());
+                ipps.add(response.getPatient().getIpp());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(PATIENTS, ipps.size());
+        assertEquals(PATIENTS, patientRepository.count());
+        ipps.forEach(ipp -> assertTrue(ipp.matches("P\\d{6}"), ipp));
+    }
+
+    @Test
+    public void testCounterIsSeededFromExistingIpps() {
+        Patient existing = Patient.builder()
+                .ipp("P000041")
+                .nom("Alaoui")
+                .prenom("Sara")
+                .dateNaissance(LocalDate.of(1990, 1, 1))
+                .lieuNaissance("Rabat")
+                .sexe("F")
+                .adresse("1 rue des Orangers")
+                .ville("Rabat")
+                .telephone("0600000000")
+                .nationalite("Marocaine")
+                .etatCivil("Célibataire")
+                .email("sara.alaoui@example.com")
+                .cin("AA000041")
+                .typeAdmission("NORMAL")
+                .dateAdmission(LocalDate.now())
+                .dateCreation(LocalDateTime.now())
+                .build();
+        patientRepository.save(existing);
+
+        IPPGenerator generator = new IPPGenerator(blockAllocator, 10);
+
+        assertEquals("P000042", generator.generateIPP());
+        assertEquals("P000043", generator.generateIPP());
+
+        // A second node gets the next block, not the numbers already reserved by the first one
+        assertEquals("P000052", new IPPGenerator(blockAllocator, 10).generateIPP());
+    }
+
+    @Test
+    public void testIppIsNotReservedWhileATransactionHoldsAConnection() {
+        IPPGenerator generator = new IPPGenerator(blockAllocator, 10);
+
+        assertThrows(IllegalStateException.class,
+                () -> new TransactionTemplate(transactionManager).executeWithoutResult(status -> generator.generateIPP()));
+        assertEquals("P000001", generator.generateIPP());
+    }
+
+    private static CreatePatientRequest request(int i) {
+        CreatePatientRequest request = new CreatePatientRequest();
+        request.setNom("Nom" + i);
+        request.setPrenom("Prenom" + i);
+        request.setDateNaissance(LocalDate.of(1980, 1, 1).plusDays(i));
+        request.setLieuNaissance("Casablanca");
+        request.setSexe(i % 2 == 0 ? "M" : "F");
+        request.setAdresse(i + " boulevard Zerktouni");
+        request.setVille("Casablanca");
+        request.setTelephone("0600000000");
+        request.setNationalite("Marocaine");
+        request.setEtatCivil("Célibataire");
+        request.setEmail("patient" + i + "@example.com");
+        request.setCin("CIN" + i);
+        request.setTypeAdmission("NORMAL");
+        request.setDateAdmission(LocalDate.now());
+        return request;
+    }
+}
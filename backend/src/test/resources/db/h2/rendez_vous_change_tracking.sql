@@ -0,0 +1,17 @@
+-- H2 has no PL/pgSQL triggers. Stand-in for the change tracking of V10 and V14: column
+-- defaults for the inserts and ON UPDATE expressions for the updates. H2 has no transaction
+-- IDs either, so every change gets the next value of a sequence of its own, and the sync
+-- horizon is the value after the last change: the tests commit every change.
+CREATE SEQUENCE IF NOT EXISTS rendez_vous_change_seq;
+
+ALTER TABLE rendez_vous ALTER COLUMN change_seq SET DEFAULT NEXT VALUE FOR rendez_vous_change_seq;
+ALTER TABLE rendez_vous ALTER COLUMN change_seq SET ON UPDATE NEXT VALUE FOR rendez_vous_change_seq;
+ALTER TABLE rendez_vous ALTER COLUMN date_modification SET DEFAULT LOCALTIMESTAMP;
+ALTER TABLE rendez_vous ALTER COLUMN date_modification SET ON UPDATE LOCALTIMESTAMP;
+
+CREATE SEQUENCE IF NOT EXISTS rendez_vous_change_xid;
+
+ALTER TABLE rendez_vous ALTER COLUMN change_xid SET DEFAULT NEXT VALUE FOR rendez_vous_change_xid;
+ALTER TABLE rendez_vous ALTER COLUMN change_xid SET ON UPDATE NEXT VALUE FOR rendez_vous_change_xid;
+
+CREATE ALIAS IF NOT EXISTS rendez_vous_sync_horizon FOR 'com.hdoc.sgdm.service.RendezVousCalendarSyncTest.syncHorizon';
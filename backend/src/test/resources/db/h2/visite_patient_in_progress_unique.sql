@@ -0,0 +1,7 @@
+-- H2 has no partial indexes. Stand-in for uk_visite_patient_in_progress (V8): a generated
+-- column holding id_patient only while the visit is in progress, with a unique index on it.
+ALTER TABLE visite ADD COLUMN IF NOT EXISTS patient_in_progress UUID
+    GENERATED ALWAYS AS (CASE WHEN statut = 'IN_PROGRESS' THEN id_patient END);
+
+CREATE UNIQUE INDEX IF NOT EXISTS uk_visite_patient_in_progress
+    ON visite (patient_in_progress);